@@ -273,7 +273,7 @@ public class ARQ
      * choosing the value.
      * <p/>
      * Operations currently affected by this symbol: <br>
-     * ORDER BY, SPARQL Update, CONSTRUCT (optionally)
+     * ORDER BY, SPARQL Update, CONSTRUCT (optionally), hash joins and hash left joins
      * <p/>
      * TODO: Give a reasonable suggested value here.  10,000?
      * <p/>
@@ -281,7 +281,7 @@ public class ARQ
      */
     // Some possible additions to the list:
     // Sort: DISTINCT, merge joins<br>
-    // Hash table: GROUP BY, MINUS, SERVICE, VALUES, and hash joins <br>
+    // Hash table: GROUP BY, MINUS, SERVICE, VALUES <br>
     public static final Symbol spillToDiskThreshold = SystemARQ.allocSymbol("spillToDiskThreshold") ;
     
     // Optimizer controls.
@@ -18,9 +18,10 @@
 
 package org.apache.jena.sparql.engine.join;
 
-import java.util.Iterator ;
-import java.util.List ;
+import java.util.* ;
 
+import org.apache.jena.atlas.data.ThresholdPolicy ;
+import org.apache.jena.atlas.data.ThresholdPolicyFactory ;
 import org.apache.jena.atlas.iterator.Iter ;
 import org.apache.jena.sparql.algebra.Algebra ;
 import org.apache.jena.sparql.core.Var ;
@@ -35,6 +36,12 @@ import org.apache.jena.sparql.engine.join.JoinKey ;
  *  
  * This code materializes one input into the probe table
  * then hash joins the other input from the stream side.
+ * <p>
+ * If the probe table exceeds the {@link ThresholdPolicy} of the execution context
+ * (see {@link org.apache.jena.query.ARQ#spillToDiskThreshold}), both inputs are
+ * written to disk in partitions by the join key hash and joined a partition at a time
+ * (a grace hash join). At most a threshold's worth of rows is held in memory: a
+ * partition that is too large is joined in several passes over the other input.
  */
 
 public abstract class AbstractIterHashJoin extends QueryIter2 {
@@ -58,6 +65,12 @@ public abstract class AbstractIterHashJoin extends QueryIter2 {
     Phase state = Phase.INIT ;
     
     private Binding slot = null ;
+    
+    // Spill to disk.
+    private final ThresholdPolicy<Binding> policy ;
+    private HashJoinPartitions          spillProbe      = null ;
+    private HashJoinPartitions          spillStream     = null ;
+    private Iterator<Binding>           iterSpill       = null ;
 
     protected AbstractIterHashJoin(JoinKey joinKey, QueryIterator probeIter, QueryIterator streamIter, ExecutionContext execCxt) {
         super(probeIter, streamIter, execCxt) ;
@@ -80,20 +93,43 @@ public abstract class AbstractIterHashJoin extends QueryIter2 {
         this.iterStream = streamIter ;
         this.hashTable = new HashProbeTable(joinKey) ;
         this.iterCurrent = null ;
+        this.policy = thresholdPolicy(execCxt) ;
         buildHashTable(probeIter) ;
         
     }
+    
+    private static ThresholdPolicy<Binding> thresholdPolicy(ExecutionContext execCxt) {
+        if ( execCxt == null || execCxt.getContext() == null )
+            return ThresholdPolicyFactory.never() ;
+        return ThresholdPolicyFactory.policyFromContext(execCxt.getContext()) ;
+    }
         
     private void buildHashTable(QueryIterator iter1) {
         state = Phase.HASH ;
         for (; iter1.hasNext();) {
             Binding row1 = iter1.next() ;
             s_countProbe ++ ;
+            if ( spillProbe != null ) {
+                spillProbe.add(row1) ;
+                continue ;
+            }
             hashTable.put(row1) ;
+            policy.increment(row1) ;
+            if ( policy.isThresholdExceeded() ) {
+                // Move the probe table to disk.
+                spillProbe = new HashJoinPartitions(joinKey, JoinLib.SPILL_PARTITIONS) ;
+                hashTable.values().forEachRemaining(spillProbe::add) ;
+                hashTable.clear() ;
+            }
         }
         iter1.close() ;
         state = Phase.STREAM ;
     }
+    
+    /** Whether the probe table has been written to disk. */ 
+    protected boolean isSpilled() {
+        return spillProbe != null ;
+    }
 
     @Override
     protected boolean hasNextBinding() {
@@ -131,6 +167,9 @@ public abstract class AbstractIterHashJoin extends QueryIter2 {
             case STREAM :
         }
         
+        if ( isSpilled() )
+            return doOneSpilled() ;
+        
         for(;;) {
             // Ensure we are processing a row. 
             while ( iterCurrent == null ) {
@@ -181,6 +220,161 @@ public abstract class AbstractIterHashJoin extends QueryIter2 {
     }    
     
     
+    private Binding doOneSpilled() {
+        if ( iterSpill == null ) {
+            spillStream = new HashJoinPartitions(joinKey, spillProbe.numPartitions()) ;
+            for (; iterStream.hasNext();) {
+                s_countScan ++ ;
+                spillStream.add(iterStream.next()) ;
+            }
+            iterSpill = preserveStreamRows()
+                ? new SpilledJoin(spillStream, spillProbe, false)
+                : new SpilledJoin(spillProbe, spillStream, true) ;
+        }
+        if ( iterSpill.hasNext() ) {
+            s_countResults ++ ;
+            return iterSpill.next() ;
+        }
+        // Unmatched rows have been handled in the passes; there is no trailer.
+        state = Phase.DONE ;
+        return null ;
+    }
+    
+    /**
+     * Join of spilled inputs. Each pass loads (some of) a partition of the "table" side
+     * into memory and scans the rows of the other side that may match it.
+     * All the matches of a table side row are found in the pass that loads it,
+     * so the rows of the table side that are kept when they yield no matches
+     * (left join) are found after each pass.  
+     */
+    private class SpilledJoin implements Iterator<Binding> {
+        private final HashJoinPartitions table ;
+        private final HashJoinPartitions scan ;
+        private final boolean            tableIsProbe ;
+        // Partition of the table side; numPartitions is the rows without a join key.
+        private int                      partition    = -1 ;
+        private Iterator<Binding>        iterTable    = null ;
+        private HashProbeTable           chunk        = null ;
+        private Set<Binding>             chunkHits    = null ;
+        private Iterator<Binding>        iterScan     = null ;
+        private Iterator<Binding>        iterResults  = Iter.nullIterator() ;
+
+        SpilledJoin(HashJoinPartitions table, HashJoinPartitions scan, boolean tableIsProbe) {
+            this.table = table ;
+            this.scan = scan ;
+            this.tableIsProbe = tableIsProbe ;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while ( ! iterResults.hasNext() ) {
+                if ( ! step() )
+                    return false ;
+            }
+            return true ;
+        }
+
+        @Override
+        public Binding next() {
+            if ( ! hasNext() )
+                throw new NoSuchElementException() ;
+            return iterResults.next() ;
+        }
+
+        // Produce the next results. Return false when finished.
+        private boolean step() {
+            if ( chunk != null && iterScan.hasNext() ) {
+                iterResults = matches(iterScan.next()).iterator() ;
+                return true ;
+            }
+            if ( chunk != null ) {
+                // End of a pass.
+                iterResults = noMatches().iterator() ;
+                chunk = null ;
+                return true ;
+            }
+            if ( iterTable != null && iterTable.hasNext() ) {
+                loadChunk() ;
+                return true ;
+            }
+            // Next partition.
+            iterTable = null ;
+            while ( partition < table.numPartitions() ) {
+                partition++ ;
+                if ( partition < table.numPartitions() ) {
+                    if ( table.size(partition) > 0 ) {
+                        iterTable = table.rows(partition) ;
+                        break ;
+                    }
+                } else if ( table.sizeNoKey() > 0 ) {
+                    iterTable = table.rowsNoKey() ;
+                    break ;
+                }
+            }
+            if ( iterTable == null )
+                return false ;
+            loadChunk() ;
+            return true ;
+        }
+
+        private void loadChunk() {
+            chunk = new HashProbeTable(joinKey) ;
+            chunkHits = Collections.newSetFromMap(new IdentityHashMap<>()) ;
+            policy.reset() ;
+            do {
+                Binding row = iterTable.next() ;
+                chunk.put(row) ;
+                policy.increment(row) ;
+            } while ( iterTable.hasNext() && ! policy.isThresholdExceeded() ) ;
+            iterScan = scanRows(partition) ;
+        }
+
+        // The rows of the scan side that may match the rows of a table side partition.
+        private Iterator<Binding> scanRows(int idx) {
+            if ( idx < table.numPartitions() )
+                // Compatible rows have the same key hash, and rows without the key may match any row.
+                return Iter.concat(scan.rows(idx), scan.rowsNoKey()) ;
+            // Rows without the key may match any row.
+            Iterator<Binding> iter = scan.rowsNoKey() ;
+            for ( int i = 0 ; i < scan.numPartitions() ; i++ )
+                iter = Iter.concat(scan.rows(i), iter) ;
+            return iter ;
+        }
+
+        private List<Binding> matches(Binding rowScan) {
+            List<Binding> results = new ArrayList<>() ;
+            Iterator<Binding> iter = chunk.getCandidates(rowScan) ;
+            while ( iter.hasNext() ) {
+                Binding rowTable = iter.next() ;
+                Binding rowProbe = tableIsProbe ? rowTable : rowScan ;
+                Binding rowStream = tableIsProbe ? rowScan : rowTable ;
+                Binding r = Algebra.merge(rowProbe, rowStream) ;
+                if ( r == null )
+                    continue ;
+                Binding r2 = yieldOneResult(rowProbe, rowStream, r) ;
+                if ( r2 == null )
+                    continue ;
+                chunkHits.add(rowTable) ;
+                results.add(r2) ;
+            }
+            return results ;
+        }
+
+        private List<Binding> noMatches() {
+            List<Binding> results = new ArrayList<>() ;
+            Iterator<Binding> iter = chunk.values() ;
+            while ( iter.hasNext() ) {
+                Binding rowTable = iter.next() ;
+                if ( chunkHits.contains(rowTable) )
+                    continue ;
+                Binding b = tableIsProbe ? noYieldedProbeRow(rowTable) : noYieldedRows(rowTable) ;
+                if ( b != null )
+                    results.add(b) ;
+            }
+            return results ;
+        }
+    }
+    
     private Binding doOneTail() {
         // Only in TRAILING
         if ( iterTail.hasNext() ) {
@@ -217,6 +411,26 @@ public abstract class AbstractIterHashJoin extends QueryIter2 {
      * @return QueryIterator or null
      */
     protected abstract QueryIterator joinFinished() ;
+    
+    /**
+     * Whether rows of the stream side that yield no matches are kept (see
+     * {@link #noYieldedRows}). When the join spills to disk, the side whose unmatched rows
+     * are kept is loaded into memory a partition at a time.
+     */
+    protected boolean preserveStreamRows() {
+        return false ;
+    }
+    
+    /**
+     * Signal a row of the probe table that yields no matches when the probe table has
+     * been written to disk (see {@link #isSpilled}).
+     * This method can return a binding (the outer join case) which will then be yielded.
+     * @param rowProbe
+     * @return Binding or null
+     */
+    protected Binding noYieldedProbeRow(Binding rowProbe) {
+        return null ;
+    }
         
     @Override
     protected void closeSubIterator() {
@@ -230,6 +444,10 @@ public abstract class AbstractIterHashJoin extends QueryIter2 {
         // In case it's a peek iterator.
         iterStream.close() ;
         hashTable.clear(); 
+        if ( spillProbe != null )
+            spillProbe.close() ;
+        if ( spillStream != null )
+            spillStream.close() ;
     }
 
     @Override
@@ -0,0 +1,103 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.sparql.engine.join;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.apache.jena.atlas.data.BagFactory;
+import org.apache.jena.atlas.data.DataBag;
+import org.apache.jena.atlas.data.ThresholdPolicyFactory;
+import org.apache.jena.atlas.iterator.Iter;
+import org.apache.jena.atlas.lib.Closeable;
+import org.apache.jena.riot.system.SerializationFactoryFinder;
+import org.apache.jena.sparql.engine.binding.Binding;
+
+/** The rows of one input to a hash join, written to disk in partitions
+ * by the hash of the join key. Compatible rows with the join key are
+ * in the same partition. Rows without the join key are kept separately
+ * as they may match any row of the other input.
+ */
+class HashJoinPartitions implements Closeable {
+    private final JoinKey               joinKey;
+    private final List<DataBag<Binding>> partitions;
+    private final DataBag<Binding>      noKeyPartition;
+
+    HashJoinPartitions(JoinKey joinKey, int numPartitions) {
+        this.joinKey = joinKey;
+        this.partitions = new ArrayList<>(numPartitions);
+        for ( int i = 0 ; i < numPartitions ; i++ )
+            partitions.add(newBag());
+        this.noKeyPartition = newBag();
+    }
+
+    // Straight to disk: there are many partitions.
+    private static DataBag<Binding> newBag() {
+        return BagFactory.newDefaultBag(ThresholdPolicyFactory.count(0),
+                                        SerializationFactoryFinder.bindingSerializationFactory());
+    }
+
+    public void add(Binding row) {
+        Object longHash = JoinLib.hash(joinKey, row);
+        if ( longHash == JoinLib.noKeyHash ) {
+            noKeyPartition.add(row);
+            return;
+        }
+        int idx = (longHash.hashCode() & Integer.MAX_VALUE) % partitions.size();
+        partitions.get(idx).add(row);
+    }
+
+    public int numPartitions() {
+        return partitions.size();
+    }
+
+    /** Size of a partition */
+    public long size(int idx) {
+        return partitions.get(idx).size();
+    }
+
+    /** Rows of a partition. */
+    public Iterator<Binding> rows(int idx) {
+        return rows(partitions.get(idx));
+    }
+
+    public long sizeNoKey() {
+        return noKeyPartition.size();
+    }
+
+    /** Rows without the join key. */
+    public Iterator<Binding> rowsNoKey() {
+        return rows(noKeyPartition);
+    }
+
+    private static Iterator<Binding> rows(DataBag<Binding> bag) {
+        // An empty bag has no file to read.
+        if ( bag.size() == 0 )
+            return Iter.nullIterator();
+        return bag.iterator();
+    }
+
+    @Override
+    public void close() {
+        for ( DataBag<Binding> bag : partitions )
+            bag.close();
+        noKeyPartition.close();
+    }
+}
@@ -113,5 +113,6 @@ class HashProbeTable {
     
     public void clear() {
         buckets.clear();
+        noKeyBucket.clear();
     }
 }
@@ -28,6 +28,9 @@ class JoinLib {
     /** Control stats output / development use */ 
     static final boolean JOIN_EXPLAIN = false;
 
+    /** Number of partitions of each input when a hash join spills to disk. */
+    static final int SPILL_PARTITIONS = 32;
+
     // No hash key marker.
     public static final Object noKeyHash = new Object() ;
     public static final long nullHashCode = 5 ;
@@ -92,7 +92,9 @@ public class QueryIterHashLeftJoin_Left extends AbstractIterHashJoin {
     protected Binding yieldOneResult(Binding rowCurrentProbe, Binding rowStream, Binding rowResult) {
         if ( conditions != null && ! conditions.isSatisfied(rowResult, getExecContext()) )
             return null ;
-        leftHits.add(rowCurrentProbe) ;
+        // When spilled, unmatched left rows are found partition by partition.
+        if ( ! isSpilled() )
+            leftHits.add(rowCurrentProbe) ;
         return rowResult ; 
     }
     
@@ -102,6 +104,11 @@ public class QueryIterHashLeftJoin_Left extends AbstractIterHashJoin {
         return null;
     }
     
+    @Override
+    protected Binding noYieldedProbeRow(Binding rowProbe) {
+        return rowProbe;
+    }
+    
     @Override
     protected QueryIterator joinFinished() {
         Iterator<Binding> iter = Iter.filter(hashTable.values(), b-> ! leftHits.contains(b) )  ;
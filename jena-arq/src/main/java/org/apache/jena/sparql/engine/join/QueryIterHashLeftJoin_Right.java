@@ -99,6 +99,12 @@ public class QueryIterHashLeftJoin_Right extends AbstractIterHashJoin {
         return rowCurrentProbe;
     }
     
+    // Left is stream, right is the probe table.
+    @Override
+    protected boolean preserveStreamRows() {
+        return true ;
+    }
+    
     @Override
     protected QueryIterator joinFinished() {
         return null ;
@@ -0,0 +1,81 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.sparql.engine.join;
+
+import org.apache.jena.query.ARQ ;
+import org.apache.jena.sparql.algebra.Table ;
+import org.apache.jena.sparql.algebra.TableFactory ;
+import org.apache.jena.sparql.core.Var ;
+import org.apache.jena.sparql.engine.ExecutionContext ;
+import org.apache.jena.sparql.engine.QueryIterator ;
+import org.apache.jena.sparql.engine.binding.BindingFactory ;
+import org.apache.jena.sparql.engine.binding.BindingMap ;
+import org.apache.jena.sparql.expr.ExprList ;
+import org.apache.jena.sparql.util.Context ;
+import org.apache.jena.sparql.util.NodeFactoryExtra ;
+import org.junit.Test ;
+
+/** Hash join that writes its inputs to disk */
+public class TestHashJoinSpill extends AbstractTestInnerJoin {
+    /** Execution context with a spill to disk threshold */ 
+    static ExecutionContext spillExecCxt(long threshold) {
+        Context cxt = new Context() ;
+        cxt.set(ARQ.spillToDiskThreshold, threshold) ;
+        return new ExecutionContext(cxt, null, null, null) ;
+    }
+
+    @Override
+    public QueryIterator join(JoinKey joinKey, Table left, Table right, ExprList conditions) {
+        ExecutionContext execCxt = spillExecCxt(1) ;
+        return Join.hashJoin(joinKey, left.iterator(execCxt), right.iterator(execCxt), execCxt) ;
+    }
+
+    // Rows (?a ?b) with ?a in 0..mod-1
+    private static Table table(String b, int size, int mod) {
+        Var varA = Var.alloc("a") ;
+        Var varB = Var.alloc(b) ;
+        Table table = TableFactory.create() ;
+        for ( int i = 0 ; i < size ; i++ ) {
+            BindingMap row = BindingFactory.create() ;
+            row.add(varA, NodeFactoryExtra.intToNode(i % mod)) ;
+            row.add(varB, NodeFactoryExtra.intToNode(i)) ;
+            table.addBinding(row) ;
+        }
+        return table ;
+    }
+
+    private static long count(QueryIterator qIter) {
+        long x = 0 ;
+        for ( ; qIter.hasNext() ; qIter.next() )
+            x++ ;
+        return x ;
+    }
+
+    @Test public void join_spill_01() {
+        Table left = table("b", 500, 100) ;
+        Table right = table("c", 300, 50) ;
+        JoinKey joinKey = JoinKey.create(Var.alloc("a")) ;
+        ExecutionContext execCxt = spillExecCxt(20) ;
+        long x1 = count(Join.hashJoin(joinKey, left.iterator(null), right.iterator(null), null)) ;
+        long x2 = count(Join.hashJoin(joinKey, left.iterator(execCxt), right.iterator(execCxt), execCxt)) ;
+        // Each ?a in 0..49: 5 left rows, 6 right rows.  
+        assertEquals(50*5*6, x1) ;
+        assertEquals(x1, x2) ;
+    }
+}
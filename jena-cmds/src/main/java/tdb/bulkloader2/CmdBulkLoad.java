@@ -0,0 +1,122 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tdb.bulkloader2;
+
+import java.util.Arrays ;
+import java.util.List ;
+
+import jena.cmd.ArgDecl;
+import jena.cmd.CmdException;
+import jena.cmd.CmdGeneral;
+import org.apache.jena.atlas.lib.FileOps ;
+import org.apache.jena.atlas.logging.LogCtl ;
+import org.apache.jena.riot.Lang ;
+import org.apache.jena.riot.RDFLanguages ;
+import org.apache.jena.system.JenaSystem ;
+import org.apache.jena.tdb.base.file.Location ;
+import org.apache.jena.tdb.setup.DatasetBuilderStd ;
+import org.apache.jena.tdb.store.bulkloader2.ProcBulkLoad ;
+import tdb.cmdline.CmdTDB ;
+
+/** Bulk load a new database in one JVM - data phase, sorting and index building. */
+public class CmdBulkLoad extends CmdGeneral
+{
+    static {
+        LogCtl.setLog4j();
+        JenaSystem.init();
+    }
+
+    private static ArgDecl argLocation   = new ArgDecl(ArgDecl.HasValue, "loc", "location");
+    private static ArgDecl argThreads    = new ArgDecl(ArgDecl.HasValue, "threads");
+    private static ArgDecl argSortSize   = new ArgDecl(ArgDecl.HasValue, "sort-size");
+    private static ArgDecl argNoStats    = new ArgDecl(ArgDecl.NoValue, "nostats");
+
+    private List<String>   datafiles;
+    private Location       location;
+    private boolean        collectStats  = true;
+    private int            threads       = Runtime.getRuntime().availableProcessors();
+    private int            sortSize      = ProcBulkLoad.SortRunSize;
+
+    public static void main(String... argv) {
+        CmdTDB.init();
+        DatasetBuilderStd.setOptimizerWarningFlag(false);
+        new CmdBulkLoad(argv).mainRun();
+    }
+
+    public CmdBulkLoad(String... argv) {
+        super(argv);
+        super.add(argLocation, "--loc", "Location");
+        super.add(argThreads, "--threads", "Number of threads for parsing and sorting (default: number of processors)");
+        super.add(argSortSize, "--sort-size", "Number of tuples sorted in memory as one run");
+        super.add(argNoStats, "--nostats", "Don't collect stats");
+    }
+
+    @Override
+    protected void processModulesAndArgs() {
+        if ( !super.contains(argLocation) ) throw new CmdException("Required: --loc DIR") ;
+        location = Location.create(super.getValue(argLocation)) ;
+        if ( super.contains(argThreads) )
+            threads = positiveInt(argThreads) ;
+        if ( super.contains(argSortSize) )
+            sortSize = positiveInt(argSortSize) ;
+        if ( super.contains(argNoStats) )
+            collectStats = false ;
+
+        datafiles  = getPositional() ;
+        if ( datafiles.isEmpty() )
+            datafiles = Arrays.asList("-") ;
+
+        // ---- Checking.
+        for ( String filename : datafiles ) {
+            Lang lang = RDFLanguages.filenameToLang(filename, RDFLanguages.NQUADS);
+            if ( lang == null )
+                // Does not happen due to default above.
+                cmdError("File suffix not recognized: " + filename);
+            if ( !filename.equals("-") && !FileOps.exists(filename) )
+                cmdError("File does not exist: " + filename);
+        }
+    }
+
+    private int positiveInt(ArgDecl arg) {
+        String str = super.getValue(arg) ;
+        try {
+            int x = Integer.parseInt(str) ;
+            if ( x <= 0 )
+                throw new CmdException("Not a positive number: "+str) ;
+            return x ;
+        } catch (NumberFormatException ex) {
+            throw new CmdException("Not a number: "+str) ;
+        }
+    }
+
+    @Override
+    protected void exec() {
+        ProcBulkLoad.exec(location, datafiles, collectStats, threads, sortSize);
+    }
+
+    @Override
+    protected String getSummary() {
+        return getCommandName() + " --loc=DIR [--threads=N] [--sort-size=N] [--nostats] FILE ...";
+    }
+
+    @Override
+    protected String getCommandName() {
+        return this.getClass().getName();
+    }
+}
@@ -18,32 +18,44 @@
 
 package tdb;
 
+import jena.cmd.ArgDecl ;
+import jena.cmd.CmdException ;
 import org.apache.jena.tdb.TDBBackup ;
 import tdb.cmdline.CmdTDB ;
 
 public class tdbbackup extends CmdTDB
 {
+    private static final ArgDecl argFiles       = new ArgDecl(ArgDecl.HasValue, "files") ;
+    private static final ArgDecl argIncremental = new ArgDecl(ArgDecl.HasValue, "incremental", "incr") ;
+    
     static public void main(String... argv)
     { 
         CmdTDB.init() ;
-        new tdbdump(argv).mainRun() ;
+        new tdbbackup(argv).mainRun() ;
     }
 
     protected tdbbackup(String[] argv)
     {
         super(argv) ;
+        super.add(argFiles, "--files=DIR", "Copy the database files into directory DIR (a hot backup)") ;
+        super.add(argIncremental, "--incremental=PREVDIR", "With --files, copy only the blocks changed since the backup in PREVDIR") ;
     }
     
     @Override
     protected String getSummary()
     {
-        return getCommandName()+" : Write N-Quads to stdout" ;
+        return getCommandName()+" : Write N-Quads to stdout, or with --files, copy the database files" ;
     }
 
     @Override
     protected void exec()
     {
+        if ( contains(argIncremental) && ! contains(argFiles) )
+            throw new CmdException("--incremental requires --files") ;
+        if ( contains(argFiles) ) {
+            TDBBackup.backupFiles(getLocation(), getValue(argFiles), getValue(argIncremental)) ;
+            return ;
+        }
         TDBBackup.backup(getLocation(), System.out) ;
     }
 }
-
@@ -0,0 +1,53 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package tdb;
+
+import org.apache.jena.tdb.TDB ;
+import org.apache.jena.tdb.TDBCompact ;
+import org.apache.jena.tdb.sys.Compaction ;
+import tdb.cmdline.CmdTDB ;
+
+public class tdbcompact extends CmdTDB
+{
+    static public void main(String... argv)
+    { 
+        CmdTDB.init() ;
+        new tdbcompact(argv).mainRun() ;
+    }
+
+    protected tdbcompact(String[] argv)
+    {
+        super(argv) ;
+    }
+    
+    @Override
+    protected String getSummary()
+    {
+        return getCommandName()+" : Rewrite the database files, reclaiming unused space" ;
+    }
+
+    @Override
+    protected void exec()
+    {
+        Compaction.Report report = TDBCompact.compact(getLocation(), isVerbose() ? TDB.logInfo : null) ;
+        if ( ! isQuiet() )
+            System.out.println(report) ;
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package tdb;
+
+import java.io.File ;
+import java.util.Iterator ;
+
+import jena.cmd.ArgDecl ;
+import jena.cmd.CmdException ;
+
+import org.apache.jena.sparql.core.DatasetPrefixStorage ;
+import org.apache.jena.sparql.core.Quad ;
+import org.apache.jena.tdb.StoreConnection ;
+import org.apache.jena.tdb.base.file.Location ;
+import org.apache.jena.tdb.lib.NodeLib ;
+import org.apache.jena.tdb.setup.StoreParams ;
+import org.apache.jena.tdb.store.DatasetGraphTDB ;
+import tdb.cmdline.CmdTDB ;
+
+/** Copy a TDB database to a new location, changing the encoding of nodes in the node table.
+ * The node encoding is fixed when a database is created so this is the way to
+ * move existing data to another encoding.
+ */
+public class tdbrecode extends CmdTDB
+{
+    private static final ArgDecl argOut      = new ArgDecl(ArgDecl.HasValue, "out") ;
+    private static final ArgDecl argEncoding = new ArgDecl(ArgDecl.HasValue, "encoding") ;
+
+    private String outDir ;
+    private String encoding = NodeLib.EncodingBinary ;
+
+    static public void main(String... argv)
+    { 
+        CmdTDB.init() ;
+        new tdbrecode(argv).mainRun() ;
+    }
+
+    protected tdbrecode(String[] argv)
+    {
+        super(argv) ;
+        super.add(argOut, "--out=DIR", "Directory for the new database (must be empty)") ;
+        super.add(argEncoding, "--encoding=", "Node encoding: '"+NodeLib.EncodingBinary+"' (default) or '"+NodeLib.EncodingSSE+"'") ;
+    }
+
+    @Override
+    protected void processModulesAndArgs()
+    {
+        super.processModulesAndArgs() ;
+        if ( ! contains(argOut) )
+            throw new CmdException("No --out given") ;
+        outDir = getValue(argOut) ;
+        if ( contains(argEncoding) )
+            encoding = getValue(argEncoding) ;
+        // Check the name now.
+        NodeLib.nodec(encoding) ;
+    }
+
+    @Override
+    protected String getSummary()
+    {
+        return getCommandName()+" --loc=DIR --out=DIR [--encoding=binary|SSE]" ;
+    }
+
+    @Override
+    protected void exec()
+    {
+        File dir = new File(outDir) ;
+        if ( dir.exists() ) {
+            String[] files = dir.list() ;
+            if ( files == null || files.length != 0 )
+                throw new CmdException("Not an empty directory: "+outDir) ;
+        }
+        Location location = Location.create(outDir) ;
+
+        DatasetGraphTDB dsg = getDatasetGraphTDB() ;
+        StoreParams params = StoreParams.builder(dsg.getConfig().params).nodeEncoding(encoding).build() ;
+        DatasetGraphTDB dsg2 = StoreConnection.make(location, params).getBaseDataset() ;
+
+        long count = 0 ;
+        Iterator<Quad> iter = dsg.find() ;
+        for ( ; iter.hasNext() ; ) {
+            dsg2.add(iter.next()) ;
+            count++ ;
+        }
+
+        DatasetPrefixStorage prefixes = dsg.getPrefixes() ;
+        DatasetPrefixStorage prefixes2 = dsg2.getPrefixes() ;
+        for ( String gn : prefixes.graphNames() )
+            prefixes.readPrefixMap(gn).forEach((prefix, uri) -> prefixes2.insertPrefix(gn, prefix, uri)) ;
+
+        dsg2.sync() ;
+        StoreConnection.release(location) ;
+        if ( ! isQuiet() )
+            System.err.printf("Copied %,d quads to %s (node encoding: %s)\n", count, outDir, encoding) ;
+    }
+}
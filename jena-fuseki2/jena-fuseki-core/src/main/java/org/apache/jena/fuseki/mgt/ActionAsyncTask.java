@@ -51,11 +51,16 @@ public abstract class ActionAsyncTask extends ActionItem
     final
     protected JsonValue execPostItem(HttpAction action) {
         Runnable task = createRunnable(action) ;
-        AsyncTask aTask = Async.execASyncTask(action, AsyncPool.get(), "backup", task) ;
+        AsyncTask aTask = Async.execASyncTask(action, AsyncPool.get(), taskName(), task) ;
         Async.setLocationHeader(action, aTask);
         return Async.asJson(aTask) ;
     }
     
     protected abstract Runnable createRunnable(HttpAction action) ;
+    
+    /** Name of the kind of task, as shown in the task list. */ 
+    protected String taskName() {
+        return "backup" ;
+    }
 }
 
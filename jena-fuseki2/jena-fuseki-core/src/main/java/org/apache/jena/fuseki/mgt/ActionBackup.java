@@ -39,15 +39,40 @@ public class ActionBackup extends ActionAsyncTask
             return null ;
         }
         
-        action.log.info(format("[%d] Backup dataset %s", action.id, name)) ;
-        return new BackupTask(action) ;
+        // Backup type: "nquads" (default), "files" (block-level copy of a TDB database),
+        // or "incremental" (blocks changed since the last file backup).
+        String type = action.request.getParameter("type") ;
+        if ( type == null )
+            type = typeNQuads ;
+        switch (type) {
+            case typeNQuads: break ;
+            case typeFiles:
+            case typeIncremental:
+                if ( ! Backup.canBackupFiles(action.getDataset()) ) {
+                    ServletOps.errorBadRequest("Not a TDB dataset: can't backup files: "+name) ;
+                    return null ;
+                }
+                break ;
+            default:
+                ServletOps.errorBadRequest("Unknown backup type: "+type) ;
+                return null ;
+        }
+        
+        action.log.info(format("[%d] Backup dataset %s (%s)", action.id, name, type)) ;
+        return new BackupTask(action, type) ;
     }
 
+    private static final String typeNQuads      = "nquads" ;
+    private static final String typeFiles       = "files" ;
+    private static final String typeIncremental = "incremental" ;
+
     static class BackupTask extends TaskBase {
         static private Logger log = LoggerFactory.getLogger("Backup") ;
+        private final String type ;
         
-        public BackupTask(HttpAction action) {
+        public BackupTask(HttpAction action, String type) {
             super(action) ;
+            this.type = type ;
         }
 
         @Override
@@ -55,7 +80,10 @@ public class ActionBackup extends ActionAsyncTask
             try {
                 String backupFilename = Backup.chooseFileName(datasetName) ;
                 log.info(format("[%d] >>>> Start backup %s -> %s", actionId, datasetName, backupFilename)) ;
-                Backup.backup(transactional, dataset, backupFilename) ;
+                if ( typeNQuads.equals(type) )
+                    Backup.backup(transactional, dataset, backupFilename) ;
+                else
+                    Backup.backupFiles(dataset, datasetName, backupFilename, typeIncremental.equals(type)) ;
                 log.info(format("[%d] <<<< Finish backup %s -> %s", actionId, datasetName, backupFilename)) ;
             } catch (Exception ex) {
                 log.info(format("[%d] **** Exception in backup", actionId), ex) ;
@@ -37,6 +37,7 @@ import org.apache.jena.atlas.json.JsonValue ;
 import org.apache.jena.fuseki.server.FusekiServer ;
 import org.apache.jena.fuseki.servlets.HttpAction ;
 import org.apache.jena.fuseki.servlets.ServletOps ;
+import org.apache.jena.tdb.sys.BlockBackup ;
 
 /**
  * A JSON API to list all the backups in the backup directory
@@ -62,9 +63,12 @@ public class ActionBackupList extends ActionCtl {
         ServletOps.sendJsonReponse(action, result);
     }
         
+    // Backup files, and directories of block-level backups. 
     private static DirectoryStream.Filter<Path> filterVisibleFiles = (entry) -> {
         File f = entry.toFile() ;
-        return f.isFile() && !f.isHidden() ;
+        if ( f.isHidden() )
+            return false ;
+        return f.isFile() || new File(f, BlockBackup.manifestFile).isFile() ;
     } ;
 
     private JsonValue description(HttpAction action) {
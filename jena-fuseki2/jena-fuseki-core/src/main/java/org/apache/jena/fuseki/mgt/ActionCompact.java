@@ -0,0 +1,87 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.jena.fuseki.mgt;
+
+import static java.lang.String.format ;
+
+import org.apache.jena.fuseki.servlets.HttpAction ;
+import org.apache.jena.fuseki.servlets.ServletOps ;
+import org.apache.jena.sparql.core.DatasetGraph ;
+import org.apache.jena.tdb.TDBCompact ;
+import org.apache.jena.tdb.sys.Compaction ;
+import org.apache.jena.tdb.transaction.DatasetGraphTransaction ;
+import org.slf4j.Logger ;
+import org.slf4j.LoggerFactory ;
+
+/** Compact the files of a TDB dataset. Requests on the dataset continue while the
+ * compacted files are built and wait while they are installed.
+ * @see TDBCompact
+ */
+public class ActionCompact extends ActionAsyncTask
+{
+    private static final long serialVersionUID = 6211337291460853224L;
+
+    public ActionCompact() { super() ; }
+
+    @Override
+    protected Runnable createRunnable(HttpAction action) {
+        String name = action.getDatasetName() ;
+        if ( name == null ) {
+            action.log.error("Null for dataset name in item request") ;  
+            ServletOps.errorOccurred("Null for dataset name in item request");
+            return null ;
+        }
+        if ( ! canCompact(action.getDataset()) ) {
+            ServletOps.errorBadRequest("Not a TDB dataset: can't compact: "+name) ;
+            return null ;
+        }
+        action.log.info(format("[%d] Compact dataset %s", action.id, name)) ;
+        return new CompactTask(action) ;
+    }
+    
+    @Override
+    protected String taskName() {
+        return "compact" ;
+    }
+
+    private static boolean canCompact(DatasetGraph dsg) {
+        return dsg instanceof DatasetGraphTransaction && ! ((DatasetGraphTransaction)dsg).getLocation().isMem() ;
+    }
+
+    static class CompactTask extends TaskBase {
+        static private Logger log = LoggerFactory.getLogger("Compact") ;
+        
+        public CompactTask(HttpAction action) {
+            super(action) ;
+        }
+
+        @Override
+        public void run() {
+            try {
+                log.info(format("[%d] >>>> Start compact %s", actionId, datasetName)) ;
+                DatasetGraphTransaction dsgtxn = (DatasetGraphTransaction)dataset ;
+                Compaction.Report report = TDBCompact.compact(dsgtxn.getLocation(), log) ;
+                log.info(format("[%d] <<<< Finish compact %s : %s", actionId, datasetName, report)) ;
+            } catch (Exception ex) {
+                log.info(format("[%d] **** Exception in compact", actionId), ex) ;
+            }
+        }
+    }
+}
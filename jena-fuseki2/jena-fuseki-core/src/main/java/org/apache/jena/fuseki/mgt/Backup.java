@@ -19,6 +19,9 @@
 package org.apache.jena.fuseki.mgt;
 
 import java.io.* ;
+import java.nio.file.DirectoryStream ;
+import java.nio.file.Files ;
+import java.nio.file.Path ;
 import java.util.HashSet ;
 import java.util.Set ;
 import java.util.zip.GZIPOutputStream ;
@@ -35,11 +38,21 @@ import org.apache.jena.riot.RDFDataMgr ;
 import org.apache.jena.sparql.core.DatasetGraph ;
 import org.apache.jena.sparql.core.Transactional ;
 import org.apache.jena.sparql.core.TransactionalNull ;
+import org.apache.jena.tdb.TDBBackup ;
+import org.apache.jena.tdb.sys.BlockBackup ;
+import org.apache.jena.tdb.transaction.DatasetGraphTransaction ;
 
 /** Perform a backup */ 
 public class Backup
 {
     public static String chooseFileName(String dsName) {
+        String timestamp = DateTimeUtils.nowAsString("yyyy-MM-dd_HH-mm-ss") ;
+        String filename = backupNamePrefix(dsName) + timestamp ;
+        filename = FusekiServer.dirBackups.resolve(filename).toString() ;
+        return filename ;
+    }
+    
+    private static String backupNamePrefix(String dsName) {
         // Without the "/" - ie. a relative name.
         String ds = dsName ;
         if ( ds.startsWith("/") )
@@ -49,11 +62,7 @@ public class Backup
             // Some kind of fixup
             ds = ds.replace("/",  "_") ;
         }
-
-        String timestamp = DateTimeUtils.nowAsString("yyyy-MM-dd_HH-mm-ss") ;
-        String filename = ds + "_" + timestamp ;
-        filename = FusekiServer.dirBackups.resolve(filename).toString() ;
-        return filename ;
+        return ds + "_" ;
     }
     
     // Rcord of all backups so we don't attempt to backup the
@@ -75,6 +84,53 @@ public class Backup
         }
     }
     
+    /** Whether a dataset can be backed up by copying its files. */ 
+    public static boolean canBackupFiles(DatasetGraph dsg) {
+        return dsg instanceof DatasetGraphTransaction && ! ((DatasetGraphTransaction)dsg).getLocation().isMem() ;
+    }
+    
+    /** Perform a block-level backup of a TDB dataset into directory {@code backupDir}.
+     *  Transactions on the dataset continue while the files are copied.
+     *  If {@code incremental}, only the blocks changed since the most recent backup
+     *  of the dataset (by name) are copied; if there is no previous backup, a full backup is made.
+     *  Returns the backup directory used.
+     */
+    public static String backupFiles(DatasetGraph dsg, String dsName, String backupDir, boolean incremental) {
+        if ( ! canBackupFiles(dsg) )
+            throw new FusekiException("Not a TDB dataset: "+dsName) ;
+        DatasetGraphTransaction dsgtxn = (DatasetGraphTransaction)dsg ;
+        synchronized(activeBackups) {
+            if ( activeBackups.contains(dsg) )
+                Log.warn(Fuseki.serverLog, "Backup already in progress") ;
+            activeBackups.add(dsg) ;
+        }
+        try {
+            String previous = incremental ? latestFileBackup(dsName) : null ;
+            TDBBackup.backupFiles(dsgtxn.getLocation(), backupDir, previous) ;
+            return backupDir ;
+        } finally {
+            synchronized(activeBackups) {
+                activeBackups.remove(dsg) ;
+            }
+        }
+    }
+    
+    /** The most recent complete file backup of a dataset, or null */ 
+    private static String latestFileBackup(String dsName) {
+        String prefix = backupNamePrefix(dsName) ;
+        String latest = null ;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(FusekiServer.dirBackups)) {
+            for ( Path p : stream ) {
+                String fn = p.getFileName().toString() ;
+                if ( !fn.startsWith(prefix) || !Files.exists(p.resolve(BlockBackup.manifestFile)) )
+                    continue ;
+                if ( latest == null || fn.compareTo(new File(latest).getName()) > 0 )
+                    latest = p.toString() ;
+            }
+        } catch (IOException ex) { IO.exception(ex) ; }
+        return latest ;
+    }
+    
     /** Perform a backup.
      * 
      * @see #backup(Transactional, DatasetGraph, String)
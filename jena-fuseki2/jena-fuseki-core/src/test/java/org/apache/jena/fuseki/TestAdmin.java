@@ -509,6 +509,7 @@ public class TestAdmin extends AbstractFusekiTest {
         POST    /$/datasets/*{name}*?state=offline  
         POST    /$/datasets/*{name}*?state=active   
         POST    /$/backup/*{name}*  
+        POST    /$/compact/*{name}*  
         GET     /$/server   
         POST    /$/server/shutdown  
         GET     /$/stats/   
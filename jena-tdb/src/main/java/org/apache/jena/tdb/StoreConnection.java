@@ -41,7 +41,7 @@ import org.apache.jena.tdb.transaction.* ;
 public class StoreConnection
 {
     private final TransactionManager transactionManager ;
-    private final DatasetGraphTDB    baseDSG ;
+    private volatile DatasetGraphTDB baseDSG ;
     private boolean                  isValid = true ;
     private volatile boolean         haveUsedInTransaction = false ;
 
@@ -110,6 +110,40 @@ public class StoreConnection
         return transactionManager.begin(mode, label);
     }
 
+    /**
+     * Begin a write transaction that can run at the same time as other
+     * concurrent write transactions. Changes are checked for conflicts, at the
+     * level of graphs, when the transaction commits.
+     * @see DatasetGraphTxnConcurrent
+     */
+    public DatasetGraphTxnConcurrent beginConcurrentWrite() {
+        return beginConcurrentWrite(null) ;
+    }
+
+    /**
+     * Begin a concurrent write transaction, giving it a label.
+     * @see #beginConcurrentWrite()
+     */
+    public DatasetGraphTxnConcurrent beginConcurrentWrite(String label) {
+        checkValid();
+        checkTransactional();
+        haveUsedInTransaction = true;
+        return transactionManager.beginConcurrentWrite(label);
+    }
+
+    /**
+     * Open a read-only snapshot of the database. Unlike a read transaction, an open
+     * snapshot does not delay writing committed transactions to the database.
+     * Close the snapshot with {@link DatasetGraphSnapshot#close()}.
+     * @see TransactionManager#openSnapshot
+     */
+    public DatasetGraphSnapshot openSnapshot() {
+        checkValid();
+        checkTransactional();
+        haveUsedInTransaction = true;
+        return transactionManager.openSnapshot();
+    }
+
     /**
      * Testing operation - do not use the base dataset without knowing how the
      * transaction system uses it. The base dataset may not reflect the true state
@@ -121,6 +155,16 @@ public class StoreConnection
         return baseDSG;
     }
     
+    /** Switch to a new base dataset for the same location, after the files have
+     * been rewritten. Must be called in exclusive mode.
+     * @see TDBCompact
+     */
+    /*package*/ void replaceBaseDataset(DatasetGraphTDB dsg) {
+        checkValid();
+        transactionManager.replaceBaseDataset(dsg);
+        baseDSG = dsg;
+    }
+    
     /** For internal use only */ 
     public TransactionManager getTransactionManager() {
         return transactionManager ; 
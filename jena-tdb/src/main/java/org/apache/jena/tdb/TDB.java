@@ -98,6 +98,27 @@ public class TDB {
     /** Symbol to use the union of named graphs as the default graph of a query */
     public static final Symbol  symUnionDefaultGraph             = SystemTDB.allocSymbol("unionDefaultGraph") ;
 
+    /** Symbol to execute basic graph patterns in vectorized form : the stages of
+     * the pattern exchange batches of NodeIds, held by column, instead of
+     * individual bindings. Not used when a quad filter is set. */
+    public static final Symbol  symVectorBGP                     = SystemTDB.allocSymbol("vectorBGP") ;
+
+    /** Symbol for the number of rows in a batch for vectorized basic graph patterns (integer). */
+    public static final Symbol  symVectorBatchSize               = SystemTDB.allocSymbol("vectorBatchSize") ;
+
+    /** Symbol to execute the leading triple patterns of a basic graph pattern that share
+     * a variable as a merge join, when indexes provide matches sorted by that variable. */
+    public static final Symbol  symMergeJoin                     = SystemTDB.allocSymbol("mergeJoin") ;
+
+    /** Symbol to read indexes by range for FILTER comparisons of a variable with a
+     * numeric, date or dateTime constant. On unless set to false. */
+    public static final Symbol  symRangeScan                     = SystemTDB.allocSymbol("rangeScan") ;
+
+    /** Symbol to match triple patterns over the union of named graphs by skipping,
+     * in an index ending in the graph slot, over the quads that repeat a triple.
+     * On unless set to false. */
+    public static final Symbol  symUnionSkipScan                 = SystemTDB.allocSymbol("unionSkipScan") ;
+
     /**
      * A String enum Symbol that specifies the type of temporary storage for
      * transaction journal write blocks.
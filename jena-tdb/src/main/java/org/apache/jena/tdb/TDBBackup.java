@@ -27,7 +27,9 @@ import org.apache.jena.query.ReadWrite ;
 import org.apache.jena.riot.Lang ;
 import org.apache.jena.riot.RDFDataMgr ;
 import org.apache.jena.tdb.base.file.Location ;
+import org.apache.jena.tdb.sys.BlockBackup ;
 import org.apache.jena.tdb.transaction.DatasetGraphTxn ;
+import org.apache.jena.tdb.transaction.TransactionManager ;
 
 /**
  * Backup a database.
@@ -58,5 +60,50 @@ public class TDBBackup
         RDFDataMgr.write(backupfile, dsg, Lang.NQUADS) ;
         dsg.end();
     }
+    
+    /**
+     * Backup the database files into directory {@code backupDir}.
+     * <p>
+     * The files are copied at a point where all committed transactions have been
+     * written to the database; journal replay is held off while the files are copied.
+     * Read transactions can run during the backup. Write transactions wait until the
+     * copy has finished because a commit appends to the node table files directly,
+     * not through the journal.
+     */
+    public static BlockBackup.Manifest backupFiles(Location location, String backupDir) {
+        return backupFiles(location, backupDir, null) ;
+    }
+    
+    /**
+     * Backup the database files into directory {@code backupDir}, copying only the blocks
+     * that have changed since the backup in {@code previousBackupDir}, which may be a full or an
+     * incremental backup. If {@code previousBackupDir} is null, make a full backup.
+     * 
+     * @see #backupFiles(Location, String)
+     * @see #restoreFiles(Location, String...)
+     */
+    public static BlockBackup.Manifest backupFiles(Location location, String backupDir, String previousBackupDir) {
+        if ( location.isMem() )
+            throw new TDBException("Can't backup the files of an in-memory database") ;
+        StoreConnection sConn = StoreConnection.make(location) ;
+        TransactionManager txnMgr = sConn.getTransactionManager() ;
+        txnMgr.holdReplay() ;
+        try {
+            txnMgr.blockWriters() ;
+            try {
+                return BlockBackup.backup(location.getDirectoryPath(), backupDir, previousBackupDir) ;
+            } finally { txnMgr.enableWriters() ; }
+        } finally { txnMgr.releaseReplay() ; }
+    }
+    
+    /**
+     * Restore a database into the empty or new location from a full backup
+     * followed by any incremental backups made after it, in order.
+     */
+    public static void restoreFiles(Location location, String... backupDirs) {
+        if ( location.isMem() )
+            throw new TDBException("Can't restore to an in-memory database") ;
+        BlockBackup.restore(location.getDirectoryPath(), backupDirs) ;
+    }
 }
 
@@ -0,0 +1,106 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.jena.tdb;
+
+import org.apache.jena.tdb.base.file.Location ;
+import org.apache.jena.tdb.base.file.LocationLock ;
+import org.apache.jena.tdb.setup.DatasetBuilderStd ;
+import org.apache.jena.tdb.setup.StoreParams ;
+import org.apache.jena.tdb.store.DatasetGraphTDB ;
+import org.apache.jena.tdb.sys.Compaction ;
+import org.apache.jena.tdb.sys.SystemTDB ;
+import org.apache.jena.tdb.transaction.TransactionManager ;
+import org.slf4j.Logger ;
+
+/**
+ * Compact a database: reclaim the space used by deleted nodes and by partly
+ * empty index blocks, without a dump and reload.
+ * <p>
+ * The compacted database is built from the database files while journal replay is
+ * held, so transactions, including write transactions, continue. The new files are then
+ * installed, and the database switched to them, in exclusive mode. If a write
+ * transaction committed during the build, the build is out of date and is repeated.
+ * The last of {@link #Attempts} builds is done in exclusive mode, with transactions
+ * waiting until it finishes.
+ * 
+ * @see Compaction
+ */
+public class TDBCompact
+{
+    /** Number of builds tried before the compaction is done in exclusive mode. */ 
+    public static int Attempts = 3 ;
+
+    /** Compact the database at a location. */
+    public static Compaction.Report compact(Location location) {
+        return compact(location, null) ;
+    }
+    
+    /** Compact the database at a location, logging progress to {@code log} if not null. */
+    public static Compaction.Report compact(Location location, Logger log) {
+        if ( location.isMem() )
+            throw new TDBException("Can't compact an in-memory database") ;
+        StoreConnection sConn = StoreConnection.make(location) ;
+        TransactionManager txnMgr = sConn.getTransactionManager() ;
+        if ( ! sConn.haveUsedInTransaction() )
+            // Used non-transactionally: changes may not be on disk.
+            sConn.getBaseDataset().sync() ;
+        for ( int attempt = 1 ; ; attempt++ ) {
+            boolean exclusive = ( attempt >= Attempts ) ;
+            Compaction.Report report ;
+            if ( exclusive ) {
+                txnMgr.startExclusiveMode() ;
+                try {
+                    report = Compaction.build(sConn.getBaseDataset(), log) ;
+                    install(sConn, location) ;
+                    return report ;
+                } finally { txnMgr.finishExclusiveMode() ; }
+            }
+            // Any commit after this point means the build is out of date.
+            long version = txnMgr.getDataVersion() ;
+            txnMgr.holdReplay() ;
+            try {
+                report = Compaction.build(sConn.getBaseDataset(), log) ;
+            } finally { txnMgr.releaseReplay() ; }
+            txnMgr.startExclusiveMode() ;
+            try {
+                if ( txnMgr.getDataVersion() == version ) {
+                    install(sConn, location) ;
+                    return report ;
+                }
+            } finally { txnMgr.finishExclusiveMode() ; }
+            Compaction.abort(location) ;
+            if ( log != null )
+                log.info("Compaction: Database changed during attempt "+attempt) ;
+        }
+    }
+    
+    // In exclusive mode.
+    private static void install(StoreConnection sConn, Location location) {
+        LocationLock lock = location.getLock() ;
+        if ( SystemTDB.DiskLocationMultiJvmUsagePrevention && lock.canLock() && ! lock.isOwned() )
+            throw new TDBException("Can't compact: database at "+location.getDirectoryPath()+" is not locked by this JVM") ;
+        DatasetGraphTDB dsg = sConn.getBaseDataset() ;
+        StoreParams params = dsg.getConfig().params ;
+        Compaction.commit(location) ;
+        dsg.close() ;
+        Compaction.install(location) ;
+        sConn.replaceBaseDataset(DatasetBuilderStd.create(location, params)) ;
+    }
+}
@@ -21,6 +21,7 @@ package org.apache.jena.tdb.assembler;
 import static org.apache.jena.sparql.util.graph.GraphUtils.exactlyOneProperty ;
 import static org.apache.jena.sparql.util.graph.GraphUtils.getStringValue ;
 import static org.apache.jena.tdb.assembler.VocabTDB.pLocation ;
+import static org.apache.jena.tdb.assembler.VocabTDB.pReorder ;
 import static org.apache.jena.tdb.assembler.VocabTDB.pUnionDefaultGraph ;
 import org.apache.jena.assembler.Assembler ;
 import org.apache.jena.assembler.Mode ;
@@ -33,11 +34,17 @@ import org.apache.jena.rdf.model.Resource ;
 import org.apache.jena.sparql.core.DatasetGraph ;
 import org.apache.jena.sparql.core.assembler.AssemblerUtils ;
 import org.apache.jena.sparql.core.assembler.DatasetAssembler ;
+import org.apache.jena.sparql.engine.optimizer.reorder.ReorderLib ;
+import org.apache.jena.sparql.engine.optimizer.reorder.ReorderTransformation ;
 import org.apache.jena.sparql.expr.NodeValue ;
 import org.apache.jena.system.JenaSystem ;
 import org.apache.jena.tdb.TDB ;
 import org.apache.jena.tdb.TDBFactory ;
 import org.apache.jena.tdb.base.file.Location ;
+import org.apache.jena.tdb.solver.stats.ReorderCharacteristicSets ;
+import org.apache.jena.tdb.solver.stats.ReorderLiveStats ;
+import org.apache.jena.tdb.sys.TDBInternal ;
+import org.apache.jena.tdb.transaction.TransactionManager ;
 
 public class DatasetAssemblerTDB extends DatasetAssembler
 {
@@ -65,14 +72,37 @@ public class DatasetAssemblerTDB extends DatasetAssembler
                 Log.warn(DatasetAssemblerTDB.class, "Failed to recognize value for union graph setting (ignored): " + b) ;
         }
 
+        if ( root.hasProperty(pReorder) ) {
+            String x = getStringValue(root, pReorder) ;
+            ReorderTransformation reorder = reorder(root, x, dsg) ;
+            TDBInternal.getBaseDatasetGraphTDB(dsg).setReorderTransform(reorder) ;
+        }
+
         /*
         <r> rdf:type tdb:DatasetTDB ;
             tdb:location "dir" ;
             //ja:context [ ja:cxtName "arq:queryTimeout" ;  ja:cxtValue "10000" ] ;
             tdb:unionGraph true ; # or "true"
+            tdb:reorder "charsets" ; # or "stats", "fixed", "none"
         */
         AssemblerUtils.setContext(root, dsg.getContext());
         return DatasetFactory.wrap(dsg) ; 
     }
     
+    // The statistics based choices use statistics maintained by the transaction manager. 
+    private static ReorderTransformation reorder(Resource root, String name, DatasetGraph dsg) {
+        switch(name) {
+            case "none" :       return ReorderLib.identity() ;
+            case "fixed" :      return ReorderLib.fixed() ;
+            case "stats" :      return new ReorderLiveStats(txnMgr(dsg).startLiveStats()) ;
+            case "charsets" :   return new ReorderCharacteristicSets(txnMgr(dsg).startLiveStats()) ;
+            default:
+                throw new AssemblerException(root, "Unrecognized reorder setting: "+name) ;
+        }
+    }
+    
+    private static TransactionManager txnMgr(DatasetGraph dsg) {
+        return TDBInternal.getTransactionManager(dsg) ;
+    }
+    
 }
@@ -38,6 +38,8 @@ public class VocabTDB
 
     public static final Property pLocation          = Vocab.property(NS, "location") ;
     public static final Property pUnionDefaultGraph = Vocab.property(NS, "unionDefaultGraph") ;
+    // "none", "fixed", "stats" or "charsets"
+    public static final Property pReorder           = Vocab.property(NS, "reorder") ;
     
     public static final Property pIndex             = Vocab.property(NS, "index") ;
     public static final Property pGraphName1        = Vocab.property(NS, "graphName") ;
@@ -0,0 +1,220 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jena.tdb.base.block;
+
+import java.util.Iterator ;
+import java.util.LinkedHashMap ;
+import java.util.Map ;
+import java.util.concurrent.atomic.LongAdder ;
+
+/** A block cache using the 2Q replacement policy (Johnson and Shasha, VLDB 1994).
+ * <p>
+ * A block seen for the first time goes into a small FIFO queue ("A1in").
+ * Blocks falling off the end of that queue are remembered, by id only, in a
+ * "ghost" queue ("A1out"). A block that is asked for again while its id is
+ * in the ghost queue is put in the main LRU queue ("Am"). A scan touches
+ * each block once, so it only cycles through A1in and does not push the
+ * frequently used blocks out of Am.
+ * <p>
+ * The cache is split into segments by block id, each with its own lock, so
+ * that concurrent readers usually do not contend. The cache is thread-safe
+ * for single operations.
+ */
+public final class BlockCache2Q
+{
+    // Proportions of each segment given to the queues (from the 2Q paper).
+    private static final double FractionIn  = 0.25 ;
+    private static final double FractionOut = 0.50 ;
+    // Don't split small caches - each segment should be large enough to work as 2Q.
+    private static final int MinSegmentSize = 64 ;
+    private static final int MaxSegments    = 16 ;
+
+    private final Segment[] segments ;
+    private final int capacity ;
+    private final LongAdder evictions = new LongAdder() ;
+
+    public BlockCache2Q(int capacity) {
+        this(capacity, defaultSegments(capacity)) ;
+    }
+
+    public BlockCache2Q(int capacity, int numSegments) {
+        this.capacity = Math.max(0, capacity) ;
+        if ( numSegments < 1 )
+            numSegments = 1 ;
+        segments = new Segment[numSegments] ;
+        int base = this.capacity / numSegments ;
+        int extra = this.capacity % numSegments ;
+        for ( int i = 0 ; i < numSegments ; i++ )
+            segments[i] = new Segment(base + (i < extra ? 1 : 0)) ;
+    }
+
+    private static int defaultSegments(int capacity) {
+        int n = 1 ;
+        while ( n < MaxSegments && (n*2)*MinSegmentSize <= capacity )
+            n = n*2 ;
+        return n ;
+    }
+
+    private Segment segment(long id) {
+        if ( segments.length == 1 )
+            return segments[0] ;
+        long h = id ^ (id >>> 32) ;
+        h ^= (h >>> 16) ;
+        return segments[(int)((h & 0x7FFFFFFF) % segments.length)] ;
+    }
+
+    /** Get a block, or return null if it is not in the cache. Records an access. */
+    public Block getIfPresent(long id) {
+        return segment(id).get(id) ;
+    }
+
+    /** Test whether a block is in the cache. Does not record an access. */
+    public boolean containsKey(long id) {
+        return segment(id).contains(id) ;
+    }
+
+    /** Put a block into the cache, replacing any previous entry for the same id. */
+    public void put(long id, Block block) {
+        segment(id).put(id, block) ;
+    }
+
+    public void remove(long id) {
+        segment(id).remove(id) ;
+    }
+
+    public void clear() {
+        for ( Segment seg : segments )
+            seg.clear() ;
+    }
+
+    /** Number of blocks in the cache */
+    public long size() {
+        long x = 0 ;
+        for ( Segment seg : segments )
+            x += seg.size() ;
+        return x ;
+    }
+
+    /** Maximum number of blocks in the cache */
+    public int capacity() {
+        return capacity ;
+    }
+
+    /** Number of blocks dropped from the cache to make space */
+    public long getEvictions() {
+        return evictions.sum() ;
+    }
+
+    @Override
+    public String toString() {
+        return "BlockCache2Q[size="+size()+", capacity="+capacity+", segments="+segments.length+"]" ;
+    }
+
+    private final class Segment {
+        private final int capacity ;
+        private final int sizeIn ;
+        private final int sizeOut ;
+        // FIFO of blocks seen once.
+        private final LinkedHashMap<Long, Block> in  = new LinkedHashMap<>() ;
+        // FIFO of the ids of blocks recently dropped from "in".
+        private final LinkedHashMap<Long, Boolean> out = new LinkedHashMap<>() ;
+        // LRU of blocks seen more than once.
+        private final LinkedHashMap<Long, Block> main = new LinkedHashMap<>(16, 0.75f, true) ;
+
+        Segment(int capacity) {
+            this.capacity = capacity ;
+            this.sizeIn = Math.max(1, (int)(capacity*FractionIn)) ;
+            this.sizeOut = Math.max(1, (int)(capacity*FractionOut)) ;
+        }
+
+        synchronized Block get(long id) {
+            // Access order "main" moves the entry to the most recently used end.
+            Block blk = main.get(id) ;
+            if ( blk != null )
+                return blk ;
+            // Blocks in the FIFO stay where they are.
+            return in.get(id) ;
+        }
+
+        synchronized boolean contains(long id) {
+            return main.containsKey(id) || in.containsKey(id) ;
+        }
+
+        synchronized void put(long id, Block block) {
+            if ( capacity <= 0 )
+                return ;
+            Long key = id ;
+            if ( main.containsKey(key) ) {
+                main.put(key, block) ;
+                return ;
+            }
+            if ( in.containsKey(key) ) {
+                // Replace in place - keeps its position in the FIFO.
+                in.put(key, block) ;
+                return ;
+            }
+            if ( out.remove(key) != null ) {
+                // Seen recently: a frequently used block.
+                makeSpace() ;
+                main.put(key, block) ;
+                return ;
+            }
+            makeSpace() ;
+            in.put(key, block) ;
+        }
+
+        synchronized void remove(long id) {
+            Long key = id ;
+            if ( main.remove(key) == null )
+                in.remove(key) ;
+            out.remove(key) ;
+        }
+
+        synchronized void clear() {
+            main.clear() ;
+            in.clear() ;
+            out.clear() ;
+        }
+
+        synchronized int size() {
+            return main.size() + in.size() ;
+        }
+
+        // Make space for one more block.
+        private void makeSpace() {
+            if ( main.size() + in.size() < capacity )
+                return ;
+            if ( in.size() >= sizeIn || main.isEmpty() ) {
+                Iterator<Map.Entry<Long, Block>> iter = in.entrySet().iterator() ;
+                Long key = iter.next().getKey() ;
+                iter.remove() ;
+                out.put(key, Boolean.TRUE) ;
+                if ( out.size() > sizeOut ) {
+                    Iterator<Long> iter2 = out.keySet().iterator() ;
+                    iter2.next() ;
+                    iter2.remove() ;
+                }
+            } else {
+                Iterator<Long> iter = main.keySet().iterator() ;
+                iter.next() ;
+                iter.remove() ;
+            }
+            evictions.increment() ;
+        }
+    }
+}
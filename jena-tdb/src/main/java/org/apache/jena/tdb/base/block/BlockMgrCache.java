@@ -19,6 +19,7 @@
 package org.apache.jena.tdb.base.block;
 
 import java.util.Iterator ;
+import java.util.concurrent.atomic.LongAdder ;
 import java.util.function.BiConsumer;
 
 import org.apache.jena.atlas.lib.Cache ;
@@ -26,16 +27,25 @@ import org.apache.jena.atlas.lib.CacheFactory ;
 import org.slf4j.Logger ;
 import org.slf4j.LoggerFactory ;
 
-/** Caching block manager - this is an LRU cache */
+/** Caching block manager.
+ * The read cache uses a scan-resistant replacement policy (2Q) - see {@link BlockCache2Q}.
+ * The write cache (delayed dirty writes) is an LRU cache.
+ */
 public class BlockMgrCache extends BlockMgrSync
 {
     // Actually, this is two cache one on the read blocks and one on the write blocks.
-    // The overridden public operations are sync'ed.
+    // The overridden public operations, other than reads, are sync'ed.
     // As sync is on "this", it also covers all the other operations via BlockMgrSync
+    //
+    // Reads (getRead, getReadIterator) are not synchronized so that concurrent
+    // readers proceed in parallel: both caches are thread-safe for single
+    // operations, and the underlying block access supports concurrent reads.
+    // Changes to blocks happen in a write operation which, by the MRSW
+    // contract, does not overlap with readers.
     
     private static Logger log = LoggerFactory.getLogger(BlockMgrCache.class) ;
     // Read cache : always present.
-    private final Cache<Long, Block> readCache ;
+    private final BlockCache2Q readCache ;
 
     // Delayed dirty writes.  May be present, may not.
     private final Cache<Long, Block> writeCache ;
@@ -43,9 +53,9 @@ public class BlockMgrCache extends BlockMgrSync
     public static boolean globalLogging = false ;           // Also enable the logging level. 
     private boolean logging = false ;                       // Also enable the logging level. 
     // ---- stats
-    long cacheReadHits = 0 ;
-    long cacheMisses = 0 ;
-    long cacheWriteHits = 0 ;
+    private final LongAdder cacheReadHits = new LongAdder() ;
+    private final LongAdder cacheMisses = new LongAdder() ;
+    private final LongAdder cacheWriteHits = new LongAdder() ;
     
     static BlockMgr create(int readSlots, int writeSlots, final BlockMgr blockMgr)
     {
@@ -58,10 +68,8 @@ public class BlockMgrCache extends BlockMgrSync
     {
         super(blockMgr) ;
         // Caches are related so we can't use a Getter for cache management.
-        if ( readSlots < -1 )
-            readCache = CacheFactory.createNullCache() ;
-        else
-            readCache = CacheFactory.createCache(readSlots) ;
+        // A size of zero or less is "no read cache".
+        readCache = new BlockCache2Q(readSlots) ;
         if ( writeSlots <= 0 )
             writeCache = null ;
         else
@@ -94,7 +102,6 @@ public class BlockMgrCache extends BlockMgrSync
 //    }
     
     @Override
-    synchronized
     public Block getRead(long id)
     {
         // A Block may be in the read cache or the write cache.
@@ -102,7 +109,7 @@ public class BlockMgrCache extends BlockMgrSync
         Block blk = readCache.getIfPresent(id) ;
         if ( blk != null )
         {
-            cacheReadHits++ ;
+            cacheReadHits.increment() ;
             log("Hit(r->r) : %d", id) ;
             return blk ;
         }
@@ -116,20 +123,20 @@ public class BlockMgrCache extends BlockMgrSync
             blk = writeCache.getIfPresent(id) ;
         if ( blk != null )
         {
-            cacheWriteHits++ ;
+            cacheWriteHits.increment() ;
             log("Hit(r->w) : %d",id) ;
             return blk ;
         }
         
-        cacheMisses++ ;
+        cacheMisses.increment() ;
         log("Miss/r: %d", id) ;
-        blk = super.getRead(id) ;
+        // Not via super.getRead, which is synchronized.
+        blk = blockMgr.getRead(id) ;
         readCache.put(id, blk) ;
         return blk ;
     }
     
     @Override
-    synchronized
     public Block getReadIterator(long id)
     {
         // And don't pass down "iterator" calls.
@@ -147,7 +154,7 @@ public class BlockMgrCache extends BlockMgrSync
             blk = writeCache.getIfPresent(id) ;
         if ( blk != null )
         {
-            cacheWriteHits++ ;
+            cacheWriteHits.increment() ;
             log("Hit(w->w) : %d", id) ;
             return blk ;
         }
@@ -155,17 +162,18 @@ public class BlockMgrCache extends BlockMgrSync
         // blk is null.
         // A requested block may be in the other cache. Promote it.
         
-        if ( readCache.containsKey(id) )
+        // (Readers may be changing the read cache so fetch, don't test then fetch.)
+        blk = readCache.getIfPresent(id) ;
+        if ( blk != null )
         {
-            blk = readCache.getIfPresent(id) ;
-            cacheReadHits++ ;
+            cacheReadHits.increment() ;
             log("Hit(w->r) : %d", id) ;
             blk = promote(blk) ;
             return blk ;
         }
         
         // Did not find.
-        cacheMisses++ ;
+        cacheMisses.increment() ;
         log("Miss/w: %d", id) ;
         // Pass operation to wrapper.
         blk = super.getWrite(id);
@@ -261,6 +269,18 @@ public class BlockMgrCache extends BlockMgrSync
         super.close() ;
     }
     
+    /** Number of reads satisfied by the read cache (and writes promoted from it) */
+    public long getCacheReadHits()      { return cacheReadHits.sum() ; }
+
+    /** Number of requests satisfied by the write cache */
+    public long getCacheWriteHits()     { return cacheWriteHits.sum() ; }
+
+    /** Number of requests passed to the underlying BlockMgr */
+    public long getCacheMisses()        { return cacheMisses.sum() ; }
+
+    /** Number of blocks dropped from the read cache to make space */
+    public long getCacheEvictions()     { return readCache.getEvictions() ; }
+
     @Override
     public String toString()
     {
@@ -284,7 +304,7 @@ public class BlockMgrCache extends BlockMgrSync
             String x = "" ;
             if ( getLabel() != null )
                 x = getLabel()+" : ";
-            log("%sH=%d, M=%d, W=%d", x, cacheReadHits, cacheMisses, cacheWriteHits) ;
+            log("%sH=%d, M=%d, W=%d, E=%d", x, getCacheReadHits(), getCacheMisses(), getCacheWriteHits(), getCacheEvictions()) ;
         }
         
         if ( writeCache != null )
@@ -88,6 +88,8 @@ public class BlockMgrFactory {
                 return createMMapFile(filename, blockSize) ;
             case direct :
                 return createStdFile(filename, blockSize, readBlockCacheSize, writeBlockCacheSize) ;
+            case readahead :
+                return createReadAheadFile(filename, blockSize, readBlockCacheSize, writeBlockCacheSize) ;
         }
         throw new TDBException("Unknown file mode: " + fileMode) ;
     }
@@ -107,6 +109,14 @@ public class BlockMgrFactory {
         return track(blockMgr) ;
     }
 
+    /** Create a Block Manager using direct access with read-ahead (and a cache) */
+    public static BlockMgr createReadAheadFile(String filename, int blockSize, int readBlockCacheSize, int writeBlockCacheSize) {
+        BlockAccess file = new BlockAccessReadAhead(filename, blockSize) ;
+        BlockMgr blockMgr = wrapFileAccess(file, blockSize) ;
+        blockMgr = addCache(blockMgr, readBlockCacheSize, writeBlockCacheSize) ;
+        return track(blockMgr) ;
+    }
+
     /** Create a Block Manager using direct access, no caching, no nothing. */
     public static BlockMgr createStdFileNoCache(String filename, int blockSize) {
         BlockAccess blockAccess = new BlockAccessDirect(filename, blockSize) ;
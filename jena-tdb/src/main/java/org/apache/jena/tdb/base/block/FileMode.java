@@ -23,5 +23,9 @@ public enum FileMode
     /** Use memory mapped files */
     mapped,
     /** Use in-JVM caching */
-    direct ;
+    direct,
+    /** Use in-JVM caching, and read ahead on sequential reads
+     * @see org.apache.jena.tdb.base.file.BlockAccessReadAhead
+     */
+    readahead ;
 }
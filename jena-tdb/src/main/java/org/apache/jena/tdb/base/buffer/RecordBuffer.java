@@ -113,6 +113,21 @@ public class RecordBuffer extends BufferBase
         factory.insertInto(rec, bb, idx) ;
     }
     
+    /** Copy the 8-byte key slot {@code keySlot} of the records from index start (inclusive)
+     *  to finish (exclusive) into {@code dst}, starting at {@code dstIdx}.
+     *  No record objects are created.
+     */
+    public void getKeyLongs(int start, int finish, int keySlot, long[] dst, int dstIdx)
+    {
+        if ( start < 0 || finish > numSlot )
+            throw new IllegalArgumentException(format("getKeyLongs: Out of bounds: [%d,%d) size=%d", start, finish, numSlot)) ;
+        int offset = keySlot*Long.BYTES ;
+        if ( offset+Long.BYTES > factory.keyLength() )
+            throw new IllegalArgumentException(format("getKeyLongs: No such key slot: %d (key length %d)", keySlot, factory.keyLength())) ;
+        for ( int i = start ; i < finish ; i++ )
+            dst[dstIdx++] = bb.getLong(i*slotLen+offset) ;
+    }
+
     // Linear search for testing.
     int find1(byte[] data)
     { 
@@ -184,6 +199,96 @@ public class RecordBuffer extends BufferBase
         return encodeIndex(low) ;
     }
 
+    // ---- Prefix compression.
+    // Records are in sorted order so neighbouring records often share leading bytes.
+    // In compressed form, each record is one byte for the number of leading bytes
+    // shared with the previous record followed by the remaining bytes of the record.
+    // The first record shares nothing.
+    
+    /** Length of the records in prefix compressed form. */
+    public int compressedLength()
+    {
+        return compressedLength(0, numSlot) ;
+    }
+    
+    /** Length of the records from index start (inclusive) to finish (exclusive) in prefix compressed form,
+     *  treating the record at start as the first record.  */
+    public int compressedLength(int start, int finish)
+    {
+        if ( start >= finish )
+            return 0 ;
+        int x = 1+slotLen ;
+        for ( int i = start+1 ; i < finish ; i++ )
+            x += 1+slotLen-commonPrefix(i-1, i) ;
+        return x ;
+    }
+    
+    /** Length of record idx in prefix compressed form. */
+    public int compressedLength(int idx)
+    {
+        if ( idx == 0 )
+            return 1+slotLen ;
+        return 1+slotLen-commonPrefix(idx-1, idx) ;
+    }
+    
+    /** Write the records in prefix compressed form into dst, starting at offset.
+     *  Return the number of bytes written. 
+     */
+    public int compress(ByteBuffer dst, int offset)
+    {
+        int x = offset ;
+        for ( int i = 0 ; i < numSlot ; i++ )
+        {
+            int prefix = ( i == 0 ) ? 0 : commonPrefix(i-1, i) ;
+            int len = slotLen-prefix ;
+            if ( x+1+len > dst.limit() )
+                throw new BufferException(format("Compressed records do not fit: %d records, limit %d", numSlot, dst.limit()-offset)) ;
+            dst.put(x, (byte)prefix) ;
+            x++ ;
+            int base = i*slotLen+prefix ;
+            for ( int j = 0 ; j < len ; j++ )
+                dst.put(x+j, bb.get(base+j)) ;
+            x += len ;
+        }
+        return x-offset ;
+    }
+    
+    /** Replace the contents of this buffer with count records in prefix compressed form from src, starting at offset. */ 
+    public void decompress(ByteBuffer src, int offset, int count)
+    {
+        if ( count > maxSlot )
+            throw new BufferException(format("Too many records: %d (max %d)", count, maxSlot)) ;
+        int x = offset ;
+        for ( int i = 0 ; i < count ; i++ )
+        {
+            int prefix = src.get(x)&0xFF ;
+            x++ ;
+            int base = i*slotLen ;
+            if ( prefix > 0 )
+            {
+                if ( i == 0 || prefix > slotLen )
+                    throw new BufferException(format("Bad compressed record: idx=%d prefix=%d", i, prefix)) ;
+                for ( int j = 0 ; j < prefix ; j++ )
+                    bb.put(base+j, bb.get(base-slotLen+j)) ;
+            }
+            for ( int j = prefix ; j < slotLen ; j++ )
+                bb.put(base+j, src.get(x++)) ;
+        }
+        numSlot = count ;
+    }
+    
+    private int commonPrefix(int idx1, int idx2)
+    {
+        int x1 = idx1*slotLen ;
+        int x2 = idx2*slotLen ;
+        int i = 0 ;
+        // Keep to a length that fits in a byte.
+        int len = Math.min(slotLen, 255) ;
+        while ( i < len && bb.get(x1+i) == bb.get(x2+i) )
+            i++ ;
+        return i ;
+    }
+    
     // Record compareByKey except we avoid touching bytes by exiting as soon as possible.
     // No record created as would be by using compareByKey(RecordBuffer.get(idx), record)  
     // Compare the slot at idx with value.
@@ -0,0 +1,212 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.jena.tdb.base.file;
+
+import java.io.IOException ;
+import java.nio.ByteBuffer ;
+
+import org.apache.jena.atlas.lib.FileOps ;
+import org.apache.jena.tdb.base.block.Block ;
+
+/** Direct file access with adaptive read-ahead for sequential reads.
+ * <p>
+ * A scan of a B+Tree follows the chain of leaf (records) blocks, as in
+ * {@code RecordRangeIterator}. For trees written by the bulk loaders, and
+ * largely for any tree, the chain is in increasing block order. This class
+ * spots runs of reads of consecutive blocks and, when a run is long enough,
+ * reads a window of the following blocks in one I/O operation into a buffer
+ * from a {@link BufferAllocator}. Reads within the window are then copied from
+ * the buffer. The window doubles each time it is used up, up to a maximum.
+ * <p>
+ * Several scans of the same file may be in progress so a small number
+ * of read streams are tracked, the least recently used being replaced by a
+ * read that does not continue any of them.
+ * <p>
+ * Writes remove the written block from any window.
+ */
+public class BlockAccessReadAhead extends BlockAccessDirect
+{
+    /** Number of consecutive block reads before reading ahead. */
+    public static int Trigger       = 3 ;
+    /** Initial read-ahead, in blocks. */
+    public static int MinWindow     = 8 ;
+    /** Maximum read-ahead, in blocks. */
+    public static int MaxWindow     = 128 ;
+    /** Number of sequential read streams tracked for each file. */
+    public static int Streams       = 4 ;
+    
+    private static class Stream
+    {
+        long next = -1 ;        // Next block id expected.
+        int run = 0 ;           // Number of consecutive reads so far.
+        int window = 0 ;        // Blocks to read next time.
+        ByteBuffer buffer = null ;
+        long start = -1 ;       // First block in the buffer.
+        int count = 0 ;         // Number of blocks in the buffer.
+        long lastUsed = 0 ;
+        
+        boolean contains(long id)   { return count > 0 && id >= start && id < start+count ; }
+    }
+    
+    private final BufferAllocator allocator ;
+    private final Stream[] streams ;
+    private long tick = 0 ;
+    
+    public BlockAccessReadAhead(String filename, int blockSize)
+    {
+        this(filename, blockSize, new BufferAllocatorDirect()) ;
+    }
+
+    public BlockAccessReadAhead(String filename, int blockSize, BufferAllocator allocator)
+    {
+        super(filename, blockSize) ;
+        this.allocator = allocator ;
+        this.streams = new Stream[Math.max(1, Streams)] ;
+        for ( int i = 0 ; i < streams.length ; i++ )
+            streams[i] = new Stream() ;
+    }
+    
+    @Override
+    public Block read(long id)
+    {
+        check(id) ;
+        checkIfClosed() ;
+        ByteBuffer bb = ByteBuffer.allocate(blockSize) ;
+        if ( ! readAhead(id, bb) )
+            // Not part of a sequential read : read the block on its own.
+            return super.read(id) ;
+        bb.rewind() ;
+        return new Block(id, bb) ;
+    }
+
+    @Override
+    public void write(Block block)
+    {
+        synchronized(streams)
+        {
+            long id = block.getId() ;
+            for ( Stream s : streams )
+            {
+                if ( s.contains(id) )
+                    s.count = 0 ;
+            }
+            super.write(block) ;
+        }
+    }
+    
+    /** Read the block from, or into, a read-ahead window.
+     *  Return false if the read is not part of a sequential read. */
+    private boolean readAhead(long id, ByteBuffer dst)
+    {
+        synchronized(streams)
+        {
+            tick++ ;
+            for ( Stream s : streams )
+            {
+                if ( s.contains(id) )
+                {
+                    s.next = id+1 ;
+                    s.lastUsed = tick ;
+                    copy(s, id, dst) ;
+                    return true ;
+                }
+            }
+            for ( Stream s : streams )
+            {
+                if ( s.next == id )
+                {
+                    s.next = id+1 ;
+                    s.run++ ;
+                    s.lastUsed = tick ;
+                    if ( s.run < Trigger )
+                        return false ;
+                    if ( ! fill(s, id) )
+                        return false ;
+                    copy(s, id, dst) ;
+                    return true ;
+                }
+            }
+            // A new stream, replacing the least recently used.
+            Stream victim = streams[0] ;
+            for ( Stream s : streams )
+            {
+                if ( s.lastUsed < victim.lastUsed )
+                    victim = s ;
+            }
+            victim.next = id+1 ;
+            victim.run = 1 ;
+            victim.window = MinWindow ;
+            victim.count = 0 ;
+            victim.lastUsed = tick ;
+            return false ;
+        }
+    }
+
+    /** Read a window of blocks starting at id. */
+    private boolean fill(Stream s, long id)
+    {
+        // The previous window was used up : read further ahead this time. 
+        if ( s.count > 0 && id == s.start+s.count )
+            s.window = Math.min(2*s.window, MaxWindow) ;
+        s.window = Math.max(1, Math.min(s.window, MaxWindow)) ;
+        s.count = 0 ;
+        if ( s.buffer == null )
+            s.buffer = allocator.allocate(MaxWindow*blockSize) ;
+        ByteBuffer bb = s.buffer ;
+        bb.clear() ;
+        bb.limit(s.window*blockSize) ;
+        long position = id*blockSize ;
+        try {
+            while ( bb.hasRemaining() )
+            {
+                int len = file.channel().read(bb, position+bb.position()) ;
+                if ( len < 0 )
+                    break ;
+            }
+        } catch (IOException ex)
+        { throw new FileException("BlockAccessReadAhead", ex) ; }
+        // Only whole blocks. Short at the end of the file.
+        int n = bb.position()/blockSize ;
+        if ( n == 0 )
+            return false ;
+        s.start = id ;
+        s.count = n ;
+        return true ;
+    }
+
+    private void copy(Stream s, long id, ByteBuffer dst)
+    {
+        ByteBuffer src = s.buffer.duplicate() ;
+        int offset = (int)(id-s.start)*blockSize ;
+        src.limit(offset+blockSize) ;
+        src.position(offset) ;
+        dst.put(src) ;
+    }
+
+    @Override
+    protected void _close()
+    {
+        super._close() ;
+        allocator.close() ;
+    }
+
+    @Override
+    public String toString() { return "ReadAhead:"+FileOps.basename(file.filename) ; }
+}
@@ -170,5 +170,11 @@ public class BufferChannelFile implements BufferChannel
     {
         return file.getFilename() ;
     }
+
+    /** The file channel, for memory mapping - use with care */
+    public FileChannel getFileChannel()
+    {
+        return file.channel() ;
+    }
     
 }
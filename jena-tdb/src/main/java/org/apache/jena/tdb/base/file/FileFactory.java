@@ -19,6 +19,7 @@
 package org.apache.jena.tdb.base.file;
 
 import org.apache.jena.tdb.base.objectfile.ObjectFile ;
+import org.apache.jena.tdb.base.objectfile.ObjectFileMapped ;
 import org.apache.jena.tdb.base.objectfile.ObjectFileStorage ;
 import org.apache.jena.tdb.base.objectfile.StringFile ;
 
@@ -36,6 +37,13 @@ public class FileFactory
         return new ObjectFileStorage(file) ;
     }
 
+    /** An ObjectFile where reads return slices of the memory mapped file */
+    public static ObjectFile createObjectFileMapped(String filename)
+    {
+        BufferChannelFile file = BufferChannelFile.create(filename) ; 
+        return new ObjectFileMapped(file) ;
+    }
+
     public static ObjectFile createObjectFileMem(String filename)
     { 
         BufferChannel file = BufferChannelMem.create(filename) ; 
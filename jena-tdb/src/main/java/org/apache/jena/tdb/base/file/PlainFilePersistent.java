@@ -20,6 +20,7 @@ package org.apache.jena.tdb.base.file;
 
 import java.io.IOException ;
 import java.nio.ByteBuffer ;
+import java.nio.MappedByteBuffer ;
 import java.nio.channels.FileChannel ;
 
 import org.apache.jena.atlas.io.IO ;
@@ -42,14 +43,17 @@ public class PlainFilePersistent extends PlainFile
     PlainFilePersistent(String filename)
     {
         file = FileBase.create(filename) ;
-        //long filesize = file.out.length() ;
-        //if ( channel.size() == 0 ) {}
+        // Map the existing contents, if any.
+        filesize = file.size() ;
         byteBuffer = allocateBuffer(filesize) ;
     }
     
     @Override
     public void sync()
     { 
+        // Changes are made through the mapping. 
+        if ( byteBuffer instanceof MappedByteBuffer )
+            ((MappedByteBuffer)byteBuffer).force() ;
         file.sync() ; 
     }
     
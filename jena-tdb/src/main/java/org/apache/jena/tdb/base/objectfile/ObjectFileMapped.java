@@ -0,0 +1,136 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.jena.tdb.base.objectfile;
+
+import static org.apache.jena.tdb.sys.SystemTDB.SizeOfInt ;
+
+import java.io.IOException ;
+import java.nio.ByteBuffer ;
+import java.nio.MappedByteBuffer ;
+import java.nio.channels.FileChannel ;
+import java.nio.channels.FileChannel.MapMode ;
+import java.util.Arrays ;
+
+import org.apache.jena.atlas.io.IO ;
+import org.apache.jena.tdb.base.file.BufferChannelFile ;
+import org.apache.jena.tdb.sys.SystemTDB ;
+
+/** Variable length ByteBuffer file on disk, with reads of objects in the file
+ *  returned as read-only slices of memory mapped segments of the file.
+ *  No bytes are copied on read.
+ *  <p>
+ *  Writing is as for {@link ObjectFileStorage}. Objects in the write buffer,
+ *  and objects that cross a segment boundary, are read by copying.  
+ *  <p>
+ *  Segments are mapped read-only and only cover the part of the file in storage,
+ *  so mapping never changes the file. A segment is remapped when the file has grown
+ *  and a read needs bytes beyond the end of the current mapping. 
+ */
+public class ObjectFileMapped extends ObjectFileStorage
+{
+    private final FileChannel channel ;
+    private final int segmentSize ;
+    // Replaced, not updated in-place, when a segment is (re)mapped. 
+    private volatile MappedByteBuffer[] segments = new MappedByteBuffer[0] ;
+
+    public ObjectFileMapped(BufferChannelFile file)
+    {
+        this(file, SystemTDB.ObjectFileWriteCacheSize, SystemTDB.SegmentSize) ;
+    }
+
+    public ObjectFileMapped(BufferChannelFile file, int bufferSize, int segmentSize)
+    {
+        super(file, bufferSize) ;
+        this.channel = file.getFileChannel() ;
+        this.segmentSize = segmentSize ;
+    }
+
+    @Override
+    public ByteBuffer read(long loc)
+    {
+        long length = storageLength() ;
+        // Errors and buffered objects are handled by ObjectFileStorage.
+        if ( loc < 0 || loc+SizeOfInt > length )
+            return super.read(loc) ;
+
+        int idx = (int)(loc/segmentSize) ;
+        int offset = (int)(loc%segmentSize) ;
+        int start = offset+SizeOfInt ;
+        if ( start > segmentSize )
+            return super.read(loc) ;
+        ByteBuffer segment = segment(idx, start, length) ;
+        int len = segment.getInt(offset) ;
+        if ( len < 0 || len > length-(loc+SizeOfInt) || start+len > segmentSize )
+            // Bad length (ObjectFileStorage reports it) or the object crosses into the next segment.
+            return super.read(loc) ;
+        if ( start+len > segment.capacity() )
+            segment = segment(idx, start+len, length) ;
+        ByteBuffer bb = segment.duplicate() ;
+        bb.limit(start+len) ;
+        bb.position(start) ;
+        return bb.slice() ;
+    }
+
+    /** Get segment idx, mapped to cover at least the first {@code needed} bytes of the segment. */ 
+    private ByteBuffer segment(int idx, int needed, long length)
+    {
+        MappedByteBuffer[] x = segments ;
+        if ( idx < x.length && x[idx] != null && x[idx].capacity() >= needed )
+            return x[idx] ;
+        return map(idx, needed, length) ;
+    }
+
+    private synchronized ByteBuffer map(int idx, int needed, long length)
+    {
+        MappedByteBuffer[] x = segments ;
+        if ( idx < x.length && x[idx] != null && x[idx].capacity() >= needed )
+            return x[idx] ;
+        long start = (long)idx*segmentSize ;
+        // Never beyond the end of the file.
+        long size = Math.min(segmentSize, length-start) ;
+        try {
+            MappedByteBuffer bb = channel.map(MapMode.READ_ONLY, start, size) ;
+            MappedByteBuffer[] x2 = ( idx < x.length ) ? x.clone() : Arrays.copyOf(x, idx+1) ;
+            x2[idx] = bb ;
+            segments = x2 ;
+            return bb ;
+        } catch (IOException ex) { IO.exception(ex) ; return null ; }
+    }
+
+    @Override
+    public void reposition(long posn)
+    {
+        // Mapped segments may cover the part of the file being discarded.
+        // They are released by the garbage collector.
+        synchronized (this) {
+            segments = new MappedByteBuffer[0] ;
+        }
+        super.reposition(posn) ;
+    }
+
+    @Override
+    public void close()
+    {
+        synchronized (this) {
+            segments = new MappedByteBuffer[0] ;
+        }
+        super.close() ;
+    }
+}
@@ -52,6 +52,8 @@ public class ObjectFileStorage implements ObjectFile
     /* 
      * No synchronization - assumes that the caller has some appropriate lock
      * because the combination of file and cache operations needs to be thread safe.
+     * Reads do not change any state, so several reads can run at the same time
+     * as long as they do not overlap with writes.
      * 
      * The position of the channel is assumed to be the end of the file always.
      * Read operations are done with absolute channel calls, 
@@ -319,23 +321,18 @@ public class ObjectFileStorage implements ObjectFile
             if ( loc >= filesize+writeBuffer.position() )
                 throw new IllegalArgumentException("ObjectFileStorage.read["+file.getLabel()+"]: Bad read: location="+loc+" >= max="+(filesize+writeBuffer.position())) ;
             
-            int x = writeBuffer.position() ;
-            int y = writeBuffer.limit() ;
-            
             int offset = (int)(loc-filesize) ;
             int len = writeBuffer.getInt(offset) ;
             int posn = offset + SizeOfInt ;
-            // Slice the data bytes,
-            writeBuffer.position(posn) ;
-            writeBuffer.limit(posn+len) ;
-            ByteBuffer bb = writeBuffer.slice() ;
-            writeBuffer.limit(y) ;
-            writeBuffer.position(x) ;
-            return bb ; 
+            // Slice the data bytes, without moving the write buffer.
+            ByteBuffer bb = writeBuffer.duplicate() ;
+            bb.limit(posn+len) ;
+            bb.position(posn) ;
+            return bb.slice() ; 
         }
         
         // No - it's in the underlying file storage.
-        lengthBuffer.clear() ;
+        ByteBuffer lengthBuffer = ByteBuffer.allocate(SizeOfInt) ;
         int x = file.read(lengthBuffer, loc) ;
         if ( x != 4 )
             throw new FileException("ObjectFileStorage.read["+file.getLabel()+"]("+loc+")[filesize="+filesize+"][file.size()="+file.size()+"]: Failed to read the length : got "+x+" bytes") ;
@@ -359,6 +356,12 @@ public class ObjectFileStorage implements ObjectFile
         return bb ;
     }
     
+    /** Length of the object file in storage, not including buffered writes. */
+    protected long storageLength()
+    {
+        return filesize ;
+    }
+    
     @Override
     public long length()
     {
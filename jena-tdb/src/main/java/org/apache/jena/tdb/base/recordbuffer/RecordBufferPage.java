@@ -18,14 +18,24 @@
 
 package org.apache.jena.tdb.base.recordbuffer;
 
+import java.nio.ByteBuffer ;
+
 import org.apache.jena.tdb.base.block.Block ;
+import org.apache.jena.tdb.base.buffer.RecordBuffer ;
 import org.apache.jena.tdb.base.page.Page ;
+import org.apache.jena.tdb.base.record.RecordException ;
 import org.apache.jena.tdb.base.record.RecordFactory ;
 import org.apache.jena.tdb.sys.SystemTDB ;
 
 /**
  * B+Tree records nodes and hash buckets.
  * Add link field to a RecordBufferPageBase
+ * <p>
+ * A page may be prefix compressed: on-disk, the records are stored in the
+ * compressed form of {@link RecordBuffer#compress}, and are expanded into
+ * a separate RecordBuffer when the page is read. The page is full when the
+ * compressed form of the records uses the block, so it holds more records
+ * than an uncompressed page.
  */
 
 public final class RecordBufferPage extends RecordBufferPageBase
@@ -42,8 +52,14 @@ public final class RecordBufferPage extends RecordBufferPageBase
 //    final public static int COUNT      = 0 ;
     final public static int LINK            = 4 ;
     final private static int FIELD_LENGTH   = SystemTDB.SizeOfInt ; // Length of the space needed here (not count)
+    // Start of the records in a compressed page.
+    final private static int DATA           = LINK+FIELD_LENGTH ;
+    
+    /** The maximum number of records in a compressed page, as a multiple of the number in an uncompressed page. */
+    public static int CompressedCapacityFactor = 4 ;
 
     private int link = Page.NO_ID ;
+    private final boolean compressed ;
     
     public final int getLink() { return link ; }
     
@@ -56,40 +72,132 @@ public final class RecordBufferPage extends RecordBufferPageBase
     @Override
     protected void _reset(Block block)
     { 
+        if ( compressed )
+            // The records are held in the page, not the block. 
+            return ;
         super.reset(block, this.getCount()) ;
         this.link = block.getByteBuffer().getInt(LINK) ;
     }
 
+    public boolean isCompressed() { return compressed ; }
+
+    /** Is there possibly no space for another record? */
+    public boolean isFull()
+    {
+        if ( recBuff.isFull() )
+            return true ;
+        if ( ! compressed )
+            return false ;
+        // Worst case: the new record shares no bytes with its neighbours.
+        return DATA + recBuff.compressedLength() + 1 + recBuff.slotLen() > getBackingBlock().getByteBuffer().capacity() ;
+    }
+
+    /** Is the page at, or below, half full? Two pages that are both at the minimum size can be merged. */
+    public boolean isMinSize()
+    {
+        // 50% packing minimum.
+        // If of max length 5 (i.e. odd), min size is 2.  Integer division works.  
+        if ( recBuff.size() > recBuff.maxSize()/2 )
+            return false ;
+        if ( ! compressed )
+            return true ;
+        int dataSpace = getBackingBlock().getByteBuffer().capacity()-DATA ;
+        return recBuff.compressedLength() <= dataSpace/2 ;
+    }
+
+    /** Bytes used in the block, including the header. */ 
+    public int getUsedSpace()
+    {
+        if ( compressed )
+            return DATA + recBuff.compressedLength() ;
+        return DATA + recBuff.size()*recBuff.slotLen() ;
+    }
+
     public static int calcRecordSize(RecordFactory factory, int blkSize)
     { return RecordBufferPageBase.calcRecordSize(factory, blkSize, FIELD_LENGTH) ; }
     
     public static int calcBlockSize(RecordFactory factory, int maxRec)
     { return RecordBufferPageBase.calcBlockSize(factory, maxRec, FIELD_LENGTH) ; }
     
+    /** Maximum number of records in a compressed page for a given block size */
+    public static int calcCompressedRecordSize(RecordFactory factory, int blkSize)
+    {
+        if ( blkSize < calcMinCompressedBlockSize(factory) )
+            throw new RecordException("Block too small for compressed records: "+blkSize) ;
+        return CompressedCapacityFactor*calcRecordSize(factory, blkSize) ;
+    }
+    
+    /** Smallest block for compressed records */
+    public static int calcMinCompressedBlockSize(RecordFactory factory)
+    {
+        // Ensure splitting a full page by compressed size leaves room for a record in either half.
+        return DATA+4*(factory.recordLength()+1) ;
+    }
+    
     /** The construction methods */
     public static RecordBufferPage createBlank(Block block,RecordFactory factory)
+    {
+        return createBlank(block, factory, false) ;
+    }
+
+    public static RecordBufferPage createBlank(Block block, RecordFactory factory, boolean compressed)
     {
         int count = 0 ;
         int linkId = NO_ID ;
+        if ( compressed )
+        {
+            int maxRec = calcCompressedRecordSize(factory, block.getByteBuffer().capacity()) ;
+            return new RecordBufferPage(block, factory, new RecordBuffer(factory, maxRec), linkId) ;
+        }
         return new RecordBufferPage(block, factory, count, linkId) ;
     }
 
     public static RecordBufferPage format(Block block, RecordFactory factory)
     {
-        int count = block.getByteBuffer().getInt(COUNT) ;
-        int linkId = block.getByteBuffer().getInt(LINK) ;
+        return format(block, factory, false) ;
+    }
+        
+    public static RecordBufferPage format(Block block, RecordFactory factory, boolean compressed)
+    {
+        ByteBuffer bb = block.getByteBuffer() ;
+        int count = bb.getInt(COUNT) ;
+        int linkId = bb.getInt(LINK) ;
+        if ( compressed )
+        {
+            int maxRec = calcCompressedRecordSize(factory, bb.capacity()) ;
+            RecordBuffer rb = new RecordBuffer(factory, maxRec) ;
+            rb.decompress(bb, DATA, count) ;
+            return new RecordBufferPage(block, factory, rb, linkId) ;
+        }
         return new RecordBufferPage(block, factory, count, linkId) ;
     } 
-        
+    
+    /** Write the records into the backing block, for a compressed page.
+     * (An uncompressed page holds its records in the block.)  
+     */
+    void compressInto(Block block)
+    {
+        if ( ! compressed )
+            return ;
+        recBuff.compress(block.getByteBuffer(), DATA) ;
+    }
     
     private RecordBufferPage(Block block, RecordFactory factory, int count, int linkId)  
     {
         super(block, FIELD_LENGTH, factory, count) ;
         this.link = linkId ;
+        this.compressed = false ;
+    }
+    
+    private RecordBufferPage(Block block, RecordFactory factory, RecordBuffer recBuff, int linkId)  
+    {
+        super(block, FIELD_LENGTH, factory, recBuff) ;
+        this.link = linkId ;
+        this.compressed = true ;
     }
     
     @Override
     public String toString()
-    { return String.format("RecordBufferPage[id=%d,link=%d]: %s", getBackingBlock().getId(), getLink(), recBuff) ; }
+    { return String.format("RecordBufferPage[id=%d,link=%d%s]: %s", getBackingBlock().getId(), getLink(), (compressed?",compressed":""), recBuff) ; }
 
 }
@@ -74,6 +74,16 @@ public abstract class RecordBufferPageBase extends PageBase //implements Page
         reset(block, count) ;
     }
     
+    /** Page where the records are held in a separate RecordBuffer, not in the block. */
+    protected RecordBufferPageBase(Block block, int offset, 
+                                   RecordFactory factory, RecordBuffer recBuff)
+    {
+        super(block) ;
+        this.headerLength = FIELD_LENGTH+offset ;
+        this.factory = factory ;
+        this.recBuff = recBuff ;
+    }
+    
     protected void reset(Block block, int count)
     {
         ByteBuffer bb = block.getByteBuffer() ;
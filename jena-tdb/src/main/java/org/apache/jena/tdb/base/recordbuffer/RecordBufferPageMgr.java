@@ -37,9 +37,15 @@ import org.apache.jena.tdb.base.record.RecordFactory ;
 public class RecordBufferPageMgr extends PageBlockMgr<RecordBufferPage>
 {
     public RecordBufferPageMgr(RecordFactory factory, BlockMgr blockMgr)
+    {
+        this(factory, blockMgr, false) ;
+    }
+
+    /** Manager for pages of records, with the records stored prefix compressed in each block if {@code compressed} is true. */ 
+    public RecordBufferPageMgr(RecordFactory factory, BlockMgr blockMgr, boolean compressed)
     {
         super(null, blockMgr) ;
-        Block2RecordBufferPage conv = new Block2RecordBufferPage(factory) ;
+        Block2RecordBufferPage conv = new Block2RecordBufferPage(factory, compressed) ;
         super.setConverter(conv) ;
     }
 
@@ -58,10 +64,17 @@ public class RecordBufferPageMgr extends PageBlockMgr<RecordBufferPage>
     public static class Block2RecordBufferPage implements BlockConverter<RecordBufferPage>
     {
         private RecordFactory factory ;
+        private final boolean compressed ;
 
         public Block2RecordBufferPage(RecordFactory factory)
+        {
+            this(factory, false) ;
+        }
+        
+        public Block2RecordBufferPage(RecordFactory factory, boolean compressed)
         {
             this.factory = factory ;
+            this.compressed = compressed ;
         }
         
         @Override
@@ -70,7 +83,7 @@ public class RecordBufferPageMgr extends PageBlockMgr<RecordBufferPage>
             if ( blkType != BlockType.RECORD_BLOCK )
                 throw new RecordException("Not RECORD_BLOCK: "+blkType) ;
             // Initially empty
-            RecordBufferPage rb = RecordBufferPage.createBlank(block, factory) ;
+            RecordBufferPage rb = RecordBufferPage.createBlank(block, factory, compressed) ;
             return rb ;
         }
 
@@ -79,7 +92,7 @@ public class RecordBufferPageMgr extends PageBlockMgr<RecordBufferPage>
         {
             synchronized (block)    // [[TxTDB:TODO] needed? Right place?
             {
-                RecordBufferPage rb = RecordBufferPage.format(block, factory) ;
+                RecordBufferPage rb = RecordBufferPage.format(block, factory, compressed) ;
 //                int count = block.getByteBuffer().getInt(COUNT) ;
 //                int linkId = block.getByteBuffer().getInt(LINK) ;
 //                RecordBufferPage rb = new RecordBufferPage(block, linkId, factory, count) ;
@@ -94,6 +107,7 @@ public class RecordBufferPageMgr extends PageBlockMgr<RecordBufferPage>
             ByteBuffer bb = rbp.getBackingBlock().getByteBuffer() ;
             bb.putInt(COUNT, rbp.getCount()) ;
             bb.putInt(LINK, rbp.getLink()) ;
+            rbp.compressInto(rbp.getBackingBlock()) ;
             return rbp.getBackingBlock() ;
         }
     }
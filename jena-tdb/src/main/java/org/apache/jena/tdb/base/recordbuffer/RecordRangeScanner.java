@@ -0,0 +1,150 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb.base.recordbuffer;
+
+import static org.apache.jena.atlas.lib.Alg.decodeIndex ;
+
+import org.apache.jena.tdb.base.block.BlockException ;
+import org.apache.jena.tdb.base.buffer.RecordBuffer ;
+import org.apache.jena.tdb.base.record.Record ;
+import org.apache.jena.tdb.index.RangeScan ;
+
+/** Batch scan of a range of records, reading the keys directly from the records pages.
+ * The batch equivalent of {@link RecordRangeIterator}.
+ */
+final public
+class RecordRangeScanner implements RangeScan
+{
+    /** Scan a range of fromRec (inclusive) to toRec (exclusive) */
+    public static RangeScan scanner(int pageId, Record fromRec, Record toRec, RecordBufferPageMgr pageMgr)
+    {
+        if ( ! pageMgr.valid(pageId) ) {
+            String msg = "RecordRangeScanner.scanner -- No such block (pageId="+pageId+", fromRec="+fromRec+", toRec="+toRec+ ")" ;
+            throw new BlockException(msg) ;
+        }
+        return new RecordRangeScanner(pageId, fromRec, toRec, pageMgr) ;
+    }
+    
+    /** A scan with no records */
+    public static RangeScan emptyScan()
+    {
+        return new RangeScan() {
+            @Override public int next(long[][] columns, int max) { return 0 ; }
+            @Override public void close() {}
+        } ;
+    }
+    
+    private RecordBufferPage currentPage ;      // Set null when finished.
+    private int currentIdx ;
+    // Exclusive end of the range in the current page. 
+    private int currentEnd ;
+    
+    private final RecordBufferPageMgr pageMgr ;
+    private final Record maxRec ;
+    
+    private RecordRangeScanner(int id, Record fromRec, Record toRec, RecordBufferPageMgr pageMgr)
+    {
+        this.pageMgr = pageMgr;
+        this.maxRec = toRec ;
+        this.currentIdx = 0 ;
+        
+        if ( toRec != null && fromRec != null && Record.keyLE(toRec, fromRec) )
+        {
+            currentPage = null ;
+            return ;
+        }
+        
+        // Unlike RecordRangeIterator, not registered with BlockMgr.beginIterator,
+        // which is for tracking java.util.Iterators. 
+        currentPage = pageMgr.getReadIterator(id) ;
+        if ( fromRec != null && currentPage.getCount() > 0 )
+        {
+            currentIdx = currentPage.getRecordBuffer().find(fromRec) ;
+            if ( currentIdx < 0 )
+                currentIdx = decodeIndex(currentIdx) ;
+        }
+        currentEnd = pageEnd(currentPage) ;
+    }
+
+    /** The end of the range in a page. */ 
+    private int pageEnd(RecordBufferPage page)
+    {
+        RecordBuffer rb = page.getRecordBuffer() ;
+        if ( maxRec == null )
+            return rb.size() ;
+        int x = rb.find(maxRec) ;
+        if ( x < 0 )
+            x = decodeIndex(x) ;
+        return x ;
+    }
+    
+    @Override
+    public int next(long[][] columns, int max)
+    {
+        int count = 0 ;
+        while ( count < max )
+        {
+            if ( currentPage == null )
+                break ;
+            if ( currentIdx >= currentEnd )
+            {
+                if ( ! nextPage() )
+                    break ;
+                continue ;
+            }
+            int n = Math.min(max-count, currentEnd-currentIdx) ;
+            RecordBuffer rb = currentPage.getRecordBuffer() ;
+            for ( int i = 0 ; i < columns.length ; i++ )
+            {
+                if ( columns[i] != null )
+                    rb.getKeyLongs(currentIdx, currentIdx+n, i, columns[i], count) ;
+            }
+            currentIdx += n ;
+            count += n ;
+        }
+        return count ;
+    }
+
+    // Move to the next page, if the range continues.
+    private boolean nextPage()
+    {
+        // Stopped before the end of this page, or the last page.  
+        int link = currentPage.getLink() ;
+        if ( currentEnd < currentPage.getCount() || link < 0 )
+        {
+            close() ;
+            return false ;
+        }
+        pageMgr.release(currentPage) ;
+        currentPage = pageMgr.getReadIterator(link) ;
+        currentIdx = 0 ;
+        currentEnd = pageEnd(currentPage) ;
+        return true ;
+    }
+
+    @Override
+    public void close()
+    {
+        if ( currentPage == null )
+            return ;
+        pageMgr.release(currentPage) ;
+        currentPage = null ;
+        currentIdx = -99 ;
+    }
+}
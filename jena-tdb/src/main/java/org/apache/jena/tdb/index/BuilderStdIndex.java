@@ -20,10 +20,13 @@ package org.apache.jena.tdb.index;
 
 import org.apache.jena.tdb.base.block.BlockMgr ;
 import org.apache.jena.tdb.base.block.BlockMgrFactory ;
+import org.apache.jena.tdb.base.file.FileFactory ;
 import org.apache.jena.tdb.base.file.FileSet ;
+import org.apache.jena.tdb.base.file.PlainFile ;
 import org.apache.jena.tdb.base.record.RecordFactory ;
 import org.apache.jena.tdb.index.bplustree.BPlusTree ;
 import org.apache.jena.tdb.index.bplustree.BPlusTreeParams ;
+import org.apache.jena.tdb.index.ext.ExtHash ;
 import org.apache.jena.tdb.setup.BlockMgrBuilder ;
 import org.apache.jena.tdb.sys.Names ;
 
@@ -48,6 +51,29 @@ public class BuilderStdIndex {
         }
     }
 
+    /** Build an extendible hash index: a dictionary file and a file of hash buckets.
+     * Point lookups read one bucket block, whatever the size of the index.
+     * There is no ordered access so this is only suitable for keys looked up
+     * by exact value, such as node hashes.
+     */
+    public static class IndexBuilderExtHash implements IndexBuilder
+    {
+        protected BlockMgrBuilder bMgrBuckets ;
+
+        public IndexBuilderExtHash(BlockMgrBuilder bMgrBuckets) {
+            this.bMgrBuckets = bMgrBuckets ;
+        }
+
+        @Override
+        public Index buildIndex(FileSet fileSet, RecordFactory recordFactory, IndexParams indexParams) {
+            PlainFile dictionary = fileSet.isMem()
+                ? FileFactory.createPlainFileMem()
+                : FileFactory.createPlainFileDisk(fileSet.filename(Names.extHashExt)) ;
+            BlockMgr blkMgrBuckets = bMgrBuckets.buildBlockMgr(fileSet, Names.extHashBucketExt, indexParams) ;
+            return new ExtHash(dictionary, recordFactory, blkMgrBuckets) ;
+        }
+    }
+
     public static class RangeIndexBuilderStd implements RangeIndexBuilder
     {
         private BlockMgrBuilder bMgrNodes ;
@@ -87,7 +113,7 @@ public class BuilderStdIndex {
                 }
             }
 
-            BPlusTreeParams params = new BPlusTreeParams(order, factory) ;
+            BPlusTreeParams params = new BPlusTreeParams(order, factory, indexParams.getCompressedLeaves()) ;
             
             BlockMgr blkMgrNodes = blockMgrBuilderNodes.buildBlockMgr(fileset, Names.bptExtTree, indexParams) ;
             BlockMgr blkMgrRecords = blockMgrBuilderRecords.buildBlockMgr(fileset, Names.bptExtRecords, indexParams) ;
@@ -35,4 +35,7 @@ public interface IndexParams extends BlockParams {
     
     /** Block write cache size (mmap'ed files do not have a block cache)*/
     @Override public Integer getBlockWriteCacheSize() ;
+    
+    /** Whether the records blocks of B+Trees are prefix compressed - only takes effect when the on-disk indexes are created. */
+    public Boolean getCompressedLeaves() ;
 }
@@ -28,6 +28,12 @@ public interface RangeIndex extends Index
     /** Return records between min (inclusive) and max (exclusive), based on the record keys */
     public Iterator<Record> iterator(Record recordMin, Record recordMax) ;
     
+    /** Batch scan of the records between min (inclusive) and max (exclusive), based on the record keys.
+     *  Null for min or max means the start or end of the index respectively.
+     *  @see RangeScan
+     */
+    public RangeScan scan(Record recordMin, Record recordMax) ;
+    
     /** Return the record containing the least key - may or may not have the associated value */
     public Record minKey() ;
 
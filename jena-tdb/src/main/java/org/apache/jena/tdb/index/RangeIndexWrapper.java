@@ -68,6 +68,10 @@ public class RangeIndexWrapper implements RangeIndex
     public Iterator<Record> iterator(Record minRec, Record maxRec)
     { return rIndex.iterator(minRec, maxRec) ; }
     
+    @Override
+    public RangeScan scan(Record minRec, Record maxRec)
+    { return rIndex.scan(minRec, maxRec) ; }
+    
     @Override
     public boolean isEmpty()
     { return rIndex.isEmpty() ; }
@@ -0,0 +1,38 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb.index;
+
+import org.apache.jena.atlas.lib.Closeable ;
+
+/** Batch access to a range of records of a {@link RangeIndex}.
+ *  The keys of the records are read as a sequence of 8-byte slots, each slot being decoded
+ *  as a long into a column supplied by the caller. No per-record objects are created.
+ *  <p>
+ *  A RangeScan must be closed if it is abandoned before the end of the range is reached.   
+ */
+public interface RangeScan extends Closeable
+{
+    /** Fill the columns with the next batch of up to {@code max} records : 
+     *  {@code columns[i][j]} is set to key slot i of the j'th record of the batch.
+     *  A null column means that key slot is not wanted.  
+     *  Each non-null column must have space for {@code max} entries.
+     *  @return The number of records in this batch - 0 means the scan has finished.
+     */
+    public int next(long[][] columns, int max) ;
+}
@@ -924,7 +924,8 @@ public final class BPTreeNode extends BPTreePage
             {
                 // If two data blocks, then the split key is not inlcuded (it's alread ythere, with it value)
                 // Size is N+N and max could be odd so N+N and N+N+1 are possible. 
-                if ( left.getCount()+1 != left.getMaxSize() && left.getCount() != left.getMaxSize() )
+                // (Compressed records blocks are merged on compressed size, not count.)
+                if ( ! params.isCompressedLeaves() && left.getCount()+1 != left.getMaxSize() && left.getCount() != left.getMaxSize() )
                     error("Inconsistent data node size: %d/%d", left.getCount(), left.getMaxSize()) ;
             }
             else if ( ! left.isFull() )
@@ -1180,8 +1181,7 @@ public final class BPTreeNode extends BPTreePage
             return false ;
         
         // The root can be zero size and point to a single data block.
-        int id = this.getPtrBuffer().getLow() ;
-        BPTreePage page = get(id, READ) ;
+        BPTreePage page = get(0, READ) ;
         boolean b = page.hasAnyKeys() ;  
         page.release() ;
         return b ;
@@ -70,7 +70,7 @@ public final class BPTreeRecords extends BPTreePage
     @Override
     public boolean isFull()
     {
-        return ( rBuff.size() >= rBuff.maxSize() ) ;
+        return rBuffPage.isFull() ;
     }
     
     @Override
@@ -82,10 +82,9 @@ public final class BPTreeRecords extends BPTreePage
     @Override
     public boolean isMinSize()
     {
-        // 50% packing minimum.
-        // If of max length 5 (i.e. odd), min size is 2.  Integer division works.  
-        return ( rBuff.size() <= rBuff.maxSize()/2 ) ;
-   }
+        // 50% packing minimum - see RecordBufferPage.isMinSize.
+        return rBuffPage.isMinSize() ;
+    }
 
     @Override
     public Record internalSearch(Record rec)
@@ -164,11 +163,33 @@ public final class BPTreeRecords extends BPTreePage
     @Override final
     public Record getSplitKey()
     {
-        int splitIdx = rBuff.size()/2-1 ;
+        int splitIdx = splitIndex() ;
         Record r = rBuff.get(splitIdx) ;
         return r ;
     }
 
+    /** The index of the last record in the lower page after a split. */ 
+    private int splitIndex()
+    {
+        int size = rBuff.size() ;
+        if ( ! rBuffPage.isCompressed() )
+            return size/2-1 ;
+        // Split so that the two halves have about the same compressed length.
+        int half = rBuff.compressedLength()/2 ;
+        int x = 0 ;
+        int idx = 0 ;
+        for ( ; idx < size-1 ; idx++ )
+        {
+            x += rBuff.compressedLength(idx) ;
+            if ( x >= half )
+                break ;
+        }
+        // Both halves must have at least one record and space for one more.
+        int maxLow = Math.min(size-2, rBuff.maxSize()-2) ;
+        int minLow = Math.max(0, size-rBuff.maxSize()) ;
+        return Math.max(minLow, Math.min(idx, maxLow)) ;
+    }
+
     /** Split: place old high half in 'other'. Return the new (upper) BPTreeRecords(BPTreePage).
      * Split is the high end of the low page.
      */
@@ -181,7 +202,7 @@ public final class BPTreeRecords extends BPTreePage
         BPTreeRecords other = create(rBuffPage.getLink()) ;
         rBuffPage.setLink(other.getId()) ;
         
-        int splitIdx = rBuff.size()/2-1 ;
+        int splitIdx = splitIndex() ;
         Record r = rBuff.get(splitIdx) ;                // Only need key for checking later.
         
         int moveLen =  rBuff.size()-(splitIdx+1) ;      // Number to move.
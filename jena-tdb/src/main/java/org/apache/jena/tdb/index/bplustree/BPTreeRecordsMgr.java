@@ -38,7 +38,7 @@ final public class BPTreeRecordsMgr extends BPTreePageMgr<BPTreeRecords>
     {
         super(bpTree, null, rBuffPageMgr.getBlockMgr()) ;
         this.rBuffPageMgr = rBuffPageMgr ;
-        super.setConverter(new Block2BPTreeRecords(bpTree, bpTree.getRecordFactory())) ;
+        super.setConverter(new Block2BPTreeRecords(bpTree, bpTree.getRecordFactory(), bpTree.getParams().isCompressedLeaves())) ;
     }
     
     /** Converter BPTreeRecords -- make a RecordBufferPage and wraps it.*/ 
@@ -47,10 +47,10 @@ final public class BPTreeRecordsMgr extends BPTreePageMgr<BPTreeRecords>
         private Block2RecordBufferPage recordBufferConverter ;
         private BPlusTree bpTree ;
 
-        Block2BPTreeRecords(BPlusTree bpTree, RecordFactory recordFactory)
+        Block2BPTreeRecords(BPlusTree bpTree, RecordFactory recordFactory, boolean compressed)
         { 
             this.bpTree = bpTree ; 
-            this.recordBufferConverter = new RecordBufferPageMgr.Block2RecordBufferPage(recordFactory) ;
+            this.recordBufferConverter = new RecordBufferPageMgr.Block2RecordBufferPage(recordFactory, compressed) ;
         }
         
         @Override
@@ -33,7 +33,9 @@ import org.apache.jena.tdb.base.record.RecordFactory ;
 import org.apache.jena.tdb.base.recordbuffer.RecordBufferPage ;
 import org.apache.jena.tdb.base.recordbuffer.RecordBufferPageMgr ;
 import org.apache.jena.tdb.base.recordbuffer.RecordRangeIterator ;
+import org.apache.jena.tdb.base.recordbuffer.RecordRangeScanner ;
 import org.apache.jena.tdb.index.RangeIndex ;
+import org.apache.jena.tdb.index.RangeScan ;
 import org.slf4j.Logger ;
 import org.slf4j.LoggerFactory ;
 
@@ -156,8 +158,12 @@ public class BPlusTree implements Iterable<Record>, RangeIndex
     
     /** (Testing mainly) Make an in-memory B+Tree, with copy-in, copy-out block managers */
     public static BPlusTree makeMem(String name, int order, int minRecords, int keyLength, int valueLength)
+    { return makeMem(name, order, minRecords, keyLength, valueLength, false) ; }
+    
+    /** (Testing mainly) Make an in-memory B+Tree, with copy-in, copy-out block managers, and choice of compressed records blocks */
+    public static BPlusTree makeMem(String name, int order, int minRecords, int keyLength, int valueLength, boolean compressedLeaves)
     {
-        BPlusTreeParams params = new BPlusTreeParams(order, keyLength, valueLength) ;
+        BPlusTreeParams params = new BPlusTreeParams(order, new RecordFactory(keyLength, valueLength), compressedLeaves) ;
         
         int blkSize ;
         if ( minRecords > 0 )
@@ -168,6 +174,9 @@ public class BPlusTree implements Iterable<Record>, RangeIndex
         }
         else
             blkSize = params.getCalcBlockSize() ;
+        if ( compressedLeaves )
+            // Smallest block for compressed records.
+            blkSize = Math.max(blkSize, RecordBufferPage.calcMinCompressedBlockSize(params.getRecordFactory())) ;
         
         BlockMgr mgr1 = BlockMgrFactory.createMem(name+"(nodes)", params.getCalcBlockSize()) ;
         BlockMgr mgr2 = BlockMgrFactory.createMem(name+"(records)", blkSize) ;
@@ -194,7 +203,7 @@ public class BPlusTree implements Iterable<Record>, RangeIndex
         // Consistency checks.
         this.bpTreeParams = params ;
         this.nodeManager = new BPTreeNodeMgr(this, blkMgrNodes) ;
-        RecordBufferPageMgr recordPageMgr = new RecordBufferPageMgr(params.getRecordFactory(), blkMgrRecords) ;
+        RecordBufferPageMgr recordPageMgr = new RecordBufferPageMgr(params.getRecordFactory(), blkMgrRecords, params.isCompressedLeaves()) ;
         recordsMgr = new BPTreeRecordsMgr(this, recordPageMgr) ;
     }
 
@@ -369,6 +378,28 @@ public class BPlusTree implements Iterable<Record>, RangeIndex
         return iter ;
     }
     
+    @Override
+    public RangeScan scan(Record fromRec, Record toRec)
+    {
+        startReadBlkMgr() ;
+        BPTreeNode root = getRoot() ;
+        RangeScan scan = scan(root, fromRec, toRec) ;
+        releaseRoot(root) ;
+        finishReadBlkMgr() ;
+        // As iterator(,): pages read by the scan are handled by the scan. 
+        return scan ;
+    }
+    
+    /** Batch scan over a range of fromRec (inclusive) to toRec (exclusive) */ 
+    private static RangeScan scan(BPTreeNode node, Record fromRec, Record toRec)
+    { 
+        int id = BPTreeNode.recordsPageId(node, fromRec) ; 
+        if ( id < 0 )
+            return RecordRangeScanner.emptyScan() ;
+        RecordBufferPageMgr pageMgr = node.getBPlusTree().getRecordsMgr().getRecordBufferPageMgr() ;
+        return RecordRangeScanner.scanner(id, fromRec, toRec, pageMgr) ;
+    }
+    
     /** Iterate over a range of fromRec (inclusive) to toRec (exclusive) */ 
     private static Iterator<Record> iterator(BPTreeNode node, Record fromRec, Record toRec)
     { 
@@ -43,6 +43,7 @@ public class BPlusTreeParams
     public static final String ParamKeyLength      = NS+".keyLength" ;
     public static final String ParamValueLength    = NS+".valueLength" ;
     public static final String ParamBlockSize      = NS+".blockSize" ;
+    public static final String ParamCompressedLeaves = NS+".compressedLeaves" ;
 
     public static void checkAll()
     { 
@@ -80,6 +81,9 @@ public class BPlusTreeParams
     /** Factory for key-only records */ 
     final RecordFactory keyFactory ;
     
+    /** Whether the records blocks (leaves) are prefix compressed */
+    final boolean compressedLeaves ;
+    
     // ---- Derived constants.
 
     /** Maximum number of keys per non-leaf block */
@@ -116,13 +120,14 @@ public class BPlusTreeParams
     @Override
     public String toString()
     {
-        return String.format("Order=%d : Records [key=%d, value=%d] : records=[%d,%d] : pointers=[%d,%d] : split=%d",
+        return String.format("Order=%d : Records [key=%d, value=%d] : records=[%d,%d] : pointers=[%d,%d] : split=%d%s",
                              order,
                              keyFactory.keyLength() ,
                              recordFactory.valueLength() ,
                              MinRec, MaxRec, 
                              MinPtr, MaxPtr,
-                             SplitIndex
+                             SplitIndex,
+                             (compressedLeaves ? " : compressed leaves" : "")
                              ) ;
     }
 
@@ -132,7 +137,8 @@ public class BPlusTreeParams
             int pOrder = mf.getPropertyAsInteger(ParamOrder) ;
             int pKeyLen = mf.getPropertyAsInteger(ParamKeyLength) ;
             int pRecLen = mf.getPropertyAsInteger(ParamValueLength) ;
-            return new BPlusTreeParams(pOrder, pKeyLen, pRecLen) ;
+            boolean pCompressed = Boolean.parseBoolean(mf.getProperty(ParamCompressedLeaves, "false")) ;
+            return new BPlusTreeParams(pOrder, new RecordFactory(pKeyLen, pRecLen), pCompressed) ;
         } catch (NumberFormatException ex)
         {
             Log.fatal(BPlusTreeParams.class, "Badly formed metadata for B+Tree") ;
@@ -145,6 +151,8 @@ public class BPlusTreeParams
         mf.setProperty(ParamOrder, order) ;
         mf.setProperty(ParamKeyLength, recordFactory.keyLength()) ;
         mf.setProperty(ParamValueLength, recordFactory.valueLength()) ;
+        if ( compressedLeaves )
+            mf.setProperty(ParamCompressedLeaves, "true") ;
         mf.flush() ;
     }
 
@@ -154,6 +162,12 @@ public class BPlusTreeParams
     }
     
     public BPlusTreeParams(int order, RecordFactory factory)
+    {
+        this(order, factory, false) ;
+    }
+    
+    /** B+Tree parameters, with the choice of prefix compressed records blocks (leaves). */
+    public BPlusTreeParams(int order, RecordFactory factory, boolean compressedLeaves)
     {
         // BTrees of order one aren't strictly BTrees, where the order is >= 2
         // Order 1 => Min size = 0 and max size = 2*N-1 = 1.
@@ -167,6 +181,7 @@ public class BPlusTreeParams
         this.order = order ;
         recordFactory = factory ;
         keyFactory = factory.keyFactory() ;
+        this.compressedLeaves = compressedLeaves ;
 
         // Derived constants.
         MaxRec  = 2*order-1 + Gap ;
@@ -185,6 +200,11 @@ public class BPlusTreeParams
         return order ;
     }
 
+    public boolean isCompressedLeaves()
+    {
+        return compressedLeaves ;
+    }
+
     public int getPtrLength()
     {
         return SizeOfPointer ;
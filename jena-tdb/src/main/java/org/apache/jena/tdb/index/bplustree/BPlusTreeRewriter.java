@@ -28,13 +28,19 @@ import java.util.function.Function;
 import org.apache.jena.atlas.iterator.Iter ;
 import org.apache.jena.atlas.iterator.IteratorWithBuffer ;
 import org.apache.jena.atlas.lib.Pair ;
+import org.apache.jena.atlas.lib.FileOps ;
+import org.apache.jena.tdb.base.block.Block ;
 import org.apache.jena.tdb.base.block.BlockMgr ;
+import org.apache.jena.tdb.base.block.BlockMgrFactory ;
+import org.apache.jena.tdb.base.block.FileMode ;
 import org.apache.jena.tdb.base.buffer.PtrBuffer ;
 import org.apache.jena.tdb.base.buffer.RecordBuffer ;
+import org.apache.jena.tdb.base.file.FileSet ;
 import org.apache.jena.tdb.base.record.Record ;
 import org.apache.jena.tdb.base.record.RecordFactory ;
 import org.apache.jena.tdb.base.recordbuffer.RecordBufferPage ;
 import org.apache.jena.tdb.base.recordbuffer.RecordBufferPageMgr ;
+import org.apache.jena.tdb.sys.Names ;
 import org.slf4j.Logger ;
 import org.slf4j.LoggerFactory ;
 
@@ -88,6 +94,141 @@ public class BPlusTreeRewriter
             throw new BPTreeException() ;
         }
     
+        // ******** Pack data blocks and index layers.
+        Pair<Integer, Record> pair = packLevels(iterRecords, bpt2) ;
+        if ( pair == null )
+            return null ;
+        // ******** Put root in right place.
+        fixupRoot(root, pair, bpt2) ;
+
+        // ****** Finish the tree.
+        blkMgrNodes.sync() ;
+        blkMgrRecords.sync() ;
+        // Force root reset.
+        bpt2 = BPlusTree.create(bptParams, blkMgrNodes, blkMgrRecords) ;
+        return bpt2 ;
+    }
+
+    /** Replace the contents of an existing B+Tree with a stream of records in sorted order.
+     *  <p>
+     *  New blocks are allocated after the existing ones and the root, which is always block zero,
+     *  is overwritten last, so the records may be read from the B+Tree being rewritten,
+     *  for example when merging new records into the existing ones.
+     *  The blocks of the previous tree are not reused or freed, so the files grow by the size
+     *  of the new tree: this is for trees that are empty or small compared to the new records.
+     *  @see #rewriteBPlusTree(Iterator, BPlusTree, FileSet)
+     */
+    public static void rewriteBPlusTree(Iterator<Record> iterRecords, BPlusTree bpt)
+    {
+        BPTreeNodeMgr nodeMgr = bpt.getNodeManager() ;
+        BPTreeRecordsMgr recordsMgr = bpt.getRecordsMgr() ;
+        nodeMgr.startUpdate() ;
+        recordsMgr.startUpdate() ;
+        try {
+            if ( ! iterRecords.hasNext() )
+            {
+                // Empty tree : the root is a leaf with one empty records block.
+                BPTreePage recordsPage = recordsMgr.create() ;
+                recordsPage.write() ;
+                recordsPage.release() ;
+                BPTreeNode root = nodeMgr.getWrite(BPlusTreeParams.RootId, BPlusTreeParams.RootParent) ;
+                root.getPtrBuffer().clear() ;
+                root.getPtrBuffer().add(recordsPage.getId()) ;
+                root.getRecordBuffer().clear() ;
+                root.setIsLeaf(true) ;
+                root.setCount(0) ;
+                nodeMgr.put(root) ;
+                return ;
+            }
+            Pair<Integer, Record> pair = packLevels(iterRecords, bpt) ;
+            if ( pair == null )
+                throw new BPTreeException("Failed to rewrite the B+Tree") ;
+            // All records have been read : now replace the root. 
+            BPTreeNode root = nodeMgr.getWrite(BPlusTreeParams.RootId, BPlusTreeParams.RootParent) ;
+            fixupRoot(root, pair, bpt) ;
+        } finally {
+            recordsMgr.finishUpdate() ;
+            nodeMgr.finishUpdate() ;
+        }
+        bpt.sync() ;
+    }
+
+    /** Replace the contents of an existing B+Tree with a stream of records in sorted order,
+     *  reusing the blocks of the existing tree.
+     *  <p>
+     *  The new tree is built in temporary files, {@code workFiles}, so the records may be read
+     *  from the B+Tree being rewritten, then copied block by block over the existing tree,
+     *  with the root staying at block zero. The files of {@code bpt} only grow if the new tree has
+     *  more blocks than the previous one. The temporary files are deleted afterwards.
+     */
+    public static void rewriteBPlusTree(Iterator<Record> iterRecords, BPlusTree bpt, FileSet workFiles)
+    {
+        BlockMgr blkMgrNodes = bpt.getNodeManager().getBlockMgr() ;
+        BlockMgr blkMgrRecords = bpt.getRecordsMgr().getBlockMgr() ;
+        int blockSize = blockSize(blkMgrNodes) ;
+        String fnNodes = workFiles.filename(Names.bptExtTree) ;
+        String fnRecords = workFiles.filename(Names.bptExtRecords) ;
+        BPlusTree bpt2 = null ;
+        try {
+            BlockMgr tmpNodes = BlockMgrFactory.createFile(fnNodes, FileMode.direct, blockSize, 10, 100) ;
+            BlockMgr tmpRecords = BlockMgrFactory.createFile(fnRecords, FileMode.direct, blockSize, 10, 100) ;
+            bpt2 = packIntoBPlusTree(iterRecords, bpt.getParams(), bpt.getRecordFactory(), tmpNodes, tmpRecords) ;
+            if ( bpt2 == null )
+                throw new BPTreeException("Failed to rewrite the B+Tree") ;
+            // All records have been read : now overwrite the existing tree,
+            // after writing out any cached blocks of it.
+            bpt.sync() ;
+            copyBlocks(tmpRecords, blkMgrRecords) ;
+            copyBlocks(tmpNodes, blkMgrNodes) ;
+        } finally {
+            if ( bpt2 != null )
+                bpt2.close() ;
+            FileOps.delete(fnNodes) ;
+            FileOps.delete(fnRecords) ;
+        }
+        bpt.sync() ;
+    }
+
+    private static int blockSize(BlockMgr blockMgr)
+    {
+        blockMgr.beginRead() ;
+        try {
+            Block block = blockMgr.getRead(BPlusTreeParams.RootId) ;
+            int blockSize = block.getByteBuffer().capacity() ;
+            blockMgr.release(block) ;
+            return blockSize ;
+        } finally { blockMgr.endRead() ; }
+    }
+
+    /** Copy all the blocks of {@code src} to the same block ids in {@code dst}. */
+    private static void copyBlocks(BlockMgr src, BlockMgr dst)
+    {
+        src.beginRead() ;
+        dst.beginUpdate() ;
+        try {
+            for ( int id = 0 ; src.valid(id) ; id++ )
+            {
+                if ( ! dst.valid(id) )
+                {
+                    // Extend the existing file.
+                    Block block = dst.allocate(-1) ;
+                    if ( block.getId() != id )
+                        throw new BPTreeException("Block allocated out of order: "+block.getId()+" (expected "+id+")") ;
+                }
+                Block block = src.getRead(id) ;
+                dst.overwrite(block.replicate()) ;
+                src.release(block) ;
+            }
+        } finally {
+            dst.endUpdate() ;
+            src.endRead() ;
+        }
+    }
+
+    /** Write the data blocks and the index layers above them.
+     *  Return the (block, split key) pair of the top block, or null on error. */
+    private static Pair<Integer, Record> packLevels(Iterator<Record> iterRecords, BPlusTree bpt2)
+    {
         // ******** Pack data blocks.
         Iterator<Pair<Integer, Record>> iter = writePackedDataBlocks(iterRecords, bpt2) ;
     
@@ -110,21 +251,13 @@ public class BPlusTreeRewriter
             leafLayer = false ;
         }
 
-        // ******** Put root in right place.
         Pair<Integer, Record> pair = iter.next() ;
         if ( iter.hasNext() )
         {
             log.error("**** Building index layers didn't result in a single block") ;
             return null ;
         }
-        fixupRoot(root, pair, bpt2) ;
-
-        // ****** Finish the tree.
-        blkMgrNodes.sync() ;
-        blkMgrRecords.sync() ;
-        // Force root reset.
-        bpt2 = BPlusTree.create(bptParams, blkMgrNodes, blkMgrRecords) ;
-        return bpt2 ;
+        return pair ;
     }
 
     // **** data block phase
@@ -193,14 +326,27 @@ public class BPlusTreeRewriter
             RecordBufferPage page1 = mgr.getWrite(id1) ;
             RecordBufferPage page2 = mgr.getWrite(id2) ;
             
-            // Wrong calculatation.
-            for ( int i = page2.getCount() ; i <  page1.getMaxSize()/2 ; i++ )
+            if ( page1.isCompressed() )
             {
-                //shiftOneup(node1, node2) ;
-                Record r = page1.getRecordBuffer().getHigh() ;
-                page1.getRecordBuffer().removeTop() ;
+                // Balance on compressed size.
+                while ( page2.isMinSize() && ! page1.isMinSize() )
+                {
+                    Record r = page1.getRecordBuffer().getHigh() ;
+                    page1.getRecordBuffer().removeTop() ;
+                    page2.getRecordBuffer().add(0, r) ;
+                }
+            }
+            else
+            {
+                // Wrong calculatation.
+                for ( int i = page2.getCount() ; i <  page1.getMaxSize()/2 ; i++ )
+                {
+                    //shiftOneup(node1, node2) ;
+                    Record r = page1.getRecordBuffer().getHigh() ;
+                    page1.getRecordBuffer().removeTop() ;
 
-                page2.getRecordBuffer().add(0, r) ;
+                    page2.getRecordBuffer().add(0, r) ;
+                }
             }
 
             mgr.put(page1) ;
@@ -66,10 +66,15 @@ class RecordBufferPagePacker implements Iterator<RecordBufferPage>
             recordBufferPage = rbMgr.create() ;
             
             RecordBuffer rb = recordBufferPage.getRecordBuffer() ;
-            while ( !rb.isFull() && records.hasNext() )
+            if ( recordBufferPage.isCompressed() )
+                packCompressed(rb) ;
+            else
             {
-                Record r = records.next();
-                rb.add(r) ;
+                while ( !rb.isFull() && records.hasNext() )
+                {
+                    Record r = records.next();
+                    rb.add(r) ;
+                }
             }
             if ( ! records.hasNext() )
                 records = null ;
@@ -79,6 +84,21 @@ class RecordBufferPagePacker implements Iterator<RecordBufferPage>
         
     }
     
+    // Fill to the compressed size limit, keeping track of the compressed length
+    // (which only depends on the last record) as records are added.
+    private void packCompressed(RecordBuffer rb)
+    {
+        int limit = recordBufferPage.getBackingBlock().getByteBuffer().capacity() ;
+        int used = recordBufferPage.getUsedSpace() ;
+        int worstCase = 1+rb.slotLen() ;
+        while ( !rb.isFull() && used+worstCase <= limit && records.hasNext() )
+        {
+            Record r = records.next();
+            rb.add(r) ;
+            used += rb.compressedLength(rb.size()-1) ;
+        }
+    }
+    
     @Override
     public RecordBufferPage next()
     {
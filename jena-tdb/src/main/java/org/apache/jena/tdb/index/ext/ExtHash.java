@@ -97,6 +97,8 @@ public final class ExtHash implements Index
     IntBuffer dictionary ;      // mask(hash) -> Bucket id 
     // Current length of trie bit used.  Invariant: dictionary.length = 1<<bitLen 
     private int bitLen = 0 ;
+    // The dictionary is one ByteBuffer so its size in bytes must be an int.
+    private static final int MaxBitLen = 28 ;
     
     private final HashBucketMgr hashBucketMgr ;
     private final RecordFactory recordFactory ;
@@ -115,17 +117,20 @@ public final class ExtHash implements Index
     {
         this.dictionaryFile = dictionaryBackingFile ;
         // Start bigger?
-        int dictionarySize = 1 ;
+        // An existing dictionary is returned whole. 
         dictionary = dictionaryFile.ensure(SystemTDB.SizeOfInt).asIntBuffer() ;
         this.recordFactory = recordFactory ; 
         
         hashBucketMgr = new HashBucketMgr(recordFactory, blockMgrHashBuckets) ;
-        hashBucketMgr.valid(0) ;
         
         // Did it exist?
         if ( hashBucketMgr.valid(0) )
         {
-            
+            // The dictionary size is always a power of two and gives the trie bit length.
+            int size = dictionary.capacity() ;
+            if ( Integer.bitCount(size) != 1 )
+                throw new StorageException("ExtHash: Dictionary size is not a power of two: "+size) ;
+            bitLen = Integer.numberOfTrailingZeros(size) ;
         }
         else
         {
@@ -217,6 +222,8 @@ public final class ExtHash implements Index
     
     private void resizeDictionary()
     {
+        if ( bitLen >= MaxBitLen )
+            error("resize: Dictionary at maximum size (bit length %d)", bitLen) ;
         int oldSize = 1<<bitLen ;
         int newBitLen = bitLen+1 ;
         int newSize = 1<<newBitLen ;
@@ -263,7 +270,12 @@ public final class ExtHash implements Index
     
     final HashBucket getBucket(int blockId)
     {
-        return hashBucketMgr.get(blockId) ;
+        return hashBucketMgr.getRead(blockId) ;
+    }
+    
+    final void releaseBucket(HashBucket bucket)
+    {
+        hashBucketMgr.release(bucket) ;
     }
     
     public final int dictionarySize()
@@ -284,8 +296,9 @@ public final class ExtHash implements Index
     {
         if ( logging() ) log(">> get(%s)", key) ;
         int blockId = bucketId(key, bitLen) ;
-        HashBucket bucket = hashBucketMgr.get(blockId) ;
+        HashBucket bucket = hashBucketMgr.getRead(blockId) ;
         Record value = bucket.find(key) ;
+        hashBucketMgr.release(bucket) ;
         if ( logging() ) log("<< get(%s) -> %s", key.getKey(), value) ;
         return value ;
     }
@@ -335,8 +348,10 @@ public final class ExtHash implements Index
     { 
        if ( dictionary.limit() == 1 )
        {
-           HashBucket b = hashBucketMgr.get(1) ;
-           return b.isEmpty() ;
+           HashBucket b = hashBucketMgr.getRead(dictionary.get(0)) ;
+           boolean empty = b.isEmpty() ;
+           hashBucketMgr.release(b) ;
+           return empty ;
        }
        // No idea.
        return false ;
@@ -361,8 +376,9 @@ public final class ExtHash implements Index
             if ( seen.contains(id) )
                 continue ;
             seen.add(id) ;
-            HashBucket bucket = hashBucketMgr.get(id) ;
+            HashBucket bucket = hashBucketMgr.getRead(id) ;
             count += bucket.getCount() ;
+            hashBucketMgr.release(bucket) ;
         }
         return count ;
     }
@@ -425,6 +441,7 @@ public final class ExtHash implements Index
             
                 // Bucket not splitable..
                 // TODO Overflow buckets.
+                hashBucketMgr.release(bucket) ;
                 
                 // Expand the dictionary.
                 int x = dictionarySize() ;
@@ -507,10 +524,9 @@ public final class ExtHash implements Index
                 
                 // We should looking at the original bucket
                 int id = dictionary.get(k) ;
-                HashBucket hb = hashBucketMgr.get(id) ;
                 
-                if ( hb.getId() != bucket.getId() )
-                    error("put: Wrong bucket at trie 0x%X %d: (%d,%d)", trieUpperRoot, j, hb.getId(), bucket.getId()) ;
+                if ( id != bucket.getId() )
+                    error("put: Wrong bucket at trie 0x%X %d: (%d,%d)", trieUpperRoot, j, id, bucket.getId()) ;
             }
             
             dictionary.put(k, bucket2.getId()) ;
@@ -628,8 +644,9 @@ public final class ExtHash implements Index
         {
             out.ensureStartOfLine() ;
             int id = dictionary.get(i) ;
-            HashBucket bucket = hashBucketMgr.get(id) ;
+            HashBucket bucket = hashBucketMgr.getRead(id) ;
             out.printf("[%d] %02d %s", i, id, bucket) ;
+            hashBucketMgr.release(bucket) ;
         }
         out.decIndent(4) ;
     }
@@ -663,8 +680,9 @@ public final class ExtHash implements Index
                 continue ;
             
             seen.add(id) ;
-            HashBucket bucket = hashBucketMgr.get(id) ;
+            HashBucket bucket = hashBucketMgr.getRead(id) ;
             performCheck(i, bucket) ;
+            hashBucketMgr.release(bucket) ;
             
         }
     }
@@ -23,6 +23,7 @@ import java.util.Iterator;
 import java.util.NoSuchElementException;
 import java.util.Set;
 
+import org.apache.jena.atlas.iterator.Iter ;
 import org.apache.jena.tdb.base.record.Record ;
 
 public class ExtHashIterator implements Iterator<Record>
@@ -59,7 +60,9 @@ public class ExtHashIterator implements Iterator<Record>
                 continue ;
             HashBucket b = extHash.getBucket(blockId) ;
             blockIds.add(blockId) ;
-            rBuffIterator = b.getRecordBuffer().iterator() ;
+            // Copy out so the bucket is not held while the caller works.
+            rBuffIterator = Iter.toList(b.getRecordBuffer().iterator()).iterator() ;
+            extHash.releaseBucket(b) ;
         }
         
         if ( rBuffIterator == null  )
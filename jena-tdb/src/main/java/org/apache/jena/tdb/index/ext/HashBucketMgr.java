@@ -58,9 +58,8 @@ public class HashBucketMgr extends PageBlockMgr<HashBucket>
         page.getBackingBlock().setModified(true) ;
         return page ;
     }
-    // [TxTDB:PATCH-UP]
     @Override
-    public HashBucket getRead(int id)        { return _get(id) ; }
+    public HashBucket getRead(int id)        { return super.getRead(id) ; }
     
     // [TxTDB:PATCH-UP]
     //@Override
@@ -44,17 +44,39 @@ import org.apache.jena.tdb.store.NodeId ;
 import org.apache.jena.tdb.store.NodeType ;
 import org.apache.jena.tdb.store.nodetable.NodeTable ;
 import org.apache.jena.tdb.store.nodetable.Nodec ;
-import org.apache.jena.tdb.store.nodetable.NodecSSE ;
+import org.apache.jena.tdb.store.nodetable.NodecBinary ;
+import org.apache.jena.tdb.store.nodetable.NodecDirect ;
 
 public class NodeLib
 {
-    private static Nodec nodec = new NodecSSE() ;
+    private static Nodec nodec = new NodecDirect() ;
+    private static Nodec nodecBinary = new NodecBinary() ;
+    
+    /** Name of the node encoding using Turtle-like strings (the original encoding) */
+    public static final String EncodingSSE      = "SSE" ;
+    /** Name of the compact binary node encoding : see {@link NodecBinary} */
+    public static final String EncodingBinary   = "binary" ;
+    
+    /** The {@link Nodec} for a node encoding name (see {@link org.apache.jena.tdb.setup.StoreParams#getNodeEncoding}) */
+    public static Nodec nodec(String encoding)
+    {
+        if ( encoding == null || encoding.equalsIgnoreCase(EncodingSSE) )
+            return nodec ;
+        if ( encoding.equalsIgnoreCase(EncodingBinary) )
+            return nodecBinary ;
+        throw new TDBException("Unknown node encoding: "+encoding) ;
+    }
     
     // Characters in IRIs that are illegal and cause SSE problems, but we wish to keep.
     final private static char MarkerChar = '_' ;
     final private static char[] invalidIRIChars = { MarkerChar , ' ' } ; 
     
     public static long encodeStore(Node node, ObjectFile file)
+    {
+        return encodeStore(node, file, nodec) ;
+    }
+    
+    public static long encodeStore(Node node, ObjectFile file, Nodec nodec)
     {
         // Buffer pool?
         
@@ -74,11 +96,16 @@ public class NodeLib
     }
     
     public static Node fetchDecode(long id, ObjectFile file)
+    {
+        return fetchDecode(id, file, nodec) ;
+    }
+    
+    public static Node fetchDecode(long id, ObjectFile file, Nodec nodec)
     {
         ByteBuffer bb = file.read(id) ;
         if ( bb == null )
             return null ;
-        return decode(bb) ;
+        return decode(bb, nodec) ;
     }
     
     /**
@@ -100,6 +127,11 @@ public class NodeLib
      * additional copy in getting the node from the ObjectFile.
      */
     public static Node decode(ByteBuffer bb)
+    {
+        return decode(bb, nodec) ;
+    }
+    
+    public static Node decode(ByteBuffer bb, Nodec nodec)
     {
         bb.position(0) ;
         Node n = nodec.decode(bb, null) ;
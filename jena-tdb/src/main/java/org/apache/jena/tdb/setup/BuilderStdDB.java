@@ -18,6 +18,8 @@
 
 package org.apache.jena.tdb.setup;
 
+import org.apache.jena.tdb.TDBException ;
+import org.apache.jena.tdb.base.block.FileMode ;
 import org.apache.jena.tdb.base.file.FileFactory ;
 import org.apache.jena.tdb.base.file.FileSet ;
 import org.apache.jena.tdb.base.objectfile.ObjectFile ;
@@ -27,6 +29,7 @@ import org.apache.jena.tdb.index.IndexBuilder ;
 import org.apache.jena.tdb.index.RangeIndex ;
 import org.apache.jena.tdb.index.RangeIndexBuilder ;
 import org.apache.jena.tdb.lib.ColumnMap ;
+import org.apache.jena.tdb.lib.NodeLib ;
 import org.apache.jena.tdb.store.nodetable.NodeTable ;
 import org.apache.jena.tdb.store.nodetable.NodeTableCache ;
 import org.apache.jena.tdb.store.nodetable.NodeTableInline ;
@@ -59,26 +62,54 @@ public class BuilderStdDB {
     public static class NodeTableBuilderStd implements NodeTableBuilder
     {
         private final IndexBuilder indexBuilder ;
+        private final IndexBuilder hashIndexBuilder ;
         private final ObjectFileBuilder objectFileBuilder ;
         
         public NodeTableBuilderStd(IndexBuilder indexBuilder, ObjectFileBuilder objectFileBuilder) {
+            this(indexBuilder, null, objectFileBuilder) ;
+        }
+    
+        /** Node table builder with a choice of index from node hash to NodeId, set by
+         * {@link StoreParams#getNodeIndexType()}: {@code indexBuilder} for B+Trees
+         * and {@code hashIndexBuilder} for extendible hashing.
+         */
+        public NodeTableBuilderStd(IndexBuilder indexBuilder, IndexBuilder hashIndexBuilder, ObjectFileBuilder objectFileBuilder) {
             this.indexBuilder = indexBuilder ;
+            this.hashIndexBuilder = hashIndexBuilder ;
             this.objectFileBuilder = objectFileBuilder ;
         }
     
         @Override
         public NodeTable buildNodeTable(FileSet fsIndex, FileSet fsObjectFile, StoreParams params) {
             RecordFactory recordFactory = new RecordFactory(SystemTDB.LenNodeHash, SystemTDB.SizeOfNodeId) ;
-            Index idx = indexBuilder.buildIndex(fsIndex, recordFactory, params) ;
-            ObjectFile objectFile = objectFileBuilder.buildObjectFile(fsObjectFile, Names.extNodeData) ;
-            NodeTable nodeTable = new NodeTableNative(idx, objectFile) ;
+            Index idx = chooseIndexBuilder(params).buildIndex(fsIndex, recordFactory, params) ;
+            ObjectFile objectFile = objectFileBuilder.buildObjectFile(fsObjectFile, Names.extNodeData, params) ;
+            NodeTableNative nodeTableNative = new NodeTableNative(idx, objectFile, NodeLib.nodec(params.getNodeEncoding())) ;
+            if ( params.getNodeFilterBits() > 0 ) {
+                String filterFilename = fsIndex.isMem() ? null : fsIndex.filename(Names.extNodeFilter) ;
+                nodeTableNative.enableFilter(filterFilename, params.getNodeFilterBits()) ;
+            }
+            NodeTable nodeTable = nodeTableNative ;
             nodeTable = NodeTableCache.create(nodeTable, 
                                               params.getNode2NodeIdCacheSize(),
                                               params.getNodeId2NodeCacheSize(),
-                                              params.getNodeMissCacheSize()) ;
-            nodeTable = NodeTableInline.create(nodeTable) ;
+                                              params.getNodeMissCacheSize(),
+                                              params.getNodeCacheStripes()) ;
+            nodeTable = NodeTableInline.create(nodeTable, params.getInlineExtended()) ;
             return nodeTable ;
         }
+
+        private IndexBuilder chooseIndexBuilder(StoreParams params) {
+            String indexType = params.getNodeIndexType() ;
+            if ( indexType == null || indexType.equalsIgnoreCase(Names.nodeIndexBPlusTree) )
+                return indexBuilder ;
+            if ( indexType.equalsIgnoreCase(Names.nodeIndexExtHash) ) {
+                if ( hashIndexBuilder == null )
+                    throw new TDBException("No builder for node index type: "+indexType) ;
+                return hashIndexBuilder ;
+            }
+            throw new TDBException("Unknown node index type: "+indexType) ;
+        }
     }
 
     public static class ObjectFileBuilderStd implements ObjectFileBuilder
@@ -86,11 +117,13 @@ public class BuilderStdDB {
         public ObjectFileBuilderStd() { }
         
         @Override
-        public ObjectFile buildObjectFile(FileSet fileSet, String ext)
+        public ObjectFile buildObjectFile(FileSet fileSet, String ext, StoreParams params)
         {
             String filename = fileSet.filename(ext) ;
             if ( fileSet.isMem() )
                 return FileFactory.createObjectFileMem(filename) ;
+            if ( params.getFileMode() == FileMode.mapped )
+                return FileFactory.createObjectFileMapped(filename) ;
             return FileFactory.createObjectFileDisk(filename) ;
         }
     }
@@ -29,6 +29,7 @@ import org.apache.jena.sparql.engine.main.QC ;
 import org.apache.jena.sparql.engine.optimizer.reorder.ReorderLib ;
 import org.apache.jena.sparql.engine.optimizer.reorder.ReorderTransformation ;
 import org.apache.jena.sparql.sse.SSEParseException ;
+import org.apache.jena.tdb.StoreConnection ;
 import org.apache.jena.tdb.TDB ;
 import org.apache.jena.tdb.TDBException ;
 import org.apache.jena.tdb.base.block.BlockMgr ;
@@ -80,6 +81,9 @@ public class DatasetBuilderStd implements DatasetBuilder {
      * @return DatasetGraphTDB
      */
     public static DatasetGraphTDB create(Location location, StoreParams appParams) {
+        // Complete, or discard, a compaction that was interrupted.
+        if ( ! location.isMem() && StoreConnection.getExisting(location) == null )
+            Compaction.recover(location) ;
         StoreParams locParams = StoreParamsCodec.read(location) ;
         StoreParams dftParams = StoreParams.getDftStoreParams() ;
         // This can write the chosen parameters if necessary (new database, appParams != null, locParams == null)
@@ -149,7 +153,8 @@ public class DatasetBuilderStd implements DatasetBuilder {
         ObjectFileBuilder objectFileBuilder = new BuilderStdDB.ObjectFileBuilderStd() ;
         BlockMgrBuilder blockMgrBuilder = new BuilderStdIndex.BlockMgrBuilderStd() ;
         IndexBuilder indexBuilderNT = new BuilderStdIndex.IndexBuilderStd(blockMgrBuilder, blockMgrBuilder) ;
-        NodeTableBuilder nodeTableBuilder = new BuilderStdDB.NodeTableBuilderStd(indexBuilderNT, objectFileBuilder) ;
+        IndexBuilder hashIndexBuilderNT = new BuilderStdIndex.IndexBuilderExtHash(blockMgrBuilder) ;
+        NodeTableBuilder nodeTableBuilder = new BuilderStdDB.NodeTableBuilderStd(indexBuilderNT, hashIndexBuilderNT, objectFileBuilder) ;
         set(blockMgrBuilder, nodeTableBuilder) ;
     }
 
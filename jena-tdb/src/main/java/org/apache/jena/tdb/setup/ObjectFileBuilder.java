@@ -22,5 +22,5 @@ import org.apache.jena.tdb.base.file.FileSet ;
 import org.apache.jena.tdb.base.objectfile.ObjectFile ;
 
 public interface ObjectFileBuilder {
-    ObjectFile buildObjectFile(FileSet fileSet, String ext) ;
+    ObjectFile buildObjectFile(FileSet fileSet, String ext, StoreParams params) ;
 }
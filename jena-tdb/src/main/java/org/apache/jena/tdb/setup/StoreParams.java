@@ -51,6 +51,8 @@ public class StoreParams implements IndexParams, StoreParamsDynamic
     /*package*/ final Item<Integer>            Node2NodeIdCacheSize ;
     /*package*/ final Item<Integer>            NodeId2NodeCacheSize ;
     /*package*/ final Item<Integer>            NodeMissCacheSize ;
+    /*package*/ final Item<Integer>            nodeCacheStripes ;
+    /*package*/ final Item<Integer>            nodeFilterBits ;
 
     /* These are items affect database layout and
      * only can be applied when a database is created.
@@ -71,6 +73,10 @@ public class StoreParams implements IndexParams, StoreParamsDynamic
     /*package*/ final Item<String>             indexPrefix ;
     /*package*/ final Item<String>             prefixNode2Id ;
     /*package*/ final Item<String>             prefixId2Node ;
+    /*package*/ final Item<Boolean>            inlineExtended ;
+    /*package*/ final Item<String>             nodeIndexType ;
+    /*package*/ final Item<String>             nodeEncoding ;
+    /*package*/ final Item<Boolean>            compressedLeaves ;
 
     /** Build StoreParams, starting from system defaults.
      * 
@@ -92,7 +98,13 @@ public class StoreParams implements IndexParams, StoreParamsDynamic
                             Item<String> primaryIndexTriples, Item<String[]> tripleIndexes,
                             Item<String> primaryIndexQuads, Item<String[]> quadIndexes,
                             Item<String> primaryIndexPrefix, Item<String[]> prefixIndexes,
-                            Item<String> indexPrefix, Item<String> prefixNode2Id, Item<String> prefixId2Node) {
+                            Item<String> indexPrefix, Item<String> prefixNode2Id, Item<String> prefixId2Node,
+                            Item<Integer> nodeCacheStripes,
+                            Item<Boolean> compressedLeaves,
+                            Item<String> nodeEncoding,
+                            Item<Boolean> inlineExtended,
+                            Item<String> nodeIndexType,
+                            Item<Integer> nodeFilterBits) {
         this.fileMode               = fileMode ;
         this.blockSize              = blockSize ;
         this.blockReadCacheSize     = blockReadCacheSize ;
@@ -113,6 +125,12 @@ public class StoreParams implements IndexParams, StoreParamsDynamic
 
         this.prefixNode2Id          = prefixNode2Id ;
         this.prefixId2Node          = prefixId2Node ;
+        this.nodeCacheStripes       = nodeCacheStripes ;
+        this.compressedLeaves       = compressedLeaves ;
+        this.nodeEncoding           = nodeEncoding ;
+        this.inlineExtended         = inlineExtended ;
+        this.nodeIndexType          = nodeIndexType ;
+        this.nodeFilterBits         = nodeFilterBits ;
     }
     
     /** The system default settings. This is the normal set to use.
@@ -244,6 +262,43 @@ public class StoreParams implements IndexParams, StoreParamsDynamic
         return prefixId2Node.value ;
     }
 
+    @Override
+    public Integer getNodeCacheStripes() {
+        return nodeCacheStripes.value ;
+    }
+
+    @Override
+    public boolean isSetNodeCacheStripes() {
+        return nodeCacheStripes.isSet ;
+    }
+
+    @Override
+    public Integer getNodeFilterBits() {
+        return nodeFilterBits.value ;
+    }
+
+    @Override
+    public boolean isSetNodeFilterBits() {
+        return nodeFilterBits.isSet ;
+    }
+
+    @Override
+    public Boolean getCompressedLeaves() {
+        return compressedLeaves.value ;
+    }
+
+    public String getNodeEncoding() {
+        return nodeEncoding.value ;
+    }
+
+    public Boolean getInlineExtended() {
+        return inlineExtended.value ;
+    }
+
+    public String getNodeIndexType() {
+        return nodeIndexType.value ;
+    }
+
     @Override
     public String toString() {
         StringBuilder buff = new StringBuilder() ;
@@ -254,6 +309,8 @@ public class StoreParams implements IndexParams, StoreParamsDynamic
         fmt(buff, "Node2NodeIdCacheSize", getNode2NodeIdCacheSize(), Node2NodeIdCacheSize.isSet) ;
         fmt(buff, "NodeId2NodeCacheSize", getNodeId2NodeCacheSize(), NodeId2NodeCacheSize.isSet) ;
         fmt(buff, "NodeMissCacheSize", getNodeMissCacheSize(), NodeMissCacheSize.isSet) ;
+        fmt(buff, "nodeCacheStripes", getNodeCacheStripes(), nodeCacheStripes.isSet) ;
+        fmt(buff, "nodeFilterBits", getNodeFilterBits(), nodeFilterBits.isSet) ;
 
         fmt(buff, "indexNode2Id", getIndexNode2Id(), indexNode2Id.isSet) ;
         fmt(buff, "indexId2Node", getIndexId2Node(), indexId2Node.isSet) ;
@@ -267,6 +324,10 @@ public class StoreParams implements IndexParams, StoreParamsDynamic
 
         fmt(buff, "prefixNode2Id", getPrefixNode2Id(), prefixNode2Id.isSet) ;
         fmt(buff, "prefixId2Node", getPrefixId2Node(), prefixId2Node.isSet) ;
+        fmt(buff, "compressedLeaves", getCompressedLeaves(), compressedLeaves.isSet) ;
+        fmt(buff, "nodeEncoding", getNodeEncoding(), nodeEncoding.isSet) ;
+        fmt(buff, "inlineExtended", getInlineExtended(), inlineExtended.isSet) ;
+        fmt(buff, "nodeIndexType", getNodeIndexType(), nodeIndexType.isSet) ;
         
         return buff.toString() ;
     }
@@ -285,6 +346,13 @@ public class StoreParams implements IndexParams, StoreParamsDynamic
         buff.append(String.format("%-20s   %s%s\n", name, dftStr, value)) ;
     }
 
+    private void fmt(StringBuilder buff, String name, boolean value, boolean isSet) {
+        String dftStr = "" ;
+        if ( ! isSet )
+            dftStr = "dft:" ;
+        buff.append(String.format("%-20s   %s%s\n", name, dftStr, value)) ;
+    }
+
     private void fmt(StringBuilder buff, String name, int value, boolean isSet) {
         String dftStr = "" ;
         if ( ! isSet )
@@ -314,6 +382,12 @@ public class StoreParams implements IndexParams, StoreParamsDynamic
         result = prime * result + ((primaryIndexTriples == null) ? 0 : primaryIndexTriples.hashCode()) ;
         result = prime * result + ((quadIndexes == null) ? 0 : quadIndexes.hashCode()) ;
         result = prime * result + ((tripleIndexes == null) ? 0 : tripleIndexes.hashCode()) ;
+        result = prime * result + ((nodeCacheStripes == null) ? 0 : nodeCacheStripes.hashCode()) ;
+        result = prime * result + ((compressedLeaves == null) ? 0 : compressedLeaves.hashCode()) ;
+        result = prime * result + ((nodeEncoding == null) ? 0 : nodeEncoding.hashCode()) ;
+        result = prime * result + ((inlineExtended == null) ? 0 : inlineExtended.hashCode()) ;
+        result = prime * result + ((nodeIndexType == null) ? 0 : nodeIndexType.hashCode()) ;
+        result = prime * result + ((nodeFilterBits == null) ? 0 : nodeFilterBits.hashCode()) ;
         return result ;
     }
     
@@ -361,6 +435,18 @@ public class StoreParams implements IndexParams, StoreParamsDynamic
             return false ;
         if ( !sameValues(params1.prefixId2Node, params2.prefixId2Node) )
             return false ;
+        if ( !sameValues(params1.nodeCacheStripes, params2.nodeCacheStripes) )
+            return false ;
+        if ( !sameValues(params1.compressedLeaves, params2.compressedLeaves) )
+            return false ;
+        if ( !sameValues(params1.nodeEncoding, params2.nodeEncoding) )
+            return false ;
+        if ( !sameValues(params1.inlineExtended, params2.inlineExtended) )
+            return false ;
+        if ( !sameValues(params1.nodeIndexType, params2.nodeIndexType) )
+            return false ;
+        if ( !sameValues(params1.nodeFilterBits, params2.nodeFilterBits) )
+            return false ;
         return true ;
     }
     
@@ -467,6 +553,36 @@ public class StoreParams implements IndexParams, StoreParamsDynamic
                 return false ;
         } else if ( !tripleIndexes.equals(other.tripleIndexes) )
             return false ;
+        if ( nodeCacheStripes == null ) {
+            if ( other.nodeCacheStripes != null )
+                return false ;
+        } else if ( !nodeCacheStripes.equals(other.nodeCacheStripes) )
+            return false ;
+        if ( compressedLeaves == null ) {
+            if ( other.compressedLeaves != null )
+                return false ;
+        } else if ( !compressedLeaves.equals(other.compressedLeaves) )
+            return false ;
+        if ( nodeEncoding == null ) {
+            if ( other.nodeEncoding != null )
+                return false ;
+        } else if ( !nodeEncoding.equals(other.nodeEncoding) )
+            return false ;
+        if ( inlineExtended == null ) {
+            if ( other.inlineExtended != null )
+                return false ;
+        } else if ( !inlineExtended.equals(other.inlineExtended) )
+            return false ;
+        if ( nodeIndexType == null ) {
+            if ( other.nodeIndexType != null )
+                return false ;
+        } else if ( !nodeIndexType.equals(other.nodeIndexType) )
+            return false ;
+        if ( nodeFilterBits == null ) {
+            if ( other.nodeFilterBits != null )
+                return false ;
+        } else if ( !nodeFilterBits.equals(other.nodeFilterBits) )
+            return false ;
         return true ;
     }
 
@@ -74,6 +74,10 @@ public class StoreParamsBuilder {
 
     private Item<Integer>            NodeMissCacheSize     = new Item<>(StoreParamsConst.NodeMissCacheSize, false) ;
 
+    private Item<Integer>            nodeCacheStripes      = new Item<>(StoreParamsConst.nodeCacheStripes, false) ;
+
+    private Item<Integer>            nodeFilterBits        = new Item<>(StoreParamsConst.nodeFilterBits, false) ;
+
     /** Database layout - ignored after a database is created */
 
     private Item<Integer>            blockSize             = new Item<>(StoreParamsConst.blockSize, false) ;
@@ -99,6 +103,14 @@ public class StoreParamsBuilder {
     private Item<String>             prefixNode2Id         = new Item<>(StoreParamsConst.prefixNode2Id, false) ;
 
     private Item<String>             prefixId2Node         = new Item<>(StoreParamsConst.prefixId2Node, false) ;
+
+    private Item<Boolean>            inlineExtended        = new Item<>(StoreParamsConst.inlineExtended, false) ;
+
+    private Item<String>             nodeIndexType         = new Item<>(StoreParamsConst.nodeIndexType, false) ;
+
+    private Item<String>             nodeEncoding          = new Item<>(StoreParamsConst.nodeEncoding, false) ;
+
+    private Item<Boolean>            compressedLeaves      = new Item<>(StoreParamsConst.compressedLeaves, false) ;
     
     public static StoreParamsBuilder create() {
         return new StoreParamsBuilder() ;
@@ -136,6 +148,12 @@ public class StoreParamsBuilder {
         if ( additionalParams.isSetNodeMissCacheSize() )
             b.nodeMissCacheSize(additionalParams.getNodeMissCacheSize()) ;
 
+        if ( additionalParams.isSetNodeCacheStripes() )
+            b.nodeCacheStripes(additionalParams.getNodeCacheStripes()) ;
+
+        if ( additionalParams.isSetNodeFilterBits() )
+            b.nodeFilterBits(additionalParams.getNodeFilterBits()) ;
+
         return b.build();
     }
     
@@ -151,6 +169,8 @@ public class StoreParamsBuilder {
         this.Node2NodeIdCacheSize   = other.Node2NodeIdCacheSize ; 
         this.NodeId2NodeCacheSize   = other.NodeId2NodeCacheSize ; 
         this.NodeMissCacheSize      = other.NodeMissCacheSize ; 
+        this.nodeCacheStripes       = other.nodeCacheStripes ;
+        this.nodeFilterBits         = other.nodeFilterBits ;
 
         this.indexNode2Id           = other.indexNode2Id ; 
         this.indexId2Node           = other.indexId2Node ; 
@@ -167,6 +187,10 @@ public class StoreParamsBuilder {
 
         this.prefixNode2Id          = other.prefixNode2Id ; 
         this.prefixId2Node          = other.prefixId2Node ; 
+        this.inlineExtended         = other.inlineExtended ;
+        this.nodeIndexType          = other.nodeIndexType ;
+        this.nodeEncoding           = other.nodeEncoding ;
+        this.compressedLeaves       = other.compressedLeaves ;
     }
     
     public StoreParams build() {
@@ -176,7 +200,13 @@ public class StoreParamsBuilder {
                  indexNode2Id, indexId2Node, primaryIndexTriples, tripleIndexes,
                  primaryIndexQuads, quadIndexes, primaryIndexPrefix,
                  prefixIndexes, indexPrefix,
-                 prefixNode2Id, prefixId2Node) ;
+                 prefixNode2Id, prefixId2Node,
+                 nodeCacheStripes,
+                 compressedLeaves,
+                 nodeEncoding,
+                 inlineExtended,
+                 nodeIndexType,
+                 nodeFilterBits) ;
     }
     
     public FileMode getFileMode() {
@@ -340,5 +370,59 @@ public class StoreParamsBuilder {
        this.prefixId2Node = new Item<>(prefixId2Node, true) ;
        return this ;
    }
+
+    public int getNodeCacheStripes() {
+        return nodeCacheStripes.value ;
+    }
+
+    public StoreParamsBuilder nodeCacheStripes(int nodeCacheStripes) {
+        this.nodeCacheStripes = new Item<>(nodeCacheStripes, true) ;
+        return this ;
+    }
+
+    public int getNodeFilterBits() {
+        return nodeFilterBits.value ;
+    }
+
+    public StoreParamsBuilder nodeFilterBits(int nodeFilterBits) {
+        this.nodeFilterBits = new Item<>(nodeFilterBits, true) ;
+        return this ;
+    }
+
+    public boolean getCompressedLeaves() {
+        return compressedLeaves.value ;
+    }
+
+    public StoreParamsBuilder compressedLeaves(boolean compressedLeaves) {
+        this.compressedLeaves = new Item<>(compressedLeaves, true) ;
+        return this ;
+    }
+
+    public String getNodeEncoding() {
+        return nodeEncoding.value ;
+    }
+
+    public StoreParamsBuilder nodeEncoding(String nodeEncoding) {
+        this.nodeEncoding = new Item<>(nodeEncoding, true) ;
+        return this ;
+    }
+
+    public boolean getInlineExtended() {
+        return inlineExtended.value ;
+    }
+
+    public StoreParamsBuilder inlineExtended(boolean inlineExtended) {
+        this.inlineExtended = new Item<>(inlineExtended, true) ;
+        return this ;
+    }
+
+    public String getNodeIndexType() {
+        return nodeIndexType.value ;
+    }
+
+    public StoreParamsBuilder nodeIndexType(String nodeIndexType) {
+        this.nodeIndexType = new Item<>(nodeIndexType, true) ;
+        return this ;
+    }
 }
 
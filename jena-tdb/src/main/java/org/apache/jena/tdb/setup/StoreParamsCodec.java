@@ -22,11 +22,14 @@ import static org.apache.jena.tdb.setup.StoreParamsConst.TDB_CONFIG_FILE ;
 import static org.apache.jena.tdb.setup.StoreParamsConst.fBlockReadCacheSize ;
 import static org.apache.jena.tdb.setup.StoreParamsConst.fBlockSize ;
 import static org.apache.jena.tdb.setup.StoreParamsConst.fBlockWriteCacheSize ;
+import static org.apache.jena.tdb.setup.StoreParamsConst.fCompressedLeaves ;
 import static org.apache.jena.tdb.setup.StoreParamsConst.fFileMode ;
 import static org.apache.jena.tdb.setup.StoreParamsConst.fIndexId2Node ;
 import static org.apache.jena.tdb.setup.StoreParamsConst.fIndexNode2Id ;
 import static org.apache.jena.tdb.setup.StoreParamsConst.fIndexPrefix ;
 import static org.apache.jena.tdb.setup.StoreParamsConst.fNode2NodeIdCacheSize ;
+import static org.apache.jena.tdb.setup.StoreParamsConst.fNodeCacheStripes ;
+import static org.apache.jena.tdb.setup.StoreParamsConst.fNodeFilterBits ;
 import static org.apache.jena.tdb.setup.StoreParamsConst.fNodeId2NodeCacheSize ;
 import static org.apache.jena.tdb.setup.StoreParamsConst.fNodeMissCacheSize ;
 import static org.apache.jena.tdb.setup.StoreParamsConst.fPrefixId2Node ;
@@ -37,6 +40,9 @@ import static org.apache.jena.tdb.setup.StoreParamsConst.fPrimaryIndexQuads ;
 import static org.apache.jena.tdb.setup.StoreParamsConst.fPrimaryIndexTriples ;
 import static org.apache.jena.tdb.setup.StoreParamsConst.fQuadIndexes ;
 import static org.apache.jena.tdb.setup.StoreParamsConst.fTripleIndexes ;
+import static org.apache.jena.tdb.setup.StoreParamsConst.fInlineExtended ;
+import static org.apache.jena.tdb.setup.StoreParamsConst.fNodeIndexType ;
+import static org.apache.jena.tdb.setup.StoreParamsConst.fNodeEncoding ;
 
 import java.io.BufferedOutputStream ;
 import java.io.FileOutputStream ;
@@ -111,6 +117,12 @@ public class StoreParamsCodec {
         encode(builder, key(fIndexPrefix),              params.getIndexPrefix()) ;
         encode(builder, key(fPrefixNode2Id),            params.getPrefixNode2Id()) ;
         encode(builder, key(fPrefixId2Node),            params.getPrefixId2Node()) ;
+        encode(builder, key(fNodeCacheStripes),        params.getNodeCacheStripes()) ;
+        encode(builder, key(fNodeFilterBits),          params.getNodeFilterBits()) ;
+        encode(builder, key(fCompressedLeaves),        params.getCompressedLeaves()) ;
+        encode(builder, key(fNodeEncoding),            params.getNodeEncoding()) ;
+        encode(builder, key(fInlineExtended),          params.getInlineExtended()) ;
+        encode(builder, key(fNodeIndexType),           params.getNodeIndexType()) ;
         
         builder.finishObject("StoreParams") ;
         return (JsonObject)builder.build() ;
@@ -154,6 +166,12 @@ public class StoreParamsCodec {
                 case fIndexPrefix:             builder.indexPrefix(getString(json, key)) ;                  break ;
                 case fPrefixNode2Id:           builder.prefixNode2Id(getString(json, key)) ;                break ;
                 case fPrefixId2Node:           builder.prefixId2Node(getString(json, key)) ;                break ;
+                case fNodeCacheStripes:        builder.nodeCacheStripes(getInt(json, key)) ;                break ;
+                case fNodeFilterBits:          builder.nodeFilterBits(getInt(json, key)) ;                  break ;
+                case fCompressedLeaves:        builder.compressedLeaves(getBoolean(json, key)) ;            break ;
+                case fNodeEncoding:           builder.nodeEncoding(getString(json, key)) ;                 break ;
+                case fInlineExtended:          builder.inlineExtended(getBoolean(json, key)) ;              break ;
+                case fNodeIndexType:           builder.nodeIndexType(getString(json, key)) ;                break ;
                 default:
                     throw new TDBException("StoreParams key no recognized: "+key) ;
             }
@@ -177,6 +195,13 @@ public class StoreParamsCodec {
         return x ;
     }
     
+    private static Boolean getBoolean(JsonObject json, String key) {
+        if ( ! json.hasKey(key) )
+            throw new TDBException("StoreParamsCodec.getBoolean: no such key: "+key) ;
+        Boolean x = json.get(key).getAsBoolean().value() ;
+        return x ;
+    }
+    
     private static String[] getStringArray(JsonObject json, String key) {
         if ( ! json.hasKey(key) )
             throw new TDBException("StoreParamsCodec.getStringArray: no such key: "+key) ;
@@ -199,6 +224,10 @@ public class StoreParamsCodec {
             builder.key(name).value(value.toString()) ;
             return ;
         }
+        if ( value instanceof Boolean ) {
+            builder.key(name).value(((Boolean)value).booleanValue()) ;
+            return ;
+        }
         if ( value instanceof String[] ) {
             String[] x = (String[])value ;
             builder.key(name) ;
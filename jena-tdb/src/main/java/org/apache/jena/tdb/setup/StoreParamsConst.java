@@ -88,6 +88,24 @@ public class StoreParamsConst {
     public static final String   fPrefixId2Node        = "file_prefix_id2node" ;
     public static final String   prefixId2Node         = Names.prefixId2Node ;
 
+    public static final String   fNodeCacheStripes     = "node_cache_stripes" ;
+    public static final Integer  nodeCacheStripes      = SystemTDB.NodeCacheStripes ;
+    
+    public static final String   fNodeFilterBits       = "node_filter_bits" ;
+    public static final Integer  nodeFilterBits        = SystemTDB.NodeFilterBitsPerNode ;
+    
+    public static final String   fCompressedLeaves     = "index_compressed_leaves" ;
+    public static final Boolean  compressedLeaves      = SystemTDB.CompressedLeaves ;
+    
+    public static final String   fNodeEncoding         = "node_encoding" ;
+    public static final String   nodeEncoding          = SystemTDB.NodeEncoding ;
+    
+    public static final String   fInlineExtended       = "node_inline_extended" ;
+    public static final Boolean  inlineExtended        = SystemTDB.InlineExtended ;
+    
+    public static final String   fNodeIndexType        = "node_index_type" ;
+    public static final String   nodeIndexType         = SystemTDB.NodeIndexType ;
+    
     // Must be after the constants above to get initialization order right
     // because StoreParamsBuilder uses these constants.
      
@@ -50,5 +50,13 @@ public interface StoreParamsDynamic {
     /** Node cache for recording known misses */
     public Integer getNodeMissCacheSize() ;
     public boolean isSetNodeMissCacheSize() ;
+
+    /** Number of lock stripes for the node table caches (1 for a single lock). */
+    public Integer getNodeCacheStripes() ;
+    public boolean isSetNodeCacheStripes() ;
+
+    /** Bits per node of the Bloom filter in front of each node table index (0 for no filter). */
+    public Integer getNodeFilterBits() ;
+    public boolean isSetNodeFilterBits() ;
 }
 
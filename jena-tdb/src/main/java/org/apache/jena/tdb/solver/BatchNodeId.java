@@ -0,0 +1,118 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb.solver;
+
+import java.util.Arrays ;
+
+import org.apache.jena.sparql.core.Var ;
+import org.apache.jena.tdb.store.NodeId ;
+
+/** A batch of rows of NodeIds, stored by column : the vectorized form of {@link BindingNodeId}.
+ *  Each column is a variable of the basic graph pattern being executed.
+ *  Each row keeps the {@link BindingNodeId} it was derived from for the
+ *  variables bound outside the basic graph pattern.
+ */
+public class BatchNodeId
+{
+    /** The value of a column for a row where the variable is not bound. */
+    public static final long UNBOUND = NodeId.NodeIdAny.getId() ;
+    
+    private final Var[] vars ;
+    private final long[][] columns ;
+    private final BindingNodeId[] parents ;
+    private int size = 0 ;
+    
+    public BatchNodeId(Var[] vars, int capacity)
+    {
+        this.vars = vars ;
+        this.columns = new long[vars.length][capacity] ;
+        this.parents = new BindingNodeId[capacity] ;
+    }
+    
+    public Var[] getVars()              { return vars ; }
+    
+    public int size()                   { return size ; }
+
+    public int capacity()               { return parents.length ; }
+
+    public boolean isEmpty()            { return size == 0 ; }
+
+    public boolean isFull()             { return size == parents.length ; }
+
+    /** The values of the i'th variable */
+    public long[] getColumn(int i)      { return columns[i] ; }
+
+    public BindingNodeId getParent(int row) { return parents[row] ; }
+
+    /** Add a row for a binding. */
+    public void add(BindingNodeId binding)
+    {
+        int row = size++ ;
+        parents[row] = binding ;
+        for ( int i = 0 ; i < vars.length ; i++ )
+        {
+            NodeId id = binding.get(vars[i]) ;
+            columns[i][row] = ( id == null ) ? UNBOUND : id.getId() ;
+        }
+    }
+    
+    /** Add a row that is a copy of a row of another batch with the same variables.
+     * @return The index of the new row.  
+     */
+    public int addCopy(BatchNodeId other, int otherRow)
+    {
+        int row = size++ ;
+        parents[row] = other.parents[otherRow] ;
+        for ( int i = 0 ; i < vars.length ; i++ )
+            columns[i][row] = other.columns[i][otherRow] ;
+        return row ;
+    }
+    
+    /** Remove the last row added. */
+    public void removeLast()
+    {
+        size-- ;
+        parents[size] = null ;
+    }
+    
+    /** Create the {@link BindingNodeId} for a row. */
+    public BindingNodeId toBindingNodeId(int row)
+    {
+        BindingNodeId parent = parents[row] ;
+        BindingNodeId b = new BindingNodeId(parent) ;
+        for ( int i = 0 ; i < vars.length ; i++ )
+        {
+            long x = columns[i][row] ;
+            if ( x == UNBOUND || parent.containsKey(vars[i]) )
+                continue ;
+            b.put(vars[i], NodeId.create(x)) ;
+        }
+        return b ;
+    }
+    
+    @Override
+    public String toString()
+    {
+        StringBuilder sb = new StringBuilder() ;
+        sb.append(Arrays.asList(vars)) ;
+        for ( int row = 0 ; row < size ; row++ )
+            sb.append(" ").append(toBindingNodeId(row)) ;
+        return sb.toString() ;
+    }
+}
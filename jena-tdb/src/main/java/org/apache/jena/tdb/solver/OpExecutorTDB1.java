@@ -18,6 +18,7 @@
 
 package org.apache.jena.tdb.solver;
 
+import java.util.Map ;
 import java.util.function.Predicate;
 
 import org.apache.jena.atlas.lib.tuple.Tuple ;
@@ -34,6 +35,7 @@ import org.apache.jena.sparql.core.Substitute ;
 import org.apache.jena.sparql.core.Var ;
 import org.apache.jena.sparql.engine.ExecutionContext ;
 import org.apache.jena.sparql.engine.QueryIterator ;
+import org.apache.jena.sparql.engine.iterator.QueryIterFilterExpr ;
 import org.apache.jena.sparql.engine.iterator.QueryIterPeek ;
 import org.apache.jena.sparql.engine.main.OpExecutor ;
 import org.apache.jena.sparql.engine.main.OpExecutorFactory ;
@@ -41,8 +43,11 @@ import org.apache.jena.sparql.engine.main.QC ;
 import org.apache.jena.sparql.engine.main.iterator.QueryIterGraph ;
 import org.apache.jena.sparql.engine.optimizer.reorder.ReorderProc ;
 import org.apache.jena.sparql.engine.optimizer.reorder.ReorderTransformation ;
+import org.apache.jena.sparql.expr.Expr ;
 import org.apache.jena.sparql.expr.ExprList ;
 import org.apache.jena.sparql.mgt.Explain ;
+import org.apache.jena.tdb.TDB ;
+import org.apache.jena.tdb.solver.stats.ReorderCharacteristicSets ;
 import org.apache.jena.tdb.store.DatasetGraphTDB ;
 import org.apache.jena.tdb.store.GraphTDB ;
 import org.apache.jena.tdb.store.NodeId;
@@ -189,7 +194,7 @@ public class OpExecutorTDB1 extends OpExecutor
             {
                 QueryIterPeek peek = QueryIterPeek.create(input, execCxt) ;
                 input = peek ; // Must pass on
-                pattern = reorder(pattern, peek, transform) ;
+                pattern = reorder(pattern, peek, transform, exprs) ;
             }
         }
         // -- Filter placement
@@ -227,7 +232,7 @@ public class OpExecutorTDB1 extends OpExecutor
             {
                 QueryIterPeek peek = QueryIterPeek.create(input, execCxt) ;
                 input = peek ; // Original input now invalid.
-                bgp = reorder(bgp, peek, transform) ;
+                bgp = reorder(bgp, peek, transform, exprs) ;
             }
         }
         // -- Filter placement
@@ -258,7 +263,7 @@ public class OpExecutorTDB1 extends OpExecutor
         return QC.execute(op, input, ec2) ;
     }
 
-    private static BasicPattern reorder(BasicPattern pattern, QueryIterPeek peek, ReorderTransformation transform)
+    private static BasicPattern reorder(BasicPattern pattern, QueryIterPeek peek, ReorderTransformation transform, ExprList exprs)
     {
         if ( transform != null )
         {
@@ -273,7 +278,10 @@ public class OpExecutorTDB1 extends OpExecutor
  
             BasicPattern pattern2 = Substitute.substitute(pattern, peek.peek() ) ;
             // Calculate the reordering based on the substituted pattern.
-            ReorderProc proc = transform.reorderIndexes(pattern2) ;
+            // Cost-based reordering can use the range restrictions of the filters.
+            ReorderProc proc = ( exprs != null && transform instanceof ReorderCharacteristicSets )
+                ? ((ReorderCharacteristicSets)transform).reorderIndexes(pattern2, RangeFilter.create(exprs))
+                : transform.reorderIndexes(pattern2) ;
             // Then reorder original patten
             pattern = proc.reorder(pattern) ;
         }
@@ -359,8 +367,34 @@ public class OpExecutorTDB1 extends OpExecutor
             filter = QC2.getFilter(execCxt.getContext()) ;
         }
         
+        @Override
+        public QueryIterator execute(OpFilter opFilter, QueryIterator input)
+        {
+            // (filter (bgp ...)) or (filter (quadpattern ...)) after filter placement:
+            // read the indexes by range for comparisons of a variable with a constant.
+            Op sub = opFilter.getSubOp() ;
+            if ( ! execCxt.getContext().isTrueOrUndef(TDB.symRangeScan) 
+                 || ! ( sub instanceof OpBGP || sub instanceof OpQuadPattern ) )
+                return super.execute(opFilter, input) ;
+            Map<Var, RangeFilter> ranges = RangeFilter.create(opFilter.getExprs()) ;
+            if ( ranges.isEmpty() )
+                return super.execute(opFilter, input) ;
+            QueryIterator qIter = ( sub instanceof OpBGP )
+                ? execute((OpBGP)sub, input, ranges) 
+                : execute((OpQuadPattern)sub, input, ranges) ;
+            // The ranges only narrow the index reads: apply the filter. 
+            for ( Expr expr : opFilter.getExprs() )
+                qIter = new QueryIterFilterExpr(qIter, expr, execCxt) ;
+            return qIter ;
+        }
+        
         @Override
         public QueryIterator execute(OpBGP opBGP, QueryIterator input)
+        {
+            return execute(opBGP, input, null) ;
+        }
+        
+        private QueryIterator execute(OpBGP opBGP, QueryIterator input, Map<Var, RangeFilter> ranges)
         {
             Graph g = execCxt.getActiveGraph() ;
             
@@ -372,7 +406,7 @@ public class OpExecutorTDB1 extends OpExecutor
                 //return SolverLib.execute((GraphTDB)g, bgp, input, filter, execCxt) ;
                 GraphTDB gtdb = (GraphTDB)g ;
                 Node gn = decideGraphNode(gtdb.getGraphName(), execCxt) ;
-                return SolverLib.execute(gtdb.getDatasetGraphTDB(), gn, bgp, input, filter, execCxt) ;
+                return SolverLib.execute(gtdb.getDatasetGraphTDB(), gn, bgp, input, filter, ranges, execCxt) ;
             }
             Log.warn(this, "Non-GraphTDB passed to OpExecutorPlainTDB") ;
             return super.execute(opBGP, input) ;
@@ -380,6 +414,11 @@ public class OpExecutorTDB1 extends OpExecutor
         
         @Override
         public QueryIterator execute(OpQuadPattern opQuadPattern, QueryIterator input)
+        {
+            return execute(opQuadPattern, input, null) ;
+        }
+        
+        private QueryIterator execute(OpQuadPattern opQuadPattern, QueryIterator input, Map<Var, RangeFilter> ranges)
         {
             Node gn = opQuadPattern.getGraphNode() ;
             gn = decideGraphNode(gn, execCxt) ;
@@ -389,7 +428,7 @@ public class OpExecutorTDB1 extends OpExecutor
                 DatasetGraphTDB ds = (DatasetGraphTDB)execCxt.getDataset() ;
                 Explain.explain("Execute", opQuadPattern.getPattern(), execCxt.getContext()) ;
                 BasicPattern bgp = opQuadPattern.getBasicPattern() ;
-                return SolverLib.execute(ds, gn, bgp, input, filter, execCxt) ;
+                return SolverLib.execute(ds, gn, bgp, input, filter, ranges, execCxt) ;
             }
             // Maybe a TDB named graph inside a non-TDB dataset.
             Graph g = execCxt.getActiveGraph() ;
@@ -400,7 +439,7 @@ public class OpExecutorTDB1 extends OpExecutor
                 BasicPattern bgp = opQuadPattern.getBasicPattern() ;
                 Explain.explain("Execute", bgp, execCxt.getContext()) ;
                 // Don't pass in G -- gn may be different.
-                return SolverLib.execute(((GraphTDB)g).getDatasetGraphTDB(), gn, bgp, input, filter, execCxt) ;
+                return SolverLib.execute(((GraphTDB)g).getDatasetGraphTDB(), gn, bgp, input, filter, ranges, execCxt) ;
             }
             Log.warn(this, "Non-DatasetGraphTDB passed to OpExecutorPlainTDB") ;
             return super.execute(opQuadPattern, input) ;
@@ -40,6 +40,7 @@ import org.apache.jena.tdb.TDB ;
 import org.apache.jena.tdb.TDBException ;
 import org.apache.jena.tdb.migrate.A2 ;
 import org.apache.jena.tdb.store.DatasetGraphTDB ;
+import org.apache.jena.tdb.transaction.DatasetGraphSnapshot ;
 import org.apache.jena.tdb.transaction.DatasetGraphTransaction ;
 
 // This exists to intercept the query execution setup.
@@ -147,6 +148,7 @@ public class QueryEngineTDB extends QueryEngineMain
         {
             if (dataset instanceof DatasetGraphTDB) return true ;
             if (dataset instanceof DatasetGraphTransaction ) return true ;
+            if (dataset instanceof DatasetGraphSnapshot ) return true ;
             return false ;
         }
         
@@ -155,6 +157,8 @@ public class QueryEngineTDB extends QueryEngineMain
             if (dataset instanceof DatasetGraphTDB) return (DatasetGraphTDB)dataset ;
             if (dataset instanceof DatasetGraphTransaction) 
                 return ((DatasetGraphTransaction)dataset).getDatasetGraphToQuery() ;
+            if (dataset instanceof DatasetGraphSnapshot) 
+                return ((DatasetGraphSnapshot)dataset).getView() ;
             throw new TDBException("Internal inconsistency: trying to execute query on unrecognized kind of DatasetGraph: "+Lib.className(dataset)) ;
         }
         
@@ -0,0 +1,246 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.jena.tdb.solver;
+
+import java.math.BigDecimal ;
+import java.math.RoundingMode ;
+import java.time.LocalDate ;
+import java.util.* ;
+
+import javax.xml.datatype.XMLGregorianCalendar ;
+
+import org.apache.jena.sparql.core.Var ;
+import org.apache.jena.sparql.expr.* ;
+import org.apache.jena.tdb.store.DateTimeNode ;
+import org.apache.jena.tdb.store.IntegerNode ;
+import org.apache.jena.tdb.store.NodeId ;
+
+/**
+ * A range restriction on a variable, from FILTER comparisons of the variable with a constant,
+ * such as {@code ?x > 10} or {@code ?date < "2020-01-01"^^xsd:date}.
+ * <p>
+ * The range is converted to ranges of NodeIds that cover all the values that
+ * might pass the filter, so the index can be read with range scans. 
+ * Inline integers, dates and dateTimes sort in value order within their type.
+ * Other numeric inline types, and all values in the node table, are included in full.
+ * The filter is still applied to the results. 
+ */
+public final class RangeFilter
+{
+    /** The kind of values compared. */
+    public enum Kind { NUMERIC, DATETIME, DATE }
+    
+    // Timezones : the local time of a value may be up to 14 hours from UTC
+    // and values without a timezone may be compared either way.
+    private static final int DaysSlack = 2 ;
+    private static final long LocalBitsMax = DateTimeNode.packLocal(8191, 15, 31, 31, 63, 65535) ;
+    
+    private final Kind kind ;
+    // Inclusive; null for unbounded.
+    private NodeValue low ;
+    private NodeValue high ;
+    
+    private RangeFilter(Kind kind) {
+        this.kind = kind ;
+    }
+    
+    /** The range restrictions on variables in a list of (conjunctive) filter expressions. */ 
+    public static Map<Var, RangeFilter> create(ExprList exprs) {
+        Map<Var, RangeFilter> ranges = new HashMap<>() ;
+        for ( Expr expr : exprs ) {
+            if ( ! ( expr instanceof ExprFunction2 ) )
+                continue ;
+            ExprFunction2 f = (ExprFunction2)expr ;
+            Expr arg1 = f.getArg1() ;
+            Expr arg2 = f.getArg2() ;
+            boolean lower ;  // Constant is a lower bound.
+            boolean upper ;  // Constant is an upper bound.
+            if ( expr instanceof E_GreaterThan || expr instanceof E_GreaterThanOrEqual ) {
+                lower = true ; upper = false ;
+            } else if ( expr instanceof E_LessThan || expr instanceof E_LessThanOrEqual ) {
+                lower = false ; upper = true ;
+            } else if ( expr instanceof E_Equals ) {
+                lower = true ; upper = true ;
+            } else
+                continue ;
+            if ( arg2.isVariable() && arg1.isConstant() ) {
+                // Swap : 10 < ?x is ?x > 10.
+                Expr x = arg1 ; arg1 = arg2 ; arg2 = x ;
+                boolean b = lower ; lower = upper ; upper = b ;
+            }
+            if ( ! arg1.isVariable() || ! arg2.isConstant() )
+                continue ;
+            NodeValue nv = arg2.getConstant() ;
+            Kind kind = kind(nv) ;
+            if ( kind == null )
+                continue ;
+            Var var = arg1.asVar() ;
+            RangeFilter r = ranges.get(var) ;
+            if ( r == null ) {
+                r = new RangeFilter(kind) ;
+                ranges.put(var, r) ;
+            } else if ( r.kind != kind )
+                // Can't both be true; the filter will remove everything. Keep the first.
+                continue ;
+            // Either bound is a correct, if looser, restriction : keep the current one if they can't be compared.
+            if ( lower && ( r.low == null || compare(nv, r.low) > 0 ) )
+                r.low = nv ;
+            if ( upper && ( r.high == null || compare(nv, r.high) < 0 ) )
+                r.high = nv ;
+        }
+        return ranges ;
+    }
+    
+    private static int compare(NodeValue nv1, NodeValue nv2) {
+        try { return NodeValue.compare(nv1, nv2) ; }
+        catch (ExprEvalException ex) { return 0 ; }
+    }
+    
+    private static Kind kind(NodeValue nv) {
+        if ( nv.isNumber() )
+            return decimal(nv) == null ? null : Kind.NUMERIC ;
+        if ( nv.isDateTime() )
+            return Kind.DATETIME ;
+        if ( nv.isDate() )
+            return Kind.DATE ;
+        return null ;
+    }
+    
+    private static BigDecimal decimal(NodeValue nv) {
+        if ( nv.isInteger() )
+            return new BigDecimal(nv.getInteger()) ;
+        if ( nv.isDecimal() )
+            return nv.getDecimal() ;
+        double d = nv.getDouble() ;
+        if ( Double.isNaN(d) || Double.isInfinite(d) )
+            return null ;
+        return BigDecimal.valueOf(d) ;
+    }
+    
+    public Kind getKind()           { return kind ; }
+    
+    /** Lower bound, or null. */
+    public NodeValue getLow()       { return low ; }
+
+    /** Upper bound, or null. */
+    public NodeValue getHigh()      { return high ; }
+    
+    /** The NodeId type of values with a histogram key, as given by {@link #keyLow} and {@link #keyHigh}. */
+    public int keyType() {
+        switch(kind) {
+            case NUMERIC :  return NodeId.INTEGER ;
+            case DATETIME : return NodeId.DATETIME ;
+            case DATE :     return NodeId.DATE ;
+        }
+        return NodeId.NONE ;
+    }
+
+    /** Lowest key (integer value or local date and time bits) of the range, not widened for timezones. */
+    public long keyLow() {
+        if ( low == null )
+            return kind == Kind.NUMERIC ? IntegerNode.MIN : 0 ;
+        if ( kind == Kind.NUMERIC )
+            return clamp(decimal(low).setScale(0, RoundingMode.CEILING)) ;
+        return localBits(date(low), false) ;
+    }
+
+    /** Highest key (integer value or local date and time bits) of the range, not widened for timezones. */
+    public long keyHigh() {
+        if ( high == null )
+            return kind == Kind.NUMERIC ? IntegerNode.MAX : LocalBitsMax ;
+        if ( kind == Kind.NUMERIC )
+            return clamp(decimal(high).setScale(0, RoundingMode.FLOOR)) ;
+        return localBits(date(high), true) ;
+    }
+    
+    private static long clamp(BigDecimal d) {
+        if ( d.compareTo(BigDecimal.valueOf(IntegerNode.MIN)) < 0 )
+            return IntegerNode.MIN ;
+        if ( d.compareTo(BigDecimal.valueOf(IntegerNode.MAX)) > 0 )
+            return IntegerNode.MAX ;
+        return d.longValueExact() ;
+    }
+    
+    private static LocalDate date(NodeValue nv) {
+        XMLGregorianCalendar cal = nv.getDateTime() ;
+        return LocalDate.of(cal.getYear(), cal.getMonth(), cal.getDay()) ;
+    }
+    
+    private static long localBits(LocalDate date, boolean endOfDay) {
+        if ( date.getYear() < 0 )
+            return 0 ;
+        if ( date.getYear() >= 8192 )
+            return LocalBitsMax ;
+        if ( endOfDay )
+            return DateTimeNode.packLocal(date.getYear(), date.getMonthValue(), date.getDayOfMonth(), 23, 59, 59999) ;
+        return DateTimeNode.packLocal(date.getYear(), date.getMonthValue(), date.getDayOfMonth(), 0, 0, 0) ;
+    }
+    
+    /** Ranges of NodeIds, sorted and inclusive, that include every value that might be in the range.
+     * Each element is a pair (low, high) of NodeId values. */
+    public List<long[]> idRanges() {
+        List<long[]> ranges = new ArrayList<>() ;
+        // Anything in the node table, which includes values that could not be inlined.
+        ranges.add(new long[] {0, (1L<<56)-1}) ;
+        switch(kind) {
+            case NUMERIC : {
+                long lo = keyLow() ;
+                long hi = keyHigh() ;
+                // Inline integers are 56 bit two's complement: negative values sort after positive ones.
+                if ( lo <= hi ) {
+                    if ( hi >= 0 )
+                        ranges.add(new long[] {IntegerNode.pack(Math.max(lo, 0)), IntegerNode.pack(hi)}) ;
+                    if ( lo < 0 )
+                        ranges.add(new long[] {IntegerNode.pack(lo), IntegerNode.pack(Math.min(hi, -1))}) ;
+                }
+                ranges.add(typeRange(NodeId.DECIMAL)) ;
+                ranges.add(typeRange(NodeId.DOUBLE)) ;
+                ranges.add(typeRange(NodeId.FLOAT)) ;
+                break ;
+            }
+            case DATETIME :
+            case DATE : {
+                long lo = ( low == null ) ? 0 : localBits(date(low).minusDays(DaysSlack), false) ;
+                long hi = ( high == null ) ? LocalBitsMax : localBits(date(high).plusDays(DaysSlack), true) ;
+                if ( lo > hi )
+                    break ;
+                // The timezone is above the date in the NodeId : one range for each timezone.
+                int type = ( kind == Kind.DATE ) ? NodeId.DATE : NodeId.DATETIME ;
+                for ( int tz = 0 ; tz < 128 ; tz++ ) {
+                    long base = DateTimeNode.typeAndTimezone(type, tz) ;
+                    ranges.add(new long[] {base|lo, base|hi}) ;
+                }
+                break ;
+            }
+        }
+        ranges.sort((r1, r2) -> Long.compare(r1[0], r2[0])) ;
+        return ranges ;
+    }
+    
+    private static long[] typeRange(int type) {
+        long base = ((long)type) << 56 ;
+        return new long[] {base, base | ((1L<<56)-1)} ;
+    }
+    
+    @Override
+    public String toString() {
+        return "Range["+kind+" "+(low == null ? "*" : low)+", "+(high == null ? "*" : high)+"]" ;
+    }
+}
@@ -26,6 +26,7 @@ import java.util.function.Function;
 import java.util.function.Predicate;
 
 import org.apache.jena.atlas.iterator.Iter ;
+import org.apache.jena.atlas.iterator.IteratorSlotted ;
 import org.apache.jena.atlas.iterator.IteratorWrapper ;
 import org.apache.jena.atlas.lib.tuple.Tuple ;
 import org.apache.jena.atlas.lib.tuple.TupleFactory ;
@@ -41,6 +42,8 @@ import org.apache.jena.sparql.engine.binding.Binding ;
 import org.apache.jena.sparql.engine.binding.BindingFactory ;
 import org.apache.jena.sparql.engine.binding.BindingMap ;
 import org.apache.jena.sparql.engine.iterator.QueryIterNullIterator ;
+import org.apache.jena.sparql.util.VarUtils ;
+import org.apache.jena.tdb.TDB ;
 import org.apache.jena.tdb.TDBException ;
 import org.apache.jena.tdb.lib.NodeLib ;
 import org.apache.jena.tdb.store.DatasetGraphTDB ;
@@ -48,6 +51,7 @@ import org.apache.jena.tdb.store.GraphTDB ;
 import org.apache.jena.tdb.store.NodeId ;
 import org.apache.jena.tdb.store.nodetable.NodeTable ;
 import org.apache.jena.tdb.store.nodetupletable.NodeTupleTable ;
+import org.apache.jena.tdb.sys.SystemTDB ;
 import org.apache.jena.tdb.sys.TDBInternal ;
 import org.slf4j.Logger ;
 import org.slf4j.LoggerFactory ;
@@ -64,7 +68,7 @@ public class SolverLib
     {
         // Maybe default graph or named graph.
         NodeTupleTable ntt = graph.getNodeTupleTable() ;
-        return execute(ntt, graph.getGraphName(), pattern, input, filter, execCxt) ;
+        return execute(ntt, graph.getGraphName(), pattern, input, filter, null, execCxt) ;
     }
     
     /** Non-reordering execution of a quad pattern, given a iterator of bindings as input.
@@ -74,9 +78,20 @@ public class SolverLib
     public static QueryIterator execute(DatasetGraphTDB ds, Node graphNode, BasicPattern pattern,
                                         QueryIterator input, Predicate<Tuple<NodeId>> filter,
                                         ExecutionContext execCxt)
+    {
+        return execute(ds, graphNode, pattern, input, filter, null, execCxt) ;
+    }
+    
+    /** Non-reordering execution of a quad pattern, reading indexes by range for variables
+     *  with a range restriction. The range restrictions must still be applied to the results.
+     *  @see #execute(DatasetGraphTDB, Node, BasicPattern, QueryIterator, Predicate, ExecutionContext)
+     */ 
+    public static QueryIterator execute(DatasetGraphTDB ds, Node graphNode, BasicPattern pattern,
+                                        QueryIterator input, Predicate<Tuple<NodeId>> filter,
+                                        Map<Var, RangeFilter> ranges, ExecutionContext execCxt)
     {
         NodeTupleTable ntt = ds.chooseNodeTupleTable(graphNode) ;
-        return execute(ntt, graphNode, pattern, input, filter, execCxt) ;
+        return execute(ntt, graphNode, pattern, input, filter, ranges, execCxt) ;
     }
     
     public static Iterator<BindingNodeId> convertToIds(Iterator<Binding> iterBindings, NodeTable nodeTable)
@@ -92,9 +107,11 @@ public class SolverLib
     //     graphNode may be Node.ANY, meaning we should make triples unique.
     //     graphNode may be null, meaning default graph
 
+    //     ranges may be null.
+
     private static QueryIterator execute(NodeTupleTable nodeTupleTable, Node graphNode, BasicPattern pattern, 
                                          QueryIterator input, Predicate<Tuple<NodeId>> filter,
-                                         ExecutionContext execCxt)
+                                         Map<Var, RangeFilter> ranges, ExecutionContext execCxt)
     {
         if ( Quad.isUnionGraph(graphNode) )
             graphNode = Node.ANY ;
@@ -119,17 +136,44 @@ public class SolverLib
         Iterator<BindingNodeId> chain = Iter.map(input, SolverLib.convFromBinding(nodeTable)) ;
         List<Abortable> killList = new ArrayList<>() ;
         
-        for ( Triple triple : triples )
+        // A tuple filter needs tuples.
+        if ( filter == null && execCxt.getContext().isTrue(TDB.symVectorBGP) )
+            chain = solveBatch(nodeTupleTable, graphNode, anyGraph, triples, chain, killList, execCxt) ;
+        else
         {
-            Tuple<Node> tuple = null ;
-            if ( graphNode == null )
-                // 3-tuples
-                tuple = tuple(triple.getSubject(), triple.getPredicate(), triple.getObject()) ;
-            else
-                // 4-tuples.
-                tuple = tuple(graphNode, triple.getSubject(), triple.getPredicate(), triple.getObject()) ;
-            chain = solve(nodeTupleTable, tuple, anyGraph, chain, filter, execCxt) ;
-            chain = makeAbortable(chain, killList) ; 
+            List<Tuple<Node>> tuples = new ArrayList<>(triples.size()) ;
+            for ( Triple triple : triples )
+            {
+                Tuple<Node> tuple = null ;
+                if ( graphNode == null )
+                    // 3-tuples
+                    tuple = tuple(triple.getSubject(), triple.getPredicate(), triple.getObject()) ;
+                else
+                    // 4-tuples.
+                    tuple = tuple(graphNode, triple.getSubject(), triple.getPredicate(), triple.getObject()) ;
+                tuples.add(tuple) ;
+            }
+            
+            // Union graph needs the per-pattern removal of duplicates. 
+            if ( filter == null && ! anyGraph && execCxt.getContext().isTrue(TDB.symMergeJoin) )
+            {
+                Var joinVar = mergeJoinVar(tuples, graphNode != null) ;
+                if ( joinVar != null )
+                {
+                    int n = 2 ;
+                    while ( n < tuples.size() && mentions(tuples.get(n), joinVar, graphNode != null) )
+                        n++ ;
+                    chain = new StageMergeJoin(nodeTupleTable, chain, tuples.subList(0, n), joinVar, execCxt) ;
+                    chain = makeAbortable(chain, killList) ;
+                    tuples = tuples.subList(n, tuples.size()) ;
+                }
+            }
+            
+            for ( Tuple<Node> tuple : tuples )
+            {
+                chain = new StageMatchTuple(nodeTupleTable, chain, tuple, anyGraph, filter, ranges, execCxt) ;
+                chain = makeAbortable(chain, killList) ; 
+            }
         }
         
         // DEBUG POINT
@@ -156,6 +200,104 @@ public class SolverLib
         return new QueryIterTDB(iterBinding, killList, input, execCxt) ;
     }
     
+    /** A variable of the first pattern, not in the graph slot, that is also in the second pattern; 
+     *  the leading patterns that mention it are a candidate for a merge join.
+     */
+    private static Var mergeJoinVar(List<Tuple<Node>> tuples, boolean quads)
+    {
+        if ( tuples.size() < 2 )
+            return null ;
+        Tuple<Node> first = tuples.get(0) ;
+        for ( int i = ( quads ? 1 : 0 ) ; i < first.len() ; i++ )
+        {
+            Node n = first.get(i) ;
+            if ( Var.isVar(n) && mentions(tuples.get(1), n, quads) )
+                return Var.alloc(n) ;
+        }
+        return null ;
+    }
+    
+    private static boolean mentions(Tuple<Node> tuple, Node var, boolean quads)
+    {
+        for ( int i = ( quads ? 1 : 0 ) ; i < tuple.len() ; i++ )
+        {
+            if ( var.equals(tuple.get(i)) )
+                return true ;
+        }
+        return false ;
+    }
+    
+    /** Vectorized execution of a basic graph pattern : the stages exchange {@link BatchNodeId batches}. */
+    private static Iterator<BindingNodeId> solveBatch(NodeTupleTable nodeTupleTable, Node graphNode, boolean anyGraph,
+                                                      List<Triple> triples, Iterator<BindingNodeId> input,
+                                                      List<Abortable> killList, ExecutionContext execCxt)
+    {
+        int batchSize = execCxt.getContext().getInt(TDB.symVectorBatchSize, SystemTDB.VectorBatchSize) ;
+        if ( batchSize <= 0 )
+            throw new TDBException("SolverLib: Batch size must be positive: "+batchSize) ;
+        
+        Set<Var> vars = new LinkedHashSet<>() ;
+        for ( Triple triple : triples )
+            VarUtils.addVarsFromTriple(vars, triple) ;
+        if ( graphNode != null && Var.isVar(graphNode) )
+            vars.add(Var.alloc(graphNode)) ;
+        Var[] varArray = vars.toArray(new Var[vars.size()]) ;
+        
+        Iterator<BatchNodeId> chain = toBatches(input, varArray, batchSize) ;
+        for ( Triple triple : triples )
+        {
+            Tuple<Node> tuple = null ;
+            if ( graphNode == null )
+                tuple = tuple(triple.getSubject(), triple.getPredicate(), triple.getObject()) ;
+            else
+                tuple = tuple(graphNode, triple.getSubject(), triple.getPredicate(), triple.getObject()) ;
+            chain = new StageMatchBatch(nodeTupleTable, chain, varArray, tuple, anyGraph, batchSize) ;
+            chain = nodeTupleTable.getPolicy().iteratorControl(chain) ;
+            chain = makeAbortable(chain, killList) ; 
+        }
+        return fromBatches(chain) ;
+    }
+
+    /** Group {@link BindingNodeId BindingNodeIds} into batches. */ 
+    public static Iterator<BatchNodeId> toBatches(Iterator<BindingNodeId> input, Var[] vars, int batchSize)
+    {
+        return new IteratorSlotted<BatchNodeId>() {
+            @Override
+            protected BatchNodeId moveToNext() {
+                BatchNodeId batch = new BatchNodeId(vars, batchSize) ;
+                while ( ! batch.isFull() && input.hasNext() )
+                    batch.add(input.next()) ;
+                return batch.isEmpty() ? null : batch ;
+            }
+
+            @Override
+            protected boolean hasMore() { return true ; }
+        } ;
+    }
+
+    /** Turn batches back into {@link BindingNodeId BindingNodeIds}. */ 
+    public static Iterator<BindingNodeId> fromBatches(Iterator<BatchNodeId> input)
+    {
+        return new IteratorSlotted<BindingNodeId>() {
+            private BatchNodeId batch = null ;
+            private int row = 0 ;
+            
+            @Override
+            protected BindingNodeId moveToNext() {
+                while ( batch == null || row >= batch.size() ) {
+                    if ( ! input.hasNext() )
+                        return null ;
+                    batch = input.next() ;
+                    row = 0 ;
+                }
+                return batch.toBindingNodeId(row++) ;
+            }
+
+            @Override
+            protected boolean hasMore() { return true ; }
+        } ;
+    }
+
     /** Create an abortable iterator, storing it in the killList.
      *  Just return the input iterator if kilList is null. 
      */
@@ -331,7 +473,10 @@ public class SolverLib
 
     public static Iterator<Tuple<NodeId>> unionGraph(NodeTupleTable ntt)
     {
-        Iterator<Tuple<NodeId>> iter = ntt.find((NodeId)null, null, null, null) ;
+        // Skip over the repeats of each triple in the index if possible.
+        Iterator<Tuple<NodeId>> iter = ntt.findDistinct(TupleFactory.create4(NodeId.NodeIdAny, NodeId.NodeIdAny, NodeId.NodeIdAny, NodeId.NodeIdAny), 0) ;
+        if ( iter == null )
+            iter = ntt.find((NodeId)null, null, null, null) ;
         iter = Iter.map(iter, quadsToAnyTriples) ;
         //iterMatches = Iter.distinct(iterMatches) ;
         
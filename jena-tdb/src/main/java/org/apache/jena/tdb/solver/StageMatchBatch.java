@@ -0,0 +1,319 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb.solver;
+
+import java.util.Iterator ;
+import java.util.NoSuchElementException ;
+
+import org.apache.jena.atlas.iterator.Iter ;
+import org.apache.jena.atlas.lib.Closeable ;
+import org.apache.jena.atlas.lib.tuple.Tuple ;
+import org.apache.jena.atlas.lib.tuple.TupleFactory ;
+import org.apache.jena.graph.Node ;
+import org.apache.jena.sparql.core.Var ;
+import org.apache.jena.tdb.store.NodeId ;
+import org.apache.jena.tdb.store.nodetupletable.NodeTupleTable ;
+import org.apache.jena.tdb.store.tupletable.TupleScan ;
+
+/** Match one triple or quad pattern for each row of a stream of {@link BatchNodeId} batches.
+ *  The vectorized form of {@link StageMatchTuple}.
+ *  <p>
+ *  For each input row, the index is read with a {@link TupleScan} and the matches are
+ *  written into the output batch by column. A row with the same lookup as the row before
+ *  reuses the matches of the previous lookup when they fitted in one batch.
+ */
+public class StageMatchBatch implements Iterator<BatchNodeId>, Closeable
+{
+    private final Iterator<BatchNodeId> input ;
+    private final NodeTupleTable nodeTupleTable ;
+    private final boolean anyGraphs ;
+    private final int batchSize ;
+    private final int tupleLen ;
+    
+    // Per slot of the pattern : the constant, or the column of the variable (-1 for a constant).
+    private final NodeId[] constants ;
+    private final int[] varColumn ;
+    // True if a constant in the pattern is not in the node table.
+    private final boolean noMatches ;
+
+    // Input
+    private BatchNodeId inBatch = null ;
+    private int inRow = 0 ;
+    private int currentRow = -1 ;
+    
+    // The lookup for the current input row.
+    private final long[] key ;
+    private final long[] previousKey ;
+    private boolean hasPreviousKey = false ;
+    private TupleScan scan = null ;
+    private int fills = 0 ;
+    // Matches : read from the scan, waiting to be added to the output.
+    private long[][] matches ;
+    private long[][] spareMatches ;
+    private int matchIdx = 0 ;
+    private int matchCount = 0 ;
+    // The matches are all the matches for previousKey.
+    private boolean matchesComplete = false ;
+    // Union graph : last triple output, for removing adjacent duplicates.   
+    private final long[] lastTriple ;
+    private boolean hasLastTriple = false ;
+    
+    private BatchNodeId slot = null ;
+    private boolean finished = false ;
+
+    public StageMatchBatch(NodeTupleTable nodeTupleTable, Iterator<BatchNodeId> input, Var[] vars, 
+                           Tuple<Node> patternTuple, boolean anyGraphs, int batchSize)
+    {
+        this.input = input ;
+        this.nodeTupleTable = nodeTupleTable ;
+        this.anyGraphs = anyGraphs ;
+        this.batchSize = batchSize ;
+        this.tupleLen = patternTuple.len() ;
+        this.constants = new NodeId[tupleLen] ;
+        this.varColumn = new int[tupleLen] ;
+        this.key = new long[tupleLen] ;
+        this.previousKey = new long[tupleLen] ;
+        this.matches = new long[tupleLen][] ;
+        this.spareMatches = new long[tupleLen][] ;
+        this.lastTriple = anyGraphs ? new long[tupleLen] : null ;
+        
+        boolean unknownNode = false ;
+        for ( int i = 0 ; i < tupleLen ; i++ )
+        {
+            Node n = patternTuple.get(i) ;
+            varColumn[i] = -1 ;
+            if ( Var.isVar(n) )
+            {
+                varColumn[i] = indexOf(vars, Var.alloc(n)) ;
+                matches[i] = new long[batchSize] ;
+                spareMatches[i] = new long[batchSize] ;
+                continue ;
+            }
+            NodeId id = ( n == Node.ANY ) ? NodeId.NodeIdAny : nodeTupleTable.getNodeTable().getNodeIdForNode(n) ;
+            if ( NodeId.isDoesNotExist(id) )
+                unknownNode = true ;
+            constants[i] = id ;
+            // Union graph : the triple slots are needed for removing duplicates.
+            if ( anyGraphs && i > 0 )
+            {
+                matches[i] = new long[batchSize] ;
+                spareMatches[i] = new long[batchSize] ;
+            }
+        }
+        this.noMatches = unknownNode ;
+    }
+    
+    private static int indexOf(Var[] vars, Var var)
+    {
+        for ( int i = 0 ; i < vars.length ; i++ )
+        {
+            if ( vars[i].equals(var) )
+                return i ;
+        }
+        throw new IllegalArgumentException("Variable not in the batch: "+var) ;
+    }
+
+    @Override
+    public boolean hasNext()
+    {
+        if ( slot != null )
+            return true ;
+        if ( finished )
+            return false ;
+        slot = fill() ;
+        if ( slot == null )
+        {
+            finished = true ;
+            return false ;
+        }
+        return true ;
+    }
+
+    @Override
+    public BatchNodeId next()
+    {
+        if ( ! hasNext() )
+            throw new NoSuchElementException("StageMatchBatch") ;
+        BatchNodeId x = slot ;
+        slot = null ;
+        return x ;
+    }
+
+    /** Fill an output batch ; return null if there are no more results. */ 
+    private BatchNodeId fill()
+    {
+        BatchNodeId output = null ;
+        for ( ;; )
+        {
+            if ( output != null && output.isFull() )
+                return output ;
+            // Matches waiting.
+            if ( matchIdx < matchCount )
+            {
+                if ( output == null )
+                    output = new BatchNodeId(inBatch.getVars(), batchSize) ;
+                emit(output) ;
+                continue ;
+            }
+            // More matches from the current scan.
+            if ( scan != null )
+            {
+                readScan() ;
+                continue ;
+            }
+            // Next input row.
+            if ( ! nextInputRow() )
+                return ( output == null || output.isEmpty() ) ? null : output ;
+            startLookup() ;
+        }
+    }
+    
+    private void readScan()
+    {
+        // Keep the first batch of matches in case they are all the matches.
+        if ( fills == 1 )
+            swapMatches() ;
+        int n = scan.next(matches, batchSize) ;
+        if ( n > 0 )
+        {
+            fills++ ;
+            matchIdx = 0 ;
+            matchCount = n ;
+            return ;
+        }
+        scan.close() ;
+        scan = null ;
+        // All the matches were in at most one batch : keep for the same lookup again.
+        if ( fills == 1 )
+            swapMatches() ;
+        matchesComplete = ( fills <= 1 ) ;
+        if ( fills == 0 )
+            matchCount = 0 ;
+        matchIdx = matchCount ;
+    }
+    
+    private void swapMatches()
+    {
+        long[][] x = matches ;
+        matches = spareMatches ;
+        spareMatches = x ;
+    }
+    
+    private boolean nextInputRow()
+    {
+        if ( noMatches )
+            return false ;
+        while ( inBatch == null || inRow >= inBatch.size() )
+        {
+            if ( ! input.hasNext() )
+                return false ;
+            inBatch = input.next() ;
+            inRow = 0 ;
+        }
+        currentRow = inRow++ ;
+        return true ;
+    }
+
+    private void startLookup()
+    {
+        for ( int i = 0 ; i < tupleLen ; i++ )
+        {
+            int col = varColumn[i] ;
+            key[i] = ( col < 0 ) ? constants[i].getId() : inBatch.getColumn(col)[currentRow] ;
+        }
+        hasLastTriple = false ;
+        if ( matchesComplete && hasPreviousKey && sameKey() )
+        {
+            // Replay the matches of the previous lookup.
+            matchIdx = 0 ;
+            return ;
+        }
+        System.arraycopy(key, 0, previousKey, 0, tupleLen) ;
+        hasPreviousKey = true ;
+        matchesComplete = false ;
+        
+        NodeId[] ids = new NodeId[tupleLen] ;
+        for ( int i = 0 ; i < tupleLen ; i++ )
+            ids[i] = NodeId.create(key[i]) ;
+        scan = nodeTupleTable.findScan(TupleFactory.asTuple(ids)) ;
+        fills = 0 ;
+        matchIdx = 0 ;
+        matchCount = 0 ;
+    }
+    
+    private boolean sameKey()
+    {
+        for ( int i = 0 ; i < tupleLen ; i++ )
+        {
+            if ( key[i] != previousKey[i] )
+                return false ;
+        }
+        return true ;
+    }
+
+    /** Output the next match for the current input row, if it is compatible. */
+    private void emit(BatchNodeId output)
+    {
+        int m = matchIdx++ ;
+        if ( anyGraphs && isDuplicate(m) )
+            return ;
+        int row = output.addCopy(inBatch, currentRow) ;
+        for ( int i = 0 ; i < tupleLen ; i++ )
+        {
+            int col = varColumn[i] ;
+            if ( col < 0 || key[i] != BatchNodeId.UNBOUND )
+                // Constant, or bound already.
+                continue ;
+            long[] column = output.getColumn(col) ;
+            long x = matches[i][m] ;
+            if ( column[row] == BatchNodeId.UNBOUND )
+                column[row] = x ;
+            else if ( column[row] != x )
+            {
+                // Same variable twice in the pattern, different values.
+                output.removeLast() ;
+                return ;
+            }
+        }
+    }
+    
+    // Assumes quads are GSPO, as for StageMatchTuple.
+    private boolean isDuplicate(int m)
+    {
+        boolean same = hasLastTriple ;
+        for ( int i = 1 ; i < tupleLen ; i++ )
+        {
+            long x = ( matches[i] != null ) ? matches[i][m] : key[i] ;
+            if ( same && x != lastTriple[i] )
+                same = false ;
+            lastTriple[i] = x ;
+        }
+        hasLastTriple = true ;
+        return same ;
+    }
+
+    @Override
+    public void close()
+    {
+        if ( scan != null )
+            scan.close() ;
+        scan = null ;
+        Iter.close(input) ;
+    }
+}
@@ -23,6 +23,8 @@ import static org.apache.jena.atlas.lib.tuple.TupleFactory.* ;
 
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException ;
 import java.util.function.Function;
 import java.util.function.Predicate;
 
@@ -34,9 +36,12 @@ import org.apache.jena.atlas.lib.tuple.TupleFactory ;
 import org.apache.jena.graph.Node ;
 import org.apache.jena.sparql.core.Var ;
 import org.apache.jena.sparql.engine.ExecutionContext ;
+import org.apache.jena.tdb.TDB ;
 import org.apache.jena.tdb.store.NodeId ;
 import org.apache.jena.tdb.store.nodetable.NodeTable ;
 import org.apache.jena.tdb.store.nodetupletable.NodeTupleTable ;
+import org.apache.jena.tdb.store.tupletable.TupleScan ;
+import org.apache.jena.tdb.sys.SystemTDB ;
 
 public class StageMatchTuple extends RepeatApplyIterator<BindingNodeId>
 {
@@ -45,12 +50,31 @@ public class StageMatchTuple extends RepeatApplyIterator<BindingNodeId>
 
     private final ExecutionContext execCxt ;
     private boolean anyGraphs ;
+    // Union graph : skip over the repeats of a triple in other graphs in the index.
+    private boolean skipGraphs ;
     private Predicate<Tuple<NodeId>> filter ;
+    // Batch scans : the column buffers, reused by each stage in turn.
+    private final int batchSize ;
+    private long[][] columns = null ;
+    // Range scan of the object slot, when it is a variable with a range restriction.
+    private int rangeSlot = -1 ;
+    private List<long[]> rangeIds = null ;
 
     public StageMatchTuple(NodeTupleTable nodeTupleTable, Iterator<BindingNodeId> input, 
                             Tuple<Node> tuple, boolean anyGraphs, 
                             Predicate<Tuple<NodeId>> filter, 
                             ExecutionContext execCxt)
+    {
+        this(nodeTupleTable, input, tuple, anyGraphs, filter, null, execCxt) ;
+    }
+    
+    /** Match a tuple, reading the index by range when the object variable, if unbound, 
+     *  has a range restriction from a FILTER. The filter must still be applied to the results.
+     */
+    public StageMatchTuple(NodeTupleTable nodeTupleTable, Iterator<BindingNodeId> input, 
+                            Tuple<Node> tuple, boolean anyGraphs, 
+                            Predicate<Tuple<NodeId>> filter, Map<Var, RangeFilter> ranges,
+                            ExecutionContext execCxt)
     {
         super(input) ;
         this.filter = filter ;
@@ -58,6 +82,23 @@ public class StageMatchTuple extends RepeatApplyIterator<BindingNodeId>
         this.patternTuple = tuple ;
         this.execCxt = execCxt ;
         this.anyGraphs = anyGraphs ; 
+        // A quad filter may hide some graphs of a triple so all quads must be seen.
+        this.skipGraphs = anyGraphs && filter == null 
+                          && ( execCxt == null || execCxt.getContext().isTrueOrUndef(TDB.symUnionSkipScan) ) ;
+        // A tuple filter needs tuples.
+        this.batchSize = ( filter == null ) ? SystemTDB.ScanBatchSize : 0 ;
+        // Union graph : a range scan does not keep the same triples adjacent.
+        if ( ranges != null && ! anyGraphs )
+        {
+            int x = tuple.len()-1 ;
+            Node obj = tuple.get(x) ;
+            RangeFilter range = Var.isVar(obj) ? ranges.get(Var.alloc(obj)) : null ;
+            if ( range != null )
+            {
+                rangeSlot = x ;
+                rangeIds = range.idRanges() ;
+            }
+        }
     }
 
     /** Prepare a pattern (tuple of nodes), and an existing binding of NodeId, into NodeIds and Variables. 
@@ -92,7 +133,19 @@ public class StageMatchTuple extends RepeatApplyIterator<BindingNodeId>
 
         prepare(nodeTupleTable.getNodeTable(), patternTuple, input, ids, var) ;
         
-        Iterator<Tuple<NodeId>> iterMatches = nodeTupleTable.find(asTuple(ids)) ;  
+        Iterator<Tuple<NodeId>> iterMatches = null ;
+        if ( rangeSlot >= 0 && var[rangeSlot] != null )
+            iterMatches = nodeTupleTable.findRange(asTuple(ids), rangeSlot, rangeIds) ;
+        
+        // Union graph : one quad for each triple, the graph slot being the last of the index.
+        if ( iterMatches == null && skipGraphs )
+            iterMatches = nodeTupleTable.findDistinct(asTuple(ids), 0) ;
+        
+        if ( iterMatches == null && batchSize > 0 )
+            return makeNextStageScan(input, ids, var) ;
+        
+        if ( iterMatches == null )
+            iterMatches = nodeTupleTable.find(asTuple(ids)) ;  
         
         // ** Allow a triple or quad filter here.
         if ( filter != null )
@@ -143,6 +196,127 @@ public class StageMatchTuple extends RepeatApplyIterator<BindingNodeId>
         return Iter.iter(iterMatches).map(binder).removeNulls() ;
     }
     
+    /** Match using a batch scan : NodeIds are read from the index into columns of longs. */
+    private Iterator<BindingNodeId> makeNextStageScan(BindingNodeId input, NodeId[] ids, Var[] var)
+    {
+        TupleScan scan = nodeTupleTable.findScan(asTuple(ids)) ;
+        if ( columns == null )
+            columns = new long[ids.length][batchSize] ;
+        // Only the columns needed for this stage.
+        long[][] stageColumns = new long[ids.length][] ;
+        for ( int i = 0 ; i < ids.length ; i++ )
+        {
+            // Union graph : the triple slots are needed for removing duplicates.
+            if ( var[i] != null || ( anyGraphs && i > 0 ) )
+                stageColumns[i] = columns[i] ;
+        }
+        Iterator<BindingNodeId> iter = new ScanBinder(scan, stageColumns, batchSize, input, var, anyGraphs) ;
+        return nodeTupleTable.getPolicy().iteratorControl(iter) ;
+    }
+    
+    /** Map the rows of a {@link TupleScan} to {@link BindingNodeId BindingNodeIds} */ 
+    private static class ScanBinder implements Iterator<BindingNodeId>
+    {
+        private final TupleScan scan ;
+        private final long[][] columns ;
+        private final int batchSize ;
+        private final BindingNodeId input ;
+        private final Var[] var ;
+        private final boolean anyGraphs ;
+        
+        private int count = 0 ;
+        private int idx = 0 ;
+        private boolean finished = false ;
+        private BindingNodeId slot = null ;
+        // For removing adjacent duplicate triples (union graph).
+        private boolean hasPrevious = false ;
+        private final long[] previous ;
+        
+        ScanBinder(TupleScan scan, long[][] columns, int batchSize, BindingNodeId input, Var[] var, boolean anyGraphs)
+        {
+            this.scan = scan ;
+            this.columns = columns ;
+            this.batchSize = batchSize ;
+            this.input = input ;
+            this.var = var ;
+            this.anyGraphs = anyGraphs ;
+            this.previous = anyGraphs ? new long[columns.length] : null ;
+        }
+
+        @Override
+        public boolean hasNext()
+        {
+            while ( slot == null )
+            {
+                if ( finished )
+                    return false ;
+                if ( idx >= count )
+                {
+                    count = scan.next(columns, batchSize) ;
+                    idx = 0 ;
+                    if ( count == 0 )
+                    {
+                        finished = true ;
+                        scan.close() ;
+                        return false ;
+                    }
+                }
+                int row = idx++ ;
+                if ( anyGraphs && isDuplicate(row) )
+                    continue ;
+                slot = bind(row) ;
+            }
+            return true ;
+        }
+
+        // Assumes quads are GSPO, as for the tuple iterator form. 
+        private boolean isDuplicate(int row)
+        {
+            boolean same = hasPrevious ;
+            for ( int i = 1 ; i < columns.length ; i++ )
+            {
+                long x = columns[i][row] ;
+                if ( same && x != previous[i] )
+                    same = false ;
+                previous[i] = x ;
+            }
+            hasPrevious = true ;
+            return same ;
+        }
+
+        private BindingNodeId bind(int row)
+        {
+            BindingNodeId output = new BindingNodeId(input) ;
+            for ( int i = 0 ; i < var.length ; i++ )
+            {
+                Var v = var[i] ;
+                if ( v == null )
+                    continue ;
+                long id = columns[i][row] ;
+                // Same variable twice in the pattern.
+                NodeId current = output.get(v) ;
+                if ( current != null )
+                {
+                    if ( current.getId() != id )
+                        return null ;
+                    continue ;
+                }
+                output.put(v, NodeId.create(id)) ;
+            }
+            return output ;
+        }
+
+        @Override
+        public BindingNodeId next()
+        {
+            if ( ! hasNext() )
+                throw new NoSuchElementException() ;
+            BindingNodeId x = slot ;
+            slot = null ;
+            return x ;
+        }
+    }
+    
     private static Iterator<Tuple<NodeId>> print(Iterator<Tuple<NodeId>> iter)
     {
         if ( ! iter.hasNext() )
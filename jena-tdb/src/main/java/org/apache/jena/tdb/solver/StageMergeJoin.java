@@ -0,0 +1,277 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.jena.tdb.solver;
+
+import static org.apache.jena.atlas.lib.tuple.TupleFactory.asTuple ;
+
+import java.util.ArrayList ;
+import java.util.Iterator ;
+import java.util.List ;
+
+import org.apache.jena.atlas.iterator.Iter ;
+import org.apache.jena.atlas.iterator.IteratorSlotted ;
+import org.apache.jena.atlas.iterator.PeekIterator ;
+import org.apache.jena.atlas.iterator.RepeatApplyIterator ;
+import org.apache.jena.atlas.lib.tuple.Tuple ;
+import org.apache.jena.graph.Node ;
+import org.apache.jena.sparql.core.Var ;
+import org.apache.jena.sparql.engine.ExecutionContext ;
+import org.apache.jena.tdb.store.NodeId ;
+import org.apache.jena.tdb.store.nodetupletable.NodeTupleTable ;
+
+/** Match a group of patterns that share a variable by a merge join.
+ * <p>
+ * For each input binding, each pattern whose matches can be read from an index
+ * in order of the join variable is read as a sorted stream and the streams are merged
+ * on the NodeId of the join variable. Patterns without such an index, and inputs
+ * where the join variable is already bound, are matched by index nested loops
+ * as in {@link StageMatchTuple}.
+ */
+public class StageMergeJoin extends RepeatApplyIterator<BindingNodeId>
+{
+    private final NodeTupleTable nodeTupleTable ;
+    private final List<Tuple<Node>> patterns ;
+    private final Var joinVar ;
+    private final ExecutionContext execCxt ;
+
+    public StageMergeJoin(NodeTupleTable nodeTupleTable, Iterator<BindingNodeId> input,
+                          List<Tuple<Node>> patterns, Var joinVar,
+                          ExecutionContext execCxt)
+    {
+        super(input) ;
+        this.nodeTupleTable = nodeTupleTable ;
+        this.patterns = patterns ;
+        this.joinVar = joinVar ;
+        this.execCxt = execCxt ;
+    }
+
+    @Override
+    protected Iterator<BindingNodeId> makeNextStage(BindingNodeId input)
+    {
+        List<Iterator<Tuple<NodeId>>> sorted = new ArrayList<>() ;
+        List<Var[]> sortedVars = new ArrayList<>() ;
+        List<Integer> sortedSlots = new ArrayList<>() ;
+        List<Tuple<Node>> unsorted = new ArrayList<>() ;
+
+        for ( Tuple<Node> pattern : patterns )
+        {
+            NodeId[] ids = new NodeId[pattern.len()] ;
+            Var[] vars = new Var[pattern.len()] ;
+            StageMatchTuple.prepare(nodeTupleTable.getNodeTable(), pattern, input, ids, vars) ;
+            for ( NodeId id : ids )
+            {
+                if ( NodeId.isDoesNotExist(id) )
+                {
+                    sorted.forEach(Iter::close) ;
+                    return Iter.nullIterator() ;
+                }
+            }
+            int slot = joinSlot(vars) ;
+            Iterator<Tuple<NodeId>> iter = ( slot < 0 ) ? null : nodeTupleTable.findSorted(asTuple(ids), slot) ;
+            if ( iter == null )
+            {
+                unsorted.add(pattern) ;
+                continue ;
+            }
+            sorted.add(iter) ;
+            sortedVars.add(vars) ;
+            sortedSlots.add(slot) ;
+        }
+
+        Iterator<BindingNodeId> chain ;
+        if ( sorted.size() < 2 )
+        {
+            // Nothing to merge.
+            sorted.forEach(Iter::close) ;
+            chain = Iter.singleton(input) ;
+            unsorted = patterns ;
+        }
+        else
+            chain = new MergeJoin(input, sorted, sortedVars, sortedSlots) ;
+
+        for ( Tuple<Node> pattern : unsorted )
+            chain = new StageMatchTuple(nodeTupleTable, chain, pattern, false, null, execCxt) ;
+        return chain ;
+    }
+
+    /** The slot of the join variable, or -1 if it is not an unbound variable of the pattern */
+    private int joinSlot(Var[] vars)
+    {
+        for ( int i = 0 ; i < vars.length ; i++ )
+        {
+            if ( joinVar.equals(vars[i]) )
+                return i ;
+        }
+        return -1 ;
+    }
+
+    /** Merge streams of tuples, each sorted by the NodeId in its join slot. */
+    private static class MergeJoin extends IteratorSlotted<BindingNodeId>
+    {
+        private final BindingNodeId input ;
+        private final List<Iterator<Tuple<NodeId>>> sources ;
+        private final PeekIterator<Tuple<NodeId>>[] iters ;
+        private final Var[][] vars ;
+        private final int[] slots ;
+        // Tuples with the current join key, for each stream.
+        private final List<List<Tuple<NodeId>>> runs ;
+        // Position in the cross product of the runs.
+        private final int[] counters ;
+        private boolean inRun = false ;
+        private boolean finished = false ;
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        MergeJoin(BindingNodeId input, List<Iterator<Tuple<NodeId>>> sorted, List<Var[]> vars, List<Integer> slots)
+        {
+            int N = sorted.size() ;
+            this.input = input ;
+            this.sources = sorted ;
+            this.iters = new PeekIterator[N] ;
+            this.vars = new Var[N][] ;
+            this.slots = new int[N] ;
+            this.runs = new ArrayList<>(N) ;
+            this.counters = new int[N] ;
+            for ( int i = 0 ; i < N ; i++ )
+            {
+                iters[i] = PeekIterator.create(sorted.get(i)) ;
+                this.vars[i] = vars.get(i) ;
+                this.slots[i] = slots.get(i) ;
+                runs.add(new ArrayList<>()) ;
+            }
+        }
+
+        @Override
+        protected BindingNodeId moveToNext()
+        {
+            for ( ;; )
+            {
+                if ( ! inRun )
+                {
+                    if ( finished || ! nextRun() )
+                    {
+                        finished = true ;
+                        return null ;
+                    }
+                    inRun = true ;
+                }
+                BindingNodeId b = bind() ;
+                inRun = advance() ;
+                if ( b != null )
+                    return b ;
+            }
+        }
+
+        @Override
+        protected boolean hasMore()
+        {
+            return ! finished ;
+        }
+
+        /** Align all the streams on the next common key and collect the tuples for that key. */
+        private boolean nextRun()
+        {
+            for ( ;; )
+            {
+                long max = 0 ;
+                for ( int i = 0 ; i < iters.length ; i++ )
+                {
+                    if ( ! iters[i].hasNext() )
+                        return false ;
+                    long k = key(i, iters[i].peek()) ;
+                    if ( i == 0 || Long.compareUnsigned(k, max) > 0 )
+                        max = k ;
+                }
+                boolean aligned = true ;
+                for ( int i = 0 ; i < iters.length ; i++ )
+                {
+                    // Skip forward to the max key.
+                    while ( iters[i].hasNext() && Long.compareUnsigned(key(i, iters[i].peek()), max) < 0 )
+                        iters[i].next() ;
+                    if ( ! iters[i].hasNext() )
+                        return false ;
+                    if ( key(i, iters[i].peek()) != max )
+                        aligned = false ;
+                }
+                if ( ! aligned )
+                    continue ;
+                for ( int i = 0 ; i < iters.length ; i++ )
+                {
+                    List<Tuple<NodeId>> run = runs.get(i) ;
+                    run.clear() ;
+                    while ( iters[i].hasNext() && key(i, iters[i].peek()) == max )
+                        run.add(iters[i].next()) ;
+                    counters[i] = 0 ;
+                }
+                return true ;
+            }
+        }
+
+        /** Step to the next combination of the cross product of runs. Return false at the end. */
+        private boolean advance()
+        {
+            for ( int i = counters.length-1 ; i >= 0 ; i-- )
+            {
+                counters[i]++ ;
+                if ( counters[i] < runs.get(i).size() )
+                    return true ;
+                counters[i] = 0 ;
+            }
+            return false ;
+        }
+
+        private BindingNodeId bind()
+        {
+            BindingNodeId output = new BindingNodeId(input) ;
+            for ( int i = 0 ; i < iters.length ; i++ )
+            {
+                Tuple<NodeId> tuple = runs.get(i).get(counters[i]) ;
+                Var[] var = vars[i] ;
+                for ( int j = 0 ; j < var.length ; j++ )
+                {
+                    Var v = var[j] ;
+                    if ( v == null )
+                        continue ;
+                    NodeId id = tuple.get(j) ;
+                    NodeId current = output.get(v) ;
+                    if ( current != null )
+                    {
+                        // Variable in several patterns, or twice in one pattern.
+                        if ( ! current.equals(id) )
+                            return null ;
+                        continue ;
+                    }
+                    output.put(v, id) ;
+                }
+            }
+            return output ;
+        }
+
+        private long key(int i, Tuple<NodeId> tuple)
+        {
+            return tuple.get(slots[i]).getId() ;
+        }
+
+        @Override
+        protected void closeIterator()
+        {
+            sources.forEach(Iter::close) ;
+        }
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.jena.tdb.solver.stats;
+
+import java.util.ArrayList ;
+import java.util.Arrays ;
+import java.util.Collection ;
+import java.util.List ;
+
+import org.apache.jena.tdb.store.NodeId ;
+
+/** A characteristic set: the set of predicates used by a subject.
+ *  Subjects with the same characteristic set tend to be the same kind of thing,
+ *  so counts kept per characteristic set give estimates for star-shaped patterns
+ *  that take the correlation between predicates into account. 
+ */
+public final class CharacteristicSet
+{
+    // Sorted, no duplicates.
+    private final long[] predicates ;
+    private final int hash ;
+    
+    public static CharacteristicSet create(Collection<NodeId> predicates) {
+        long[] x = new long[predicates.size()] ;
+        int i = 0 ;
+        for ( NodeId p : predicates )
+            x[i++] = p.getId() ;
+        return create(x) ;
+    }
+    
+    /*package*/ static CharacteristicSet create(long[] predicates) {
+        long[] x = predicates.clone() ;
+        Arrays.sort(x) ;
+        int len = 0 ;
+        for ( int i = 0 ; i < x.length ; i++ ) {
+            if ( i == 0 || x[i] != x[i-1] )
+                x[len++] = x[i] ;
+        }
+        return new CharacteristicSet(len == x.length ? x : Arrays.copyOf(x, len)) ;
+    }
+    
+    private CharacteristicSet(long[] predicates) {
+        this.predicates = predicates ;
+        this.hash = Arrays.hashCode(predicates) ;
+    }
+
+    public int size() {
+        return predicates.length ;
+    }
+    
+    public boolean contains(NodeId predicate) {
+        return Arrays.binarySearch(predicates, predicate.getId()) >= 0 ;
+    }
+
+    /** Whether this characteristic set includes all the given predicates. */ 
+    public boolean containsAll(Collection<NodeId> predicates) {
+        for ( NodeId p : predicates ) {
+            if ( ! contains(p) )
+                return false ;
+        }
+        return true ;
+    }
+    
+    public List<NodeId> getPredicates() {
+        List<NodeId> x = new ArrayList<>(predicates.length) ;
+        for ( long p : predicates )
+            x.add(NodeId.create(p)) ;
+        return x ;
+    }
+    
+    /*package*/ long[] predicateIds() {
+        return predicates ;
+    }
+    
+    @Override
+    public int hashCode() {
+        return hash ;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if ( this == obj )
+            return true ;
+        if ( !(obj instanceof CharacteristicSet) )
+            return false ;
+        CharacteristicSet other = (CharacteristicSet)obj ;
+        return hash == other.hash && Arrays.equals(predicates, other.predicates) ;
+    }
+
+    @Override
+    public String toString() {
+        return "CS"+getPredicates() ;
+    }
+}
@@ -0,0 +1,258 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.jena.tdb.solver.stats;
+
+import java.util.* ;
+
+import org.apache.jena.graph.Node ;
+import org.apache.jena.graph.Triple ;
+import org.apache.jena.sparql.core.BasicPattern ;
+import org.apache.jena.sparql.core.Var ;
+import org.apache.jena.sparql.engine.optimizer.reorder.ReorderProc ;
+import org.apache.jena.sparql.engine.optimizer.reorder.ReorderProcIndexes ;
+import org.apache.jena.sparql.engine.optimizer.reorder.ReorderTransformation ;
+import org.apache.jena.tdb.solver.RangeFilter ;
+import org.apache.jena.tdb.store.NodeId ;
+
+/**
+ * Cost-based reordering of basic graph patterns using {@link StatsLive} statistics,
+ * including characteristic sets.
+ * <p>
+ * Triple patterns with the same subject form a star. The size of a star is estimated
+ * from the characteristic sets that include all the star's predicates, so predicates
+ * that occur together are not treated as independent, which is where single pattern
+ * weighting (e.g. {@link org.apache.jena.sparql.engine.optimizer.reorder.ReorderWeighted})
+ * goes wrong.
+ * <p>
+ * The join order is chosen greedily: starting with the star with the smallest
+ * estimated size, the next triple pattern is the one, connected by a variable to
+ * those already chosen, giving the smallest estimated intermediate result.
+ * A triple pattern not connected to the others is only chosen when there is no
+ * connected triple pattern.
+ * <p>
+ * Range restrictions from FILTERs, see {@link #reorderIndexes(BasicPattern, Map)}, reduce the
+ * estimated matches of a triple pattern by the fraction of the predicate's objects in the range,
+ * estimated from histograms of the inline values.
+ */
+public class ReorderCharacteristicSets implements ReorderTransformationStats
+{
+    private final StatsLive stats ;
+
+    public ReorderCharacteristicSets(StatsLive stats) {
+        this.stats = stats ;
+    }
+
+    @Override
+    public ReorderTransformation withStats(StatsLive stats) {
+        return new ReorderCharacteristicSets(stats) ;
+    }
+
+    @Override
+    public BasicPattern reorder(BasicPattern pattern) {
+        return reorderIndexes(pattern).reorder(pattern) ;
+    }
+
+    @Override
+    public ReorderProc reorderIndexes(BasicPattern pattern) {
+        return reorderIndexes(pattern, Collections.emptyMap()) ;
+    }
+
+    /** Reorder, taking into account range restrictions on the variables of the pattern. */ 
+    public ReorderProc reorderIndexes(BasicPattern pattern, Map<Var, RangeFilter> ranges) {
+        List<Triple> triples = pattern.getList() ;
+        int N = triples.size() ;
+        int[] indexes = new int[N] ;
+        if ( N <= 1 ) {
+            for ( int i = 0 ; i < N ; i++ )
+                indexes[i] = i ;
+            return new ReorderProcIndexes(indexes) ;
+        }
+        Planner planner = new Planner(stats, triples, ranges) ;
+        for ( int i = 0 ; i < N ; i++ )
+            indexes[i] = planner.next() ;
+        return new ReorderProcIndexes(indexes) ;
+    }
+    
+    // Planning state for one basic graph pattern.
+    private static class Planner {
+        private final StatsLive stats ;
+        private final List<Triple> triples ;
+        private final NodeId[] predicates ;
+        private final double[] starSize ;
+        // Fraction of the triples of the pattern's predicate in the range of the object variable.
+        private final double[] rangeFraction ;
+        private final boolean[] placed ;
+        private final Set<Node> bound = new HashSet<>() ;
+        // Predicates already placed for each subject.
+        private final Map<Node, List<NodeId>> stars = new HashMap<>() ;
+        private final double count ;
+        private double size = 1 ;
+        private boolean first = true ;
+
+        Planner(StatsLive stats, List<Triple> triples, Map<Var, RangeFilter> ranges) {
+            this.stats = stats ;
+            this.triples = triples ;
+            this.count = stats.getCount() ;
+            int N = triples.size() ;
+            this.placed = new boolean[N] ;
+            this.predicates = new NodeId[N] ;
+            this.rangeFraction = new double[N] ;
+            for ( int i = 0 ; i < N ; i++ ) {
+                Node p = triples.get(i).getPredicate() ;
+                Node o = triples.get(i).getObject() ;
+                predicates[i] = p.isConcrete() ? stats.getNodeId(p) : null ;
+                RangeFilter range = Var.isVar(o) ? ranges.get(Var.alloc(o)) : null ;
+                rangeFraction[i] = ( range != null && predicates[i] != null && ! NodeId.isDoesNotExist(predicates[i]) )
+                    ? stats.getRangeFraction(predicates[i], range) : 1.0 ;
+            }
+            this.starSize = starSizes() ;
+        }
+        
+        // The estimated size of the star of each triple pattern.
+        private double[] starSizes() {
+            Map<Node, List<Integer>> groups = new LinkedHashMap<>() ;
+            for ( int i = 0 ; i < triples.size() ; i++ )
+                groups.computeIfAbsent(triples.get(i).getSubject(), k->new ArrayList<>()).add(i) ;
+            double[] x = new double[triples.size()] ;
+            for ( Map.Entry<Node, List<Integer>> e : groups.entrySet() ) {
+                double est = estimateStar(e.getKey(), e.getValue()) ;
+                for ( int i : e.getValue() )
+                    x[i] = est ;
+            }
+            return x ;
+        }
+        
+        private double estimateStar(Node subject, List<Integer> members) {
+            List<NodeId> preds = new ArrayList<>() ;
+            double selectivity = 1 ;
+            for ( int i : members ) {
+                NodeId p = predicates[i] ;
+                if ( p == null ) {
+                    // Variable predicate : no restriction on the characteristic set.
+                    selectivity *= count / Math.max(1, stats.getSubjects()) ;
+                    continue ;
+                }
+                if ( NodeId.isDoesNotExist(p) )
+                    return 0 ;
+                if ( ! preds.contains(p) )
+                    preds.add(p) ;
+                if ( triples.get(i).getObject().isConcrete() )
+                    selectivity /= Math.max(1, stats.getDistinctObjects(p)) ;
+                selectivity *= rangeFraction[i] ;
+            }
+            double est = preds.isEmpty() ? stats.getSubjects() : stats.estimateStar(preds) ;
+            if ( subject.isConcrete() )
+                est /= Math.max(1, stats.getSubjects()) ;
+            return est * selectivity ;
+        }
+        
+        /** Choose the next triple pattern. */ 
+        int next() {
+            int best = -1 ;
+            boolean bestConnected = false ;
+            double bestSize = 0 ;
+            for ( int i = 0 ; i < triples.size() ; i++ ) {
+                if ( placed[i] )
+                    continue ;
+                boolean connected = first || connected(triples.get(i)) ;
+                if ( bestConnected && ! connected )
+                    continue ;
+                // On the first choice, start with the smallest star and use the pattern size to choose within the star.
+                double est = first ? starSize[i] : size * cardinality(i) ;
+                double tieBreak = first ? cardinality(i) : starSize[i] ;
+                if ( best < 0 || ( connected && ! bestConnected ) || est < bestSize 
+                     || ( est == bestSize && tieBreak < ( first ? cardinality(best) : starSize[best] ) ) ) {
+                    best = i ;
+                    bestSize = est ;
+                    bestConnected = connected ;
+                }
+            }
+            place(best) ;
+            return best ;
+        }
+        
+        void place(int i) {
+            size = size * cardinality(i) ;
+            placed[i] = true ;
+            first = false ;
+            Triple t = triples.get(i) ;
+            if ( predicates[i] != null && ! NodeId.isDoesNotExist(predicates[i]) )
+                stars.computeIfAbsent(t.getSubject(), k->new ArrayList<>()).add(predicates[i]) ;
+            for ( Node n : new Node[] {t.getSubject(), t.getPredicate(), t.getObject()} ) {
+                if ( n.isVariable() )
+                    bound.add(n) ;
+            }
+        }
+        
+        private boolean connected(Triple t) {
+            return bound.contains(t.getSubject()) || bound.contains(t.getPredicate()) || bound.contains(t.getObject()) ;
+        }
+        
+        private boolean isBound(Node n) {
+            return n.isConcrete() || bound.contains(n) ;
+        }
+        
+        /** Estimated number of matches of a triple pattern for each solution so far. */
+        private double cardinality(int i) {
+            Triple t = triples.get(i) ;
+            NodeId p = predicates[i] ;
+            boolean sBound = isBound(t.getSubject()) ;
+            boolean oBound = isBound(t.getObject()) ;
+            double triplesP ;
+            double subjectsP ;
+            double objectsP ;
+            if ( p == null ) {
+                int numPredicates = Math.max(1, stats.getPredicates()) ;
+                triplesP = bound.contains(t.getPredicate()) ? count / numPredicates : count ;
+                subjectsP = Math.max(1, stats.getSubjects()) ;
+                objectsP = Math.max(1, count / numPredicates) ;
+            } else {
+                if ( NodeId.isDoesNotExist(p) )
+                    return 0 ;
+                triplesP = stats.getPredicateCount(p) ;
+                if ( triplesP == 0 )
+                    return 0 ;
+                subjectsP = Math.max(1, stats.getDistinctSubjects(p)) ;
+                objectsP = Math.max(1, stats.getDistinctObjects(p)) ;
+            }
+            
+            double est ;
+            List<NodeId> star = stars.get(t.getSubject()) ;
+            if ( p != null && star != null && t.getSubject().isVariable() && ! star.contains(p) ) {
+                // Subjects already matched by other patterns of the star:
+                // the average number of p triples for subjects with all the star's predicates.
+                long subjects = stats.getSubjectsWith(star) ;
+                est = ( subjects == 0 ) ? 0 : (double)stats.getOccurrencesWith(star, p) / subjects ;
+                if ( oBound )
+                    est = est / objectsP ;
+            } else if ( sBound && oBound )
+                est = Math.min(1, triplesP / (subjectsP * objectsP)) ;
+            else if ( sBound )
+                est = triplesP / subjectsP ;
+            else if ( oBound )
+                est = triplesP / objectsP ;
+            else
+                est = triplesP ;
+            if ( ! oBound )
+                est = est * rangeFraction[i] ;
+            return est ;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.jena.tdb.solver.stats;
+
+import org.apache.jena.sparql.core.BasicPattern ;
+import org.apache.jena.sparql.engine.optimizer.reorder.ReorderProc ;
+import org.apache.jena.sparql.engine.optimizer.reorder.ReorderTransformation ;
+import org.apache.jena.sparql.engine.optimizer.reorder.ReorderWeighted ;
+
+/** Reorder basic graph patterns using the current {@link StatsLive} statistics.
+ *  The weighting is rebuilt when the statistics change.
+ */
+public class ReorderLiveStats implements ReorderTransformationStats
+{
+    private final StatsLive stats ;
+    private ReorderWeighted reorder = null ;
+    private long version = -1 ;
+    
+    public ReorderLiveStats(StatsLive stats) {
+        this.stats = stats ;
+    }
+
+    @Override
+    public ReorderTransformation withStats(StatsLive stats) {
+        return new ReorderLiveStats(stats) ;
+    }
+
+    @Override
+    public ReorderProc reorderIndexes(BasicPattern pattern) {
+        return current().reorderIndexes(pattern) ;
+    }
+
+    @Override
+    public BasicPattern reorder(BasicPattern pattern) {
+        return current().reorder(pattern) ;
+    }
+    
+    private synchronized ReorderTransformation current() {
+        long v = stats.getVersion() ;
+        if ( reorder == null || v != version ) {
+            reorder = new ReorderWeighted(stats.getStatsMatcher()) ;
+            version = v ;
+        }
+        return reorder ;
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.jena.tdb.solver.stats;
+
+import java.io.DataInputStream ;
+import java.io.DataOutputStream ;
+import java.io.IOException ;
+import java.util.HashMap ;
+import java.util.Map ;
+
+import org.apache.jena.tdb.store.NodeId ;
+
+/** The counts kept by {@link StatsLive} for one tuple table.
+ *  Also used, with signed values, for the changes made by a transaction.
+ *  Not thread safe.
+ */
+class StatsCounts
+{
+    // Slots of the per-predicate counts.
+    static final int TRIPLES    = 0 ;
+    static final int SUBJECTS   = 1 ;
+    static final int OBJECTS    = 2 ;
+    
+    long count = 0 ;
+    // Keyed by NodeId value.
+    final Map<Long, long[]> predicates = new HashMap<>() ;
+    final Map<Long, Long> types = new HashMap<>() ;
+    final Map<CharacteristicSet, CSCounts> charSets = new HashMap<>() ;
+    // Predicate to NodeId type to histogram of the inline object values.
+    final Map<Long, Map<Integer, ValueHistogram>> histograms = new HashMap<>() ;
+    
+    static class CSCounts {
+        long subjects = 0 ;
+        final Map<Long, Long> occurrences = new HashMap<>() ;
+    }
+    
+    void addPredicate(long p, int slot, long delta) {
+        predicates.computeIfAbsent(p, x->new long[3])[slot] += delta ;
+    }
+    
+    void addType(long type, long delta) {
+        types.merge(type, delta, Long::sum) ;
+    }
+    
+    void addSubjects(CharacteristicSet cs, long delta) {
+        charSets.computeIfAbsent(cs, x->new CSCounts()).subjects += delta ;
+    }
+
+    void addOccurrences(CharacteristicSet cs, long p, long delta) {
+        charSets.computeIfAbsent(cs, x->new CSCounts()).occurrences.merge(p, delta, Long::sum) ;
+    }
+    
+    /** Record an inline object value of a histogram type. */  
+    void addValue(long p, NodeId o, long delta) {
+        histograms.computeIfAbsent(p, x->new HashMap<>())
+                  .computeIfAbsent(o.type(), ValueHistogram::create)
+                  .add(ValueHistogram.key(o), delta) ;
+    }
+    
+    boolean isEmpty() {
+        return count == 0 && predicates.isEmpty() && types.isEmpty() && charSets.isEmpty() && histograms.isEmpty() ;
+    }
+    
+    /** Add in other counts, which may be negative. */ 
+    void merge(StatsCounts other) {
+        count += other.count ;
+        other.predicates.forEach((p, v) -> {
+            long[] x = predicates.computeIfAbsent(p, k->new long[3]) ;
+            for ( int i = 0 ; i < x.length ; i++ )
+                x[i] += v[i] ;
+            if ( x[TRIPLES] <= 0 )
+                predicates.remove(p) ;
+        }) ;
+        other.types.forEach((t, v) -> {
+            if ( types.merge(t, v, Long::sum) <= 0 )
+                types.remove(t) ;
+        }) ;
+        other.charSets.forEach((cs, v) -> {
+            CSCounts x = charSets.computeIfAbsent(cs, k->new CSCounts()) ;
+            x.subjects += v.subjects ;
+            v.occurrences.forEach((p, n) -> x.occurrences.merge(p, n, Long::sum)) ;
+            if ( x.subjects <= 0 )
+                charSets.remove(cs) ;
+        }) ;
+        other.histograms.forEach((p, v) -> {
+            Map<Integer, ValueHistogram> x = histograms.computeIfAbsent(p, k->new HashMap<>()) ;
+            v.forEach((t, h) -> {
+                ValueHistogram h2 = x.computeIfAbsent(t, ValueHistogram::create) ;
+                h2.merge(h) ;
+                if ( h2.isEmpty() )
+                    x.remove(t) ;
+            }) ;
+            if ( x.isEmpty() )
+                histograms.remove(p) ;
+        }) ;
+    }
+    
+    void write(DataOutputStream out) throws IOException {
+        out.writeLong(count) ;
+        out.writeInt(predicates.size()) ;
+        for ( Map.Entry<Long, long[]> e : predicates.entrySet() ) {
+            out.writeLong(e.getKey()) ;
+            for ( long v : e.getValue() )
+                out.writeLong(v) ;
+        }
+        out.writeInt(types.size()) ;
+        for ( Map.Entry<Long, Long> e : types.entrySet() ) {
+            out.writeLong(e.getKey()) ;
+            out.writeLong(e.getValue()) ;
+        }
+        out.writeInt(charSets.size()) ;
+        for ( Map.Entry<CharacteristicSet, CSCounts> e : charSets.entrySet() ) {
+            long[] preds = e.getKey().predicateIds() ;
+            out.writeInt(preds.length) ;
+            for ( long p : preds ) {
+                out.writeLong(p) ;
+                out.writeLong(e.getValue().occurrences.getOrDefault(p, 0L)) ;
+            }
+            out.writeLong(e.getValue().subjects) ;
+        }
+        out.writeInt(histograms.size()) ;
+        for ( Map.Entry<Long, Map<Integer, ValueHistogram>> e : histograms.entrySet() ) {
+            out.writeLong(e.getKey()) ;
+            out.writeInt(e.getValue().size()) ;
+            for ( Map.Entry<Integer, ValueHistogram> e2 : e.getValue().entrySet() ) {
+                out.writeInt(e2.getKey()) ;
+                e2.getValue().write(out) ;
+            }
+        }
+    }
+    
+    static StatsCounts read(DataInputStream in) throws IOException {
+        StatsCounts counts = new StatsCounts() ;
+        counts.count = in.readLong() ;
+        int n = in.readInt() ;
+        for ( int i = 0 ; i < n ; i++ ) {
+            long p = in.readLong() ;
+            long[] x = new long[3] ;
+            for ( int j = 0 ; j < x.length ; j++ )
+                x[j] = in.readLong() ;
+            counts.predicates.put(p, x) ;
+        }
+        n = in.readInt() ;
+        for ( int i = 0 ; i < n ; i++ )
+            counts.types.put(in.readLong(), in.readLong()) ;
+        n = in.readInt() ;
+        for ( int i = 0 ; i < n ; i++ ) {
+            int len = in.readInt() ;
+            long[] preds = new long[len] ;
+            CSCounts x = new CSCounts() ;
+            for ( int j = 0 ; j < len ; j++ ) {
+                preds[j] = in.readLong() ;
+                x.occurrences.put(preds[j], in.readLong()) ;
+            }
+            x.subjects = in.readLong() ;
+            counts.charSets.put(CharacteristicSet.create(preds), x) ;
+        }
+        n = in.readInt() ;
+        for ( int i = 0 ; i < n ; i++ ) {
+            Map<Integer, ValueHistogram> x = new HashMap<>() ;
+            counts.histograms.put(in.readLong(), x) ;
+            int len = in.readInt() ;
+            for ( int j = 0 ; j < len ; j++ )
+                x.put(in.readInt(), ValueHistogram.read(in)) ;
+        }
+        return counts ;
+    }
+}
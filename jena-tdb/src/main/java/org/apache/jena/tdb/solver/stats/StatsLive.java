@@ -0,0 +1,488 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.jena.tdb.solver.stats;
+
+import static org.apache.jena.sparql.sse.Item.addPair ;
+import static org.apache.jena.sparql.sse.Item.createTagged ;
+
+import java.io.* ;
+import java.util.* ;
+
+import org.apache.jena.atlas.lib.tuple.Tuple ;
+import org.apache.jena.atlas.logging.Log ;
+import org.apache.jena.graph.Node ;
+import org.apache.jena.sparql.engine.optimizer.StatsMatcher ;
+import org.apache.jena.sparql.graph.NodeConst ;
+import org.apache.jena.sparql.sse.Item ;
+import org.apache.jena.sparql.sse.ItemList ;
+import org.apache.jena.sparql.util.NodeFactoryExtra ;
+import org.apache.jena.tdb.solver.RangeFilter ;
+import org.apache.jena.tdb.store.DatasetGraphTDB ;
+import org.apache.jena.tdb.store.NodeId ;
+import org.apache.jena.tdb.store.nodetable.NodeTable ;
+import org.apache.jena.tdb.store.tupletable.TupleIndex ;
+import org.apache.jena.tdb.store.tupletable.TupleTable ;
+
+/**
+ * Statistics for a database that are kept up to date as transactions commit.
+ * <p>
+ * For each predicate: the number of triples, the number of distinct subjects and
+ * the number of distinct objects. For each class: the number of {@code rdf:type} triples.
+ * For each characteristic set (the set of predicates of a subject): the number of subjects
+ * and the number of triples for each predicate.
+ * <p>
+ * Default graph triples and named graph quads are counted together; 
+ * in named graphs, a subject is a (graph, subject) pair.
+ * <p>
+ * Changes are recorded during a write transaction by a {@link StatsRecorder} and
+ * applied by {@link #apply} when the transaction commits.
+ * 
+ * @see StatsCollectorNodeId for statistics written to a file by {@code tdbstats}. 
+ */
+public class StatsLive
+{
+    private static final int FileVersion = 2 ;
+    
+    private final NodeTable nodeTable ;
+    // Nodes for ids recorded by transactions, which may not yet be in the base node table.
+    private final Map<Long, Node> nodes = new HashMap<>() ;
+    private final Map<Node, NodeId> nodeIds = new HashMap<>() ;
+    // Guarded by "this"
+    private StatsCounts triples = new StatsCounts() ;
+    private StatsCounts quads = new StatsCounts() ;
+    private long version = 0 ;
+    // Cached.
+    private StatsMatcher matcher = null ;
+    private long matcherVersion = -1 ;
+    
+    /** Empty statistics. */ 
+    public StatsLive(NodeTable nodeTable) {
+        this.nodeTable = nodeTable ;
+    }
+    
+    /** Calculate the statistics for a dataset by scanning it. */
+    public static StatsLive create(DatasetGraphTDB dsg) {
+        NodeTable nodeTable = dsg.getTripleTable().getNodeTupleTable().getNodeTable() ;
+        NodeId rdfType = nodeTable.getNodeIdForNode(NodeConst.nodeRDFType) ;
+        StatsLive stats = new StatsLive(nodeTable) ;
+        stats.triples = scan(dsg.getTripleTable().getNodeTupleTable().getTupleTable(), rdfType) ;
+        stats.quads = scan(dsg.getQuadTable().getNodeTupleTable().getTupleTable(), rdfType) ;
+        return stats ;
+    }
+    
+    /** Start recording the changes of a write transaction.
+     * @param txnNodeTable The node table of the transaction.
+     */
+    public StatsRecorder recorder(NodeTable txnNodeTable) {
+        return new StatsRecorder(txnNodeTable) ;
+    }
+    
+    /** Apply the changes of a committed transaction. */
+    public synchronized void apply(StatsRecorder recorder) {
+        if ( recorder.isEmpty() )
+            return ;
+        if ( recorder.triplesCleared )
+            triples = new StatsCounts() ;
+        if ( recorder.quadsCleared )
+            quads = new StatsCounts() ;
+        triples.merge(recorder.triples) ;
+        quads.merge(recorder.quads) ;
+        for ( StatsCounts counts : Arrays.asList(recorder.triples, recorder.quads) ) {
+            counts.predicates.keySet().forEach(id -> resolve(recorder.nodeTable, id)) ;
+            counts.types.keySet().forEach(id -> resolve(recorder.nodeTable, id)) ;
+        }
+        version++ ;
+    }
+
+    /** Number of triples and quads. */
+    public synchronized long getCount() {
+        return triples.count + quads.count ;
+    }
+
+    /** Number of triples with the predicate. */
+    public long getPredicateCount(NodeId predicate) {
+        return getPredicate(predicate, StatsCounts.TRIPLES) ;
+    }
+
+    /** Number of distinct subjects with the predicate. */
+    public long getDistinctSubjects(NodeId predicate) {
+        return getPredicate(predicate, StatsCounts.SUBJECTS) ;
+    }
+
+    /** Number of distinct objects with the predicate. */
+    public long getDistinctObjects(NodeId predicate) {
+        return getPredicate(predicate, StatsCounts.OBJECTS) ;
+    }
+    
+    private synchronized long getPredicate(NodeId predicate, int slot) {
+        long x = 0 ;
+        long[] v = triples.predicates.get(predicate.getId()) ;
+        if ( v != null )
+            x += v[slot] ;
+        v = quads.predicates.get(predicate.getId()) ;
+        if ( v != null )
+            x += v[slot] ;
+        return x ;
+    }
+
+    /** Number of {@code rdf:type} triples with the class as object. */
+    public synchronized long getTypeCount(NodeId type) {
+        return triples.types.getOrDefault(type.getId(), 0L) + quads.types.getOrDefault(type.getId(), 0L) ;
+    }
+    
+    /** Estimated fraction of the triples with the predicate whose object is within the range.
+     *  Objects that are not inline values of the kind of the range are taken to be outside it.
+     *  Return 1 if the range is not one that is kept in histograms.
+     */
+    public synchronized double getRangeFraction(NodeId predicate, RangeFilter range) {
+        int type = range.keyType() ;
+        if ( type == NodeId.NONE )
+            return 1.0 ;
+        long total = getPredicate(predicate, StatsCounts.TRIPLES) ;
+        if ( total <= 0 )
+            return 1.0 ;
+        double x = 0 ;
+        for ( StatsCounts counts : Arrays.asList(triples, quads) ) {
+            Map<Integer, ValueHistogram> h = counts.histograms.get(predicate.getId()) ;
+            ValueHistogram vh = ( h == null ) ? null : h.get(type) ;
+            if ( vh != null )
+                x += vh.estimate(range.keyLow(), range.keyHigh()) ;
+        }
+        return Math.min(1.0, x / total) ;
+    }
+    
+    /** The characteristic sets, with the number of subjects of each. */
+    public synchronized Map<CharacteristicSet, Long> getCharacteristicSets() {
+        Map<CharacteristicSet, Long> x = new HashMap<>() ;
+        triples.charSets.forEach((cs, v) -> x.merge(cs, v.subjects, Long::sum)) ;
+        quads.charSets.forEach((cs, v) -> x.merge(cs, v.subjects, Long::sum)) ;
+        return x ;
+    }
+
+    /** Number of triples with the predicate for subjects with the characteristic set. */
+    public synchronized long getOccurrences(CharacteristicSet cs, NodeId predicate) {
+        return occurrences(triples, cs, predicate) + occurrences(quads, cs, predicate) ;
+    }
+    
+    private static long occurrences(StatsCounts counts, CharacteristicSet cs, NodeId predicate) {
+        StatsCounts.CSCounts x = counts.charSets.get(cs) ;
+        return ( x == null ) ? 0 : x.occurrences.getOrDefault(predicate.getId(), 0L) ;
+    }
+    
+    /** Number of subjects whose characteristic set includes all the predicates. */
+    public synchronized long getSubjectsWith(Collection<NodeId> predicates) {
+        long x = 0 ;
+        for ( StatsCounts counts : Arrays.asList(triples, quads) ) {
+            for ( Map.Entry<CharacteristicSet, StatsCounts.CSCounts> e : counts.charSets.entrySet() ) {
+                if ( e.getKey().containsAll(predicates) )
+                    x += e.getValue().subjects ;
+            }
+        }
+        return x ;
+    }
+    
+    /** Number of triples with the predicate, for subjects whose characteristic set includes 
+     * the predicate and all the other predicates given. */
+    public synchronized long getOccurrencesWith(Collection<NodeId> predicates, NodeId predicate) {
+        long x = 0 ;
+        for ( StatsCounts counts : Arrays.asList(triples, quads) ) {
+            for ( Map.Entry<CharacteristicSet, StatsCounts.CSCounts> e : counts.charSets.entrySet() ) {
+                if ( e.getKey().contains(predicate) && e.getKey().containsAll(predicates) )
+                    x += e.getValue().occurrences.getOrDefault(predicate.getId(), 0L) ;
+            }
+        }
+        return x ;
+    }
+
+    /** Estimated number of results for a star pattern: a triple pattern for each of
+     * the predicates, all with the same subject, and each with a different object variable. 
+     * Subjects are counted by their characteristic set so predicates that occur together
+     * are not treated as independent.
+     */
+    public synchronized double estimateStar(Collection<NodeId> predicates) {
+        double x = 0 ;
+        for ( StatsCounts counts : Arrays.asList(triples, quads) ) {
+            for ( Map.Entry<CharacteristicSet, StatsCounts.CSCounts> e : counts.charSets.entrySet() ) {
+                if ( ! e.getKey().containsAll(predicates) )
+                    continue ;
+                StatsCounts.CSCounts cs = e.getValue() ;
+                if ( cs.subjects <= 0 )
+                    continue ;
+                double n = cs.subjects ;
+                for ( NodeId p : predicates )
+                    n = n * cs.occurrences.getOrDefault(p.getId(), 0L) / cs.subjects ;
+                x += n ;
+            }
+        }
+        return x ;
+    }
+    
+    /** Number of subjects. */
+    public synchronized long getSubjects() {
+        long x = 0 ;
+        for ( StatsCounts counts : Arrays.asList(triples, quads) ) {
+            for ( StatsCounts.CSCounts cs : counts.charSets.values() )
+                x += cs.subjects ;
+        }
+        return x ;
+    }
+    
+    /** Number of different predicates. */ 
+    public synchronized int getPredicates() {
+        Set<Long> x = new HashSet<>(triples.predicates.keySet()) ;
+        x.addAll(quads.predicates.keySet()) ;
+        return x.size() ;
+    }
+    
+    /** The NodeId for a node, or {@link NodeId#NodeDoesNotExist}. */
+    public synchronized NodeId getNodeId(Node node) {
+        NodeId x = nodeIds.get(node) ;
+        if ( x == null )
+            x = nodeTable.getNodeIdForNode(node) ;
+        return x ;
+    }
+
+    /** Version number; changes when the statistics change. */
+    public synchronized long getVersion() {
+        return version ;
+    }
+    
+    /** A {@link StatsMatcher} for the current statistics, for use with
+     * {@link org.apache.jena.sparql.engine.optimizer.reorder.ReorderWeighted}.
+     * The weights for a predicate are the number of triples, and the average
+     * number of triples for a given subject and for a given object. 
+     */ 
+    public synchronized StatsMatcher getStatsMatcher() {
+        if ( matcher == null || matcherVersion != version ) {
+            matcher = new StatsMatcher(format()) ;
+            matcherVersion = version ;
+        }
+        return matcher ;
+    }
+    
+    /** The statistics in the form written by {@code tdbstats}. */ 
+    public synchronized StatsResults results() {
+        Map<Node, Integer> predicates = new HashMap<>() ;
+        Map<Node, Integer> types = new HashMap<>() ;
+        forEachPredicate((p, v) -> predicates.put(p, (int)Math.min(v[StatsCounts.TRIPLES], Integer.MAX_VALUE))) ;
+        Map<Long, Long> t = new HashMap<>(triples.types) ;
+        quads.types.forEach((k, v) -> t.merge(k, v, Long::sum)) ;
+        t.forEach((k, v) -> types.put(node(k), (int)Math.min(v, Integer.MAX_VALUE))) ;
+        return new StatsResults(predicates, types, getCount()) ;
+    }
+    
+    private void forEachPredicate(java.util.function.BiConsumer<Node, long[]> action) {
+        Map<Long, long[]> x = new HashMap<>() ;
+        for ( StatsCounts counts : Arrays.asList(triples, quads) ) {
+            counts.predicates.forEach((p, v) -> {
+                long[] z = x.computeIfAbsent(p, k->new long[3]) ;
+                for ( int i = 0 ; i < z.length ; i++ )
+                    z[i] += v[i] ;
+            }) ;
+        }
+        x.forEach((p, v) -> action.accept(node(p), v)) ;
+    }
+
+    private void resolve(NodeTable txnNodeTable, long id) {
+        if ( ! nodes.containsKey(id) ) {
+            Node n = txnNodeTable.getNodeForNodeId(NodeId.create(id)) ;
+            nodes.put(id, n) ;
+            nodeIds.put(n, NodeId.create(id)) ;
+        }
+    }
+    
+    private Node node(long id) {
+        Node n = nodes.get(id) ;
+        if ( n == null )
+            n = nodeTable.getNodeForNodeId(NodeId.create(id)) ;
+        return n ;
+    }
+    
+    private static Item weight(double w) {
+        return Item.createNode(NodeFactoryExtra.doubleToNode(w)) ;
+    }
+    
+    private static void addPattern(ItemList statsList, String s, Node p, String o, double w) {
+        ItemList triple = new ItemList() ;
+        triple.add(s) ;
+        triple.add(p) ;
+        triple.add(o) ;
+        addPair(statsList, Item.createList(triple), weight(w)) ;
+    }
+    
+    private Item format() {
+        Item stats = Item.createList() ;
+        ItemList statsList = stats.getList() ;
+        statsList.add(StatsMatcher.STATS) ;
+        Item meta = createTagged(StatsMatcher.META) ;
+        addPair(meta.getList(), StatsMatcher.COUNT, NodeFactoryExtra.intToNode((int)Math.min(getCount(), Integer.MAX_VALUE))) ;
+        statsList.add(meta) ;
+        
+        // Specific types first : the first match is used.
+        Map<Long, Long> types = new HashMap<>(triples.types) ;
+        quads.types.forEach((k, v) -> types.merge(k, v, Long::sum)) ;
+        types.forEach((type, n) -> {
+            ItemList triple = new ItemList() ;
+            triple.add("VAR") ;
+            triple.add(NodeConst.nodeRDFType) ;
+            triple.add(node(type)) ;
+            addPair(statsList, Item.createList(triple), weight(n)) ;
+        }) ;
+        
+        forEachPredicate((p, v) -> {
+            double n = v[StatsCounts.TRIPLES] ;
+            if ( n <= 0 )
+                return ;
+            addPattern(statsList, "TERM", p, "ANY", n/Math.max(1, v[StatsCounts.SUBJECTS])) ;
+            addPattern(statsList, "ANY", p, "TERM", n/Math.max(1, v[StatsCounts.OBJECTS])) ;
+            addPattern(statsList, "ANY", p, "ANY", n) ;
+        }) ;
+        // A predicate not in the statistics does not occur in the data.
+        addPair(statsList, StatsMatcher.OTHER, Stats.ZERO) ;
+        return stats ;
+    }
+
+    // ---- Scan
+    
+    private static StatsCounts scan(TupleTable table, NodeId rdfType) {
+        StatsCounts counts = new StatsCounts() ;
+        int len = table.getTupleLen() ;
+        // Subject key is S (triples) or G,S (quads)
+        int x = len-3 ;
+        Iterator<Tuple<NodeId>> iter = table.getIndex(0).all() ;
+        // Primary index order: G S P O or S P O
+        Tuple<NodeId> current = null ;
+        Map<Long, Long> predicates = new HashMap<>() ;
+        while ( iter.hasNext() ) {
+            Tuple<NodeId> t = iter.next() ;
+            if ( current != null && !sameSubject(current, t, x) ) {
+                endSubject(counts, predicates) ;
+                predicates.clear() ;
+            }
+            current = t ;
+            NodeId p = t.get(x+1) ;
+            counts.count++ ;
+            predicates.merge(p.getId(), 1L, Long::sum) ;
+            NodeId o = t.get(x+2) ;
+            if ( p.equals(rdfType) )
+                counts.addType(o.getId(), 1) ;
+            if ( ValueHistogram.isHistogramType(o) )
+                counts.addValue(p.getId(), o, 1) ;
+        }
+        if ( current != null )
+            endSubject(counts, predicates) ;
+        scanObjects(table, counts, x) ;
+        return counts ;
+    }
+    
+    private static boolean sameSubject(Tuple<NodeId> t1, Tuple<NodeId> t2, int x) {
+        for ( int i = 0 ; i <= x ; i++ ) {
+            if ( ! t1.get(i).equals(t2.get(i)) )
+                return false ;
+        }
+        return true ;
+    }
+    
+    private static void endSubject(StatsCounts counts, Map<Long, Long> predicates) {
+        CharacteristicSet cs = StatsRecorder.characteristicSet(predicates) ;
+        counts.addSubjects(cs, 1) ;
+        predicates.forEach((p, n) -> {
+            counts.addPredicate(p, StatsCounts.TRIPLES, n) ;
+            counts.addPredicate(p, StatsCounts.SUBJECTS, 1) ;
+            counts.addOccurrences(cs, p, n) ;
+        }) ;
+    }
+    
+    // Distinct (G) P O, using the POS or GPOS index if there is one.
+    private static void scanObjects(TupleTable table, StatsCounts counts, int x) {
+        String name = ( x == 0 ) ? "POS" : "GPOS" ;
+        TupleIndex index = null ;
+        for ( TupleIndex idx : table.getIndexes() ) {
+            if ( idx != null && idx.getName().equals(name) )
+                index = idx ;
+        }
+        if ( index == null ) {
+            Set<List<Long>> seen = new HashSet<>() ;
+            table.getIndex(0).all().forEachRemaining(t -> {
+                List<Long> key = ( x == 0 ) ? Arrays.asList(t.get(1).getId(), t.get(2).getId())
+                                            : Arrays.asList(t.get(0).getId(), t.get(2).getId(), t.get(3).getId()) ;
+                if ( seen.add(key) )
+                    counts.addPredicate(t.get(x+1).getId(), StatsCounts.OBJECTS, 1) ;
+            }) ;
+            return ;
+        }
+        // In index order, tuples with the same (G) P O are adjacent.
+        Iterator<Tuple<NodeId>> iter = index.all() ;
+        Tuple<NodeId> last = null ;
+        while ( iter.hasNext() ) {
+            Tuple<NodeId> t = iter.next() ;
+            if ( last == null || !samePO(last, t, x) )
+                counts.addPredicate(t.get(x+1).getId(), StatsCounts.OBJECTS, 1) ;
+            last = t ;
+        }
+    }
+    
+    private static boolean samePO(Tuple<NodeId> t1, Tuple<NodeId> t2, int x) {
+        return t1.get(x+1).equals(t2.get(x+1)) && t1.get(x+2).equals(t2.get(x+2)) 
+            && ( x == 0 || t1.get(0).equals(t2.get(0)) ) ;
+    }
+    
+    // ---- Persistence
+    // The file is valid for the state of the database when it was written.
+    // It is removed when read so that it is not used after a crash. 
+
+    /** Write the statistics to a file, recording the node table allocation point as a check. */
+    public synchronized void write(String filename) {
+        try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(filename)))) {
+            out.writeInt(FileVersion) ;
+            out.writeLong(nodeTable.allocOffset().getId()) ;
+            triples.write(out) ;
+            quads.write(out) ;
+        } catch (IOException ex) {
+            Log.warn(StatsLive.class, "Problem when writing statistics file", ex) ;
+            new File(filename).delete() ;
+        }
+    }
+    
+    /** Read statistics from a file, and delete the file.
+     *  Return null if there is no file or it does not match the node table. 
+     */
+    public static StatsLive read(String filename, NodeTable nodeTable) {
+        File f = new File(filename) ;
+        if ( ! f.exists() )
+            return null ;
+        try(DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(f)))) {
+            if ( in.readInt() != FileVersion )
+                return null ;
+            if ( in.readLong() != nodeTable.allocOffset().getId() )
+                // Data has changed since the file was written.
+                return null ;
+            StatsLive stats = new StatsLive(nodeTable) ;
+            stats.triples = StatsCounts.read(in) ;
+            stats.quads = StatsCounts.read(in) ;
+            return stats ;
+        } catch (IOException ex) {
+            Log.warn(StatsLive.class, "Problem when reading statistics file", ex) ;
+            return null ;
+        } finally {
+            f.delete() ;
+        }
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.jena.tdb.solver.stats;
+
+import java.util.HashMap ;
+import java.util.Iterator ;
+import java.util.Map ;
+
+import org.apache.jena.atlas.lib.tuple.Tuple ;
+import org.apache.jena.atlas.lib.tuple.TupleFactory ;
+import org.apache.jena.sparql.graph.NodeConst ;
+import org.apache.jena.tdb.store.NodeId ;
+import org.apache.jena.tdb.store.nodetable.NodeTable ;
+import org.apache.jena.tdb.store.tupletable.TupleTable ;
+import org.apache.jena.tdb.store.tupletable.TupleTableListener ;
+
+/** Record the changes to the statistics made by one write transaction.
+ *  The changes are applied to the {@link StatsLive} when the transaction commits.
+ *  <p>
+ *  Each change to a tuple table looks at the index to find the other tuples
+ *  for the same subject and for the same predicate-object, to maintain
+ *  the distinct counts and characteristic sets. 
+ */
+public class StatsRecorder implements TupleTableListener
+{
+    /** Subjects with more tuples than this are not rescanned on each change;
+     *  their characteristic set counts are not updated. */  
+    public static int MaxSubjectScan = 10000 ;
+    
+    /*package*/ final NodeTable nodeTable ;
+    private NodeId rdfType = null ;
+    /*package*/ final StatsCounts triples = new StatsCounts() ;
+    /*package*/ final StatsCounts quads = new StatsCounts() ;
+    /*package*/ boolean triplesCleared = false ;
+    /*package*/ boolean quadsCleared = false ;
+    
+    /*package*/ StatsRecorder(NodeTable nodeTable) {
+        this.nodeTable = nodeTable ;
+    }
+    
+    /** Whether there are any changes. */ 
+    public boolean isEmpty() {
+        return triples.isEmpty() && quads.isEmpty() && !triplesCleared && !quadsCleared ;
+    }
+    
+    @Override
+    public void added(TupleTable table, Tuple<NodeId> tuple) {
+        change(table, tuple, 1) ;
+    }
+
+    @Override
+    public void deleted(TupleTable table, Tuple<NodeId> tuple) {
+        change(table, tuple, -1) ;
+    }
+
+    @Override
+    public void cleared(TupleTable table) {
+        if ( table.getTupleLen() == 3 ) {
+            triplesCleared = true ;
+            clear(triples) ;
+        } else {
+            quadsCleared = true ;
+            clear(quads) ;
+        }
+    }
+    
+    private static void clear(StatsCounts counts) {
+        counts.count = 0 ;
+        counts.predicates.clear() ;
+        counts.types.clear() ;
+        counts.charSets.clear() ;
+        counts.histograms.clear() ;
+    }
+
+    private void change(TupleTable table, Tuple<NodeId> tuple, int delta) {
+        int len = tuple.len() ;
+        StatsCounts counts = ( len == 3 ) ? triples : quads ;
+        // Triples: S P O ; quads: G S P O
+        int x = len-3 ;
+        NodeId g = ( len == 4 ) ? tuple.get(0) : null ;
+        NodeId s = tuple.get(x) ;
+        NodeId p = tuple.get(x+1) ;
+        NodeId o = tuple.get(x+2) ;
+        long pid = p.getId() ;
+        
+        counts.count += delta ;
+        counts.addPredicate(pid, StatsCounts.TRIPLES, delta) ;
+        if ( p.equals(rdfType()) )
+            counts.addType(o.getId(), delta) ;
+        if ( ValueHistogram.isHistogramType(o) )
+            counts.addValue(pid, o, delta) ;
+        
+        // Distinct objects: is this the first, or last, use of P O? 
+        long poCount = count(table.find(pattern(len, g, NodeId.NodeIdAny, p, o)), 2) ;
+        if ( (delta > 0 && poCount == 1) || (delta < 0 && poCount == 0) )
+            counts.addPredicate(pid, StatsCounts.OBJECTS, delta) ;
+
+        // Predicates of the subject, after the change.
+        Map<Long, Long> after = subjectPredicates(table, pattern(len, g, s, NodeId.NodeIdAny, NodeId.NodeIdAny), x+1) ;
+        long spCount = ( after != null ) 
+            ? after.getOrDefault(pid, 0L)
+            : count(table.find(pattern(len, g, s, p, NodeId.NodeIdAny)), 2) ;
+        boolean changedSubjectPredicates = (delta > 0 && spCount == 1) || (delta < 0 && spCount == 0) ;
+        if ( changedSubjectPredicates )
+            counts.addPredicate(pid, StatsCounts.SUBJECTS, delta) ;
+        if ( after == null )
+            // Too big.
+            return ;
+        if ( ! changedSubjectPredicates ) {
+            // Same characteristic set.
+            counts.addOccurrences(characteristicSet(after), pid, delta) ;
+            return ;
+        }
+        // The subject moves from one characteristic set to another.
+        Map<Long, Long> before = new HashMap<>(after) ;
+        long n = before.getOrDefault(pid, 0L) - delta ;
+        if ( n == 0 )
+            before.remove(pid) ;
+        else
+            before.put(pid, n) ;
+        moveSubject(counts, before, -1) ;
+        moveSubject(counts, after, 1) ;
+    }
+    
+    private static void moveSubject(StatsCounts counts, Map<Long, Long> predicates, int delta) {
+        if ( predicates.isEmpty() )
+            return ;
+        CharacteristicSet cs = characteristicSet(predicates) ;
+        counts.addSubjects(cs, delta) ;
+        predicates.forEach((p, n) -> counts.addOccurrences(cs, p, delta*n)) ;
+    }
+    
+    /*package*/ static CharacteristicSet characteristicSet(Map<Long, Long> predicates) {
+        long[] x = new long[predicates.size()] ;
+        int i = 0 ;
+        for ( Long p : predicates.keySet() )
+            x[i++] = p ;
+        return CharacteristicSet.create(x) ;
+    }
+
+    // Count of tuples for each predicate, or null if there are too many tuples.
+    private static Map<Long, Long> subjectPredicates(TupleTable table, Tuple<NodeId> pattern, int predicateIdx) {
+        Map<Long, Long> predicates = new HashMap<>() ;
+        Iterator<Tuple<NodeId>> iter = table.find(pattern) ;
+        long n = 0 ;
+        while ( iter.hasNext() ) {
+            if ( ++n > MaxSubjectScan )
+                return null ;
+            predicates.merge(iter.next().get(predicateIdx).getId(), 1L, Long::sum) ;
+        }
+        return predicates ;
+    }
+    
+    private static long count(Iterator<?> iter, int limit) {
+        long n = 0 ;
+        while ( n < limit && iter.hasNext() ) {
+            iter.next() ;
+            n++ ;
+        }
+        return n ;
+    }
+    
+    private static Tuple<NodeId> pattern(int len, NodeId g, NodeId s, NodeId p, NodeId o) {
+        return ( len == 3 ) ? TupleFactory.tuple(s, p, o) : TupleFactory.tuple(g, s, p, o) ;
+    }
+
+    private NodeId rdfType() {
+        // May be allocated during the transaction.
+        if ( rdfType == null || NodeId.isDoesNotExist(rdfType) )
+            rdfType = nodeTable.getNodeIdForNode(NodeConst.nodeRDFType) ;
+        return rdfType ;
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.jena.tdb.solver.stats;
+
+import java.io.DataInputStream ;
+import java.io.DataOutputStream ;
+import java.io.IOException ;
+import java.util.Map ;
+import java.util.TreeMap ;
+
+import org.apache.jena.tdb.store.DateTimeNode ;
+import org.apache.jena.tdb.store.IntegerNode ;
+import org.apache.jena.tdb.store.NodeId ;
+
+/** A histogram of the values of inline NodeIds of one type, for one predicate.
+ *  <p>
+ *  Values are mapped to a long key that sorts in value order: the integer for 
+ *  {@code xsd:integer}, and the local date and time bits for {@code xsd:date} and {@code xsd:dateTime}.
+ *  Buckets are log-linear: keys below 2<sup>M</sup> have a bucket each, above that each power
+ *  of two range is split into 2<sup>M</sup> buckets. So the histogram needs no bucket boundaries
+ *  to be chosen in advance and can be updated as values are added and removed.   
+ *  Not thread safe.
+ */
+class ValueHistogram
+{
+    private final int M ;
+    // Bucket number to count.
+    private final TreeMap<Long, Long> buckets = new TreeMap<>() ;
+    
+    ValueHistogram(int M) {
+        this.M = M ;
+    }
+    
+    /** Whether NodeIds of this type are recorded in histograms. */ 
+    static boolean isHistogramType(NodeId id) {
+        int type = id.type() ;
+        return type == NodeId.INTEGER || type == NodeId.DATE || type == NodeId.DATETIME ;
+    }
+    
+    /** A new histogram for values of the type of the NodeId. */ 
+    static ValueHistogram create(int type) {
+        // Dates and times have the year in the high bits of the key and few different powers of two.
+        return new ValueHistogram(type == NodeId.INTEGER ? 6 : 12) ;
+    }
+    
+    /** The key for the value of an inline NodeId. */ 
+    static long key(NodeId id) {
+        if ( id.type() == NodeId.INTEGER )
+            return IntegerNode.unpack(id.getId()) ;
+        return DateTimeNode.localBits(id.getId()) ;
+    }
+
+    void add(long key, long delta) {
+        long b = bucket(key) ;
+        if ( buckets.merge(b, delta, Long::sum) == 0 )
+            buckets.remove(b) ;
+    }
+
+    boolean isEmpty() {
+        return buckets.isEmpty() ;
+    }
+    
+    /** Add in another histogram (of the same kind), which may have negative counts. */
+    void merge(ValueHistogram other) {
+        other.buckets.forEach((b, n) -> {
+            if ( buckets.merge(b, n, Long::sum) <= 0 )
+                buckets.remove(b) ;
+        }) ;
+    }
+    
+    /** Number of values. */ 
+    long total() {
+        long x = 0 ;
+        for ( long n : buckets.values() )
+            x += n ;
+        return x ;
+    }
+    
+    /** Estimated number of values with key between low and high, inclusive.
+     *  Values are assumed to be spread evenly within a bucket. */
+    double estimate(long low, long high) {
+        if ( low > high )
+            return 0 ;
+        double x = 0 ;
+        for ( Map.Entry<Long, Long> e : buckets.subMap(bucket(low), true, bucket(high), true).entrySet() ) {
+            long b = e.getKey() ;
+            long bLow = bucketLow(b) ;
+            long bHigh = bucketHigh(b) ;
+            double width = (double)bHigh - bLow + 1 ;
+            double overlap = (double)Math.min(high, bHigh) - Math.max(low, bLow) + 1 ;
+            x += e.getValue() * Math.min(1.0, overlap / width) ;
+        }
+        return x ;
+    }
+
+    // Bucket numbers increase with the key. Negative keys mirror positive ones.  
+    /*package*/ long bucket(long key) {
+        if ( key < 0 )
+            return -bucketPositive(-(key+1)) - 1 ;
+        return bucketPositive(key) ;
+    }
+    
+    private long bucketPositive(long key) {
+        if ( key < (1L<<M) )
+            return key ;
+        int e = 63 - Long.numberOfLeadingZeros(key) ;
+        long mantissa = (key >>> (e-M)) - (1L<<M) ;
+        return ((long)(e-M+1) << M) + mantissa ;
+    }
+    
+    /*package*/ long bucketLow(long b) {
+        if ( b < 0 )
+            return -bucketHighPositive(-b-1) - 1 ;
+        return bucketLowPositive(b) ;
+    }
+    
+    /*package*/ long bucketHigh(long b) {
+        if ( b < 0 )
+            return -bucketLowPositive(-b-1) - 1 ;
+        return bucketHighPositive(b) ;
+    }
+    
+    private long bucketLowPositive(long b) {
+        if ( b < (1L<<M) )
+            return b ;
+        long k = b >>> M ;
+        long mantissa = b & ((1L<<M)-1) ;
+        int shift = (int)(k-1) ;
+        return ((1L<<M) + mantissa) << shift ;
+    }
+    
+    private long bucketHighPositive(long b) {
+        if ( b < (1L<<M) )
+            return b ;
+        int shift = (int)((b >>> M) - 1) ;
+        return bucketLowPositive(b) + (1L<<shift) - 1 ;
+    }
+    
+    void write(DataOutputStream out) throws IOException {
+        out.writeInt(M) ;
+        out.writeInt(buckets.size()) ;
+        for ( Map.Entry<Long, Long> e : buckets.entrySet() ) {
+            out.writeLong(e.getKey()) ;
+            out.writeLong(e.getValue()) ;
+        }
+    }
+    
+    static ValueHistogram read(DataInputStream in) throws IOException {
+        ValueHistogram h = new ValueHistogram(in.readInt()) ;
+        int n = in.readInt() ;
+        for ( int i = 0 ; i < n ; i++ )
+            h.buckets.put(in.readLong(), in.readLong()) ;
+        return h ;
+    }
+}
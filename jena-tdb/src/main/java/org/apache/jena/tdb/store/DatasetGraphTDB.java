@@ -58,7 +58,7 @@ public class DatasetGraphTDB extends DatasetGraphTriplesQuads
     private TripleTable tripleTable ;
     private QuadTable quadTable ;
     private DatasetPrefixesTDB prefixes ;
-    private final ReorderTransformation transform ;
+    private volatile ReorderTransformation transform ;
     private final StorageConfig config ;
     
     private boolean closed = false ;
@@ -109,6 +109,8 @@ public class DatasetGraphTDB extends DatasetGraphTriplesQuads
     public GraphNonTxnTDB getGraphTDB(Node graphNode)
     { return (GraphNonTxnTDB)getGraph(graphNode) ; }
 
+    public boolean isClosed() { return closed ; }
+
     @Override
     public void close() {
         if ( closed )
@@ -164,6 +166,9 @@ public class DatasetGraphTDB extends DatasetGraphTriplesQuads
     
     public ReorderTransformation getReorderTransform()      { return transform ; }
     
+    /** Change the reorder transformation used for basic graph patterns on this dataset. */
+    public void setReorderTransform(ReorderTransformation transform) { this.transform = transform ; }
+    
     public DatasetPrefixesTDB getPrefixes()                 { return prefixes ; }
     
     @Override
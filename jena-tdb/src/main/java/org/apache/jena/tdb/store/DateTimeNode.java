@@ -111,6 +111,30 @@ public class DateTimeNode
         return v ;
     }
 
+    /** The date and time bits of a packed date or dateTime, without the timezone and type.
+     *  These sort in the order of the local date and time. */
+    public static long localBits(long v)
+    {
+        return BitsLong.clear(v, TZ, Long.SIZE) ;
+    }
+    
+    /** Pack a local date and time, without timezone and type: the form of {@link #localBits}.
+     *  Return -1 if the year is out of range. */
+    public static long packLocal(int year, int month, int day, int hour, int minute, int millisec)
+    {
+        if ( year < 0 || year >= (1<<YEAR_LEN) )
+            return -1 ;
+        long v = date(0, year, month, day) ;
+        return time(v, hour, minute, millisec) ;
+    }
+    
+    /** The type and timezone bits for a packed value of the given type with timezone code {@code tz} 
+     * (0 to 127, see {@link #localBits}). */
+    public static long typeAndTimezone(int type, int tz)
+    {
+        return NodeId.setType(tz(0, tz), type) ;
+    }
+
     // From string.  Assumed legal.  Retains all info this way.
     // returns -1 for unpackable. 
     public static long packDate(String lex)
@@ -174,18 +198,83 @@ public class DateTimeNode
         return tz(v, tz) ;
     }
 
+    // From string.  Assumed legal.
+    // Returns -1 for unpackable.
+    // The time is packed in the usual place, with a zero date.
+    public static long packTime(String lex)
+    {
+        try {
+            lex = lex.trim() ;
+            XMLGregorianCalendar xcal = datatypeFactory.newXMLGregorianCalendar(lex) ;
+            if ( ! DatatypeConstants.TIME.equals(xcal.getXMLSchemaType()) )
+                return -1 ;
+            if ( xcal.getFractionalSecond() != null )
+            {
+                BigDecimal fs = xcal.getFractionalSecond() ;
+                if ( fs.doubleValue() != xcal.getMillisecond()/1000.0 )
+                    return -1 ;
+            }
+            long v = time(0, xcal.getHour(), xcal.getMinute(), xcal.getSecond()*1000+Math.max(0, xcal.getMillisecond())) ;
+            return tz(v, xcal, lex) ;
+        } catch (Exception ex) { return -1 ; }
+    }
+
+    // From string.  Assumed legal.
+    // Returns -1 for unpackable.
+    // The year is packed in the usual place, with zero month and day.
+    public static long packGYear(String lex)
+    {
+        try {
+            lex = lex.trim() ;
+            XMLGregorianCalendar xcal = datatypeFactory.newXMLGregorianCalendar(lex) ;
+            if ( ! DatatypeConstants.GYEAR.equals(xcal.getXMLSchemaType()) )
+                return -1 ;
+            int y = xcal.getYear() ;
+            if ( y < 0 || y >= 8000 )
+                return -1 ;
+            long v = date(0, y, 0, 0) ;
+            return tz(v, xcal, lex) ;
+        } catch (Exception ex) { return -1 ; }
+    }
+
+    private static long tz(long v, XMLGregorianCalendar xcal, String lex)
+    {
+        if ( lex.indexOf('Z') > 0 )
+            return tz(v, TZ_Z) ;
+        int tz = xcal.getTimezone() ;
+        if ( tz == DatatypeConstants.FIELD_UNDEFINED )
+            return tz(v, TZ_NONE) ;
+        if ( tz%15 != 0 )
+            return -1 ;
+        return tz(v, tz/15) ;
+    }
+
     public static String unpackDateTime(long v)
     {
-        return unpack(v, true) ;
+        return unpack(v, true, true) ;
     }
 
     public static String unpackDate(long v)
     {
-        return unpack(v, false) ;
+        return unpack(v, true, false) ;
+    }
+
+    public static String unpackTime(long v)
+    {
+        return unpack(v, false, true) ;
+    }
+
+    public static String unpackGYear(long v)
+    {
+        int years = (int)BitsLong.unpack(v, YEAR, YEAR+YEAR_LEN) ;
+        StringBuilder sb = new StringBuilder(20) ;
+        NumberUtils.formatInt(sb, years, 4) ;
+        unpackTZ(sb, v) ;
+        return sb.toString() ;
     }
 
     // Avoid calls to String.format
-    private static String unpack(long v, boolean isDateTime)
+    private static String unpack(long v, boolean withDate, boolean withTime)
     {
         // YYYY:MM:DD => 13 bits year, 4 bits month, 5 bits day => 22 bits
         int years = (int)BitsLong.unpack(v, YEAR, YEAR+YEAR_LEN) ;
@@ -197,20 +286,22 @@ public class DateTimeNode
         int minutes = (int)BitsLong.unpack(v, MINUTES, MINUTES+MINUTES_LEN) ; 
         int milliSeconds = (int)BitsLong.unpack(v, MILLI, MILLI+MILLI_LEN) ;
         
-        int tz = (int)BitsLong.unpack(v, TZ, TZ+TZ_LEN);
-        
         int sec = milliSeconds / 1000 ;
         int fractionSec = milliSeconds % 1000 ;
         
         StringBuilder sb = new StringBuilder(50) ;
-        NumberUtils.formatInt(sb, years, 4) ;
-        sb.append('-') ;
-        NumberUtils.formatInt(sb, months, 2) ;
-        sb.append('-') ;
-        NumberUtils.formatInt(sb, days, 2) ;
-        if ( isDateTime )
+        if ( withDate )
         {
-            sb.append('T') ;
+            NumberUtils.formatInt(sb, years, 4) ;
+            sb.append('-') ;
+            NumberUtils.formatInt(sb, months, 2) ;
+            sb.append('-') ;
+            NumberUtils.formatInt(sb, days, 2) ;
+        }
+        if ( withTime )
+        {
+            if ( withDate )
+                sb.append('T') ;
             NumberUtils.formatInt(sb, hours, 2) ;
             sb.append(':') ;
             NumberUtils.formatInt(sb, minutes, 2) ;
@@ -231,16 +322,23 @@ public class DateTimeNode
                 
             }
         }
+        unpackTZ(sb, v) ;
+        return sb.toString() ;
+    }
+
+    private static void unpackTZ(StringBuilder sb, long v)
+    {
+        int tz = (int)BitsLong.unpack(v, TZ, TZ+TZ_LEN);
         // tz in 15min units
         // Special values.
         if ( tz == TZ_Z )
         {
             sb.append("Z") ;
-            return sb.toString();
+            return ;
         }
         
         if ( tz == TZ_NONE )
-            return sb.toString() ; 
+            return ; 
             
         // Sign extend.
         if ( BitsLong.isSet(v, TZ+TZ_LEN-1) )
@@ -259,6 +357,5 @@ public class DateTimeNode
         NumberUtils.formatUnsignedInt(sb, tzH, 2) ;
         sb.append(':') ;
         NumberUtils.formatUnsignedInt(sb, tzM, 2) ;
-        return sb.toString();
     }
 }
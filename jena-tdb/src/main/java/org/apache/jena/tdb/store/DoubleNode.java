@@ -0,0 +1,83 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.jena.tdb.store;
+
+import org.apache.jena.atlas.lib.BitsLong ;
+
+/** Inline xsd:double and xsd:float.
+ * A double is inlined if the low 8 bits of the IEEE 754 bits are zero, when
+ * the other 56 bits are the value. A float is the 32 IEEE 754 bits.
+ * <p>
+ * Only values where the lexical form is the one given by {@link #lexDouble}
+ * or {@link #lexFloat} are inlined so the lexical form is not changed. 
+ */
+public class DoubleNode
+{
+    public static int LEN = 56 ;
+    public static int LBITS = Long.SIZE ;
+
+    /** Pack a double, with lexical form {@code lex}. Returns -1 for "does not fit". */
+    public static long packDouble(double d, String lex)
+    {
+        if ( ! lexDouble(d).equals(lex) )
+            return -1 ;
+        long bits = Double.doubleToRawLongBits(d) ;
+        if ( (bits & 0xFF) != 0 )
+            return -1 ;
+        long v = bits >>> 8 ;
+        return NodeId.setType(v, NodeId.DOUBLE) ;
+    }
+
+    public static double unpackDouble(long v)
+    {
+        long bits = BitsLong.clear(v, LEN, LBITS) << 8 ;
+        return Double.longBitsToDouble(bits) ;
+    }
+
+    /** Pack a float, with lexical form {@code lex}. Returns -1 for "does not fit". */
+    public static long packFloat(float f, String lex)
+    {
+        if ( ! lexFloat(f).equals(lex) )
+            return -1 ;
+        long v = Float.floatToRawIntBits(f) & 0xFFFFFFFFL ;
+        return NodeId.setType(v, NodeId.FLOAT) ;
+    }
+
+    public static float unpackFloat(long v)
+    {
+        return Float.intBitsToFloat((int)BitsLong.clear(v, 32, LBITS)) ;
+    }
+
+    /** Lexical form for a double : the Java form except for INF and -INF */ 
+    public static String lexDouble(double d)
+    {
+        if ( Double.isInfinite(d) )
+            return d > 0 ? "INF" : "-INF" ;
+        return Double.toString(d) ;
+    }
+
+    /** Lexical form for a float : the Java form except for INF and -INF */ 
+    public static String lexFloat(float f)
+    {
+        if ( Float.isInfinite(f) )
+            return f > 0 ? "INF" : "-INF" ;
+        return Float.toString(f) ;
+    }
+}
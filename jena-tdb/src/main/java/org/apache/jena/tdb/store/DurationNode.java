@@ -0,0 +1,136 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.jena.tdb.store;
+
+import java.math.BigDecimal ;
+
+import javax.xml.datatype.DatatypeConstants ;
+import javax.xml.datatype.Duration ;
+
+import org.apache.jena.atlas.lib.BitsLong ;
+
+/** Inline xsd:duration.
+ * <p>
+ * Layout: bit 55 is the sign, bits 40-54 (15 bits) are the months, bits 0-39 (40 bits)
+ * are the rest of the duration in milliseconds.
+ * <p>
+ * Only durations where the lexical form is the canonical form, as
+ * written by {@link #unpack}, are inlined so the lexical form is not changed.
+ */
+public class DurationNode
+{
+    static final int MILLIS = 0 ;
+    static final int MILLIS_LEN = 40 ;
+    static final int MONTHS = MILLIS_LEN ;
+    static final int MONTHS_LEN = 15 ;
+    static final int SIGN = MONTHS+MONTHS_LEN ;
+
+    /** Pack a duration. Returns -1 for "does not fit". */
+    public static long pack(String lex)
+    {
+        try { return pack$(lex) ; }
+        catch (Exception ex) { return -1 ; }
+    }
+
+    private static long pack$(String lex)
+    {
+        Duration dur = DateTimeNode.datatypeFactory.newDuration(lex) ;
+        long months = field(dur, DatatypeConstants.YEARS)*12 + field(dur, DatatypeConstants.MONTHS) ;
+        long minutes = (field(dur, DatatypeConstants.DAYS)*24 + field(dur, DatatypeConstants.HOURS))*60
+                       + field(dur, DatatypeConstants.MINUTES) ;
+        BigDecimal sec = (BigDecimal)dur.getField(DatatypeConstants.SECONDS) ;
+        if ( sec == null )
+            sec = BigDecimal.ZERO ;
+        BigDecimal ms = sec.movePointRight(3) ;
+        if ( ms.signum() != 0 && ms.stripTrailingZeros().scale() > 0 )
+            return -1 ;
+        long millis = minutes*60*1000 + ms.longValueExact() ;
+        if ( months >= (1L<<MONTHS_LEN) || millis >= (1L<<MILLIS_LEN) )
+            return -1 ;
+        long v = 0 ;
+        v = BitsLong.pack(v, millis, MILLIS, MILLIS+MILLIS_LEN) ;
+        v = BitsLong.pack(v, months, MONTHS, MONTHS+MONTHS_LEN) ;
+        if ( dur.getSign() < 0 )
+            v = BitsLong.set(v, SIGN) ;
+        if ( ! unpack(v).equals(lex) )
+            return -1 ;
+        return NodeId.setType(v, NodeId.DURATION) ;
+    }
+
+    private static long field(Duration dur, DatatypeConstants.Field field)
+    {
+        Number n = dur.getField(field) ;
+        return n == null ? 0 : n.longValue() ;
+    }
+
+    /** The canonical lexical form of the duration. */
+    public static String unpack(long v)
+    {
+        long months = BitsLong.unpack(v, MONTHS, MONTHS+MONTHS_LEN) ;
+        long millis = BitsLong.unpack(v, MILLIS, MILLIS+MILLIS_LEN) ;
+        boolean negative = BitsLong.isSet(v, SIGN) ;
+
+        StringBuilder sb = new StringBuilder(30) ;
+        if ( negative )
+            sb.append('-') ;
+        sb.append('P') ;
+        long years = months/12 ;
+        months = months%12 ;
+        if ( years != 0 )
+            sb.append(years).append('Y') ;
+        if ( months != 0 )
+            sb.append(months).append('M') ;
+        long secs = millis/1000 ;
+        long fraction = millis%1000 ;
+        long days = secs/(24*60*60) ;
+        secs = secs%(24*60*60) ;
+        long hours = secs/(60*60) ;
+        secs = secs%(60*60) ;
+        long minutes = secs/60 ;
+        secs = secs%60 ;
+        if ( days != 0 )
+            sb.append(days).append('D') ;
+        if ( hours != 0 || minutes != 0 || secs != 0 || fraction != 0 )
+        {
+            sb.append('T') ;
+            if ( hours != 0 )
+                sb.append(hours).append('H') ;
+            if ( minutes != 0 )
+                sb.append(minutes).append('M') ;
+            if ( secs != 0 || fraction != 0 )
+            {
+                sb.append(secs) ;
+                if ( fraction != 0 )
+                {
+                    String x = Long.toString(1000+fraction).substring(1) ;
+                    // Remove trailing zeros.
+                    int len = x.length() ;
+                    while ( x.charAt(len-1) == '0' )
+                        len-- ;
+                    sb.append('.').append(x, 0, len) ;
+                }
+                sb.append('S') ;
+            }
+        }
+        else if ( years == 0 && months == 0 && days == 0 )
+            sb.append("T0S") ;
+        return sb.toString() ;
+    }
+}
@@ -38,6 +38,8 @@ import org.apache.jena.sparql.core.DatasetPrefixStorage ;
 import org.apache.jena.sparql.core.GraphView ;
 import org.apache.jena.sparql.core.Quad ;
 import org.apache.jena.tdb.TDBException ;
+import org.apache.jena.tdb.lib.TupleLib ;
+import org.apache.jena.tdb.store.nodetable.NodeTable ;
 import org.apache.jena.tdb.store.nodetupletable.NodeTupleTable ;
 import org.apache.jena.util.iterator.ExtendedIterator ;
 import org.apache.jena.util.iterator.WrappedIterator ;
@@ -101,6 +103,10 @@ public abstract class GraphTDB extends GraphView implements Closeable, Sync {
 
     @Override
     protected ExtendedIterator<Triple> graphUnionFind(Node s, Node p, Node o) {
+        NodeTupleTable ntt = getDatasetGraphTDB().getQuadTable().getNodeTupleTable() ;
+        Iterator<Tuple<NodeId>> iterIds = unionTriples(ntt, s, p, o) ;
+        if ( iterIds != null )
+            return WrappedIterator.createNoRemove(TupleLib.convertToTriples(ntt.getNodeTable(), iterIds)) ;
         Iterator<Quad> iterQuads = getDatasetGraphTDB().find(Quad.unionGraph, s, p, o) ;
         Iterator<Triple> iter = GLib.quads2triples(iterQuads) ;
         // Suppress duplicates after projecting to triples.
@@ -119,6 +125,11 @@ public abstract class GraphTDB extends GraphView implements Closeable, Sync {
         boolean unionGraph = isUnionGraph(gn) ;
         gn = unionGraph ? Node.ANY : gn ;
         QuadTable quadTable = getDatasetGraphTDB().getQuadTable() ;
+        if ( unionGraph ) {
+            Iterator<Tuple<NodeId>> iter = unionTriples(quadTable.getNodeTupleTable(), null, null, null) ;
+            if ( iter != null )
+                return (int)Iter.count(iter) ;
+        }
         Iterator<Tuple<NodeId>> iter = quadTable.getNodeTupleTable().findAsNodeIds(gn, null, null, null) ;
         if ( unionGraph ) {
             iter = Iter.map(iter, project4TupleTo3Tuple) ;
@@ -127,6 +138,31 @@ public abstract class GraphTDB extends GraphView implements Closeable, Sync {
         return (int)Iter.count(iter) ;
     }
 
+    /** The distinct triples of the union graph matching the pattern, as tuples of NodeIds,
+     * skipping over the repeats of a triple in the quad index. Return null if the quad
+     * indexes can not be used that way. */
+    private static Iterator<Tuple<NodeId>> unionTriples(NodeTupleTable ntt, Node s, Node p, Node o) {
+        NodeTable nodeTable = ntt.getNodeTable() ;
+        Node[] nodes = { s, p, o } ;
+        NodeId[] ids = new NodeId[4] ;
+        ids[0] = NodeId.NodeIdAny ;
+        for ( int i = 0 ; i < nodes.length ; i++ ) {
+            Node n = nodes[i] ;
+            if ( n == null || n == Node.ANY ) {
+                ids[i+1] = NodeId.NodeIdAny ;
+                continue ;
+            }
+            NodeId id = nodeTable.getNodeIdForNode(n) ;
+            if ( NodeId.isDoesNotExist(id) )
+                return Iter.nullIterator() ;
+            ids[i+1] = id ;
+        }
+        Iterator<Tuple<NodeId>> iter = ntt.findDistinct(TupleFactory.tuple(ids), 0) ;
+        if ( iter == null )
+            return null ;
+        return Iter.map(iter, project4TupleTo3Tuple) ;
+    }
+
 	private static Function<Tuple<NodeId>, Tuple<NodeId>> project4TupleTo3Tuple = item -> {
 		if (item.len() != 4)
 			throw new TDBException("Expected a Tuple of 4, got: " + item);
@@ -0,0 +1,82 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.jena.tdb.store;
+
+import java.util.HashMap ;
+import java.util.Map ;
+
+import org.apache.jena.graph.Node ;
+import org.apache.jena.graph.NodeFactory ;
+import org.apache.jena.vocabulary.OWL ;
+import org.apache.jena.vocabulary.RDF ;
+import org.apache.jena.vocabulary.RDFS ;
+import org.apache.jena.vocabulary.SKOS ;
+
+/** Inline IRIs from a fixed table of common vocabulary terms.
+ * The value is the index into the table. The table is recorded in databases
+ * so entries can only be added at the end.
+ */
+public class IRINode
+{
+    private static final Node[] iris = {
+        RDF.type.asNode(), RDF.first.asNode(), RDF.rest.asNode(), RDF.nil.asNode(),
+        RDF.value.asNode(), RDF.Property.asNode(), RDF.List.asNode(), RDF.Statement.asNode(),
+        RDF.subject.asNode(), RDF.predicate.asNode(), RDF.object.asNode(),
+        RDFS.label.asNode(), RDFS.comment.asNode(), RDFS.seeAlso.asNode(), RDFS.isDefinedBy.asNode(),
+        RDFS.subClassOf.asNode(), RDFS.subPropertyOf.asNode(), RDFS.domain.asNode(), RDFS.range.asNode(),
+        RDFS.Class.asNode(), RDFS.Resource.asNode(), RDFS.Literal.asNode(), RDFS.Datatype.asNode(),
+        OWL.Thing.asNode(), OWL.Class.asNode(), OWL.sameAs.asNode(), OWL.equivalentClass.asNode(),
+        OWL.equivalentProperty.asNode(), OWL.inverseOf.asNode(), OWL.ObjectProperty.asNode(),
+        OWL.DatatypeProperty.asNode(), OWL.AnnotationProperty.asNode(), OWL.Ontology.asNode(),
+        OWL.imports.asNode(), OWL.versionInfo.asNode(),
+        SKOS.prefLabel.asNode(), SKOS.altLabel.asNode(), SKOS.definition.asNode(), SKOS.broader.asNode(),
+        SKOS.narrower.asNode(), SKOS.related.asNode(), SKOS.Concept.asNode(), SKOS.inScheme.asNode(),
+        NodeFactory.createURI("http://purl.org/dc/terms/title"),
+        NodeFactory.createURI("http://purl.org/dc/terms/description"),
+        NodeFactory.createURI("http://purl.org/dc/terms/created"),
+        NodeFactory.createURI("http://purl.org/dc/terms/modified"),
+        NodeFactory.createURI("http://xmlns.com/foaf/0.1/name"),
+        NodeFactory.createURI("http://schema.org/name")
+    } ;
+
+    private static final Map<Node, Integer> index = new HashMap<>() ;
+    static {
+        for ( int i = 0 ; i < iris.length ; i++ )
+            index.put(iris[i], i) ;
+    }
+
+    /** Pack an IRI. Returns -1 for "not in the table". */
+    public static long pack(Node node)
+    {
+        Integer idx = index.get(node) ;
+        if ( idx == null )
+            return -1 ;
+        return NodeId.setType(idx, NodeId.IRI) ;
+    }
+
+    /** The IRI for a packed value, or null */
+    public static Node unpack(long v)
+    {
+        int idx = (int)(v & 0xFFFFFF) ;
+        if ( idx >= iris.length )
+            return null ;
+        return iris[idx] ;
+    }
+}
@@ -139,6 +139,17 @@ public class NodeId
      *  Date format:
      *  DateTime format:
      *  Boolean format:
+     *  
+     *  Extended types, only used when enabled for a database
+     *  (see {@link org.apache.jena.tdb.setup.StoreParams#getInlineExtended}),
+     *  and only when the lexical form is exactly the one recreated from the value:
+     *  Short string format: up to 7 bytes of UTF-8.
+     *  Double format: the high 56 bits of the IEEE 754 bits.
+     *  Float format: the IEEE 754 bits.
+     *  Time format: as DateTime, with a zero date.
+     *  GYear format: as Date, with zero month and day.
+     *  Duration format: sign, 15 bits of months, 40 bits of milliseconds.
+     *  IRI format: index into a fixed table of common IRIs.
      */
     
     // Type codes.
@@ -151,10 +162,23 @@ public class NodeId
     public static final int DATETIME           = 4 ;
     public static final int BOOLEAN            = 5 ;
     public static final int SHORT_STRING       = 6 ;
+    public static final int DOUBLE             = 7 ;
+    public static final int FLOAT              = 8 ;
+    public static final int TIME               = 9 ;
+    public static final int GYEAR              = 10 ;
+    public static final int DURATION           = 11 ;
+    public static final int IRI                = 12 ;
     public static final int SPECIAL            = 0xFF ;
     
     /** Encode a node as an inline literal.  Return null if it can't be done */
     public static NodeId inline(Node node)
+    {
+        return inline(node, false) ;
+    }
+    
+    /** Encode a node as an inline value, using the extended set of
+     * inline types if {@code extended} is true.  Return null if it can't be done */
+    public static NodeId inline(Node node, boolean extended)
     {
         if ( node == null )
         {
@@ -165,19 +189,35 @@ public class NodeId
         if ( ! enableInlineLiterals )
             return null ;
 
+        if ( extended && node.isURI() )
+            return make(IRINode.pack(node)) ;
+        
         if ( ! node.isLiteral() )  
             return null ;
         
-        if ( NodeUtils.isSimpleString(node) || NodeUtils.isLangString(node) )
+        if ( NodeUtils.isLangString(node) )
             return null ;
         
-        try { return inline$(node) ; }
+        if ( NodeUtils.isSimpleString(node) )
+            return extended ? make(ShortStringNode.pack(node.getLiteralLexicalForm())) : null ;
+        
+        try {
+            NodeId nodeId = inline$(node) ;
+            if ( nodeId == null && extended )
+                nodeId = inlineExtended$(node) ;
+            return nodeId ;
+        }
         catch (Throwable th) {
             Log.warn(NodeId.class, "Failed to process "+node) ;
             return null ; 
         }
     }
     
+    private static NodeId make(long v)
+    {
+        return v == -1 ? null : new NodeId(v) ;
+    }
+    
     /** Datatypes that are candidates for inlining */ 
     private static RDFDatatype[] datatypes = { 
         XSDDatatype.XSDdecimal,
@@ -294,6 +334,40 @@ public class NodeId
         return null ;
     }
     
+    private static NodeId inlineExtended$(Node node)
+    {
+        LiteralLabel lit = node.getLiteral() ;
+        RDFDatatype dt = node.getLiteralDatatype() ;
+        String lex = lit.getLexicalForm() ;
+        
+        if ( dt.equals(XSDDatatype.XSDdouble) && XSDDatatype.XSDdouble.isValidLiteral(lit) )
+            return make(DoubleNode.packDouble(((Number)lit.getValue()).doubleValue(), lex)) ;
+        
+        if ( dt.equals(XSDDatatype.XSDfloat) && XSDDatatype.XSDfloat.isValidLiteral(lit) )
+            return make(DoubleNode.packFloat(((Number)lit.getValue()).floatValue(), lex)) ;
+        
+        if ( dt.equals(XSDDatatype.XSDtime) && XSDDatatype.XSDtime.isValidLiteral(lit) )
+        {
+            long v = DateTimeNode.packTime(lex) ;
+            if ( v == -1 || ! DateTimeNode.unpackTime(v).equals(lex) )
+                return null ;
+            return new NodeId(setType(v, TIME)) ;
+        }
+        
+        if ( dt.equals(XSDDatatype.XSDgYear) && XSDDatatype.XSDgYear.isValidLiteral(lit) )
+        {
+            long v = DateTimeNode.packGYear(lex) ;
+            if ( v == -1 || ! DateTimeNode.unpackGYear(v).equals(lex) )
+                return null ;
+            return new NodeId(setType(v, GYEAR)) ;
+        }
+        
+        if ( dt.equals(XSDDatatype.XSDduration) && XSDDatatype.XSDduration.isValidLiteral(lit) )
+            return make(DurationNode.pack(lex)) ;
+        
+        return null ;
+    }
+    
     public static boolean isInline(NodeId nodeId)
     {
         if ( nodeId == NodeId.NodeDoesNotExist )
@@ -312,6 +386,13 @@ public class NodeId
             case DATETIME:
             case DATE:
             case BOOLEAN:
+            case SHORT_STRING:
+            case DOUBLE:
+            case FLOAT:
+            case TIME:
+            case GYEAR:
+            case DURATION:
+            case IRI:
                 return true ;
             default:
                 throw new TDBException("Unrecognized node id type: "+type) ;
@@ -359,6 +440,36 @@ public class NodeId
                     return NodeConst.nodeTrue ;
                 throw new TDBException("Unrecognized boolean node id : " + val) ;
             }
+            case SHORT_STRING :
+                return NodeFactory.createLiteral(ShortStringNode.unpack(v)) ;
+            case DOUBLE : {
+                String lex = DoubleNode.lexDouble(DoubleNode.unpackDouble(v)) ;
+                return NodeFactory.createLiteral(lex, XSDDatatype.XSDdouble) ;
+            }
+            case FLOAT : {
+                String lex = DoubleNode.lexFloat(DoubleNode.unpackFloat(v)) ;
+                return NodeFactory.createLiteral(lex, XSDDatatype.XSDfloat) ;
+            }
+            case TIME : {
+                long val = BitsLong.clear(v, 56, 64) ;
+                String lex = DateTimeNode.unpackTime(val) ;
+                return NodeFactory.createLiteral(lex, XSDDatatype.XSDtime) ;
+            }
+            case GYEAR : {
+                long val = BitsLong.clear(v, 56, 64) ;
+                String lex = DateTimeNode.unpackGYear(val) ;
+                return NodeFactory.createLiteral(lex, XSDDatatype.XSDgYear) ;
+            }
+            case DURATION : {
+                String lex = DurationNode.unpack(v) ;
+                return NodeFactory.createLiteral(lex, XSDDatatype.XSDduration) ;
+            }
+            case IRI : {
+                Node n = IRINode.unpack(v) ;
+                if ( n == null )
+                    throw new TDBException("Unrecognized IRI node id : " + v) ;
+                return n ;
+            }
             default :
                 throw new TDBException("Unrecognized node id type: " + type) ;
         }
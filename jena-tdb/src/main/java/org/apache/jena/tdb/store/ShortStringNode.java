@@ -0,0 +1,66 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.jena.tdb.store;
+
+import java.nio.charset.StandardCharsets ;
+
+/** Inline simple literals of up to 7 bytes of UTF-8.
+ * The bytes are packed high byte first with zero bytes after the string,
+ * so strings containing a zero (U+0000) are not inlined.
+ */
+public class ShortStringNode
+{
+    public static int MAX_BYTES = 7 ;
+
+    /** Pack a string. Returns -1 for "does not fit". */
+    public static long pack(String str)
+    {
+        if ( str.length() > MAX_BYTES )
+            return -1 ;
+        byte[] b = str.getBytes(StandardCharsets.UTF_8) ;
+        if ( b.length > MAX_BYTES )
+            return -1 ;
+        long v = 0 ;
+        for ( int i = 0 ; i < b.length ; i++ )
+        {
+            if ( b[i] == 0 )
+                return -1 ;
+            v = v | ((b[i]&0xFFL) << (8*(MAX_BYTES-1-i))) ;
+        }
+        // Not legal Unicode (e.g. a single surrogate) does not round trip.
+        if ( ! str.equals(new String(b, StandardCharsets.UTF_8)) )
+            return -1 ;
+        return NodeId.setType(v, NodeId.SHORT_STRING) ;
+    }
+
+    public static String unpack(long v)
+    {
+        byte[] b = new byte[MAX_BYTES] ;
+        int len = 0 ;
+        for ( ; len < MAX_BYTES ; len++ )
+        {
+            byte x = (byte)(v >>> (8*(MAX_BYTES-1-len))) ;
+            if ( x == 0 )
+                break ;
+            b[len] = x ;
+        }
+        return new String(b, 0, len, StandardCharsets.UTF_8) ;
+    }
+}
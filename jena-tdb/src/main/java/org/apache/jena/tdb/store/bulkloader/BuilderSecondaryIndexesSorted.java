@@ -0,0 +1,276 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.jena.tdb.store.bulkloader;
+
+import java.util.ArrayList ;
+import java.util.Iterator ;
+import java.util.List ;
+import java.util.NoSuchElementException ;
+import java.util.UUID ;
+import java.util.concurrent.ExecutionException ;
+import java.util.concurrent.ExecutorService ;
+import java.util.concurrent.Executors ;
+import java.util.concurrent.Future ;
+import java.util.concurrent.TimeUnit ;
+
+import org.apache.jena.atlas.lib.Timer ;
+import org.apache.jena.atlas.lib.tuple.Tuple ;
+import org.apache.jena.tdb.TDBException ;
+import org.apache.jena.tdb.base.file.FileSet ;
+import org.apache.jena.tdb.base.record.Record ;
+import org.apache.jena.tdb.index.bplustree.BPlusTree ;
+import org.apache.jena.tdb.index.bplustree.BPlusTreeRewriter ;
+import org.apache.jena.tdb.store.NodeId ;
+import org.apache.jena.tdb.store.bulkloader2.TupleSorter ;
+import org.apache.jena.tdb.store.tupletable.TupleIndex ;
+import org.apache.jena.tdb.store.tupletable.TupleIndexRecord ;
+import org.apache.jena.tdb.store.tupletable.TupleTable ;
+import org.apache.jena.tdb.store.tupletable.TupleTableListener ;
+
+/** Build secondary indexes by sorting and writing each B+Tree bottom-up.
+ * <p>
+ * The tuples added to the primary index during the data phase are passed
+ * to this builder, as a {@link TupleTableListener}, and sorted into the order
+ * of each secondary index, with runs sorted and written to disk in parallel
+ * while loading continues. The index phase then, in parallel for each index,
+ * merges the sorted runs with any existing contents of the index and rewrites
+ * the B+Tree with {@link BPlusTreeRewriter}.
+ * <p>
+ * An empty index is written in place. An index with existing contents is
+ * written to temporary files in the work directory and then copied over the
+ * blocks of the old B+Tree, so the index files only grow by the space needed
+ * for the new tuples.
+ * Requires all the secondary indexes to be B+Trees (see {@link #canBuild}).
+ */
+public class BuilderSecondaryIndexesSorted implements BuilderSecondaryIndexes, TupleTableListener
+{
+    private final LoadMonitor monitor ;
+    private final TupleIndex[] indexes ;
+    private final TupleSorter[] sorters ;
+    private final ExecutorService sortPool ;
+    private final TupleTableListener next ;
+    private final String workDir ;
+    private final long[] row ;
+    private long count = 0 ;
+
+    /**
+     * @param monitor           Progress monitor.
+     * @param secondaryIndexes  The indexes to build; null entries are skipped.
+     * @param workDir           Directory for the sort run files.
+     * @param next              Listener to pass additions on to, or null.
+     */
+    public BuilderSecondaryIndexesSorted(LoadMonitor monitor, TupleIndex[] secondaryIndexes, String workDir, TupleTableListener next)
+    {
+        if ( ! canBuild(secondaryIndexes) )
+            throw new TDBException("Not all the secondary indexes are B+Trees") ;
+        this.monitor = monitor ;
+        this.indexes = secondaryIndexes ;
+        this.sorters = new TupleSorter[secondaryIndexes.length] ;
+        this.next = next ;
+        this.workDir = workDir ;
+        int threads = Math.max(1, Math.min(BulkLoader.IndexThreads, secondaryIndexes.length)) ;
+        this.sortPool = Executors.newFixedThreadPool(threads) ;
+        int tupleLen = 0 ;
+        for ( int i = 0 ; i < secondaryIndexes.length ; i++ )
+        {
+            TupleIndex index = secondaryIndexes[i] ;
+            if ( index == null )
+                continue ;
+            tupleLen = index.getTupleLength() ;
+            // Two buffers for each index : one being filled, one being sorted.
+            sorters[i] = new TupleSorter(tupleLen, index.getColumnMap(), BulkLoader.IndexSortRunSize, workDir, sortPool, 2) ;
+        }
+        this.row = new long[tupleLen] ;
+    }
+    
+    /** Whether the indexes can be built by this builder. */
+    public static boolean canBuild(TupleIndex[] secondaryIndexes)
+    {
+        for ( TupleIndex index : secondaryIndexes )
+        {
+            if ( index == null )
+                continue ;
+            if ( ! ( index instanceof TupleIndexRecord ) )
+                return false ;
+            if ( ! ( ((TupleIndexRecord)index).getRangeIndex() instanceof BPlusTree ) )
+                return false ;
+        }
+        return true ;
+    }
+    
+    @Override
+    public void added(TupleTable table, Tuple<NodeId> tuple)
+    {
+        for ( int i = 0 ; i < row.length ; i++ )
+            row[i] = tuple.get(i).getId() ;
+        for ( TupleSorter sorter : sorters )
+        {
+            if ( sorter != null )
+                sorter.add(row, 0) ;
+        }
+        count++ ;
+        if ( next != null )
+            next.added(table, tuple) ;
+    }
+
+    @Override
+    public void deleted(TupleTable table, Tuple<NodeId> tuple)
+    {
+        throw new TDBException("Delete during a bulk load") ;
+    }
+
+    @Override
+    public void cleared(TupleTable table)
+    {
+        throw new TDBException("Clear during a bulk load") ;
+    }
+
+    /** Merge the tuples added with the existing contents of each secondary index.
+     * The primary index is not read. */ 
+    @Override
+    public void createSecondaryIndexes(TupleIndex primaryIndex, TupleIndex[] secondaryIndexes)
+    {
+        if ( count == 0 )
+        {
+            // Nothing added : the indexes are unchanged.
+            release() ;
+            return ;
+        }
+        monitor.print("** Sorted index building") ;
+        Timer timer = new Timer() ;
+        timer.startTimer() ;
+        // Each index build waits for the sort pool so has its own thread.
+        ExecutorService indexPool = Executors.newCachedThreadPool() ;
+        List<Future<?>> builds = new ArrayList<>() ;
+        try {
+            for ( int i = 0 ; i < indexes.length ; i++ )
+            {
+                if ( indexes[i] == null )
+                    continue ;
+                TupleIndexRecord index = (TupleIndexRecord)indexes[i] ;
+                TupleSorter sorter = sorters[i] ;
+                builds.add(indexPool.submit(()->build(index, sorter))) ;
+            }
+            for ( Future<?> f : builds )
+            {
+                try { f.get() ; }
+                catch (InterruptedException ex) { throw new TDBException(ex) ; }
+                catch (ExecutionException ex) { throw new TDBException("Bulk load: index build failed", ex.getCause()) ; }
+            }
+        } finally {
+            // On failure, stop the other builds before removing the sort files.
+            indexPool.shutdownNow() ;
+            try { indexPool.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS) ; }
+            catch (InterruptedException ex) { throw new TDBException(ex) ; }
+            finally { release() ; }
+        }
+        long time = timer.readTimer() ;
+        timer.endTimer() ;
+        monitor.print("Time for sorted indexing of %,d %s: %.2fs", count, count == 1 ? "tuple" : "tuples", time/1000.0) ;
+    }
+    
+    private void release()
+    {
+        // Wait for any runs still being sorted before stopping the threads.
+        for ( TupleSorter sorter : sorters )
+        {
+            if ( sorter != null )
+                sorter.close() ;
+        }
+        sortPool.shutdownNow() ;
+    }
+    
+    private void build(TupleIndexRecord index, TupleSorter sorter)
+    {
+        BPlusTree bpt = (BPlusTree)index.getRangeIndex() ;
+        Iterator<Record> newRecords = sorter.sorted() ;
+        if ( bpt.isEmpty() )
+            BPlusTreeRewriter.rewriteBPlusTree(newRecords, bpt) ;
+        else
+        {
+            FileSet workFiles = new FileSet(workDir, "merge-"+index.getName()+"-"+UUID.randomUUID()) ;
+            BPlusTreeRewriter.rewriteBPlusTree(new MergeRecords(bpt.iterator(), newRecords), bpt, workFiles) ;
+        }
+        index.sync() ;
+        monitor.print("** Index %s built", index.getName()) ;
+    }
+    
+    /** Merge two iterators of records in key order, removing duplicates. */
+    private static class MergeRecords implements Iterator<Record>
+    {
+        private final Iterator<Record> iter1 ;
+        private final Iterator<Record> iter2 ;
+        private Record r1 = null ;
+        private Record r2 = null ;
+        
+        MergeRecords(Iterator<Record> iter1, Iterator<Record> iter2)
+        {
+            this.iter1 = iter1 ;
+            this.iter2 = iter2 ;
+            r1 = next(iter1) ;
+            r2 = next(iter2) ;
+        }
+        
+        private static Record next(Iterator<Record> iter)
+        {
+            return iter.hasNext() ? iter.next() : null ;
+        }
+        
+        @Override
+        public boolean hasNext()
+        {
+            return r1 != null || r2 != null ;
+        }
+
+        @Override
+        public Record next()
+        {
+            if ( ! hasNext() )
+                throw new NoSuchElementException() ;
+            Record r ;
+            if ( r2 == null ) 
+            {
+                r = r1 ;
+                r1 = next(iter1) ;
+                return r ;
+            }
+            if ( r1 == null )
+            {
+                r = r2 ;
+                r2 = next(iter2) ;
+                return r ;
+            }
+            int x = Record.compareByKey(r1, r2) ;
+            if ( x <= 0 )
+            {
+                r = r1 ;
+                r1 = next(iter1) ;
+                if ( x == 0 )
+                    r2 = next(iter2) ;
+            }
+            else
+            {
+                r = r2 ;
+                r2 = next(iter2) ;
+            }
+            return r ;
+        }
+    }
+}
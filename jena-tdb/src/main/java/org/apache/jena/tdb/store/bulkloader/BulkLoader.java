@@ -32,6 +32,7 @@ import org.apache.jena.shared.PrefixMapping ;
 import org.apache.jena.sparql.core.Quad ;
 import org.apache.jena.tdb.TDB ;
 import org.apache.jena.tdb.TDBException ;
+import org.apache.jena.tdb.base.file.Location ;
 import org.apache.jena.tdb.solver.stats.Stats ;
 import org.apache.jena.tdb.solver.stats.StatsCollector ;
 import org.apache.jena.tdb.store.DatasetGraphTDB ;
@@ -52,6 +53,15 @@ public class BulkLoader {
     /** Number of ticks per super tick */
     public static int       superTick             = 10 ;
 
+    /** Build secondary indexes by sorting and writing the B+Trees bottom-up
+     * (see {@link BuilderSecondaryIndexesSorted}), merging with the existing
+     * contents when loading into a non-empty database. */
+    public static boolean   SortedIndexBuild      = true ;
+    /** Number of tuples sorted in-memory as one run when building secondary indexes */
+    public static int       IndexSortRunSize      = 1000 * 1000 ;
+    /** Maximum number of threads sorting runs when building secondary indexes */
+    public static int       IndexThreads          = Runtime.getRuntime().availableProcessors() ;
+
     private static String   baseName              = "http://jena.apache.org/TDB/bulkload/event#" ;
 
     public static EventType evStartBulkload       = new EventType(baseName + "start-bulkload") ;
@@ -159,6 +169,14 @@ public class BulkLoader {
         return destinationGraph(dsg, graphName, showProgress, collectStats) ;
     }
 
+    /** Directory for the temporary files of sorting: the database directory, if on disk. */
+    private static String sortWorkDir(DatasetGraphTDB dsg) {
+        Location loc = dsg.getLocation() ;
+        if ( loc == null || loc.isMem() )
+            return System.getProperty("java.io.tmpdir") ;
+        return loc.getDirectoryPath() ;
+    }
+
     public static LoadMonitor createLoadMonitor(DatasetGraphTDB dsg, String itemName, boolean showProgress) {
         if ( showProgress )
             return new LoadMonitor(dsg, loadLogger, itemName, DataTickPoint, IndexTickPoint) ;
@@ -193,8 +211,8 @@ public class BulkLoader {
             monitor1 = createLoadMonitor(dsg, "triples", showProgress) ;
             monitor2 = createLoadMonitor(dsg, "quads", showProgress) ;
 
-            loaderTriples = new LoaderNodeTupleTable(dsg.getTripleTable().getNodeTupleTable(), "triples", monitor1) ;
-            loaderQuads = new LoaderNodeTupleTable(dsg.getQuadTable().getNodeTupleTable(), "quads", monitor2) ;
+            loaderTriples = new LoaderNodeTupleTable(dsg.getTripleTable().getNodeTupleTable(), "triples", monitor1, sortWorkDir(dsg)) ;
+            loaderQuads = new LoaderNodeTupleTable(dsg.getQuadTable().getNodeTupleTable(), "quads", monitor2, sortWorkDir(dsg)) ;
             this.showProgress = showProgress ;
             this.collectStats = collectStats ;
         }
@@ -301,7 +319,7 @@ public class BulkLoader {
             }
             startedEmpty = dsg.isEmpty() ;
             monitor = createLoadMonitor(dsg, "triples", showProgress) ;
-            loaderTriples = new LoaderNodeTupleTable(nodeTupleTable, "triples", monitor) ;
+            loaderTriples = new LoaderNodeTupleTable(nodeTupleTable, "triples", monitor, sortWorkDir(dsg)) ;
         }
 
         @Override
@@ -18,6 +18,7 @@
 
 package org.apache.jena.tdb.store.bulkloader;
 
+import java.util.Arrays ;
 import java.util.Iterator ;
 
 import org.apache.jena.atlas.lib.ArrayUtils ;
@@ -28,6 +29,8 @@ import org.apache.jena.graph.Node ;
 import org.apache.jena.tdb.store.NodeId ;
 import org.apache.jena.tdb.store.nodetupletable.NodeTupleTable ;
 import org.apache.jena.tdb.store.tupletable.TupleIndex ;
+import org.apache.jena.tdb.store.tupletable.TupleTable ;
+import org.apache.jena.tdb.store.tupletable.TupleTableListener ;
 import org.slf4j.Logger ;
 import org.slf4j.LoggerFactory ;
 
@@ -50,30 +53,53 @@ public class LoaderNodeTupleTable implements Closeable, Sync
     //private Timer timer ;
     private long count = 0 ;
     private String itemsName ;
+    private String workDir ;
+    private BuilderSecondaryIndexesSorted sortedBuilder = null ;
+    private TupleTableListener listener = null ;
     
     static private Logger logLoad = LoggerFactory.getLogger("org.apache.jena.tdb.loader") ;
 
     public LoaderNodeTupleTable(NodeTupleTable nodeTupleTable, String itemsName, LoadMonitor monitor)
+    {
+        this(nodeTupleTable, itemsName, monitor, System.getProperty("java.io.tmpdir")) ;
+    }
+
+    /** @param workDir Directory for temporary files when building the secondary indexes by sorting. */
+    public LoaderNodeTupleTable(NodeTupleTable nodeTupleTable, String itemsName, LoadMonitor monitor, String workDir)
     {
         this.nodeTupleTable = nodeTupleTable ;
         this.monitor = monitor ;
         this.doIncremental = false ;        // Until we know it's safe.
         this.itemsName = itemsName ;          // "triples", "quads", "tuples" (plural)
+        this.workDir = workDir ;
     }
 
     // -- LoaderFramework
     
     protected void loadPrepare()
     {
+        boolean isEmpty = nodeTupleTable.isEmpty() ;
         dropAndRebuildIndexes = ! doIncremental ;
-        if ( ! nodeTupleTable.isEmpty() )
+        // The sorted build merges with the existing contents of the indexes.
+        if ( ! isEmpty && ! sortedBuild() )
             dropAndRebuildIndexes = false ;
 
         if ( dropAndRebuildIndexes )
         {
-            monitor.print("** Load empty %s table", itemsName) ;
+            if ( isEmpty )
+                monitor.print("** Load empty %s table", itemsName) ;
+            else
+                monitor.print("** Load into %s table with existing data, merging secondary indexes", itemsName) ;
             // SPO only.
             dropSecondaryIndexes() ;
+            if ( sortedBuild() )
+            {
+                // Capture the new tuples, in the order added to the primary index, for sorting. 
+                TupleTable table = nodeTupleTable.getTupleTable() ;
+                listener = table.getListener() ;
+                sortedBuilder = new BuilderSecondaryIndexesSorted(monitor, secondaryIndexes, workDir, listener) ;
+                table.setListener(sortedBuilder) ;
+            }
         }
         else
         {
@@ -116,12 +142,11 @@ public class LoaderNodeTupleTable implements Closeable, Sync
     
     public void loadIndexStart()
     {
+        // Do index phase only if any items seen.
         if ( count > 0 )
-        {
-            // Do index phase only if any items seen.
             monitor.startIndexPhase() ;
-            loadSecondaryIndexes() ;
-        }
+        // If nothing was loaded, the indexes must still be put back.
+        loadSecondaryIndexes() ;
     }
 
     public void loadIndexFinish()
@@ -157,9 +182,25 @@ public class LoaderNodeTupleTable implements Closeable, Sync
             nodeTupleTable.getTupleTable().setTupleIndex(i, null) ;
     }
 
+    private boolean sortedBuild()
+    {
+        if ( ! BulkLoader.SortedIndexBuild )
+            return false ;
+        TupleTable table = nodeTupleTable.getTupleTable() ;
+        TupleIndex[] indexes = table.getIndexes() ;
+        return BuilderSecondaryIndexesSorted.canBuild(Arrays.copyOfRange(indexes, 1, indexes.length)) ;
+    }
+
     private void createSecondaryIndexes()
     {
         BuilderSecondaryIndexes builder = new BuilderSecondaryIndexesSequential(monitor) ;
+        if ( sortedBuilder != null )
+        {
+            nodeTupleTable.getTupleTable().setListener(listener) ;
+            builder = sortedBuilder ;
+            sortedBuilder = null ;
+            listener = null ;
+        }
         
 //        if ( doInParallel )
 //            builder = new BuilderSecondaryIndexesParallel(printer) ;
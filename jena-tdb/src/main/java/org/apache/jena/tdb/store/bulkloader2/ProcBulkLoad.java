@@ -0,0 +1,356 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb.store.bulkloader2;
+
+import java.util.ArrayList ;
+import java.util.Iterator ;
+import java.util.List ;
+import java.util.concurrent.ArrayBlockingQueue ;
+import java.util.concurrent.BlockingQueue ;
+import java.util.concurrent.ExecutionException ;
+import java.util.concurrent.ExecutorService ;
+import java.util.concurrent.Executors ;
+import java.util.concurrent.Future ;
+
+import org.apache.jena.atlas.lib.DateTimeUtils ;
+import org.apache.jena.atlas.lib.FileOps ;
+import org.apache.jena.atlas.lib.ProgressMonitor ;
+import org.apache.jena.graph.Node ;
+import org.apache.jena.graph.Triple ;
+import org.apache.jena.riot.RDFDataMgr ;
+import org.apache.jena.riot.system.StreamRDF ;
+import org.apache.jena.sparql.core.Quad ;
+import org.apache.jena.tdb.TDB ;
+import org.apache.jena.tdb.TDBException ;
+import org.apache.jena.tdb.base.block.BlockMgr ;
+import org.apache.jena.tdb.base.block.BlockMgrFactory ;
+import org.apache.jena.tdb.base.file.FileSet ;
+import org.apache.jena.tdb.base.file.Location ;
+import org.apache.jena.tdb.base.record.Record ;
+import org.apache.jena.tdb.base.record.RecordFactory ;
+import org.apache.jena.tdb.index.bplustree.BPlusTree ;
+import org.apache.jena.tdb.index.bplustree.BPlusTreeParams ;
+import org.apache.jena.tdb.index.bplustree.BPlusTreeRewriter ;
+import org.apache.jena.tdb.lib.ColumnMap ;
+import org.apache.jena.tdb.setup.DatasetBuilderStd ;
+import org.apache.jena.tdb.setup.StoreParams ;
+import org.apache.jena.tdb.solver.stats.Stats ;
+import org.apache.jena.tdb.solver.stats.StatsCollectorNodeId ;
+import org.apache.jena.tdb.store.DatasetGraphTDB ;
+import org.apache.jena.tdb.store.NodeId ;
+import org.apache.jena.tdb.store.bulkloader.BulkLoader ;
+import org.apache.jena.tdb.store.nodetable.NodeTable ;
+import org.apache.jena.tdb.sys.Names ;
+import org.slf4j.Logger ;
+
+/** Bulk loader for a new database that runs in a single JVM.
+ * <p>
+ * This does the same work as the {@code tdbloader2} scripts
+ * ({@link ProcNodeTableBuilder}, Unix {@code sort}, {@link ProcIndexBuild})
+ * but without the text round trip and with the work spread over several threads:
+ * <ul>
+ * <li>Data phase: input files are parsed in parallel, one thread per file, and
+ * batches of triples/quads are passed to a single thread that allocates NodeIds
+ * and writes binary tuples to work files.
+ * <li>Index phase: every index is built concurrently. Each one sorts the work file
+ * into index order with a {@link TupleSorter}, whose runs are sorted on a shared pool of
+ * threads, and the sorted records are written bottom-up by {@link BPlusTreeRewriter}.
+ * </ul>
+ */
+public class ProcBulkLoad
+{
+    private static Logger cmdLog = TDB.logLoader ;
+
+    /** Number of rows sorted in memory as one run. */
+    public static int SortRunSize = 1000*1000 ;
+    /** Number of triples/quads passed from a parser thread to the node table thread as one unit. */
+    public static int ParseBatchSize = 10*1000 ;
+
+    public static void exec(Location location, List<String> datafiles, boolean collectStats) {
+        exec(location, datafiles, collectStats, Runtime.getRuntime().availableProcessors(), SortRunSize) ;
+    }
+
+    public static void exec(Location location, List<String> datafiles, boolean collectStats, int threads, int runSize) {
+        if ( location.isMem() )
+            throw new TDBException("Bulk load: in-memory locations are not supported") ;
+        threads = Math.max(1, threads) ;
+        DatasetGraphTDB dsg = DatasetBuilderStd.create(location) ;
+        if ( ! dsg.isEmpty() ) {
+            dsg.close() ;
+            throw new TDBException("Bulk load: database is not empty: "+location.getDirectoryPath()) ;
+        }
+        StoreParams params = dsg.getConfig().params ;
+        // Indexes are built from the work files.
+        dsg.getTripleTable().getNodeTupleTable().getTupleTable().close();
+        dsg.getQuadTable().getNodeTupleTable().getTupleTable().close();
+
+        String dataTriples = location.getPath("triples", "tmp") ;
+        String dataQuads = location.getPath("quads", "tmp") ;
+
+        long startTime = System.currentTimeMillis() ;
+        // ---- Data
+        ProgressMonitor monitor = ProgressMonitor.create(cmdLog, "Data", BulkLoader.DataTickPoint, BulkLoader.superTick) ;
+        monitor.start() ;
+        StatsCollectorNodeId stats = dataPhase(dsg, datafiles, dataTriples, dataQuads, threads, monitor, collectStats) ;
+        long total = monitor.getTicks() ;
+        monitor.finish() ;
+
+        // Stats need the node table to turn NodeIds into nodes.
+        if ( stats != null )
+            Stats.write(location.getPath(Names.optStats), stats.results()) ;
+
+        NodeTable nodeTable = dsg.getTripleTable().getNodeTupleTable().getNodeTable() ;
+        nodeTable.sync() ;
+        nodeTable.close() ;
+        dsg.getPrefixes().sync() ;
+        dsg.getPrefixes().close() ;
+
+        // ---- Index
+        try {
+            indexPhase(location, params, dataTriples, dataQuads, threads, runSize) ;
+        } finally {
+            FileOps.delete(dataTriples) ;
+            FileOps.delete(dataQuads) ;
+        }
+
+        long time = System.currentTimeMillis() - startTime ;
+        float elapsedSecs = time/1000F ;
+        float rate = (elapsedSecs!=0) ? total/elapsedSecs : 0 ;
+        String str =  String.format("Total: %,d tuples : %,.2f seconds : %,.2f tuples/sec [%s]", total, elapsedSecs, rate, DateTimeUtils.nowAsString()) ;
+        cmdLog.info(str) ;
+    }
+
+    // ---- Data phase
+
+    private static StatsCollectorNodeId dataPhase(DatasetGraphTDB dsg, List<String> datafiles,
+                                                  String dataTriples, String dataQuads,
+                                                  int threads, ProgressMonitor monitor, boolean collectStats) {
+        NodeTable nodeTable = dsg.getTripleTable().getNodeTupleTable().getNodeTable() ;
+        StatsCollectorNodeId stats = collectStats ? new StatsCollectorNodeId(nodeTable) : null ;
+        WriteTuples writerTriples = new WriteTuples(dataTriples, 3) ;
+        WriteTuples writerQuads = new WriteTuples(dataQuads, 4) ;
+
+        BlockingQueue<Batch> queue = new ArrayBlockingQueue<>(4*threads) ;
+        ExecutorService parsers = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, datafiles.size()))) ;
+        try {
+            for ( String filename : datafiles ) {
+                cmdLog.info("Load: "+filename+" -- "+DateTimeUtils.nowAsString()) ;
+                parsers.submit(new Parser(filename, queue)) ;
+            }
+            int active = datafiles.size() ;
+            while ( active > 0 ) {
+                Batch batch ;
+                try { batch = queue.take() ; }
+                catch (InterruptedException ex) { throw new TDBException(ex) ; }
+                for ( String[] p : batch.prefixes )
+                    dsg.getPrefixes().getPrefixMapping().setNsPrefix(p[0], p[1]) ;
+                for ( int i = 0 ; i < batch.size ; i++ ) {
+                    int j = 4*i ;
+                    process(nodeTable, writerTriples, writerQuads, stats,
+                            batch.nodes[j], batch.nodes[j+1], batch.nodes[j+2], batch.nodes[j+3]) ;
+                    monitor.tick() ;
+                }
+                if ( batch.error != null )
+                    throw new TDBException("Bulk load: parse error: "+batch.filename, batch.error) ;
+                if ( batch.last )
+                    active-- ;
+            }
+        } finally {
+            parsers.shutdownNow() ;
+            writerTriples.close() ;
+            writerQuads.close() ;
+        }
+        return stats ;
+    }
+
+    private static void process(NodeTable nodeTable, WriteTuples writerTriples, WriteTuples writerQuads,
+                                StatsCollectorNodeId stats,
+                                Node g, Node s, Node p, Node o) {
+        NodeId sId = nodeTable.getAllocateNodeId(s) ;
+        NodeId pId = nodeTable.getAllocateNodeId(p) ;
+        NodeId oId = nodeTable.getAllocateNodeId(o) ;
+        if ( g != null ) {
+            NodeId gId = nodeTable.getAllocateNodeId(g) ;
+            writerQuads.write(gId.getId()) ;
+            writerQuads.write(sId.getId()) ;
+            writerQuads.write(pId.getId()) ;
+            writerQuads.write(oId.getId()) ;
+            writerQuads.endOfRow() ;
+            if ( stats != null )
+                stats.record(gId, sId, pId, oId) ;
+        } else {
+            writerTriples.write(sId.getId()) ;
+            writerTriples.write(pId.getId()) ;
+            writerTriples.write(oId.getId()) ;
+            writerTriples.endOfRow() ;
+            if ( stats != null )
+                stats.record(null, sId, pId, oId) ;
+        }
+    }
+
+    /** A unit of parser output: (g,s,p,o) rows with g == null for the default graph. */
+    private static class Batch {
+        final String filename ;
+        final Node[] nodes = new Node[4*ParseBatchSize] ;
+        final List<String[]> prefixes = new ArrayList<>() ;
+        int size = 0 ;
+        boolean last = false ;
+        Throwable error = null ;
+
+        Batch(String filename) { this.filename = filename ; }
+
+        boolean isFull() { return size == ParseBatchSize ; }
+    }
+
+    /** Parse one file, passing batches to the queue. The final batch is marked as "last". */
+    private static class Parser implements Runnable, StreamRDF {
+        private final String filename ;
+        private final BlockingQueue<Batch> queue ;
+        private Batch batch ;
+
+        Parser(String filename, BlockingQueue<Batch> queue) {
+            this.filename = filename ;
+            this.queue = queue ;
+            this.batch = new Batch(filename) ;
+        }
+
+        @Override
+        public void run() {
+            try {
+                RDFDataMgr.parse(this, filename) ;
+            } catch (Throwable th) {
+                batch.error = th ;
+            }
+            batch.last = true ;
+            send() ;
+        }
+
+        private void send() {
+            try { queue.put(batch) ; }
+            catch (InterruptedException ex) { throw new TDBException(ex) ; }
+            batch = new Batch(filename) ;
+        }
+
+        private void add(Node g, Node s, Node p, Node o) {
+            int j = 4*batch.size ;
+            batch.nodes[j] = g ;
+            batch.nodes[j+1] = s ;
+            batch.nodes[j+2] = p ;
+            batch.nodes[j+3] = o ;
+            batch.size++ ;
+            if ( batch.isFull() )
+                send() ;
+        }
+
+        @Override
+        public void triple(Triple triple) {
+            add(null, triple.getSubject(), triple.getPredicate(), triple.getObject()) ;
+        }
+
+        @Override
+        public void quad(Quad quad) {
+            Node g = null ;
+            // Union graph?!
+            if ( ! quad.isTriple() && ! quad.isDefaultGraph() )
+                g = quad.getGraph() ;
+            add(g, quad.getSubject(), quad.getPredicate(), quad.getObject()) ;
+        }
+
+        @Override
+        public void prefix(String prefix, String iri) {
+            batch.prefixes.add(new String[]{prefix, iri}) ;
+        }
+
+        @Override public void start()               {}
+        @Override public void base(String base)     {}
+        @Override public void finish()              {}
+    }
+
+    // ---- Index phase
+
+    private static void indexPhase(Location location, StoreParams params,
+                                   String dataTriples, String dataQuads,
+                                   int threads, int runSize) {
+        cmdLog.info("Index phase -- "+DateTimeUtils.nowAsString()) ;
+        // Sorting is done on a fixed pool; each index build has its own thread
+        // to read the data and write the B+Tree so they can wait for the pool safely.
+        ExecutorService sortPool = Executors.newFixedThreadPool(threads) ;
+        ExecutorService indexPool = Executors.newCachedThreadPool() ;
+        List<Future<?>> builds = new ArrayList<>() ;
+        try {
+            for ( String idx : params.getTripleIndexes() )
+                builds.add(indexPool.submit(()->buildIndex(location, params, params.getPrimaryIndexTriples(), idx, dataTriples, sortPool, runSize))) ;
+            for ( String idx : params.getQuadIndexes() )
+                builds.add(indexPool.submit(()->buildIndex(location, params, params.getPrimaryIndexQuads(), idx, dataQuads, sortPool, runSize))) ;
+            for ( Future<?> f : builds ) {
+                try { f.get() ; }
+                catch (InterruptedException ex) { throw new TDBException(ex) ; }
+                catch (ExecutionException ex) { throw new TDBException("Bulk load: index build failed", ex.getCause()) ; }
+            }
+        } finally {
+            indexPool.shutdownNow() ;
+            sortPool.shutdownNow() ;
+        }
+    }
+
+    /** Build one index, writing the B+Tree files at the location. */
+    public static void buildIndex(Location location, StoreParams params, String primaryOrder, String indexName,
+                                  String dataFile, ExecutorService sortPool, int runSize) {
+        int tupleLength = indexName.length() ;
+        ColumnMap colMap = new ColumnMap(primaryOrder, indexName) ;
+        ProgressMonitor monitor = ProgressMonitor.create(cmdLog, indexName, BulkLoader.IndexTickPoint, BulkLoader.superTick) ;
+        monitor.start() ;
+        TupleSorter sorter = new TupleSorter(tupleLength, colMap, runSize, location.getDirectoryPath(), sortPool, 2) ;
+        try {
+            ReadTuples input = new ReadTuples(dataFile, tupleLength) ;
+            long[] row = new long[tupleLength] ;
+            try {
+                while ( input.read(row, 0) )
+                    sorter.add(row, 0) ;
+            } finally { input.close() ; }
+
+            Iterator<Record> records = sorter.sorted() ;
+            Iterator<Record> iter = new Iterator<Record>() {
+                @Override public boolean hasNext()  { return records.hasNext() ; }
+                @Override public Record next()      { monitor.tick() ; return records.next() ; }
+            } ;
+            writeIndex(location, params, indexName, sorter.getRecordFactory(), iter) ;
+        } finally { sorter.close() ; }
+        monitor.finish() ;
+        cmdLog.info(String.format("Index %s: %,d records", indexName, monitor.getTicks())) ;
+    }
+
+    /** Write a B+Tree, replacing any existing files for the index. */
+    /*package*/ static void writeIndex(Location location, StoreParams params, String indexName,
+                                       RecordFactory recordFactory, Iterator<Record> records) {
+        FileOps.delete(location.getPath(indexName, Names.bptExtTree)) ;
+        FileOps.delete(location.getPath(indexName, Names.bptExtRecords)) ;
+        int blockSize = params.getBlockSize() ;
+        int readCacheSize = 10 ;
+        int writeCacheSize = 100 ;
+        int order = BPlusTreeParams.calcOrder(blockSize, recordFactory) ;
+        BPlusTreeParams bptParams = new BPlusTreeParams(order, recordFactory, params.getCompressedLeaves()) ;
+        FileSet destination = new FileSet(location, indexName) ;
+        BlockMgr blkMgrNodes = BlockMgrFactory.create(destination, Names.bptExtTree, blockSize, readCacheSize, writeCacheSize) ;
+        BlockMgr blkMgrRecords = BlockMgrFactory.create(destination, Names.bptExtRecords, blockSize, readCacheSize, writeCacheSize) ;
+        BPlusTree bpt = BPlusTreeRewriter.packIntoBPlusTree(records, bptParams, recordFactory, blkMgrNodes, blkMgrRecords) ;
+        bpt.sync() ;
+        bpt.close() ;
+    }
+}
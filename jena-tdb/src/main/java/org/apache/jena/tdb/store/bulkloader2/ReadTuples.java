@@ -0,0 +1,73 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb.store.bulkloader2;
+
+import java.io.BufferedInputStream ;
+import java.io.DataInputStream ;
+import java.io.EOFException ;
+import java.io.FileInputStream ;
+import java.io.FileNotFoundException ;
+import java.io.IOException ;
+
+import org.apache.jena.atlas.AtlasException ;
+import org.apache.jena.atlas.lib.Closeable ;
+
+/** Reader of rows of longs written by {@link WriteTuples}.
+ * Rows are read into a caller-supplied array so there is no per-row allocation.
+ */
+public class ReadTuples implements Closeable
+{
+    private static final int BufferSize = 128*1024 ;
+    private final DataInputStream input ;
+    private final int itemsPerRow ;
+
+    public ReadTuples(String filename, int itemsPerRow)
+    {
+        try {
+            this.input = new DataInputStream(new BufferedInputStream(new FileInputStream(filename), BufferSize)) ;
+        } catch (FileNotFoundException ex) { throw new AtlasException(ex) ; }
+        this.itemsPerRow = itemsPerRow ;
+    }
+
+    public int getItemsPerRow() { return itemsPerRow ; }
+
+    /** Read the next row into {@code row}, starting at {@code start}.
+     * Return false at the end of the file.
+     */
+    public boolean read(long[] row, int start)
+    {
+        try {
+            try {
+                row[start] = input.readLong() ;
+            } catch (EOFException ex) { return false ; }
+            for ( int i = 1 ; i < itemsPerRow ; i++ )
+                row[start+i] = input.readLong() ;
+            return true ;
+        }
+        catch (EOFException ex) { throw new AtlasException("Truncated row") ; }
+        catch (IOException ex) { throw new AtlasException(ex) ; }
+    }
+
+    @Override
+    public void close()
+    {
+        try { input.close() ; }
+        catch (IOException ex) { throw new AtlasException(ex) ; }
+    }
+}
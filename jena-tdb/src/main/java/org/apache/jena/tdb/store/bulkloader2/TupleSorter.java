@@ -0,0 +1,453 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb.store.bulkloader2;
+
+import java.io.File ;
+import java.io.IOException ;
+import java.util.ArrayList ;
+import java.util.Arrays ;
+import java.util.Iterator ;
+import java.util.List ;
+import java.util.NoSuchElementException ;
+import java.util.PriorityQueue ;
+import java.util.concurrent.ExecutionException ;
+import java.util.concurrent.ExecutorService ;
+import java.util.concurrent.Future ;
+import java.util.concurrent.Semaphore ;
+
+import org.apache.jena.atlas.AtlasException ;
+import org.apache.jena.atlas.lib.Bytes ;
+import org.apache.jena.atlas.lib.Closeable ;
+import org.apache.jena.atlas.lib.FileOps ;
+import org.apache.jena.tdb.base.record.Record ;
+import org.apache.jena.tdb.base.record.RecordFactory ;
+import org.apache.jena.tdb.lib.ColumnMap ;
+import org.apache.jena.tdb.sys.SystemTDB ;
+
+/** External merge sort of fixed length rows of longs (NodeId tuples) into index order.
+ * <p>
+ * Rows are added in tuple order (e.g. SPO) and are stored in index order (e.g. POS)
+ * using the {@link ColumnMap}. When the in-memory buffer is full, it is handed to the
+ * {@link ExecutorService} to be sorted and written out as a run file while
+ * the caller carries on filling a new buffer. {@link #sorted()} merges the runs,
+ * removing duplicates, and returns the {@link Record}s ready for
+ * {@link org.apache.jena.tdb.index.bplustree.BPlusTreeRewriter}.
+ * <p>
+ * NodeIds compare as unsigned values, which is the same order as the
+ * bytes of a {@link Record} key.
+ */
+public class TupleSorter implements Closeable
+{
+    /** Maximum number of runs merged in one pass. */
+    public static int MergeFanIn = 64 ;
+
+    private static final int InitialRows = 1024 ;
+
+    private final int itemsPerRow ;
+    private final ColumnMap colMap ;
+    private final int runSize ;
+    private final File workDir ;
+    private final ExecutorService executor ;
+    private final Semaphore inFlight ;
+    private final RecordFactory recordFactory ;
+    private final List<Future<String>> runs = new ArrayList<>() ;
+    private final List<String> runFiles = new ArrayList<>() ;
+    private long[] buffer ;
+    private int rows = 0 ;
+    private boolean finished = false ;
+
+    /**
+     * @param itemsPerRow   Length of a tuple (3 for triples, 4 for quads).
+     * @param colMap        Mapping from tuple order to index order; null means no change.
+     * @param runSize       Number of rows sorted in-memory as one run.
+     * @param workDir       Directory for run files.
+     * @param executor      Threads to sort and write runs and to do intermediate merges.
+     * @param maxInFlight   Maximum number of buffers being sorted at any one time.
+     */
+    public TupleSorter(int itemsPerRow, ColumnMap colMap, int runSize, String workDir, ExecutorService executor, int maxInFlight)
+    {
+        if ( runSize <= 0 )
+            throw new IllegalArgumentException("Run size must be positive: "+runSize) ;
+        this.itemsPerRow = itemsPerRow ;
+        this.colMap = colMap ;
+        this.runSize = runSize ;
+        this.workDir = new File(workDir) ;
+        this.executor = executor ;
+        this.inFlight = new Semaphore(Math.max(1, maxInFlight)) ;
+        this.recordFactory = new RecordFactory(itemsPerRow*SystemTDB.SizeOfNodeId, 0) ;
+        // Start small and grow to the run size so that small (or empty) inputs are cheap.
+        this.buffer = new long[Math.min(runSize, InitialRows)*itemsPerRow] ;
+    }
+
+    public RecordFactory getRecordFactory() { return recordFactory ; }
+
+    /** Add a row, given in tuple order, starting at {@code start} in {@code tuple}. */
+    public void add(long[] tuple, int start)
+    {
+        if ( finished )
+            throw new AtlasException("TupleSorter: add after sorted()") ;
+        int base = rows*itemsPerRow ;
+        if ( base == buffer.length )
+            buffer = Arrays.copyOf(buffer, Math.min(2*rows, runSize)*itemsPerRow) ;
+        for ( int i = 0 ; i < itemsPerRow ; i++ )
+        {
+            int j = ( colMap == null ) ? i : colMap.mapSlotIdx(i) ;
+            buffer[base+j] = tuple[start+i] ;
+        }
+        rows++ ;
+        if ( rows == runSize )
+            spill() ;
+    }
+
+    /** Add a row, given in tuple order. */
+    public void add(long... tuple)
+    {
+        add(tuple, 0) ;
+    }
+
+    /** Finish adding rows and return the rows, in index order and without duplicates. */
+    public Iterator<Record> sorted()
+    {
+        if ( finished )
+            throw new AtlasException("TupleSorter: sorted() already called") ;
+        finished = true ;
+        if ( runs.isEmpty() )
+        {
+            // Everything fitted in memory.
+            sortRows(buffer, 0, rows-1, itemsPerRow) ;
+            RowSource source = new ArrayRowSource(buffer, rows, itemsPerRow) ;
+            buffer = null ;
+            return new RecordIterator(source) ;
+        }
+        if ( rows > 0 )
+            spill() ;
+        buffer = null ;
+        for ( Future<String> f : runs )
+            runFiles.add(await(f)) ;
+        runs.clear() ;
+
+        // Reduce the number of runs so the final merge does not need too many open files.
+        // The intermediate merges are independent and run in parallel.
+        while ( runFiles.size() > MergeFanIn )
+        {
+            List<Future<String>> merges = new ArrayList<>() ;
+            for ( int i = 0 ; i < runFiles.size() ; i += MergeFanIn )
+            {
+                final List<String> group = new ArrayList<>(runFiles.subList(i, Math.min(i+MergeFanIn, runFiles.size()))) ;
+                merges.add(executor.submit(()->mergeToFile(group))) ;
+            }
+            runFiles.clear() ;
+            for ( Future<String> f : merges )
+                runFiles.add(await(f)) ;
+        }
+        return new RecordIterator(openMerge(runFiles)) ;
+    }
+
+    /** Remove any work files. */
+    @Override
+    public void close()
+    {
+        for ( Future<String> f : runs )
+            FileOps.delete(await(f)) ;
+        runs.clear() ;
+        for ( String fn : runFiles )
+        {
+            if ( FileOps.exists(fn) )
+                FileOps.delete(fn) ;
+        }
+        runFiles.clear() ;
+    }
+
+    private void spill()
+    {
+        final long[] data = buffer ;
+        final int n = rows ;
+        try { inFlight.acquire() ; }
+        catch (InterruptedException ex) { throw new AtlasException(ex) ; }
+        runs.add(executor.submit(()-> {
+            try {
+                sortRows(data, 0, n-1, itemsPerRow) ;
+                return writeRun(new ArrayRowSource(data, n, itemsPerRow)) ;
+            } finally { inFlight.release() ; }
+        })) ;
+        buffer = new long[runSize*itemsPerRow] ;
+        rows = 0 ;
+    }
+
+    private String mergeToFile(List<String> group)
+    {
+        RowSource source = openMerge(group) ;
+        try {
+            return writeRun(source) ;
+        } finally {
+            source.close() ;
+            for ( String fn : group )
+                FileOps.delete(fn) ;
+        }
+    }
+
+    /** Write rows, removing adjacent duplicates. */
+    private String writeRun(RowSource source)
+    {
+        String fn = tempFile() ;
+        WriteTuples out = new WriteTuples(fn, itemsPerRow) ;
+        long[] last = null ;
+        while ( source.advance() )
+        {
+            long[] row = source.row() ;
+            int idx = source.offset() ;
+            if ( last != null && compareRows(last, 0, row, idx, itemsPerRow) == 0 )
+                continue ;
+            if ( last == null )
+                last = new long[itemsPerRow] ;
+            System.arraycopy(row, idx, last, 0, itemsPerRow) ;
+            out.write(row, idx) ;
+        }
+        out.close() ;
+        return fn ;
+    }
+
+    private String tempFile()
+    {
+        try {
+            File f = File.createTempFile("sort-", ".tmp", workDir) ;
+            return f.getPath() ;
+        } catch (IOException ex) { throw new AtlasException(ex) ; }
+    }
+
+    private RowSource openMerge(List<String> files)
+    {
+        if ( files.size() == 1 )
+            return new FileRowSource(files.get(0), itemsPerRow) ;
+        List<RowSource> sources = new ArrayList<>(files.size()) ;
+        for ( String fn : files )
+            sources.add(new FileRowSource(fn, itemsPerRow)) ;
+        return new MergeRowSource(sources, itemsPerRow) ;
+    }
+
+    private static <T> T await(Future<T> future)
+    {
+        try { return future.get() ; }
+        catch (InterruptedException ex) { throw new AtlasException(ex) ; }
+        catch (ExecutionException ex)
+        {
+            Throwable cause = ex.getCause() ;
+            if ( cause instanceof RuntimeException )
+                throw (RuntimeException)cause ;
+            throw new AtlasException(cause) ;
+        }
+    }
+
+    // ---- Row operations on flat arrays.
+
+    /** Compare rows as unsigned longs, most significant column first. */
+    static int compareRows(long[] a, int i, long[] b, int j, int n)
+    {
+        for ( int k = 0 ; k < n ; k++ )
+        {
+            int x = Long.compareUnsigned(a[i+k], b[j+k]) ;
+            if ( x != 0 )
+                return x ;
+        }
+        return 0 ;
+    }
+
+    private static void swapRows(long[] a, int r1, int r2, int n)
+    {
+        int i = r1*n ;
+        int j = r2*n ;
+        for ( int k = 0 ; k < n ; k++ )
+        {
+            long t = a[i+k] ;
+            a[i+k] = a[j+k] ;
+            a[j+k] = t ;
+        }
+    }
+
+    /** Sort rows lo..hi (inclusive) of a flat array of rows of length n. */
+    static void sortRows(long[] a, int lo, int hi, int n)
+    {
+        while ( hi - lo > 16 )
+        {
+            // Median of three as pivot, moved to lo.
+            int mid = (lo+hi) >>> 1 ;
+            if ( compareRows(a, mid*n, a, lo*n, n) < 0 )  swapRows(a, mid, lo, n) ;
+            if ( compareRows(a, hi*n, a, lo*n, n) < 0 )   swapRows(a, hi, lo, n) ;
+            if ( compareRows(a, hi*n, a, mid*n, n) < 0 )  swapRows(a, hi, mid, n) ;
+            swapRows(a, lo, mid, n) ;
+            int i = lo ;
+            int j = hi+1 ;
+            for ( ;; )
+            {
+                do { i++ ; } while ( i <= hi && compareRows(a, i*n, a, lo*n, n) < 0 ) ;
+                do { j-- ; } while ( compareRows(a, j*n, a, lo*n, n) > 0 ) ;
+                if ( i >= j )
+                    break ;
+                swapRows(a, i, j, n) ;
+            }
+            swapRows(a, lo, j, n) ;
+            // Recurse on the smaller part.
+            if ( j - lo < hi - j )
+            {
+                sortRows(a, lo, j-1, n) ;
+                lo = j+1 ;
+            }
+            else
+            {
+                sortRows(a, j+1, hi, n) ;
+                hi = j-1 ;
+            }
+        }
+        // Insertion sort.
+        for ( int i = lo+1 ; i <= hi ; i++ )
+            for ( int j = i ; j > lo && compareRows(a, (j-1)*n, a, j*n, n) > 0 ; j-- )
+                swapRows(a, j-1, j, n) ;
+    }
+
+    // ---- Sources of sorted rows.
+
+    private interface RowSource extends Closeable
+    {
+        /** Move to the next row; return false if there are no more rows. */
+        boolean advance() ;
+        /** The array holding the current row. */
+        long[] row() ;
+        /** Offset of the current row in {@link #row()} */
+        int offset() ;
+    }
+
+    private static class ArrayRowSource implements RowSource
+    {
+        private final long[] data ;
+        private final int rows ;
+        private final int n ;
+        private int current = -1 ;
+
+        ArrayRowSource(long[] data, int rows, int n)
+        { this.data = data ; this.rows = rows ; this.n = n ; }
+
+        @Override public boolean advance()  { current++ ; return current < rows ; }
+        @Override public long[] row()       { return data ; }
+        @Override public int offset()       { return current*n ; }
+        @Override public void close()       {}
+    }
+
+    private static class FileRowSource implements RowSource
+    {
+        private final ReadTuples input ;
+        private final long[] row ;
+
+        FileRowSource(String filename, int n)
+        {
+            this.input = new ReadTuples(filename, n) ;
+            this.row = new long[n] ;
+        }
+
+        @Override public boolean advance()  { return input.read(row, 0) ; }
+        @Override public long[] row()       { return row ; }
+        @Override public int offset()       { return 0 ; }
+        @Override public void close()       { input.close() ; }
+    }
+
+    private static class MergeRowSource implements RowSource
+    {
+        private final List<RowSource> sources ;
+        private final PriorityQueue<RowSource> queue ;
+        private RowSource current = null ;
+
+        MergeRowSource(List<RowSource> sources, final int n)
+        {
+            this.sources = sources ;
+            this.queue = new PriorityQueue<>(sources.size(),
+                                              (s1, s2) -> compareRows(s1.row(), s1.offset(), s2.row(), s2.offset(), n)) ;
+            for ( RowSource s : sources )
+            {
+                if ( s.advance() )
+                    queue.add(s) ;
+            }
+        }
+
+        @Override
+        public boolean advance()
+        {
+            if ( current != null && current.advance() )
+                queue.add(current) ;
+            current = queue.poll() ;
+            return current != null ;
+        }
+
+        @Override public long[] row()       { return current.row() ; }
+        @Override public int offset()       { return current.offset() ; }
+
+        @Override
+        public void close()
+        {
+            for ( RowSource s : sources )
+                s.close() ;
+        }
+    }
+
+    /** Convert rows to records, removing duplicates. */
+    private class RecordIterator implements Iterator<Record>
+    {
+        private final RowSource source ;
+        private final long[] last = new long[itemsPerRow] ;
+        private boolean started = false ;
+        private Record slot = null ;
+        private boolean finished = false ;
+
+        RecordIterator(RowSource source) { this.source = source ; }
+
+        @Override
+        public boolean hasNext()
+        {
+            if ( slot != null )
+                return true ;
+            if ( finished )
+                return false ;
+            while ( source.advance() )
+            {
+                long[] row = source.row() ;
+                int idx = source.offset() ;
+                if ( started && compareRows(last, 0, row, idx, itemsPerRow) == 0 )
+                    continue ;
+                started = true ;
+                System.arraycopy(row, idx, last, 0, itemsPerRow) ;
+                Record record = recordFactory.create() ;
+                for ( int i = 0 ; i < itemsPerRow ; i++ )
+                    Bytes.setLong(row[idx+i], record.getKey(), i*SystemTDB.SizeOfLong) ;
+                slot = record ;
+                return true ;
+            }
+            finished = true ;
+            source.close() ;
+            TupleSorter.this.close() ;
+            return false ;
+        }
+
+        @Override
+        public Record next()
+        {
+            if ( ! hasNext() ) throw new NoSuchElementException() ;
+            Record r = slot ;
+            slot = null ;
+            return r ;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb.store.bulkloader2;
+
+import java.io.BufferedOutputStream ;
+import java.io.DataOutputStream ;
+import java.io.FileNotFoundException ;
+import java.io.FileOutputStream ;
+import java.io.IOException ;
+
+import org.apache.jena.atlas.AtlasException ;
+
+/** Buffered writer of rows of longs, in binary (big-endian, 8 bytes per item).
+ * This is the binary counterpart of {@link WriteRows} and is read by {@link ReadTuples}.
+ */
+public class WriteTuples
+{
+    private static final int BufferSize = 128*1024 ;
+    private final DataOutputStream output ;
+    private final int itemsPerRow ;
+    private int items = 0 ;
+    private long rows = 0 ;
+
+    public WriteTuples(String filename, int itemsPerRow)
+    {
+        try {
+            this.output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(filename), BufferSize)) ;
+        } catch (FileNotFoundException ex) { throw new AtlasException(ex) ; }
+        this.itemsPerRow = itemsPerRow ;
+    }
+
+    public void write(long value)
+    {
+        try { output.writeLong(value) ; }
+        catch (IOException ex) { throw new AtlasException(ex) ; }
+        items++ ;
+    }
+
+    public void write(long[] row, int start)
+    {
+        for ( int i = 0 ; i < itemsPerRow ; i++ )
+            write(row[start+i]) ;
+        endOfRow() ;
+    }
+
+    public void endOfRow()
+    {
+        if ( items != itemsPerRow )
+            throw new AtlasException("Wrong number of items in row: "+items+" (expected "+itemsPerRow+")") ;
+        items = 0 ;
+        rows++ ;
+    }
+
+    /** Number of rows written. */
+    public long getRowCount() { return rows ; }
+
+    public void close()
+    {
+        try { output.close() ; }
+        catch (IOException ex) { throw new AtlasException(ex) ; }
+    }
+}
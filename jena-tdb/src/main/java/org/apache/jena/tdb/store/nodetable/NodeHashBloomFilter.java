@@ -0,0 +1,254 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.jena.tdb.store.nodetable;
+
+import java.io.* ;
+import java.util.ArrayList ;
+import java.util.List ;
+
+import org.apache.jena.atlas.lib.Bytes ;
+import org.apache.jena.atlas.logging.Log ;
+
+/** A Bloom filter over node hashes, used to answer "definitely not present"
+ *  without a lookup in the node to NodeId index.
+ *  <p>
+ *  The node hash is already a well-distributed (MD5) value so the bit positions
+ *  are taken from it directly, using two 64 bit halves
+ *  (the Kirsch-Mitzenmacher construction).
+ *  <p>
+ *  The filter grows without needing the entries again (a scalable Bloom filter):
+ *  when the current segment reaches its capacity, a new segment of twice the capacity
+ *  is started, with 2 more bits per entry so that the overall false positive rate
+ *  stays within about twice that of the first segment.
+ *  <p>
+ *  Not synchronized.
+ */
+public final class NodeHashBloomFilter
+{
+    private static final int FileVersion = 2 ;
+    /** Minimum number of entries a filter is sized for. */
+    private static final long MinCapacity = 1024 ;
+    /** Largest array of words for one segment. */
+    private static final long MaxWords = Integer.MAX_VALUE - 8 ;
+    /** Extra bits per entry for each segment added. */
+    private static final int GrowthBits = 2 ;
+    
+    private final int bitsPerEntry ;
+    private final List<Segment> segments = new ArrayList<>() ;
+    private long count = 0 ;
+
+    /** A filter for about {@code capacity} entries using {@code bitsPerEntry} bits for each. */
+    public static NodeHashBloomFilter create(long capacity, int bitsPerEntry)
+    {
+        NodeHashBloomFilter filter = new NodeHashBloomFilter(bitsPerEntry) ;
+        filter.segments.add(Segment.create(Math.max(capacity, MinCapacity), bitsPerEntry)) ;
+        return filter ;
+    }
+    
+    private NodeHashBloomFilter(int bitsPerEntry)
+    {
+        this.bitsPerEntry = bitsPerEntry ;
+    }
+
+    /** Add a node hash. */
+    public void add(byte[] hash)
+    {
+        Segment seg = segments.get(segments.size()-1) ;
+        if ( seg.count >= seg.capacity )
+        {
+            int bits = bitsPerEntry + GrowthBits*segments.size() ;
+            seg = Segment.create(2*seg.capacity, bits) ;
+            segments.add(seg) ;
+        }
+        seg.add(hash) ;
+        count++ ;
+    }
+    
+    /** Return false if the node hash has definitely not been added. */
+    public boolean mightContain(byte[] hash)
+    {
+        // Newest, and largest, segment first.
+        for ( int i = segments.size()-1 ; i >= 0 ; i-- )
+        {
+            if ( segments.get(i).mightContain(hash) )
+                return true ;
+        }
+        return false ;
+    }
+    
+    /** Number of entries added. */
+    public long count()         { return count ; }
+
+    /** Number of entries the filter is sized for, before it next grows. */
+    public long capacity()
+    {
+        long x = 0 ;
+        for ( Segment seg : segments )
+            x += seg.capacity ;
+        return x ;
+    }
+    
+    /** Number of segments: 1 until the filter has grown beyond its initial capacity. */
+    public int segments()       { return segments.size() ; }
+
+    private static final class Segment
+    {
+        private final long[] bits ;
+        private final long numBits ;
+        private final int numHashes ;
+        private final long capacity ;
+        private long count = 0 ;
+
+        static Segment create(long capacity, int bitsPerEntry)
+        {
+            // Optimal number of hash functions is ln(2) * bits per entry.
+            int k = Math.max(1, (int)Math.round(bitsPerEntry * Math.log(2))) ;
+            long words = (capacity * bitsPerEntry + 63) / 64 ;
+            if ( words > MaxWords )
+            {
+                // Keep the bits per entry: fewer entries fit.
+                words = MaxWords ;
+                capacity = 64 * words / bitsPerEntry ;
+            }
+            return new Segment(new long[(int)words], k, capacity) ;
+        }
+
+        Segment(long[] bits, int numHashes, long capacity)
+        {
+            this.bits = bits ;
+            this.numBits = 64L * bits.length ;
+            this.numHashes = numHashes ;
+            this.capacity = capacity ;
+        }
+        
+        void add(byte[] hash)
+        {
+            long h1 = Bytes.getLong(hash, 0) ;
+            long h2 = Bytes.getLong(hash, 8) | 1 ;
+            for ( int i = 0 ; i < numHashes ; i++ )
+            {
+                long idx = Long.remainderUnsigned(h1 + i * h2, numBits) ;
+                bits[(int)(idx >>> 6)] |= 1L << idx ;
+            }
+            count++ ;
+        }
+
+        boolean mightContain(byte[] hash)
+        {
+            long h1 = Bytes.getLong(hash, 0) ;
+            long h2 = Bytes.getLong(hash, 8) | 1 ;
+            for ( int i = 0 ; i < numHashes ; i++ )
+            {
+                long idx = Long.remainderUnsigned(h1 + i * h2, numBits) ;
+                if ( ( bits[(int)(idx >>> 6)] & (1L << idx) ) == 0 )
+                    return false ;
+            }
+            return true ;
+        }
+    }
+
+    // ---- Persistence
+    // As for the live statistics, the file is valid for the state of the node table
+    // when it was written, recorded as the length of the node data file.
+    // It is removed when read so that it is not used after a crash.
+    
+    /** Write the filter to a file, recording the node table allocation point as a check. */
+    public void write(String filename, long allocOffset)
+    {
+        try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(filename)))) {
+            out.writeInt(FileVersion) ;
+            out.writeLong(allocOffset) ;
+            out.writeLong(count) ;
+            out.writeInt(bitsPerEntry) ;
+            out.writeInt(segments.size()) ;
+            for ( Segment seg : segments )
+            {
+                out.writeInt(seg.numHashes) ;
+                out.writeLong(seg.capacity) ;
+                out.writeLong(seg.count) ;
+                out.writeInt(seg.bits.length) ;
+                for ( long w : seg.bits )
+                    out.writeLong(w) ;
+            }
+        } catch (IOException ex) {
+            Log.warn(NodeHashBloomFilter.class, "Problem when writing node filter file", ex) ;
+            new File(filename).delete() ;
+        }
+    }
+    
+    /** The number of entries recorded in a filter file, whether or not it matches the
+     *  node table, or -1 if there is no readable file. This is used to size a new filter.
+     */
+    public static long readCount(String filename)
+    {
+        File f = new File(filename) ;
+        if ( ! f.exists() )
+            return -1 ;
+        try(DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(f)))) {
+            if ( in.readInt() != FileVersion )
+                return -1 ;
+            in.readLong() ;
+            return in.readLong() ;
+        } catch (IOException ex) {
+            return -1 ;
+        }
+    }
+    
+    /** Read a filter from a file, and delete the file.
+     *  Return null if there is no file or it does not match the node table. 
+     */
+    public static NodeHashBloomFilter read(String filename, long allocOffset)
+    {
+        File f = new File(filename) ;
+        if ( ! f.exists() )
+            return null ;
+        try(DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(f)))) {
+            if ( in.readInt() != FileVersion )
+                return null ;
+            if ( in.readLong() != allocOffset )
+                // Nodes have been added since the file was written.
+                return null ;
+            long count = in.readLong() ;
+            NodeHashBloomFilter filter = new NodeHashBloomFilter(in.readInt()) ;
+            filter.count = count ;
+            int n = in.readInt() ;
+            for ( int j = 0 ; j < n ; j++ )
+            {
+                int k = in.readInt() ;
+                long capacity = in.readLong() ;
+                long segCount = in.readLong() ;
+                long[] bits = new long[in.readInt()] ;
+                for ( int i = 0 ; i < bits.length ; i++ )
+                    bits[i] = in.readLong() ;
+                Segment seg = new Segment(bits, k, capacity) ;
+                seg.count = segCount ;
+                filter.segments.add(seg) ;
+            }
+            if ( filter.segments.isEmpty() )
+                return null ;
+            return filter ;
+        } catch (IOException ex) {
+            Log.warn(NodeHashBloomFilter.class, "Problem when reading node filter file", ex) ;
+            return null ;
+        } finally {
+            f.delete() ;
+        }
+    }
+}
@@ -40,6 +40,18 @@ public class NodeTableCache implements NodeTable
     // These caches are updated together.
     // See synchronization in _retrieveNodeByNodeId and _idForNode
     // The cache is assumed to be single operation-thread-safe.
+    // Cache misses are serialized by lock striping: a miss for a node locks
+    // the stripe for that node (a miss for a NodeId, the stripe for the NodeId),
+    // so misses for different stripes can go to the base table concurrently
+    // (the base table allows concurrent lookups; see NodeTableNative).
+    // The Node <-> NodeId mapping never changes once made, so two caches
+    // filled from different stripes can not disagree.
+    // Adding a node to "notPresent", and allocation of that node, happen under
+    // the node's stripe, so a node is never recorded as not present after it
+    // has been allocated. A node is removed from "notPresent" under either
+    // the node's stripe or, when found by NodeId, the NodeId's stripe; a
+    // removal only happens when the node exists so it can not lose a miss
+    // that is still true.
     private Cache<Node, NodeId> node2id_Cache = null ;
     private Cache<NodeId, Node> id2node_Cache = null ;
     
@@ -47,24 +59,36 @@ public class NodeTableCache implements NodeTable
     // Cache update needed on NodeTable changes because a node may become "known"
     private CacheSet<Node> notPresent = null ;
     private NodeTable baseTable ;
-    private Object lock = new Object() ;
+    private final Object lock = new Object() ;
+    private final Object[] stripes ;
 
     public static NodeTable create(NodeTable nodeTable, StoreParams params) {
         int nodeToIdCacheSize = params.getNode2NodeIdCacheSize() ;
         int idToNodeCacheSize = params.getNodeId2NodeCacheSize() ;
         if ( nodeToIdCacheSize <= 0 && idToNodeCacheSize <= 0 )
             return nodeTable ;
-        return new NodeTableCache(nodeTable, nodeToIdCacheSize, idToNodeCacheSize, params.getNodeMissCacheSize()) ;
+        return new NodeTableCache(nodeTable, nodeToIdCacheSize, idToNodeCacheSize, params.getNodeMissCacheSize(), params.getNodeCacheStripes()) ;
     }
 
     public static NodeTable create(NodeTable nodeTable, int nodeToIdCacheSize, int idToNodeCacheSize, int nodeMissesCacheSize) {
+        return create(nodeTable, nodeToIdCacheSize, idToNodeCacheSize, nodeMissesCacheSize, 1) ;
+    }
+
+    public static NodeTable create(NodeTable nodeTable, int nodeToIdCacheSize, int idToNodeCacheSize, int nodeMissesCacheSize, int lockStripes) {
         if ( nodeToIdCacheSize <= 0 && idToNodeCacheSize <= 0 )
             return nodeTable ;
-        return new NodeTableCache(nodeTable, nodeToIdCacheSize, idToNodeCacheSize, nodeMissesCacheSize) ;
+        return new NodeTableCache(nodeTable, nodeToIdCacheSize, idToNodeCacheSize, nodeMissesCacheSize, lockStripes) ;
     }
 
-    private NodeTableCache(NodeTable baseTable, int nodeToIdCacheSize, int idToNodeCacheSize, int nodeMissesCacheSize) {
+    private NodeTableCache(NodeTable baseTable, int nodeToIdCacheSize, int idToNodeCacheSize, int nodeMissesCacheSize, int lockStripes) {
         this.baseTable = baseTable ;
+        if ( lockStripes <= 1 )
+            stripes = new Object[]{ lock } ;
+        else {
+            stripes = new Object[lockStripes] ;
+            for ( int i = 0 ; i < lockStripes ; i++ )
+                stripes[i] = new Object() ;
+        }
         if ( nodeToIdCacheSize > 0 )
             node2id_Cache = CacheFactory.createCache(nodeToIdCacheSize) ;
         if ( idToNodeCacheSize > 0 )
@@ -115,7 +139,7 @@ public class NodeTableCache implements NodeTable
         if ( n != null )
             return n ; 
 
-        synchronized (lock) {
+        synchronized (stripeFor(id.hashCode())) {
             // Lock to update two caches consisently.
             // Verify cache miss
             n = cacheLookup(id) ;
@@ -141,7 +165,7 @@ public class NodeTableCache implements NodeTable
         NodeId nodeId = cacheLookup(node) ;
         if ( nodeId != null )
             return nodeId ; 
-        synchronized (lock) {
+        synchronized (stripeFor(node.hashCode())) {
             // Update two caches inside synchronized.
             // Check stil valid.
             nodeId = cacheLookup(node) ;
@@ -158,6 +182,14 @@ public class NodeTableCache implements NodeTable
         }
     }
 
+    private Object stripeFor(int hash) {
+        if ( stripes.length == 1 )
+            return lock ;
+        // Spread the hash bits; Node hashes often differ only in the high bits.
+        hash ^= (hash >>> 16) ;
+        return stripes[(hash & 0x7FFFFFFF) % stripes.length] ;
+    }
+
     // ----------------
     // ---- Only places that the caches are touched
     
@@ -33,20 +33,32 @@ public class NodeTableInline extends NodeTableWrapper
 {
     // Stack order: Inline > Cache > Actual
     
+    private final boolean extended ;
+    
     public static NodeTable create(NodeTable nodeTable)
     {
-        return new NodeTableInline(nodeTable) ;
+        return create(nodeTable, false) ;
+    }
+    
+    /** Inline node ids, including the extended set of inline types if {@code extended} is true.
+     * This must be the same for all uses of a database.
+     * @see NodeId#inline(Node, boolean)
+     */
+    public static NodeTable create(NodeTable nodeTable, boolean extended)
+    {
+        return new NodeTableInline(nodeTable, extended) ;
     }
     
-    private NodeTableInline(NodeTable nodeTable)
+    private NodeTableInline(NodeTable nodeTable, boolean extended)
     {
         super(nodeTable) ;
+        this.extended = extended ;
     }
     
     @Override
     public final NodeId getAllocateNodeId(Node node)
     {
-        NodeId nid = NodeId.inline(node) ;
+        NodeId nid = NodeId.inline(node, extended) ;
         if ( nid != null ) return nid ;
         return super.getAllocateNodeId(node) ;
     }
@@ -54,7 +66,7 @@ public class NodeTableInline extends NodeTableWrapper
     @Override
     public final NodeId getNodeIdForNode(Node node)
     {
-        NodeId nid = NodeId.inline(node) ;
+        NodeId nid = NodeId.inline(node, extended) ;
         if ( nid != null ) return nid ;
         return super.getNodeIdForNode(node) ;
     }
@@ -22,6 +22,8 @@ import static org.apache.jena.tdb.lib.NodeLib.setHash ;
 
 import java.nio.ByteBuffer ;
 import java.util.Iterator ;
+import java.util.concurrent.locks.ReadWriteLock ;
+import java.util.concurrent.locks.ReentrantReadWriteLock ;
 import java.util.function.Function;
 
 import org.apache.jena.atlas.iterator.Iter ;
@@ -43,22 +45,86 @@ public class NodeTableNative implements NodeTable
     
     protected ObjectFile objects ;
     protected Index nodeHashToId ;        // hash -> int
-    private boolean syncNeeded = false ;
+    protected Nodec nodec ;
+    private volatile boolean syncNeeded = false ;
+    // Lookups, in either direction, run concurrently; allocating a new node is exclusive.
+    private final ReadWriteLock lock = new ReentrantReadWriteLock() ;
+    // Optional filter of the hashes in nodeHashToId, and the file it is kept in (null for none).
+    private NodeHashBloomFilter filter = null ;
+    private String filterFilename = null ;
+    // Estimate of the space for a node in the node data file, used to size a new filter.
+    private static final int EstBytesPerNode = 32 ;
     
     // Delayed construction - must call init explicitly.
     protected NodeTableNative() {}
     
     // Combined into one constructor.
     public NodeTableNative(Index nodeToId, ObjectFile objectFile)
+    {
+        this(nodeToId, objectFile, NodeLib.nodec(null)) ;
+    }
+    
+    /** Node table using the given encoding of nodes in the object file. */
+    public NodeTableNative(Index nodeToId, ObjectFile objectFile, Nodec nodec)
     {
         this() ;
-        init(nodeToId, objectFile) ;
+        init(nodeToId, objectFile, nodec) ;
     }
     
     protected void init(Index nodeToId, ObjectFile objectFile)
+    {
+        init(nodeToId, objectFile, NodeLib.nodec(null)) ;
+    }
+    
+    protected void init(Index nodeToId, ObjectFile objectFile, Nodec nodec)
     {
         this.nodeHashToId = nodeToId ;
         this.objects = objectFile;
+        this.nodec = nodec ;
+    }
+
+    /** Use a Bloom filter of node hashes so that lookups of nodes not in the table
+     *  do not need to access the index.
+     *  The filter is read from the file, if it is valid for the current state of the node table,
+     *  or else built from the index, and it is written to the file when the node table is closed.
+     *  <p>
+     *  Call when setting up the node table, before it is in use: building the filter
+     *  scans the index without holding the node table lock.
+     *  @param filename      File for the filter, or null for no persistence. 
+     *  @param bitsPerNode   Size of the filter: 10 gives about 1% false positives.
+     */
+    public void enableFilter(String filename, int bitsPerNode)
+    {
+        if ( bitsPerNode <= 0 )
+            throw new TDBException("Bits per node must be positive: "+bitsPerNode) ;
+        NodeHashBloomFilter f = null ;
+        long sizeHint = -1 ;
+        if ( filename != null )
+        {
+            sizeHint = NodeHashBloomFilter.readCount(filename) ;
+            f = NodeHashBloomFilter.read(filename, getObjects().length()) ;
+        }
+        if ( f == null )
+            f = buildFilter(sizeHint, bitsPerNode) ;
+        lock.writeLock().lock() ;
+        try {
+            this.filterFilename = filename ;
+            this.filter = f ;
+        } finally { lock.writeLock().unlock() ; }
+    }
+    
+    /** Create a filter containing all the hashes in the index, in one scan.
+     *  The filter is sized from the count recorded in an out of date filter file, if any,
+     *  else estimated from the size of the node data file; it grows if that is too small.
+     */
+    private NodeHashBloomFilter buildFilter(long sizeHint, int bitsPerNode)
+    {
+        long n = ( sizeHint >= 0 ) ? sizeHint : getObjects().length()/EstBytesPerNode ;
+        NodeHashBloomFilter f = NodeHashBloomFilter.create(2*n, bitsPerNode) ;
+        Iterator<Record> iter = nodeHashToId.iterator() ;
+        while ( iter.hasNext() )
+            f.add(iter.next().getKey()) ;
+        return f ;
     }
 
     // ---- Public interface for Node <==> NodeId
@@ -95,10 +161,12 @@ public class NodeTableNative implements NodeTable
     // accessIndex and readNodeFromTable
     
     // Cache around this class further out in NodeTableCache are synchronized
-    // to maintain cache validatity which indirectly sync access to the NodeTable.
-    // But to be sure, we provide MRSW guarantees on this class.
+    // to maintain cache validatity but cache misses for different nodes
+    // can arrive here at the same time.
+    // This class provides MRSW guarantees: finding a node or a NodeId
+    // takes the read lock, allocating a node takes the write lock.
     // (otherwise if no cache => disaster)
-    // synchonization happens in accessIndex() and readNodeByNodeId
+    // Locking happens in accessIndex() and readNodeFromTable()
     
     // NodeId to Node worker.
     private Node _retrieveNodeByNodeId(NodeId id)
@@ -121,7 +189,7 @@ public class NodeTableNative implements NodeTable
         if ( node == Node.ANY )
             return NodeId.NodeIdAny ;
         
-        // synchronized in accessIndex
+        // Locking in accessIndex
         NodeId nodeId = accessIndex(node, allocate) ;
         return nodeId ;
     }
@@ -134,22 +202,25 @@ public class NodeTableNative implements NodeTable
         // Key only.
         Record r = nodeHashToId.getRecordFactory().create(k) ;
         
-        synchronized (this)  // Pair to readNodeFromTable.
-        {
-            // Key and value, or null
-            Record r2 = nodeHashToId.find(r) ;
-            if ( r2 != null )
-            {
-                // Found.  Get the NodeId.
-                NodeId id = NodeId.create(r2.getValue(), 0) ;
+        lock.readLock().lock() ;    // Pair to readNodeFromTable.
+        try {
+            NodeId id = findIndex(r) ;
+            if ( id != null )
                 return id ;
-            }
-
             // Not found.
             if ( ! create )
                 return NodeId.NodeDoesNotExist ;
+        } finally { lock.readLock().unlock() ; }
+        
+        lock.writeLock().lock() ;
+        try {
+            // Check again - another thread may have added the node
+            // between the read lock and the write lock.
+            NodeId id = findIndex(r) ;
+            if ( id != null )
+                return id ;
             // Write the node, which allocates an id for it.
-            NodeId id = writeNodeToTable(node) ;
+            id = writeNodeToTable(node) ;
 
             // Update the r record with the new id.
             // r.value := id bytes ; 
@@ -158,40 +229,65 @@ public class NodeTableNative implements NodeTable
             // Put in index - may appear because of concurrency
             if ( ! nodeHashToId.add(r) )
                 throw new TDBException("NodeTableBase::nodeToId - record mysteriously appeared") ;
+            if ( filter != null )
+                filter.add(k) ;
             return id ;
-        }
+        } finally { lock.writeLock().unlock() ; }
+    }
+    
+    /** Look in the index for the key of record {@code r}: return the NodeId or null if none. */
+    private NodeId findIndex(Record r)
+    {
+        // The filter says "definitely not present" or "maybe".
+        if ( filter != null && ! filter.mightContain(r.getKey()) )
+            return null ;
+        // Key and value, or null
+        Record r2 = nodeHashToId.find(r) ;
+        if ( r2 == null )
+            return null ;
+        // Found.  Get the NodeId.
+        return NodeId.create(r2.getValue(), 0) ;
     }
     
     // -------- NodeId<->Node
     // Synchronization:
-    //   write: in accessIndex
-    //   read: synchronized here.
+    //   write: in accessIndex, write lock.
+    //   read: read lock here.
     // Only places for accessing the StringFile.
     
     private final NodeId writeNodeToTable(Node node)
     {
         syncNeeded = true ;
-        // Synchronized in accessIndex
-        long x = NodeLib.encodeStore(node, getObjects()) ;
+        // Write lock held in accessIndex
+        long x = NodeLib.encodeStore(node, getObjects(), nodec) ;
         return NodeId.create(x);
     }
     
 
     private final Node readNodeFromTable(NodeId id)
     {
-        synchronized (this) // Pair to accessIndex
-        {
+        lock.readLock().lock() ;    // Pair to accessIndex
+        try {
             if ( id.getId() >= getObjects().length() )
                 return null ;
-            return NodeLib.fetchDecode(id.getId(), getObjects()) ;
-        }
+            return NodeLib.fetchDecode(id.getId(), getObjects(), nodec) ;
+        } finally { lock.readLock().unlock() ; }
     }
     // -------- NodeId<->Node
 
     @Override
-    public synchronized void close()
+    public void close()
+    {
+        lock.writeLock().lock() ;
+        try { _close() ; } finally { lock.writeLock().unlock() ; }
+    }
+    
+    private void _close()
     {
         // Close once.  This may be shared (e.g. triples table and quads table). 
+        if ( filter != null && filterFilename != null && getObjects() != null )
+            filter.write(filterFilename, getObjects().length()) ;
+        filter = null ;
         if ( nodeHashToId != null )
         {
             nodeHashToId.close() ;
@@ -221,7 +317,7 @@ public class NodeTableNative implements NodeTable
 		Function<Pair<Long, ByteBuffer>, Pair<NodeId, Node>> transform = item -> {
 			NodeId id = NodeId.create(item.car().longValue());
 			ByteBuffer bb = item.cdr();
-			Node n = NodeLib.decode(bb);
+			Node n = NodeLib.decode(bb, nodec);
 			return new Pair<>(id, n);
 		};
         return Iter.map(objs, transform) ;
@@ -0,0 +1,309 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.jena.tdb.store.nodetable;
+
+import java.nio.ByteBuffer ;
+import java.util.HashMap ;
+import java.util.Map ;
+
+import org.apache.jena.atlas.io.BlockUTF8 ;
+import org.apache.jena.datatypes.TypeMapper ;
+import org.apache.jena.graph.Node ;
+import org.apache.jena.graph.NodeFactory ;
+import org.apache.jena.riot.web.LangTag ;
+import org.apache.jena.shared.PrefixMapping ;
+import org.apache.jena.sparql.util.NodeUtils ;
+import org.apache.jena.tdb.TDBException ;
+import org.apache.jena.vocabulary.RDF ;
+import org.apache.jena.vocabulary.XSD ;
+
+/** Compact binary encoder/decoder for nodes.
+ * <p>
+ * The first byte is a tag: the format version in the high 4 bits and the kind
+ * of node in the low 4 bits. Strings are UTF-8. Strings that are not the last
+ * part of the encoding are preceded by their length in bytes as a varint (7 bits
+ * per byte, low bits first); the last string runs to the end of the encoding.
+ * <pre>
+ *   URI                 tag, UTF-8 IRI
+ *   Blank node          tag, UTF-8 label
+ *   Simple literal      tag, UTF-8 lexical form
+ *   Language literal    tag, language index,      UTF-8 lexical form
+ *                       tag, varint length, lang, UTF-8 lexical form
+ *   Datatype literal    tag, datatype index,      UTF-8 lexical form
+ *                       tag, varint length, IRI,  UTF-8 lexical form
+ * </pre>
+ * Common datatypes and language tags are encoded as a one byte index into
+ * fixed tables. The tables are part of the format: they can only be added to
+ * with a new version number.
+ */
+public class NodecBinary implements Nodec
+{
+    /** Format version - change if the tables change. */
+    public static final int Version        = 1 ;
+
+    private static final int KindURI       = 1 ;
+    private static final int KindBNode     = 2 ;
+    private static final int KindLiteral   = 3 ;
+    private static final int KindLangIdx   = 4 ;
+    private static final int KindLang      = 5 ;
+    private static final int KindDTIdx     = 6 ;
+    private static final int KindDT        = 7 ;
+
+    private static final String[] datatypes = {
+        XSD.integer.getURI(), XSD.decimal.getURI(), XSD.xdouble.getURI(), XSD.xfloat.getURI(),
+        XSD.xboolean.getURI(),
+        XSD.dateTime.getURI(), XSD.dateTimeStamp.getURI(), XSD.date.getURI(), XSD.time.getURI(),
+        XSD.gYear.getURI(), XSD.gYearMonth.getURI(), XSD.gMonth.getURI(), XSD.gMonthDay.getURI(), XSD.gDay.getURI(),
+        XSD.duration.getURI(), XSD.dayTimeDuration.getURI(), XSD.yearMonthDuration.getURI(),
+        XSD.xlong.getURI(), XSD.xint.getURI(), XSD.xshort.getURI(), XSD.xbyte.getURI(),
+        XSD.nonNegativeInteger.getURI(), XSD.positiveInteger.getURI(),
+        XSD.nonPositiveInteger.getURI(), XSD.negativeInteger.getURI(),
+        XSD.unsignedLong.getURI(), XSD.unsignedInt.getURI(), XSD.unsignedShort.getURI(), XSD.unsignedByte.getURI(),
+        XSD.anyURI.getURI(), XSD.hexBinary.getURI(), XSD.base64Binary.getURI(),
+        XSD.normalizedString.getURI(), XSD.token.getURI(), XSD.language.getURI(),
+        XSD.Name.getURI(), XSD.NCName.getURI(), XSD.NMTOKEN.getURI(),
+        XSD.xstring.getURI(),
+        RDF.dtXMLLiteral.getURI(), RDF.dtRDFHTML.getURI(), RDF.dtLangString.getURI()
+    } ;
+
+    private static final String[] langs = {
+        "en", "en-US", "en-GB", "de", "fr", "es", "it", "nl", "pt", "pt-BR", "ru", "pl", "sv", "da",
+        "no", "nb", "fi", "cs", "hu", "ro", "el", "tr", "ar", "he", "fa", "hi", "ja", "ko", "zh",
+        "zh-Hans", "zh-Hant", "la", "ca", "eu", "gl", "ga", "cy", "uk", "bg", "hr", "sr", "sk", "sl"
+    } ;
+
+    private static final Map<String, Integer> datatypeIndex = index(datatypes) ;
+    private static final Map<String, Integer> langIndex = index(langs) ;
+
+    private static Map<String, Integer> index(String[] table)
+    {
+        Map<String, Integer> map = new HashMap<>() ;
+        for ( int i = 0 ; i < table.length ; i++ )
+            map.put(table[i], i) ;
+        return map ;
+    }
+
+    public NodecBinary() {}
+
+    @Override
+    public int maxSize(Node node)
+    {
+        // Tag, up to two varints, and UTF-8 is at most 3 bytes for each char.
+        int x = 1+2*5 ;
+        if ( node.isURI() )
+            return x+3*node.getURI().length() ;
+        if ( node.isBlank() )
+            return x+3*node.getBlankNodeLabel().length() ;
+        if ( node.isLiteral() )
+        {
+            String dt = node.getLiteralDatatypeURI() ;
+            return x+3*(node.getLiteralLexicalForm().length()
+                        +node.getLiteralLanguage().length()
+                        +(dt == null ? 0 : dt.length())) ;
+        }
+        throw new TDBException("Can't encode: "+node) ;
+    }
+
+    @Override
+    public int encode(Node node, ByteBuffer bb, PrefixMapping pmap)
+    {
+        int start = bb.position() ;
+        int x = start ;
+        if ( node.isURI() )
+        {
+            bb.put(x++, tag(KindURI)) ;
+            x = putString(bb, x, node.getURI()) ;
+        }
+        else if ( node.isBlank() )
+        {
+            bb.put(x++, tag(KindBNode)) ;
+            x = putString(bb, x, node.getBlankNodeLabel()) ;
+        }
+        else if ( node.isLiteral() )
+        {
+            if ( NodeUtils.isSimpleString(node) )
+                bb.put(x++, tag(KindLiteral)) ;
+            else if ( NodeUtils.isLangString(node) )
+            {
+                String lang = node.getLiteralLanguage() ;
+                if ( ! LangTag.check(lang) )
+                    throw new TDBException("bad language tag: "+node) ;
+                x = putEntry(bb, x, KindLangIdx, KindLang, langIndex, lang) ;
+            }
+            else
+                x = putEntry(bb, x, KindDTIdx, KindDT, datatypeIndex, node.getLiteralDatatypeURI()) ;
+            x = putString(bb, x, node.getLiteralLexicalForm()) ;
+        }
+        else
+            throw new TDBException("Can't encode: "+node) ;
+        bb.limit(x) ;
+        bb.position(start) ;
+        return x-start ;
+    }
+
+    @Override
+    public Node decode(ByteBuffer bb, PrefixMapping pmap)
+    {
+        int start = bb.position() ;
+        int finish = bb.limit() ;
+        if ( finish <= start )
+            throw new TDBException("NodecBinary: empty encoding") ;
+        int tag = bb.get(start)&0xFF ;
+        int version = tag>>>4 ;
+        if ( version != Version )
+            throw new TDBException("NodecBinary: unsupported version: "+version) ;
+        int x = start+1 ;
+        switch (tag&0x0F)
+        {
+            case KindURI :
+                return NodeFactory.createURI(string(bb, x, finish)) ;
+            case KindBNode :
+                return NodeFactory.createBlankNode(string(bb, x, finish)) ;
+            case KindLiteral :
+                return NodeFactory.createLiteral(string(bb, x, finish)) ;
+            case KindLangIdx : {
+                String lang = lookup(langs, bb.get(x)&0xFF) ;
+                return NodeFactory.createLiteral(string(bb, x+1, finish), lang) ;
+            }
+            case KindLang : {
+                int len = getVarint(bb, x) ;
+                x += varintLength(len) ;
+                String lang = string(bb, x, x+len) ;
+                return NodeFactory.createLiteral(string(bb, x+len, finish), lang) ;
+            }
+            case KindDTIdx : {
+                String dt = lookup(datatypes, bb.get(x)&0xFF) ;
+                return literal(string(bb, x+1, finish), dt) ;
+            }
+            case KindDT : {
+                int len = getVarint(bb, x) ;
+                x += varintLength(len) ;
+                String dt = string(bb, x, x+len) ;
+                return literal(string(bb, x+len, finish), dt) ;
+            }
+            default :
+                throw new TDBException("NodecBinary: unrecognized tag: "+tag) ;
+        }
+    }
+
+    private static Node literal(String lex, String datatypeURI)
+    {
+        return NodeFactory.createLiteral(lex, TypeMapper.getInstance().getSafeTypeByName(datatypeURI)) ;
+    }
+
+    private static byte tag(int kind)
+    {
+        return (byte)((Version<<4)|kind) ;
+    }
+
+    private static String lookup(String[] table, int idx)
+    {
+        if ( idx >= table.length )
+            throw new TDBException("NodecBinary: bad table index: "+idx) ;
+        return table[idx] ;
+    }
+
+    // Either the tag and table index, or the tag and the length-prefixed string. 
+    private static int putEntry(ByteBuffer bb, int x, int kindIdx, int kind, Map<String, Integer> table, String str)
+    {
+        Integer idx = table.get(str) ;
+        if ( idx != null )
+        {
+            bb.put(x++, tag(kindIdx)) ;
+            bb.put(x++, (byte)idx.intValue()) ;
+            return x ;
+        }
+        bb.put(x++, tag(kind)) ;
+        x = putVarint(bb, x, utf8Length(str)) ;
+        return putString(bb, x, str) ;
+    }
+
+    private static int putString(ByteBuffer bb, int x, String str)
+    {
+        ByteBuffer bb2 = bb.duplicate() ;
+        bb2.limit(bb2.capacity()) ;
+        bb2.position(x) ;
+        BlockUTF8.fromChars(str, bb2) ;
+        return bb2.position() ;
+    }
+
+    /** UTF-8 bytes from start (inclusive) to finish (exclusive) as a string. */
+    private static String string(ByteBuffer bb, int start, int finish)
+    {
+        if ( finish > bb.limit() )
+            throw new TDBException("NodecBinary: encoding truncated") ;
+        ByteBuffer bb2 = bb.duplicate() ;
+        bb2.limit(finish) ;
+        bb2.position(start) ;
+        return BlockUTF8.toString(bb2) ;
+    }
+
+    // Length as written by BlockUTF8, which works on chars.
+    private static int utf8Length(String str)
+    {
+        int len = 0 ;
+        for ( int i = 0 ; i < str.length() ; i++ )
+        {
+            char ch = str.charAt(i) ;
+            if ( ch < 0x80 )
+                len += 1 ;
+            else if ( ch < 0x800 )
+                len += 2 ;
+            else
+                len += 3 ;
+        }
+        return len ;
+    }
+
+    private static int putVarint(ByteBuffer bb, int x, int value)
+    {
+        while ( (value & ~0x7F) != 0 )
+        {
+            bb.put(x++, (byte)((value&0x7F)|0x80)) ;
+            value >>>= 7 ;
+        }
+        bb.put(x++, (byte)value) ;
+        return x ;
+    }
+
+    private static int getVarint(ByteBuffer bb, int x)
+    {
+        int value = 0 ;
+        for ( int shift = 0 ; shift < 32 ; shift += 7 )
+        {
+            byte b = bb.get(x++) ;
+            value |= (b&0x7F)<<shift ;
+            if ( (b&0x80) == 0 )
+                return value ;
+        }
+        throw new TDBException("NodecBinary: bad varint") ;
+    }
+
+    private static int varintLength(int value)
+    {
+        int len = 1 ;
+        while ( (value & ~0x7F) != 0 )
+        {
+            len++ ;
+            value >>>= 7 ;
+        }
+        return len ;
+    }
+}
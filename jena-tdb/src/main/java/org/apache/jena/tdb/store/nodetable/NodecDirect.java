@@ -0,0 +1,125 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.jena.tdb.store.nodetable;
+
+import java.nio.ByteBuffer ;
+
+import org.apache.jena.atlas.io.BlockUTF8 ;
+import org.apache.jena.atlas.lib.StrUtils ;
+import org.apache.jena.datatypes.TypeMapper ;
+import org.apache.jena.graph.Node ;
+import org.apache.jena.graph.NodeFactory ;
+import org.apache.jena.shared.PrefixMapping ;
+
+/** Encoder/decoder for nodes, using the same bytes as {@link NodecSSE}, that decodes
+ * the common forms of IRIs, blank nodes and literals straight from the byte buffer.
+ * Only the bytes of each part of the node are converted to strings; there is no
+ * intermediate string for the whole encoding and no tokenizer.
+ * The byte buffer is only accessed by absolute operations so it can be
+ * a read-only slice of a memory mapped file.
+ * Encodings with escapes, and other forms, are decoded by {@link NodecSSE}.
+ */
+public class NodecDirect implements Nodec
+{
+    private final NodecSSE nodecSSE = new NodecSSE() ;
+    // Characters in IRIs that are illegal and cause SSE problems, but we wish to keep.
+    final private static char MarkerChar = '_' ;
+
+    public NodecDirect() {}
+
+    @Override
+    public int maxSize(Node node)
+    {
+        return nodecSSE.maxSize(node) ;
+    }
+
+    @Override
+    public int encode(Node node, ByteBuffer bb, PrefixMapping pmap)
+    {
+        return nodecSSE.encode(node, bb, pmap) ;
+    }
+
+    @Override
+    public Node decode(ByteBuffer bb, PrefixMapping pmap)
+    {
+        int start = bb.position() ;
+        int finish = bb.limit() ;
+        if ( finish-start < 2 )
+            return nodecSSE.decode(bb, pmap) ;
+        byte b = bb.get(start) ;
+
+        if ( b == '_' && bb.get(start+1) == ':' )
+            return NodeFactory.createBlankNode(string(bb, start+2, finish)) ;
+
+        if ( b == '<' && bb.get(finish-1) == '>' )
+        {
+            String str = string(bb, start+1, finish-1) ;
+            if ( contains(bb, start+1, finish-1, '\\') )
+                str = StrUtils.unescapeString(str) ;
+            if ( contains(bb, start+1, finish-1, MarkerChar) )
+                str = StrUtils.decodeHex(str, MarkerChar) ;
+            return NodeFactory.createURI(str) ;
+        }
+
+        if ( b == '"' && ! contains(bb, start+1, finish, '\\') )
+        {
+            // No escapes so the first quote is the end of the lexical form.
+            int idx = indexOf(bb, start+1, finish, '"') ;
+            if ( idx < 0 )
+                return nodecSSE.decode(bb, pmap) ;
+            String lex = string(bb, start+1, idx) ;
+            if ( idx == finish-1 )
+                return NodeFactory.createLiteral(lex) ;
+            if ( bb.get(idx+1) == '@' )
+                return NodeFactory.createLiteral(lex, string(bb, idx+2, finish)) ;
+            if ( finish-idx > 4 && bb.get(idx+1) == '^' && bb.get(idx+2) == '^' && bb.get(idx+3) == '<' && bb.get(finish-1) == '>' )
+            {
+                String dt = string(bb, idx+4, finish-1) ;
+                return NodeFactory.createLiteral(lex, TypeMapper.getInstance().getSafeTypeByName(dt)) ;
+            }
+        }
+        return nodecSSE.decode(bb, pmap) ;
+    }
+
+    /** UTF-8 bytes from start (inclusive) to finish (exclusive) as a string. */
+    private static String string(ByteBuffer bb, int start, int finish)
+    {
+        ByteBuffer bb2 = bb.duplicate() ;
+        bb2.limit(finish) ;
+        bb2.position(start) ;
+        return BlockUTF8.toString(bb2) ;
+    }
+
+    // Bytes of multi-byte UTF-8 characters are all 0x80 or above so can not match an ASCII character.
+    private static int indexOf(ByteBuffer bb, int start, int finish, char ch)
+    {
+        for ( int i = start ; i < finish ; i++ )
+        {
+            if ( bb.get(i) == ch )
+                return i ;
+        }
+        return -1 ;
+    }
+
+    private static boolean contains(ByteBuffer bb, int start, int finish, char ch)
+    {
+        return indexOf(bb, start, finish, ch) >= 0 ;
+    }
+}
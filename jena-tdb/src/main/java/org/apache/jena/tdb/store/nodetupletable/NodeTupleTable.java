@@ -19,6 +19,7 @@
 package org.apache.jena.tdb.store.nodetupletable ;
 
 import java.util.Iterator ;
+import java.util.List ;
 
 import org.apache.jena.atlas.lib.Closeable ;
 import org.apache.jena.atlas.lib.Sync ;
@@ -26,6 +27,7 @@ import org.apache.jena.atlas.lib.tuple.Tuple ;
 import org.apache.jena.graph.Node ;
 import org.apache.jena.tdb.store.NodeId ;
 import org.apache.jena.tdb.store.nodetable.NodeTable ;
+import org.apache.jena.tdb.store.tupletable.TupleScan ;
 import org.apache.jena.tdb.store.tupletable.TupleTable ;
 import org.apache.jena.tdb.sys.DatasetControl ;
 
@@ -47,6 +49,27 @@ public interface NodeTupleTable extends Sync, Closeable
     /** Find by NodeId. */
     public Iterator<Tuple<NodeId>> find(Tuple<NodeId> ids) ;
 
+    /** Find by NodeId, as batches of NodeId values. The caller is responsible for checking any iterators
+     *  built from the scan with the {@link #getPolicy() policy}.
+     */
+    public TupleScan findScan(Tuple<NodeId> ids) ;
+
+    /** Find by NodeId, with the results in order of the NodeId in slot {@code slot}.
+     *  Return null if no index provides that order.
+     */
+    public Iterator<Tuple<NodeId>> findSorted(Tuple<NodeId> ids, int slot) ;
+
+    /** Find by NodeId, where the NodeId in slot {@code slot} is within one of the inclusive
+     *  ranges, given as (low, high) pairs in increasing order.
+     *  Return null if no index can be read by range for that slot.
+     */
+    public Iterator<Tuple<NodeId>> findRange(Tuple<NodeId> ids, int slot, List<long[]> ranges) ;
+
+    /** Find by NodeId, returning one tuple for each distinct combination of the slots other
+     *  than {@code slot}. Return null if no index supports skipping over {@code slot}.
+     */
+    public Iterator<Tuple<NodeId>> findDistinct(Tuple<NodeId> ids, int slot) ;
+
     /** Find all tuples */ 
     public Iterator<Tuple<NodeId>> findAll() ;
 
@@ -21,6 +21,7 @@ package org.apache.jena.tdb.store.nodetupletable ;
 import static java.lang.String.format ;
 
 import java.util.Iterator ;
+import java.util.List ;
 
 import org.apache.jena.atlas.iterator.Iter ;
 import org.apache.jena.atlas.iterator.NullIterator ;
@@ -32,6 +33,7 @@ import org.apache.jena.tdb.lib.TupleLib ;
 import org.apache.jena.tdb.store.NodeId ;
 import org.apache.jena.tdb.store.nodetable.NodeTable ;
 import org.apache.jena.tdb.store.tupletable.TupleIndex ;
+import org.apache.jena.tdb.store.tupletable.TupleScan ;
 import org.apache.jena.tdb.store.tupletable.TupleTable ;
 import org.apache.jena.tdb.sys.DatasetControl ;
 
@@ -169,6 +171,55 @@ public class NodeTupleTableConcrete implements NodeTupleTable
         } finally { finishRead() ; }
     }
 
+    /** Find by NodeId, as batches of NodeId values. */
+    @Override
+    public TupleScan findScan(Tuple<NodeId> tuple)
+    {
+        try {
+            startRead() ;
+            return tupleTable.findScan(tuple) ;
+        } finally { finishRead() ; }
+    }
+
+    /** Find by NodeId, sorted by a slot. */
+    @Override
+    public Iterator<Tuple<NodeId>> findSorted(Tuple<NodeId> tuple, int slot)
+    {
+        try {
+            startRead() ;
+            Iterator<Tuple<NodeId>> iter = tupleTable.findSorted(tuple, slot) ;
+            if ( iter == null )
+                return null ;
+            return iteratorControl(iter) ;
+        } finally { finishRead() ; }
+    }
+
+    /** Find by NodeId, with a range for a slot. */
+    @Override
+    public Iterator<Tuple<NodeId>> findRange(Tuple<NodeId> tuple, int slot, List<long[]> ranges)
+    {
+        try {
+            startRead() ;
+            Iterator<Tuple<NodeId>> iter = tupleTable.findRange(tuple, slot, ranges) ;
+            if ( iter == null )
+                return null ;
+            return iteratorControl(iter) ;
+        } finally { finishRead() ; }
+    }
+
+    /** Find by NodeId, one tuple for each distinct value of the slots other than {@code slot}. */
+    @Override
+    public Iterator<Tuple<NodeId>> findDistinct(Tuple<NodeId> tuple, int slot)
+    {
+        try {
+            startRead() ;
+            Iterator<Tuple<NodeId>> iter = tupleTable.findDistinct(tuple, slot) ;
+            if ( iter == null )
+                return null ;
+            return iteratorControl(iter) ;
+        } finally { finishRead() ; }
+    }
+
     @Override
     public Iterator<Tuple<NodeId>> findAll()
     {
@@ -19,11 +19,14 @@
 package org.apache.jena.tdb.store.nodetupletable;
 
 import java.util.Iterator ;
+import java.util.List ;
 
 import org.apache.jena.atlas.lib.ArrayUtils ;
 import org.apache.jena.atlas.lib.tuple.Tuple ;
+import org.apache.jena.atlas.lib.tuple.TupleFactory ;
 import org.apache.jena.graph.Node ;
 import org.apache.jena.tdb.store.NodeId ;
+import org.apache.jena.tdb.store.tupletable.TupleScan ;
 import org.apache.jena.tdb.store.tupletable.TupleTable ;
 
 /** (Read-only?) projection of another NodeTupleTable. 
@@ -94,6 +97,35 @@ public class NodeTupleTableView extends NodeTupleTableWrapper
         return nodeTupleTable.find(ids2) ;
     }
 
+    /** The columns of the scan include the prefix slot. */
+    @Override
+    public TupleScan findScan(Tuple<NodeId> ids)
+    {
+        NodeId[] ids2 = push(NodeId.class, prefixId, ids) ;
+        return nodeTupleTable.findScan(TupleFactory.asTuple(ids2)) ;
+    }
+
+    @Override
+    public Iterator<Tuple<NodeId>> findSorted(Tuple<NodeId> ids, int slot)
+    {
+        NodeId[] ids2 = push(NodeId.class, prefixId, ids) ;
+        return nodeTupleTable.findSorted(TupleFactory.asTuple(ids2), slot+1) ;
+    }
+
+    @Override
+    public Iterator<Tuple<NodeId>> findRange(Tuple<NodeId> ids, int slot, List<long[]> ranges)
+    {
+        NodeId[] ids2 = push(NodeId.class, prefixId, ids) ;
+        return nodeTupleTable.findRange(TupleFactory.asTuple(ids2), slot+1, ranges) ;
+    }
+
+    @Override
+    public Iterator<Tuple<NodeId>> findDistinct(Tuple<NodeId> ids, int slot)
+    {
+        NodeId[] ids2 = push(NodeId.class, prefixId, ids) ;
+        return nodeTupleTable.findDistinct(TupleFactory.asTuple(ids2), slot+1) ;
+    }
+
     @Override
     public Iterator<Tuple<NodeId>> findAsNodeIds(Node... nodes)
     {
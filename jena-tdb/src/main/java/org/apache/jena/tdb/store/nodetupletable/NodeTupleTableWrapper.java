@@ -19,11 +19,13 @@
 package org.apache.jena.tdb.store.nodetupletable;
 
 import java.util.Iterator ;
+import java.util.List ;
 
 import org.apache.jena.atlas.lib.tuple.Tuple ;
 import org.apache.jena.graph.Node ;
 import org.apache.jena.tdb.store.NodeId ;
 import org.apache.jena.tdb.store.nodetable.NodeTable ;
+import org.apache.jena.tdb.store.tupletable.TupleScan ;
 import org.apache.jena.tdb.store.tupletable.TupleTable ;
 import org.apache.jena.tdb.sys.DatasetControl ;
 
@@ -63,6 +65,22 @@ public class NodeTupleTableWrapper implements NodeTupleTable
     public Iterator<Tuple<NodeId>> find(Tuple<NodeId> tuple)
     { return nodeTupleTable.find(tuple) ; }
     
+    @Override
+    public TupleScan findScan(Tuple<NodeId> tuple)
+    { return nodeTupleTable.findScan(tuple) ; }
+    
+    @Override
+    public Iterator<Tuple<NodeId>> findSorted(Tuple<NodeId> tuple, int slot)
+    { return nodeTupleTable.findSorted(tuple, slot) ; }
+    
+    @Override
+    public Iterator<Tuple<NodeId>> findRange(Tuple<NodeId> tuple, int slot, List<long[]> ranges)
+    { return nodeTupleTable.findRange(tuple, slot, ranges) ; }
+    
+    @Override
+    public Iterator<Tuple<NodeId>> findDistinct(Tuple<NodeId> tuple, int slot)
+    { return nodeTupleTable.findDistinct(tuple, slot) ; }
+    
     @Override
     public Iterator<Tuple<NodeId>> findAsNodeIds(Node... nodes)
     { return nodeTupleTable.findAsNodeIds(nodes) ; }
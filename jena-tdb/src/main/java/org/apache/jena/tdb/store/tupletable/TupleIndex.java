@@ -50,6 +50,28 @@ public interface TupleIndex extends Sync, Closeable
 
     public Iterator<Tuple<NodeId>> find(Tuple<NodeId> pattern) ;
     
+    /** Find all matching tuples, as batches of NodeId values - a slot of NodeId.NodeIdAny (or null) means match any.
+     *  Input pattern in natural order, not index order.
+     *  @see TupleScan
+     */
+    public TupleScan findScan(Tuple<NodeId> pattern) ;
+    
+    /** Find all matching tuples where the NodeId in slot {@code slot} (natural order) 
+     *  is between {@code low} and {@code high} inclusive.
+     *  The bound slots of the pattern must be the leading slots of the index, followed by {@code slot}
+     *  (see {@link TupleTable#sortedIndex}).
+     *  Input pattern in natural order, not index order.
+     */
+    public Iterator<Tuple<NodeId>> findRange(Tuple<NodeId> pattern, int slot, long low, long high) ;
+    
+    /** Find matching tuples, returning only the first tuple of each run of tuples that
+     *  differ only in the last slot of the index. This skips over the other tuples of a run
+     *  without reading them all.
+     *  The bound slots of the pattern must be the leading slots of the index.
+     *  Input pattern in natural order, not index order.
+     */
+    public Iterator<Tuple<NodeId>> findDistinct(Tuple<NodeId> pattern) ;
+    
     /** return an iterator of everything */
     public Iterator<Tuple<NodeId>> all() ;
     
@@ -50,6 +50,14 @@ public abstract class TupleIndexBase implements TupleIndex
     /** Find tuples worker: Tuple passed in unmaped (untouched) order */
     protected abstract Iterator<Tuple<NodeId>> performFind(Tuple<NodeId> tuple) ;
 
+    /** Find tuples worker, batch form: Tuple passed in unmaped (untouched) order */
+    protected abstract TupleScan performFindScan(Tuple<NodeId> tuple) ;
+
+    /** Find tuples worker, range of one slot: Tuple passed in unmaped (untouched) order */
+    protected abstract Iterator<Tuple<NodeId>> performFindRange(Tuple<NodeId> tuple, int slot, long low, long high) ;
+
+    protected abstract Iterator<Tuple<NodeId>> performFindDistinct(Tuple<NodeId> tuple) ;
+
     /** Insert a tuple - return true if it was really added, false if it was a duplicate */
     @Override
     public final boolean add(Tuple<NodeId> tuple) 
@@ -89,6 +97,48 @@ public abstract class TupleIndexBase implements TupleIndex
         return performFind(pattern) ;
     }
     
+    /** Find all matching tuples, as batches of NodeId values. 
+     *  Input pattern in natural order, not index order.
+     */
+    @Override
+    public final TupleScan findScan(Tuple<NodeId> pattern)
+    {
+        if ( Check )
+        {
+            if ( tupleLength != pattern.len() )
+            throw new TDBException(String.format("Mismatch: tuple length %d / index for length %d", pattern.len(), tupleLength)) ;
+        } 
+        return performFindScan(pattern) ;
+    }
+    
+    /** Find all matching tuples with the NodeId of one slot in a range.
+     *  Input pattern in natural order, not index order.
+     */
+    @Override
+    public final Iterator<Tuple<NodeId>> findRange(Tuple<NodeId> pattern, int slot, long low, long high)
+    {
+        if ( Check )
+        {
+            if ( tupleLength != pattern.len() )
+            throw new TDBException(String.format("Mismatch: tuple length %d / index for length %d", pattern.len(), tupleLength)) ;
+        } 
+        return performFindRange(pattern, slot, low, high) ;
+    }
+    
+    /** Find matching tuples, one for each distinct value of all the slots of the index but the last.
+     *  Input pattern in natural order, not index order.
+     */
+    @Override
+    public final Iterator<Tuple<NodeId>> findDistinct(Tuple<NodeId> pattern)
+    {
+        if ( Check )
+        {
+            if ( tupleLength != pattern.len() )
+            throw new TDBException(String.format("Mismatch: tuple length %d / index for length %d", pattern.len(), tupleLength)) ;
+        } 
+        return performFindDistinct(pattern) ;
+    }
+    
     @Override
     public final int weight(Tuple<NodeId> pattern)
     {
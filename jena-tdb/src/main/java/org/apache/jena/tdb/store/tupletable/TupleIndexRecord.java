@@ -30,6 +30,7 @@ import org.apache.jena.tdb.TDBException ;
 import org.apache.jena.tdb.base.record.Record ;
 import org.apache.jena.tdb.base.record.RecordFactory ;
 import org.apache.jena.tdb.index.RangeIndex ;
+import org.apache.jena.tdb.index.RangeScan ;
 import org.apache.jena.tdb.lib.ColumnMap ;
 import org.apache.jena.tdb.lib.TupleLib ;
 import org.apache.jena.tdb.store.NodeId ;
@@ -169,6 +170,302 @@ public class TupleIndexRecord extends TupleIndexBase
         return tuples;
     }
     
+    /**
+     * Find all matching tuples as batches of NodeId values, read directly from
+     * the index records. Input pattern in natural order, not index order.
+     */
+    @Override
+    protected TupleScan performFindScan(Tuple<NodeId> patternNaturalOrder) {
+        Tuple<NodeId> pattern = colMap.map(patternNaturalOrder);
+
+        int numSlots = 0;
+        int leadingIdx = -1;
+        boolean leading = true;
+
+        Record minRec = factory.createKeyOnly();
+        Record maxRec = factory.createKeyOnly();
+        // Key slots, in index order, to check after the range scan.
+        long[] filterValues = new long[pattern.len()];
+        boolean[] filterSlots = new boolean[pattern.len()];
+        boolean needsFilter = false;
+
+        for ( int i = 0 ; i < pattern.len() ; i++ ) {
+            NodeId X = pattern.get(i);
+            if ( NodeId.isAny(X) ) {
+                leading = false;
+                continue;
+            }
+            numSlots++;
+            if ( leading ) {
+                leadingIdx = i;
+                Bytes.setLong(X.getId(), minRec.getKey(), i * SizeOfNodeId);
+                Bytes.setLong(X.getId(), maxRec.getKey(), i * SizeOfNodeId);
+            } else {
+                needsFilter = true;
+                filterSlots[i] = true;
+                filterValues[i] = X.getId();
+            }
+        }
+
+        if ( numSlots == pattern.len() ) {
+            if ( index.contains(minRec) )
+                return TupleScan.singleton(patternNaturalOrder);
+            else
+                return TupleScan.empty();
+        }
+
+        RangeScan scan;
+        if ( leadingIdx < 0 )
+            scan = index.scan(null, null);
+        else {
+            NodeId X = pattern.get(leadingIdx);
+            Bytes.setLong(X.getId() + 1, maxRec.getKey(), leadingIdx * SizeOfNodeId);
+            scan = index.scan(minRec, maxRec);
+        }
+        if ( !needsFilter )
+            filterSlots = null;
+        return new RecordTupleScan(scan, colMap, filterSlots, filterValues);
+    }
+
+    /**
+     * Find all matching tuples with the NodeId in slot {@code slot} between low and high, inclusive.
+     * The bound slots must be the leading slots of the index, followed by {@code slot}.
+     * Input pattern in natural order, not index order.
+     */
+    @Override
+    protected Iterator<Tuple<NodeId>> performFindRange(Tuple<NodeId> patternNaturalOrder, int slot, long low, long high) {
+        Tuple<NodeId> pattern = colMap.map(patternNaturalOrder);
+        int rangeIdx = colMap.mapSlotIdx(slot);
+
+        Record minRec = factory.createKeyOnly();
+        Record maxRec = factory.createKeyOnly();
+        for ( int i = 0 ; i < rangeIdx ; i++ ) {
+            NodeId X = pattern.get(i);
+            if ( NodeId.isAny(X) )
+                throw new TDBException("findRange: Slot "+slot+" does not follow the bound slots of index "+getName());
+            Bytes.setLong(X.getId(), minRec.getKey(), i * SizeOfNodeId);
+            Bytes.setLong(X.getId(), maxRec.getKey(), i * SizeOfNodeId);
+        }
+        Bytes.setLong(low, minRec.getKey(), rangeIdx * SizeOfNodeId);
+        if ( high == Long.MAX_VALUE ) {
+            // Exclusive upper limit beyond the range : next value of the leading slots.
+            if ( rangeIdx == 0 )
+                return Iter.map(index.iterator(minRec, null), item -> TupleLib.tuple(item, colMap));
+            NodeId X = pattern.get(rangeIdx-1);
+            Bytes.setLong(X.getId() + 1, maxRec.getKey(), (rangeIdx-1) * SizeOfNodeId);
+        } else
+            Bytes.setLong(high + 1, maxRec.getKey(), rangeIdx * SizeOfNodeId);
+
+        Iterator<Tuple<NodeId>> tuples = Iter.map(index.iterator(minRec, maxRec), item -> TupleLib.tuple(item, colMap));
+        for ( int i = rangeIdx+1 ; i < pattern.len() ; i++ ) {
+            if ( ! NodeId.isAny(pattern.get(i)) )
+                // Bound slots not covered by the range.
+                return TupleIndex.scan(tuples, patternNaturalOrder);
+        }
+        return tuples;
+    }
+
+    /**
+     * Find all matching tuples, returning the first of each run of tuples that differ only in
+     * the last slot of the index. The bound slots must be the leading slots of the index.
+     * Input pattern in natural order, not index order.
+     */
+    @Override
+    protected Iterator<Tuple<NodeId>> performFindDistinct(Tuple<NodeId> patternNaturalOrder) {
+        Tuple<NodeId> pattern = colMap.map(patternNaturalOrder);
+        Record minRec = factory.createKeyOnly();
+        Record maxRec = factory.createKeyOnly();
+        int numSlots = 0;
+        for ( ; numSlots < pattern.len() ; numSlots++ ) {
+            NodeId X = pattern.get(numSlots);
+            if ( NodeId.isAny(X) )
+                break;
+            Bytes.setLong(X.getId(), minRec.getKey(), numSlots * SizeOfNodeId);
+            Bytes.setLong(X.getId(), maxRec.getKey(), numSlots * SizeOfNodeId);
+        }
+        for ( int i = numSlots ; i < pattern.len() ; i++ ) {
+            if ( ! NodeId.isAny(pattern.get(i)) )
+                throw new TDBException("findDistinct: bound slots are not the leading slots of index "+getName());
+        }
+        if ( numSlots == pattern.len() )
+            return performFind(patternNaturalOrder);
+        if ( numSlots == 0 )
+            maxRec = null;
+        else {
+            // Exclusive upper limit : next value of the last bound slot.
+            NodeId X = pattern.get(numSlots-1);
+            Bytes.setLong(X.getId() + 1, maxRec.getKey(), (numSlots-1) * SizeOfNodeId);
+        }
+        Iterator<Record> records = new SkipScan(index, factory, minRec, maxRec, (pattern.len()-1) * SizeOfNodeId);
+        return Iter.map(records, item -> TupleLib.tuple(item, colMap));
+    }
+
+    /** Number of records with the same key prefix read before skipping to the next prefix. */ 
+    public static int SkipScanThreshold = 4;
+
+    /** Iterator over records, returning the first record for each value of the leading
+     * {@code prefixLength} bytes of the key. Short runs are read through; after
+     * {@link #SkipScanThreshold} records of the same run, the rest of the run is skipped
+     * by starting a new range iterator at the next prefix.
+     */
+    private static final class SkipScan implements Iterator<Record> {
+        private final RangeIndex index;
+        private final RecordFactory factory;
+        private final Record maxRec;
+        private final int prefixLength;
+        private Iterator<Record> iter;
+        private Record last = null;
+        private Record slot = null;
+        private int duplicates = 0;
+
+        SkipScan(RangeIndex index, RecordFactory factory, Record minRec, Record maxRec, int prefixLength) {
+            this.index = index;
+            this.factory = factory;
+            this.maxRec = maxRec;
+            this.prefixLength = prefixLength;
+            this.iter = index.iterator(minRec, maxRec);
+        }
+
+        @Override
+        public boolean hasNext() {
+            while ( slot == null ) {
+                if ( iter == null || ! iter.hasNext() ) {
+                    iter = null;
+                    return false;
+                }
+                Record r = iter.next();
+                if ( last != null && samePrefix(r, last) ) {
+                    duplicates++;
+                    if ( duplicates >= SkipScanThreshold )
+                        skip();
+                    continue;
+                }
+                duplicates = 0;
+                last = r;
+                slot = r;
+            }
+            return true;
+        }
+
+        @Override
+        public Record next() {
+            if ( ! hasNext() )
+                throw new java.util.NoSuchElementException();
+            Record r = slot;
+            slot = null;
+            return r;
+        }
+
+        private boolean samePrefix(Record r1, Record r2) {
+            byte[] k1 = r1.getKey();
+            byte[] k2 = r2.getKey();
+            for ( int i = 0 ; i < prefixLength ; i++ ) {
+                if ( k1[i] != k2[i] )
+                    return false;
+            }
+            return true;
+        }
+
+        /** Restart the range at the first key after the current prefix. */
+        private void skip() {
+            Iter.close(iter);
+            duplicates = 0;
+            Record from = factory.createKeyOnly();
+            byte[] key = from.getKey();
+            System.arraycopy(last.getKey(), 0, key, 0, prefixLength);
+            // Increment the prefix as an unsigned number; the rest of the key is zero.
+            int i = prefixLength-1;
+            for ( ; i >= 0 ; i-- ) {
+                key[i]++;
+                if ( key[i] != 0 )
+                    break;
+            }
+            if ( i < 0 || ( maxRec != null && Record.keyGE(from, maxRec) ) ) {
+                // No more prefixes.
+                iter = null;
+                return;
+            }
+            iter = index.iterator(from, maxRec);
+        }
+    }
+
+    /** Adapter from a {@link RangeScan} (index order) to a {@link TupleScan} (natural order),
+     * with checking of any bound slots not covered by the range.
+     */
+    private static final class RecordTupleScan implements TupleScan {
+        private final RangeScan scan;
+        private final ColumnMap colMap;
+        private final boolean[] filterSlots;
+        private final long[] filterValues;
+        // Columns in index order.
+        private final long[][] keyColumns;
+        // Space for columns that the caller does not want but are needed for filtering.
+        private final long[][] workColumns;
+
+        RecordTupleScan(RangeScan scan, ColumnMap colMap, boolean[] filterSlots, long[] filterValues) {
+            this.scan = scan;
+            this.colMap = colMap;
+            this.filterSlots = filterSlots;
+            this.filterValues = filterValues;
+            this.keyColumns = new long[colMap.length()][];
+            this.workColumns = new long[colMap.length()][];
+        }
+
+        @Override
+        public int next(long[][] columns, int max) {
+            for ( int i = 0 ; i < keyColumns.length ; i++ )
+                keyColumns[i] = columns[colMap.fetchSlotIdx(i)];
+            if ( filterSlots == null )
+                return scan.next(keyColumns, max);
+
+            for ( int i = 0 ; i < keyColumns.length ; i++ ) {
+                if ( filterSlots[i] && columns[colMap.fetchSlotIdx(i)] == null ) {
+                    if ( workColumns[i] == null || workColumns[i].length < max )
+                        workColumns[i] = new long[max];
+                    keyColumns[i] = workColumns[i];
+                }
+            }
+            for ( ;; ) {
+                int n = scan.next(keyColumns, max);
+                if ( n == 0 )
+                    return 0;
+                int count = filter(n);
+                if ( count > 0 )
+                    return count;
+            }
+        }
+
+        // Remove rows not matching the pattern, keeping order.
+        private int filter(int n) {
+            int count = 0;
+            for ( int row = 0 ; row < n ; row++ ) {
+                if ( !matches(row) )
+                    continue;
+                if ( count != row ) {
+                    for ( long[] col : keyColumns ) {
+                        if ( col != null )
+                            col[count] = col[row];
+                    }
+                }
+                count++;
+            }
+            return count;
+        }
+
+        private boolean matches(int row) {
+            for ( int i = 0 ; i < filterSlots.length ; i++ ) {
+                if ( filterSlots[i] && keyColumns[i][row] != filterValues[i] )
+                    return false;
+            }
+            return true;
+        }
+
+        @Override
+        public void close() {
+            scan.close();
+        }
+    }
+
     @Override
     public Iterator<Tuple<NodeId>> all() {
         Iterator<Record> iter = index.iterator();
@@ -46,6 +46,21 @@ public class TupleIndexWrapper implements TupleIndex
         return index.find(pattern) ;
     }
 
+    @Override
+    public TupleScan findScan(Tuple<NodeId> pattern) {
+        return index.findScan(pattern) ;
+    }
+
+    @Override
+    public Iterator<Tuple<NodeId>> findRange(Tuple<NodeId> pattern, int slot, long low, long high) {
+        return index.findRange(pattern, slot, low, high) ;
+    }
+
+    @Override
+    public Iterator<Tuple<NodeId>> findDistinct(Tuple<NodeId> pattern) {
+        return index.findDistinct(pattern) ;
+    }
+
     @Override
     public Iterator<Tuple<NodeId>> all() {
         return index.all() ;
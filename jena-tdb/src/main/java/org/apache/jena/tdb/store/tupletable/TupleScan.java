@@ -0,0 +1,67 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb.store.tupletable;
+
+import org.apache.jena.atlas.lib.Closeable ;
+import org.apache.jena.atlas.lib.tuple.Tuple ;
+import org.apache.jena.tdb.store.NodeId ;
+
+/** Batch results of matching a pattern against a {@link TupleIndex}.
+ *  Each match is delivered as the {@link NodeId#getId() NodeId values} in columns
+ *  supplied by the caller, in natural tuple order (not index order).
+ *  No per-match objects are created.
+ *  <p>
+ *  A TupleScan must be closed if it is abandoned before it has finished.   
+ */
+public interface TupleScan extends Closeable
+{
+    /** Fill the columns with the next batch of up to {@code max} matches :
+     *  {@code columns[i][j]} is set to slot i (natural order) of the j'th match of the batch.
+     *  A null column means that slot is not wanted.
+     *  Each non-null column must have space for {@code max} entries.
+     *  @return The number of matches in this batch - 0 means the scan has finished.
+     */
+    public int next(long[][] columns, int max) ;
+    
+    /** A scan with no matches */
+    public static TupleScan empty() {
+        return new TupleScan() {
+            @Override public int next(long[][] columns, int max) { return 0 ; }
+            @Override public void close() {}
+        } ;
+    }
+
+    /** A scan with exactly one match */
+    public static TupleScan singleton(Tuple<NodeId> tuple) {
+        return new TupleScan() {
+            private boolean finished = false ;
+            @Override public int next(long[][] columns, int max) {
+                if ( finished || max <= 0 )
+                    return 0 ;
+                finished = true ;
+                for ( int i = 0 ; i < columns.length ; i++ ) {
+                    if ( columns[i] != null )
+                        columns[i][0] = tuple.get(i).getId() ;
+                }
+                return 1 ;
+            }
+            @Override public void close() { finished = true ; }
+        } ;
+    }
+}
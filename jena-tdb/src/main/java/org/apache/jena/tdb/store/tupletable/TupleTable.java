@@ -21,12 +21,16 @@ package org.apache.jena.tdb.store.tupletable;
 import static java.lang.String.format ;
 
 import java.util.Iterator ;
+import java.util.List ;
+import java.util.NoSuchElementException ;
 
+import org.apache.jena.atlas.iterator.Iter ;
 import org.apache.jena.atlas.lib.Closeable ;
 import org.apache.jena.atlas.lib.Sync ;
 import org.apache.jena.atlas.lib.tuple.Tuple ;
 import org.apache.jena.atlas.logging.Log ;
 import org.apache.jena.tdb.TDBException ;
+import org.apache.jena.tdb.lib.ColumnMap ;
 import org.apache.jena.tdb.store.NodeId ;
 import org.apache.jena.tdb.sys.SystemTDB ;
 import org.slf4j.Logger ;
@@ -41,6 +45,7 @@ public class TupleTable implements Sync, Closeable
     private final TupleIndex   scanAllIndex ;   // Use this index if a complete scan is needed.
     private final int tupleLen ;
     private boolean syncNeeded = false ;
+    private TupleTableListener listener = null ;
     
     public TupleTable(int tupleLen, TupleIndex[] indexes)
     {
@@ -82,6 +87,17 @@ public class TupleTable implements Sync, Closeable
         return indexes[0] ;
     }
 
+    /** Set the listener for changes to this table, or null for none. */
+    public void setListener(TupleTableListener listener)
+    {
+        this.listener = listener ;
+    }
+    
+    public TupleTableListener getListener()
+    {
+        return listener ;
+    }
+
     /** Insert a tuple - return true if it was really added, false if it was a duplicate */
     public boolean add(Tuple<NodeId> t) 
     { 
@@ -104,6 +120,8 @@ public class TupleTable implements Sync, Closeable
             }
             syncNeeded = true ;
         }
+        if ( listener != null )
+            listener.added(this, t) ;
         return true ;
     }
 
@@ -151,6 +169,8 @@ public class TupleTable implements Sync, Closeable
                 syncNeeded = true;
             }
         }
+        if ( rc && listener != null )
+            listener.deleted(this, t) ;
         return rc ;
 
     }
@@ -178,7 +198,167 @@ public class TupleTable implements Sync, Closeable
 
         if ( numSlots == 0 )
             return scanAllIndex.all() ;
+        return chooseIndex(pattern).find(pattern) ;
+    }
+    
+    /** Find all matching tuples, as batches of NodeId values - a slot of NodeId.NodeIdAny (or null) means match any */
+    public TupleScan findScan(Tuple<NodeId> pattern)
+    {
+        if ( tupleLen != pattern.len() )
+            throw new TDBException(format("Mismatch: finding tuple of length %d in a table of tuples of length %d", pattern.len(), tupleLen)) ;
         
+        for ( int i = 0 ; i < tupleLen ; i++ )
+        {
+            if ( ! NodeId.isAny(pattern.get(i)) )
+                return chooseIndex(pattern).findScan(pattern) ;
+        }
+        return scanAllIndex.findScan(pattern) ;
+    }
+    
+    /** Find all matching tuples, in order of the NodeId in slot {@code slot} (natural order).
+     *  Return null if no index provides that order.
+     */
+    public Iterator<Tuple<NodeId>> findSorted(Tuple<NodeId> pattern, int slot)
+    {
+        TupleIndex index = sortedIndex(pattern, slot) ;
+        if ( index == null )
+            return null ;
+        return index.find(pattern) ;
+    }
+    
+    /** Find tuples matching the pattern where the NodeId in {@code slot} lies within one of
+     *  the inclusive ranges {@code [low, high]}, which must be in increasing order.
+     *  Return null if no index has the bound slots of the pattern followed by {@code slot}.
+     */
+    public Iterator<Tuple<NodeId>> findRange(Tuple<NodeId> pattern, int slot, List<long[]> ranges)
+    {
+        TupleIndex index = sortedIndex(pattern, slot) ;
+        if ( index == null )
+            return null ;
+        return new IteratorRanges(index, pattern, slot, ranges.iterator()) ;
+    }
+    
+    /** The tuples of each range in turn. The index is only accessed for a range
+     *  when the tuples of the range before have been used up, so a caller that stops
+     *  early does not pay for the rest (dates and date times have many ranges).
+     */
+    private static class IteratorRanges implements Iterator<Tuple<NodeId>>
+    {
+        private final TupleIndex index ;
+        private final Tuple<NodeId> pattern ;
+        private final int slot ;
+        private final Iterator<long[]> ranges ;
+        private Iterator<Tuple<NodeId>> current = Iter.nullIterator() ;
+
+        IteratorRanges(TupleIndex index, Tuple<NodeId> pattern, int slot, Iterator<long[]> ranges)
+        {
+            this.index = index ;
+            this.pattern = pattern ;
+            this.slot = slot ;
+            this.ranges = ranges ;
+        }
+        
+        @Override
+        public boolean hasNext()
+        {
+            while ( ! current.hasNext() )
+            {
+                if ( ! ranges.hasNext() )
+                    return false ;
+                long[] range = ranges.next() ;
+                current = index.findRange(pattern, slot, range[0], range[1]) ;
+            }
+            return true ;
+        }
+
+        @Override
+        public Tuple<NodeId> next()
+        {
+            if ( ! hasNext() )
+                throw new NoSuchElementException("IteratorRanges") ;
+            return current.next() ;
+        }
+    }
+    
+    /** Find tuples matching the pattern, returning one tuple for each distinct combination
+     *  of values of the other slots, ignoring {@code slot}; which tuple of a group is returned
+     *  is not defined. Duplicates are skipped in the index, not read and discarded.
+     *  Return null if no index has the bound slots of the pattern first and {@code slot} last.
+     */
+    public Iterator<Tuple<NodeId>> findDistinct(Tuple<NodeId> pattern, int slot)
+    {
+        TupleIndex index = distinctIndex(pattern, slot) ;
+        if ( index == null )
+            return null ;
+        return index.findDistinct(pattern) ;
+    }
+
+    private TupleIndex distinctIndex(Tuple<NodeId> pattern, int slot)
+    {
+        if ( tupleLen != pattern.len() )
+            throw new TDBException(format("Mismatch: finding tuple of length %d in a table of tuples of length %d", pattern.len(), tupleLen)) ;
+        if ( ! NodeId.isAny(pattern.get(slot)) )
+            throw new TDBException("Distinct slot is bound in the pattern: "+slot) ;
+        int numSlots = 0 ;
+        for ( int i = 0 ; i < tupleLen ; i++ )
+        {
+            if ( ! NodeId.isAny(pattern.get(i)) )
+                numSlots++ ;
+        }
+        for ( TupleIndex idx : indexes )
+        {
+            if ( idx == null )
+                continue ;
+            ColumnMap colMap = idx.getColumnMap() ;
+            if ( hasLeadingSlots(colMap, pattern, numSlots) && colMap.fetchSlotIdx(tupleLen-1) == slot )
+                return idx ;
+        }
+        return null ;
+    }
+
+    /** Choose an index where the bound slots of the pattern are the leading key slots,
+     *  followed by {@code slot}, so that a range scan returns tuples sorted by that slot.
+     *  Return null if there is no such index.
+     */
+    public TupleIndex sortedIndex(Tuple<NodeId> pattern, int slot)
+    {
+        if ( tupleLen != pattern.len() )
+            throw new TDBException(format("Mismatch: finding tuple of length %d in a table of tuples of length %d", pattern.len(), tupleLen)) ;
+        if ( ! NodeId.isAny(pattern.get(slot)) )
+            throw new TDBException("Sort slot is bound in the pattern: "+slot) ;
+        int numSlots = 0 ;
+        for ( int i = 0 ; i < tupleLen ; i++ )
+        {
+            if ( ! NodeId.isAny(pattern.get(i)) )
+                numSlots++ ;
+        }
+        for ( TupleIndex idx : indexes )
+        {
+            if ( idx != null && isSortedBy(idx.getColumnMap(), pattern, numSlots, slot) )
+                return idx ;
+        }
+        return null ;
+    }
+    
+    private static boolean isSortedBy(ColumnMap colMap, Tuple<NodeId> pattern, int numSlots, int slot)
+    {
+        return hasLeadingSlots(colMap, pattern, numSlots) && colMap.fetchSlotIdx(numSlots) == slot ;
+    }
+    
+    /** Are the bound slots of the pattern the first {@code numSlots} slots of the index? */
+    private static boolean hasLeadingSlots(ColumnMap colMap, Tuple<NodeId> pattern, int numSlots)
+    {
+        for ( int i = 0 ; i < numSlots ; i++ )
+        {
+            if ( NodeId.isAny(pattern.get(colMap.fetchSlotIdx(i))) )
+                return false ;
+        }
+        return true ;
+    }
+    
+    /** Choose the index with most leading slots for the pattern */ 
+    private TupleIndex chooseIndex(Tuple<NodeId> pattern)
+    {
         int indexNumSlots = 0 ;
         TupleIndex index = null ;
         for ( TupleIndex idx : indexes )
@@ -197,7 +377,7 @@ public class TupleTable implements Sync, Closeable
         if ( index == null )
             // No index at all.  Scan.
             index = indexes[0] ;
-        return index.find(pattern) ;
+        return index ;
     }
     
     @Override
@@ -245,6 +425,8 @@ public class TupleTable implements Sync, Closeable
                 idx.clear() ;
         }
         syncNeeded = true ;
+        if ( listener != null )
+            listener.cleared(this) ;
     }
     
     public long size()
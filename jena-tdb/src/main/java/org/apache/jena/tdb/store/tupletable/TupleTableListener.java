@@ -0,0 +1,38 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.jena.tdb.store.tupletable;
+
+import org.apache.jena.atlas.lib.tuple.Tuple ;
+import org.apache.jena.tdb.store.NodeId ;
+
+/** Notification of the changes made to a {@link TupleTable}.
+ * Called after the change has been made to all the indexes of the table. 
+ */
+public interface TupleTableListener
+{
+    /** A tuple has been added (it was not already in the table). */
+    public void added(TupleTable table, Tuple<NodeId> tuple) ;
+    
+    /** A tuple has been deleted (it was in the table). */
+    public void deleted(TupleTable table, Tuple<NodeId> tuple) ;
+    
+    /** All tuples have been removed. */
+    public void cleared(TupleTable table) ;
+}
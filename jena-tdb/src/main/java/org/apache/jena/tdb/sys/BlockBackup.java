@@ -0,0 +1,300 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.jena.tdb.sys;
+
+import static java.lang.String.format ;
+
+import java.io.* ;
+import java.nio.charset.StandardCharsets ;
+import java.util.* ;
+import java.util.zip.CRC32 ;
+
+import org.apache.jena.atlas.io.IO ;
+import org.apache.jena.atlas.lib.FileOps ;
+import org.apache.jena.tdb.TDBException ;
+
+/**
+ * Copy the files of a database, block by block, to a backup directory, and restore
+ * them again.
+ * <p>
+ * A backup directory holds a manifest, recording the length and a checksum of each
+ * block of each file. A full backup holds a copy of each file. An incremental backup
+ * holds, for each file, only the blocks that differ from the previous backup
+ * (full or incremental). Restore applies a full backup followed by a chain of
+ * incremental backups.
+ * <p>
+ * The caller is responsible for the database files not changing during the backup.
+ * 
+ * @see org.apache.jena.tdb.TDBBackup
+ */
+public class BlockBackup
+{
+    /** Name of the manifest file in a backup directory */
+    public static final String manifestFile     = "backup.manifest" ;
+    /** Extension of the files of changed blocks in an incremental backup */
+    public static final String extBlocks        = "blocks" ;
+    
+    private static final String LockFile        = "tdb.lock" ;
+    private static final int ChunkSize          = SystemTDB.BlockSize ;
+    
+    /** Copy all the database files in directory {@code dbDir} to {@code backupDir}.
+     * If {@code previousBackupDir} is not null, only the blocks that have changed since
+     * that backup are copied. Returns the manifest of the new backup.
+     */
+    public static Manifest backup(String dbDir, String backupDir, String previousBackupDir) {
+        Manifest previous = ( previousBackupDir == null ) ? null : readManifest(previousBackupDir) ;
+        File dir = new File(backupDir) ;
+        if ( dir.exists() && dir.list().length > 0 )
+            throw new TDBException("Backup directory is not empty: "+backupDir) ;
+        FileOps.ensureDir(backupDir) ;
+        Manifest manifest = new Manifest(UUID.randomUUID().toString(), previous == null ? null : previous.id) ;
+        try {
+            for ( String fn : databaseFiles(dbDir) ) {
+                File src = new File(dbDir, fn) ;
+                FileEntry prevEntry = ( previous == null ) ? null : previous.files.get(fn) ;
+                FileEntry entry = ( previous == null )
+                    ? copyFile(src, new File(backupDir, fn))
+                    : copyChangedBlocks(src, new File(backupDir, fn+"."+extBlocks), prevEntry) ;
+                manifest.files.put(fn, entry) ;
+            }
+        } catch (IOException ex) { IO.exception(ex) ; }
+        // Written last : a backup without a manifest is not complete. 
+        writeManifest(backupDir, manifest) ;
+        return manifest ;
+    }
+    
+    /** Restore into directory {@code dbDir} from a full backup followed by zero or more incremental backups, in order */ 
+    public static void restore(String dbDir, String... backupDirs) {
+        if ( backupDirs.length == 0 )
+            throw new TDBException("No backups to restore from") ;
+        File dir = new File(dbDir) ;
+        if ( dir.exists() && dir.list().length > 0 )
+            throw new TDBException("Restore directory is not empty: "+dbDir) ;
+        FileOps.ensureDir(dbDir) ;
+        Manifest previous = null ;
+        try {
+            for ( String backupDir : backupDirs ) {
+                Manifest manifest = readManifest(backupDir) ;
+                if ( previous == null && manifest.previous != null )
+                    throw new TDBException("Not a full backup: "+backupDir) ;
+                if ( previous != null && !previous.id.equals(manifest.previous) )
+                    throw new TDBException("Backup does not follow on from the previous backup: "+backupDir) ;
+                for ( Map.Entry<String, FileEntry> e : manifest.files.entrySet() ) {
+                    String fn = e.getKey() ;
+                    File dest = new File(dbDir, fn) ;
+                    if ( previous == null )
+                        copyFile(new File(backupDir, fn), dest) ;
+                    else
+                        applyBlocks(new File(backupDir, fn+"."+extBlocks), dest, e.getValue().length) ;
+                }
+                // Files that no longer exist.
+                if ( previous != null ) {
+                    for ( String fn : previous.files.keySet() ) {
+                        if ( ! manifest.files.containsKey(fn) )
+                            new File(dbDir, fn).delete() ;
+                    }
+                }
+                previous = manifest ;
+            }
+        } catch (IOException ex) { IO.exception(ex) ; }
+    }
+    
+    /** The files of a database that are copied by a backup.
+     * Journal files and the lock file are not included. */ 
+    public static List<String> databaseFiles(String dbDir) {
+        File[] files = new File(dbDir).listFiles() ;
+        if ( files == null )
+            throw new TDBException("Not a directory: "+dbDir) ;
+        List<String> x = new ArrayList<>() ;
+        for ( File f : files ) {
+            String fn = f.getName() ;
+            if ( ! f.isFile() || fn.endsWith(Names.extJournal) || fn.equals(LockFile) || fn.equals(manifestFile) )
+                continue ;
+            x.add(fn) ;
+        }
+        Collections.sort(x) ;
+        return x ;
+    }
+
+    private static FileEntry copyFile(File src, File dest) throws IOException {
+        List<Long> checksums = new ArrayList<>() ;
+        long length = 0 ;
+        byte[] buffer = new byte[ChunkSize] ;
+        try(InputStream in = new FileInputStream(src) ;
+            OutputStream out = new BufferedOutputStream(new FileOutputStream(dest))) {
+            int n ;
+            while ( (n = readChunk(in, buffer)) > 0 ) {
+                out.write(buffer, 0, n) ;
+                checksums.add(checksum(buffer, n)) ;
+                length += n ;
+            }
+        }
+        return new FileEntry(length, checksums) ;
+    }
+    
+    // Blocks file: (block index, length, bytes)*
+    private static FileEntry copyChangedBlocks(File src, File dest, FileEntry previous) throws IOException {
+        List<Long> checksums = new ArrayList<>() ;
+        long length = 0 ;
+        byte[] buffer = new byte[ChunkSize] ;
+        try(InputStream in = new FileInputStream(src) ;
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(dest)))) {
+            int n ;
+            long idx = 0 ;
+            while ( (n = readChunk(in, buffer)) > 0 ) {
+                long crc = checksum(buffer, n) ;
+                checksums.add(crc) ;
+                boolean unchanged = previous != null && idx < previous.checksums.size()
+                                    && previous.checksums.get((int)idx) == crc 
+                                    && ( idx+1 < previous.checksums.size() || previous.length == length+n ) ;
+                if ( ! unchanged ) {
+                    out.writeLong(idx) ;
+                    out.writeInt(n) ;
+                    out.write(buffer, 0, n) ;
+                }
+                length += n ;
+                idx++ ;
+            }
+        }
+        return new FileEntry(length, checksums) ;
+    }
+
+    private static void applyBlocks(File src, File dest, long length) throws IOException {
+        try(DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(src))) ;
+            RandomAccessFile out = new RandomAccessFile(dest, "rw")) {
+            byte[] buffer = new byte[ChunkSize] ;
+            for ( ;; ) {
+                long idx ;
+                try { idx = in.readLong() ; } catch (EOFException ex) { break ; }
+                int n = in.readInt() ;
+                in.readFully(buffer, 0, n) ;
+                out.seek(idx*ChunkSize) ;
+                out.write(buffer, 0, n) ;
+            }
+            out.setLength(length) ;
+        }
+    }
+    
+    private static int readChunk(InputStream in, byte[] buffer) throws IOException {
+        int n = 0 ;
+        while ( n < buffer.length ) {
+            int x = in.read(buffer, n, buffer.length-n) ;
+            if ( x < 0 )
+                break ;
+            n += x ;
+        }
+        return n ;
+    }
+    
+    private static long checksum(byte[] buffer, int len) {
+        CRC32 crc = new CRC32() ;
+        crc.update(buffer, 0, len) ;
+        return crc.getValue() ;
+    }
+    
+    /** Details of one backup. */
+    public static class Manifest {
+        public final String id ;
+        /** Id of the previous backup for an incremental backup, else null */ 
+        public final String previous ;
+        /*package*/ final Map<String, FileEntry> files = new TreeMap<>() ;
+        
+        private Manifest(String id, String previous) {
+            this.id = id ;
+            this.previous = previous ;
+        }
+
+        public boolean isIncremental()      { return previous != null ; }
+        public Set<String> getFiles()       { return Collections.unmodifiableSet(files.keySet()) ; }
+    }
+
+    /*package*/ static class FileEntry {
+        final long length ;
+        final List<Long> checksums ;
+        FileEntry(long length, List<Long> checksums) {
+            this.length = length ;
+            this.checksums = checksums ;
+        }
+    }
+
+    // Manifest format, one item per line:
+    //   id ID
+    //   previous ID
+    //   file NAME LENGTH CRC,CRC,...
+    
+    private static void writeManifest(String backupDir, Manifest manifest) {
+        try(Writer w = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(new File(backupDir, manifestFile)), StandardCharsets.UTF_8))) {
+            w.write("id "+manifest.id+"\n") ;
+            if ( manifest.previous != null )
+                w.write("previous "+manifest.previous+"\n") ;
+            for ( Map.Entry<String, FileEntry> e : manifest.files.entrySet() ) {
+                FileEntry entry = e.getValue() ;
+                w.write(format("file %s %d ", e.getKey(), entry.length)) ;
+                boolean first = true ;
+                for ( long crc : entry.checksums ) {
+                    if ( ! first )
+                        w.write(",") ;
+                    first = false ;
+                    w.write(Long.toHexString(crc)) ;
+                }
+                w.write("\n") ;
+            }
+        } catch (IOException ex) { IO.exception(ex) ; }
+    }
+
+    /** Read the manifest of a backup */
+    public static Manifest readManifest(String backupDir) {
+        File f = new File(backupDir, manifestFile) ;
+        if ( ! f.exists() )
+            throw new TDBException("Not a complete backup (no manifest): "+backupDir) ;
+        String id = null ;
+        String previous = null ;
+        Map<String, FileEntry> files = new TreeMap<>() ;
+        try(BufferedReader r = new BufferedReader(new InputStreamReader(new FileInputStream(f), StandardCharsets.UTF_8))) {
+            String line ;
+            while ( (line = r.readLine()) != null ) {
+                String[] x = line.split(" ", 4) ;
+                switch(x[0]) {
+                    case "id" :         id = x[1] ; break ;
+                    case "previous" :   previous = x[1] ; break ;
+                    case "file" : {
+                        List<Long> checksums = new ArrayList<>() ;
+                        if ( x.length > 3 && ! x[3].isEmpty() ) {
+                            for ( String s : x[3].split(",") )
+                                checksums.add(Long.parseLong(s, 16)) ;
+                        }
+                        files.put(x[1], new FileEntry(Long.parseLong(x[2]), checksums)) ;
+                        break ;
+                    }
+                    default:
+                        throw new TDBException("Bad manifest line: "+line) ;
+                }
+            }
+        } catch (IOException ex) { IO.exception(ex) ; }
+          catch (NumberFormatException | ArrayIndexOutOfBoundsException ex) {
+              throw new TDBException("Bad manifest: "+f, ex) ;
+          }
+        if ( id == null )
+            throw new TDBException("Bad manifest (no id): "+f) ;
+        Manifest manifest = new Manifest(id, previous) ;
+        manifest.files.putAll(files) ;
+        return manifest ;
+    }
+}
@@ -0,0 +1,248 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.jena.tdb.sys;
+
+import java.io.File ;
+import java.io.IOException ;
+import java.nio.file.AtomicMoveNotSupportedException ;
+import java.nio.file.Files ;
+import java.nio.file.Path ;
+import java.nio.file.StandardCopyOption ;
+import java.util.Iterator ;
+import java.util.Map ;
+
+import org.apache.jena.atlas.io.IO ;
+import org.apache.jena.atlas.iterator.Iter ;
+import org.apache.jena.atlas.lib.FileOps ;
+import org.apache.jena.atlas.lib.tuple.Tuple ;
+import org.apache.jena.atlas.lib.tuple.TupleFactory ;
+import org.apache.jena.graph.Node ;
+import org.apache.jena.tdb.base.file.Location ;
+import org.apache.jena.tdb.index.bplustree.BPlusTreeRewriter ;
+import org.apache.jena.tdb.setup.DatasetBuilderStd ;
+import org.apache.jena.tdb.setup.StoreParams ;
+import org.apache.jena.tdb.setup.StoreParamsConst ;
+import org.apache.jena.tdb.store.DatasetGraphTDB ;
+import org.apache.jena.tdb.store.DatasetPrefixesTDB ;
+import org.apache.jena.tdb.store.NodeId ;
+import org.apache.jena.tdb.store.bulkloader.BuilderSecondaryIndexesSorted ;
+import org.apache.jena.tdb.store.bulkloader.LoadMonitor ;
+import org.apache.jena.tdb.store.nodetable.NodeTable ;
+import org.apache.jena.tdb.store.nodetupletable.NodeTupleTable ;
+import org.apache.jena.tdb.store.tupletable.TupleIndex ;
+import org.apache.jena.tdb.store.tupletable.TupleTable ;
+import org.slf4j.Logger ;
+
+/**
+ * Rewrite the files of a database into a compact form, and install the new files
+ * in place of the old ones.
+ * <p>
+ * The triples and quads are read from the primary indexes. The nodes they use are
+ * copied to a new node table, which drops the nodes that are no longer used.
+ * Every index is then built by sorting and writing the B+Tree bottom-up with
+ * {@link BPlusTreeRewriter}, so the blocks are full. The prefixes are copied.
+ * <p>
+ * The new files are built in the directory {@link #buildDir} inside the database
+ * directory. They become the database in two steps. First the directory is renamed to
+ * {@link #commitDir}; this is the commit point. Then the files are moved into the
+ * database directory. If a compaction is interrupted after the commit point,
+ * {@link #recover} completes it when the database is next opened. If it is interrupted
+ * before the commit point, {@link #recover} discards it.
+ * <p>
+ * The caller is responsible for the database not changing during the build and for
+ * the database not being open when the files are installed.
+ * 
+ * @see org.apache.jena.tdb.TDBCompact
+ */
+public class Compaction
+{
+    /** Directory, in the database directory, where the compacted database is built. */ 
+    public static final String buildDir     = "compact-build" ;
+    /** Directory, in the database directory, of a compacted database ready to be installed. */
+    public static final String commitDir    = "compact-commit" ;
+    
+    private static final String sortDir     = "sort" ;
+    
+    /** Summary of a compaction. Sizes are of the database files, in bytes. */
+    public static class Report {
+        public final long triples ;
+        public final long quads ;
+        public final long sizeBefore ;
+        public final long sizeAfter ;
+        
+        Report(long triples, long quads, long sizeBefore, long sizeAfter) {
+            this.triples = triples ;
+            this.quads = quads ;
+            this.sizeBefore = sizeBefore ;
+            this.sizeAfter = sizeAfter ;
+        }
+        
+        @Override
+        public String toString() {
+            return String.format("Triples: %,d  Quads: %,d  Size: %,d -> %,d bytes", triples, quads, sizeBefore, sizeAfter) ;
+        }
+    }
+    
+    /** Build a compacted copy of the database in {@link #buildDir}.
+     * Any earlier, uncommitted build is discarded first. 
+     * @param dsg   The database; it must not change during the build.
+     * @param log   Logger for progress messages, or null.
+     */
+    public static Report build(DatasetGraphTDB dsg, Logger log) {
+        Location location = dsg.getLocation() ;
+        String dir = location.getPath(buildDir) ;
+        delete(dir) ;
+        FileOps.ensureDir(dir) ;
+        String workDir = new File(dir, sortDir).getPath() ;
+        FileOps.ensureDir(workDir) ;
+        StoreParams params = dsg.getConfig().params ;
+        DatasetGraphTDB dsg2 = DatasetBuilderStd.create(Location.create(dir), params) ;
+        long triples ;
+        long quads ;
+        try {
+            triples = copy(dsg.getTripleTable().getNodeTupleTable(), dsg2.getTripleTable().getNodeTupleTable(), dsg2, workDir, log) ;
+            quads = copy(dsg.getQuadTable().getNodeTupleTable(), dsg2.getQuadTable().getNodeTupleTable(), dsg2, workDir, log) ;
+            copyPrefixes(dsg.getPrefixes(), dsg2.getPrefixes()) ;
+            dsg2.sync() ;
+            dsg2.close() ;
+        } catch (RuntimeException ex) {
+            dsg2.close() ;
+            delete(dir) ;
+            throw ex ;
+        }
+        delete(workDir) ;
+        // Keep to the database's use of a parameters file.
+        if ( ! location.exists(StoreParamsConst.TDB_CONFIG_FILE) )
+            new File(dir, StoreParamsConst.TDB_CONFIG_FILE).delete() ;
+        return new Report(triples, quads, size(location.getDirectoryPath()), size(dir)) ;
+    }
+    
+    /** Discard a build that has not been committed. */ 
+    public static void abort(Location location) {
+        delete(location.getPath(buildDir)) ;
+    }
+    
+    /** Make the build the next state of the database. After this, the compaction
+     * will be completed by {@link #install} or {@link #recover}. */
+    public static void commit(Location location) {
+        Path src = new File(location.getPath(buildDir)).toPath() ;
+        Path dest = new File(location.getPath(commitDir)).toPath() ;
+        try { Files.move(src, dest, StandardCopyOption.ATOMIC_MOVE) ; }
+        catch (IOException ex) { IO.exception(ex) ; }
+    }
+    
+    /** Move the files of a committed compaction into the database directory.
+     * The database must not be open. This can be repeated if interrupted. */
+    public static void install(Location location) {
+        File dir = new File(location.getPath(commitDir)) ;
+        File[] files = dir.listFiles() ;
+        if ( files == null )
+            return ;
+        try {
+            for ( File f : files ) {
+                if ( ! f.isFile() )
+                    continue ;
+                Path dest = new File(location.getDirectoryPath(), f.getName()).toPath() ;
+                try { Files.move(f.toPath(), dest, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE) ; }
+                catch (AtomicMoveNotSupportedException ex) { Files.move(f.toPath(), dest, StandardCopyOption.REPLACE_EXISTING) ; }
+            }
+        } catch (IOException ex) { IO.exception(ex) ; }
+        // Saved statistics are in terms of the old NodeIds.
+        new File(location.getPath(Names.statsLive)).delete() ;
+        delete(dir.getPath()) ;
+    }
+    
+    /** Complete a committed compaction, or discard an uncommitted one.
+     * Call before opening the database.
+     * @return true if a compaction was completed. 
+     */
+    public static boolean recover(Location location) {
+        if ( location.isMem() )
+            return false ;
+        abort(location) ;
+        if ( ! FileOps.exists(location.getPath(commitDir)) )
+            return false ;
+        SystemTDB.errlog.info("Completing compaction of "+location.getDirectoryPath()) ;
+        install(location) ;
+        return true ;
+    }
+
+    private static long copy(NodeTupleTable src, NodeTupleTable dest, DatasetGraphTDB dsg2, String workDir, Logger log) {
+        NodeTable srcNodes = src.getNodeTable() ;
+        NodeTable destNodes = dest.getNodeTable() ;
+        TupleTable table = dest.getTupleTable() ;
+        TupleIndex[] indexes = table.getIndexes() ;
+        // All the indexes, including the primary, are built from sorted tuples if possible.
+        BuilderSecondaryIndexesSorted builder = null ;
+        if ( BuilderSecondaryIndexesSorted.canBuild(indexes) ) {
+            LoadMonitor monitor = new LoadMonitor(dsg2, log, "tuples", 0, 0) ;
+            builder = new BuilderSecondaryIndexesSorted(monitor, indexes, workDir, null) ;
+        }
+        long count = 0 ;
+        Iterator<Tuple<NodeId>> iter = src.getTupleTable().getIndex(0).all() ;
+        try {
+            while ( iter.hasNext() ) {
+                Tuple<NodeId> tuple = iter.next() ;
+                NodeId[] ids = new NodeId[tuple.len()] ;
+                for ( int i = 0 ; i < ids.length ; i++ )
+                    ids[i] = copyNode(tuple.get(i), srcNodes, destNodes) ;
+                Tuple<NodeId> tuple2 = TupleFactory.tuple(ids) ;
+                if ( builder != null )
+                    builder.added(table, tuple2) ;
+                else
+                    table.add(tuple2) ;
+                count++ ;
+            }
+        } finally { Iter.close(iter) ; }
+        if ( builder != null )
+            builder.createSecondaryIndexes(indexes[0], indexes) ;
+        if ( log != null )
+            log.info(String.format("Compaction: %,d %s", count, table.getTupleLen() == 3 ? "triples" : "quads")) ;
+        return count ;
+    }
+
+    private static NodeId copyNode(NodeId id, NodeTable srcNodes, NodeTable destNodes) {
+        if ( NodeId.isInline(id) )
+            return id ;
+        Node node = srcNodes.getNodeForNodeId(id) ;
+        return destNodes.getAllocateNodeId(node) ;
+    }
+    
+    private static void copyPrefixes(DatasetPrefixesTDB src, DatasetPrefixesTDB dest) {
+        for ( String graphName : src.graphNames() ) {
+            for ( Map.Entry<String, String> e : src.readPrefixMap(graphName).entrySet() )
+                dest.insertPrefix(graphName, e.getKey(), e.getValue()) ;
+        }
+    }
+    
+    private static long size(String dir) {
+        long x = 0 ;
+        for ( String fn : BlockBackup.databaseFiles(dir) )
+            x += new File(dir, fn).length() ;
+        return x ;
+    }
+    
+    private static void delete(String dir) {
+        if ( FileOps.exists(dir) ) {
+            FileOps.clearAll(dir) ;
+            FileOps.deleteSilent(dir) ;
+        }
+    }
+}
@@ -41,6 +41,10 @@ public class Names
     public static final String extHashExt               = "exh" ;
     public static final String extHashBucketExt         = "dat" ;
 
+    /** Kinds of index from node hash to NodeId */
+    public static final String nodeIndexBPlusTree       = "BPlusTree" ;
+    public static final String nodeIndexExtHash         = "ExtHash" ;
+
     public static final String datasetConfig            = "config-tdb" ;        // name of the TDB configuration file.
 
     
@@ -52,6 +56,7 @@ public class Names
     
     public static final String indexId2Node             = "nodes" ;         // Node table
     public static final String indexNode2Id             = "node2id";        // Node hash to id table
+    public static final String extNodeFilter            = "bloom" ;         // Filter of the node hashes in a node to id table
     
     //public static final String indexId2Node           = "id2node";        // Would be the Index for node(hash) to id  
 
@@ -65,6 +70,8 @@ public class Names
     public static final String optFixed                 = "fixed.opt" ;
     public static final String optNone                  = "none.opt" ; 
     public static final String optDefault               = optFixed ;
+    /** Statistics maintained by the transaction manager, saved when the database is closed. */
+    public static final String statsLive                = "stats.live" ;
     
     public static final String extMeta                  = "info" ;
     public static final String directoryMetafile        = "this" ;          // Root name of the directory for a metafile.  
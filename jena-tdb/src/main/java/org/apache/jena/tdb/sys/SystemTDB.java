@@ -146,6 +146,18 @@ public class SystemTDB
 //    /** Size, in bytes, of a memory block */
 //    public static final int BlockSizeMem            = 32*8 ; //intValue("BlockSizeMem", 32*8 ) ;
 
+    /** Default setting for prefix compressed B+Tree records blocks (new databases only) */
+    public static final boolean CompressedLeaves    = false ;
+
+    /** Default encoding of nodes in the node table (new databases only) : "SSE" or "binary" */
+    public static final String NodeEncoding         = "SSE" ;
+
+    /** Default setting for the extended set of inline NodeId types (new databases only) */
+    public static final boolean InlineExtended      = false ;
+
+    /** Default kind of index from node hash to NodeId in the node tables (new databases only) : "BPlusTree" or "ExtHash" */
+    public static final String NodeIndexType        = "BPlusTree" ;
+
     /** order of an in-memory BTree or B+Tree */
     public static final int OrderMem                = 5 ; // intValue("OrderMem", 5) ;
     
@@ -170,6 +182,12 @@ public class SystemTDB
     
     /** Size of Node lookup miss cache. */
     public static final int NodeMissCacheSize       = 100 ;
+
+    /** Number of lock stripes for the node table cache.
+     *  1 means one lock for all cache misses; larger values let misses
+     *  for different nodes proceed concurrently.
+     */
+    public static final int NodeCacheStripes        = intValue("NodeCacheStripes", 1) ;
     
     /** Size of the delayed-write block cache (32 bit systems only) (per file) */
     public static final int BlockWriteCacheSize     = intValue("BlockWriteCacheSize", 2*1000) ;
@@ -182,6 +200,23 @@ public class SystemTDB
 //    /** Number of adds/deletes between calls to sync (-ve to disable) */
 //    public static final int SyncTick                = intValue("SyncTick", -1) ;
 
+    /** Number of matches read from an index in one batch when matching a triple or quad pattern.
+     *  Zero or less means match by iterating over tuples.  
+     */
+    public static int ScanBatchSize                 = intValue("ScanBatchSize", 256) ;
+
+    /** Default number of rows in a batch for vectorized execution of basic graph patterns.
+     * @see org.apache.jena.tdb.TDB#symVectorBGP
+     */
+    public static final int VectorBatchSize         = intValue("VectorBatchSize", 1024) ;
+
+    /** Default size, in bits per node, of the Bloom filter in front of each node table index,
+     *  used to skip the index lookup for nodes that are not in the database.
+     *  Zero or less means no filter. 10 bits gives about 1% false positives.
+     *  @see org.apache.jena.tdb.setup.StoreParams#getNodeFilterBits()
+     */
+    public static final int NodeFilterBitsPerNode   = intValue("NodeFilterBitsPerNode", 0) ;
+
     /** Default BGP optimizer */
     public static ReorderTransformation defaultReorderTransform = ReorderLib.fixed() ;
 
@@ -391,6 +426,12 @@ public class SystemTDB
             return FileMode.mapped ;
         }
         
+        if ( x.equalsIgnoreCase("readahead") )
+        {
+            TDB.logInfo.info("File mode: readahead (forced)") ;
+            return FileMode.readahead ;
+        }
+        
         if ( x.equalsIgnoreCase("default") )
         {
             if ( is64bitSystem )
@@ -401,6 +442,6 @@ public class SystemTDB
             TDB.logInfo.debug("File mode: Direct") ;
             return FileMode.direct ;
         }
-        throw new TDBException("Unrecognized file mode (not one of 'default', 'direct' or 'mapped': "+x) ;
+        throw new TDBException("Unrecognized file mode (not one of 'default', 'direct', 'readahead' or 'mapped': "+x) ;
     }
 }
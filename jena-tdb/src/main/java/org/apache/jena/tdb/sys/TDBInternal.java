@@ -32,6 +32,7 @@ import org.apache.jena.tdb.setup.StoreParamsConst ;
 import org.apache.jena.tdb.store.DatasetGraphTDB ;
 import org.apache.jena.tdb.store.NodeId ;
 import org.apache.jena.tdb.store.nodetable.NodeTable ;
+import org.apache.jena.tdb.transaction.DatasetGraphSnapshot ;
 import org.apache.jena.tdb.transaction.DatasetGraphTransaction ;
 import org.apache.jena.tdb.transaction.TransactionManager ;
 
@@ -117,6 +118,8 @@ public class TDBInternal
         }
         if ( dsg instanceof DatasetGraphTDB )
             return (DatasetGraphTDB)dsg ;
+        if ( dsg instanceof DatasetGraphSnapshot )
+            return ((DatasetGraphSnapshot)dsg).getView() ;
 
         return null ;
     }
@@ -0,0 +1,58 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.jena.tdb.transaction;
+
+import org.apache.jena.tdb.base.block.Block ;
+import org.apache.jena.tdb.base.block.BlockMgr ;
+import org.apache.jena.tdb.base.block.BlockMgrWrapper ;
+import org.apache.jena.tdb.sys.FileRef ;
+
+/** A BlockMgr over a base BlockMgr that reads blocks as they were at a generation of
+ * the base database, even if a background journal replay has since overwritten them.
+ * @see BlockVersions
+ */
+class BlockMgrSnapshot extends BlockMgrWrapper
+{
+    private final FileRef fileRef ;
+    private final BlockVersions versions ;
+    private final long generation ;
+    private final boolean copy ;
+
+    BlockMgrSnapshot(BlockMgr blockMgr, FileRef fileRef, BlockVersions versions, long generation, boolean copy) {
+        super(blockMgr) ;
+        this.fileRef = fileRef ;
+        this.versions = versions ;
+        this.generation = generation ;
+        this.copy = copy ;
+    }
+
+    @Override
+    public Block getRead(long id) {
+        return versions.getRead(fileRef, blockMgr, id, generation, false, copy) ;
+    }
+
+    @Override
+    public Block getReadIterator(long id) {
+        return versions.getRead(fileRef, blockMgr, id, generation, true, copy) ;
+    }
+
+    @Override
+    public String toString() { return "Snapshot["+generation+"]:"+super.toString() ; }
+}
@@ -0,0 +1,170 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.jena.tdb.transaction;
+
+import java.util.ArrayList ;
+import java.util.HashMap ;
+import java.util.Iterator ;
+import java.util.List ;
+import java.util.Map ;
+import java.util.NavigableSet ;
+import java.util.concurrent.locks.StampedLock ;
+
+import org.apache.jena.tdb.base.block.Block ;
+import org.apache.jena.tdb.base.block.BlockMgr ;
+import org.apache.jena.tdb.base.file.FileException ;
+import org.apache.jena.tdb.sys.FileRef ;
+
+/** Earlier versions of blocks of the base database, kept for transactions and snapshots
+ * that started before a journal replay overwrote them (copy-on-write).
+ * <p>
+ * Replays are numbered by generation. A block version recorded with generation {@code g}
+ * is the content of the block as seen by transactions whose view of the base
+ * database is at generation {@code g} or earlier.
+ * <p>
+ * Reads of the base through {@link BlockMgrSnapshot} and overwrites by the replay
+ * are exclusive so that a reader never sees a block part way through being replaced.  
+ */
+class BlockVersions
+{
+    private static final class Version {
+        final long generation ;
+        final Block block ;
+        Version(long generation, Block block) { this.generation = generation ; this.block = block ; }
+    }
+
+    private final StampedLock lock = new StampedLock() ;
+    // Versions of each block, in increasing generation order. Guarded by lock.
+    private final Map<FileRef, Map<Long, List<Version>>> versions = new HashMap<>() ;
+    private volatile int count = 0 ;
+
+    /** Read a block as it was at the given generation. */ 
+    Block getRead(FileRef ref, BlockMgr base, long id, long generation, boolean iterator, boolean copy) {
+        long stamp = lock.readLock() ;
+        try {
+            if ( count > 0 ) {
+                Block block = find(ref, id, generation) ;
+                if ( block != null )
+                    return block ;
+            }
+            Block block = iterator ? base.getReadIterator(id) : base.getRead(id) ;
+            // Mapped blocks are changed in-place by overwrite. 
+            return copy ? block.replicate() : block ;
+        } finally { lock.unlockRead(stamp) ; }
+    }
+
+    private Block find(FileRef ref, long id, long generation) {
+        Map<Long, List<Version>> x = versions.get(ref) ;
+        if ( x == null )
+            return null ;
+        List<Version> list = x.get(id) ;
+        if ( list == null )
+            return null ;
+        for ( Version v : list ) {
+            if ( v.generation >= generation )
+                return v.block ;
+        }
+        return null ;
+    }
+
+    /** Overwrite a block of the base, first keeping its current content
+     * for transactions at the given generation or earlier.
+     */
+    void overwrite(FileRef ref, BlockMgr base, Block block, long generation) {
+        long stamp = lock.writeLock() ;
+        try {
+            long id = block.getId() ;
+            Map<Long, List<Version>> x = versions.computeIfAbsent(ref, r -> new HashMap<>()) ;
+            List<Version> list = x.computeIfAbsent(id, i -> new ArrayList<>(2)) ;
+            // Only the first overwrite in a replay records the earlier content.
+            if ( list.isEmpty() || list.get(list.size()-1).generation != generation ) {
+                Block previous = previous(base, id) ;
+                if ( previous != null ) {
+                    list.add(new Version(generation, previous)) ;
+                    count++ ;
+                }
+            }
+            if ( list.isEmpty() )
+                x.remove(id) ;
+            base.overwrite(block) ;
+        } finally { lock.unlockWrite(stamp) ; }
+    }
+
+    private static Block previous(BlockMgr base, long id) {
+        if ( id > Integer.MAX_VALUE || ! base.valid((int)id) )
+            return null ;
+        try {
+            Block block = base.getRead(id) ;
+            Block copy = block.replicate() ;
+            base.release(block) ;
+            return copy ;
+        } catch (FileException ex) {
+            // Allocated by a writer but never written to the base: there is no earlier version.
+            return null ;
+        }
+    }
+
+    /** Discard versions no longer visible to any view of the base database.
+     * A view at generation {@code g} reads the first version recorded at generation
+     * {@code g} or later, so a version is needed only if some view is at a generation
+     * after the version recorded before it and no later than its own.
+     * @param generations The generations of the views in use.
+     */
+    void expire(NavigableSet<Long> generations) {
+        if ( count == 0 )
+            return ;
+        long stamp = lock.writeLock() ;
+        try {
+            for ( Map<Long, List<Version>> x : versions.values() ) {
+                Iterator<List<Version>> iter = x.values().iterator() ;
+                while ( iter.hasNext() ) {
+                    List<Version> list = iter.next() ;
+                    int before = list.size() ;
+                    long previous = Long.MIN_VALUE ;
+                    Iterator<Version> vIter = list.iterator() ;
+                    while ( vIter.hasNext() ) {
+                        Version v = vIter.next() ;
+                        Long g = generations.higher(previous) ;
+                        if ( g == null || g > v.generation )
+                            vIter.remove() ;
+                        previous = v.generation ;
+                    }
+                    count -= before - list.size() ;
+                    if ( list.isEmpty() )
+                        iter.remove() ;
+                }
+            }
+        } finally { lock.unlockWrite(stamp) ; }
+    }
+
+    /** Discard all versions. */
+    void clear() {
+        long stamp = lock.writeLock() ;
+        try {
+            versions.clear() ;
+            count = 0 ;
+        } finally { lock.unlockWrite(stamp) ; }
+    }
+
+    /** Number of earlier block versions being kept. */
+    int size() {
+        return count ;
+    }
+}
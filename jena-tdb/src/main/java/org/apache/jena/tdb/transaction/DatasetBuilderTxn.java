@@ -32,6 +32,7 @@ import org.apache.jena.tdb.base.record.RecordFactory ;
 import org.apache.jena.tdb.index.Index ;
 import org.apache.jena.tdb.index.IndexMap ;
 import org.apache.jena.tdb.index.IndexParams ;
+import org.apache.jena.tdb.lib.NodeLib ;
 import org.apache.jena.tdb.setup.BlockMgrBuilder ;
 import org.apache.jena.tdb.setup.DatasetBuilderStd ;
 import org.apache.jena.tdb.setup.NodeTableBuilder ;
@@ -78,6 +79,19 @@ public class DatasetBuilderTxn
         return dsgTxn ;
     }
 
+    /** Build a read-only dataset over the base dataset as it was at a generation. */
+    /*package*/ DatasetGraphTDB buildSnapshot(DatasetGraphTDB dsg, long generation) {
+        this.blockMgrs = dsg.getConfig().blockMgrs ;
+        this.nodeTables = dsg.getConfig().nodeTables ;
+        this.dsg = dsg ;
+        BlockMgrBuilder blockMgrBuilder = new BlockMgrBuilderSnapshot(generation) ;
+        NodeTableBuilder nodeTableBuilder = new NodeTableBuilderReadonly() ;
+        DatasetBuilderStd x = new DatasetBuilderStd(blockMgrBuilder, nodeTableBuilder) ;
+        DatasetGraphTDB dsg2 = x._build(dsg.getLocation(), dsg.getConfig().params, false, dsg.getReorderTransform()) ;
+        dsg2.getContext().putAll(dsg.getContext()) ;
+        return dsg2 ;
+    }
+
     private DatasetGraphTDB buildReadonly() {
         BlockMgrBuilder blockMgrBuilder = new BlockMgrBuilderReadonly() ;
         NodeTableBuilder nodeTableBuilder = new NodeTableBuilderReadonly() ;
@@ -135,11 +149,12 @@ public class DatasetBuilderTxn
             else
                 objectFile = FileFactory.createObjectFileDisk(objFilename) ;
 
-            NodeTableTrans ntt = new NodeTableTrans(txn, fsObjectFile.getBasename(), ntBase, idx, objectFile) ;
+            NodeTableTrans ntt = new NodeTableTrans(txn, fsObjectFile.getBasename(), ntBase, idx, objectFile,
+                                                    NodeLib.nodec(params.getNodeEncoding())) ;
             txn.addComponent(ntt) ;
 
             // Add inline wrapper.
-            NodeTable nt = NodeTableInline.create(ntt) ;
+            NodeTable nt = NodeTableInline.create(ntt, params.getInlineExtended()) ;
             return nt ;
         }
     }
@@ -153,6 +168,7 @@ public class DatasetBuilderTxn
             BlockMgr baseMgr = blockMgrs.get(ref) ;
             if ( baseMgr == null )
                 throw new TDBException("No BlockMgr for " + ref) ;
+            baseMgr = txnMgr.snapshotBlockMgr(ref, baseMgr, dsg, txn) ;
             BlockMgrJournal blkMgr = new BlockMgrJournal(txn, ref, baseMgr) ;
             txn.addComponent(blkMgr) ;
             return blkMgr ;
@@ -169,6 +185,25 @@ public class DatasetBuilderTxn
             BlockMgr blockMgr = blockMgrs.get(ref) ;
             if ( blockMgr == null )
                 throw new TDBException("No BlockMgr for " + ref) ;
+            blockMgr = txnMgr.snapshotBlockMgr(ref, blockMgr, dsg, txn) ;
+            blockMgr = new BlockMgrReadonly(blockMgr) ;
+            return blockMgr ;
+        }
+    }
+    
+    class BlockMgrBuilderSnapshot implements BlockMgrBuilder
+    {
+        private final long generation ;
+
+        BlockMgrBuilderSnapshot(long generation) { this.generation = generation ; }
+
+        @Override
+        public BlockMgr buildBlockMgr(FileSet fileSet, String ext, IndexParams params) {
+            FileRef ref = FileRef.create(fileSet, ext) ;
+            BlockMgr blockMgr = blockMgrs.get(ref) ;
+            if ( blockMgr == null )
+                throw new TDBException("No BlockMgr for " + ref) ;
+            blockMgr = txnMgr.snapshotBlockMgr(ref, blockMgr, generation) ;
             blockMgr = new BlockMgrReadonly(blockMgr) ;
             return blockMgr ;
         }
@@ -0,0 +1,110 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb.transaction;
+
+import org.apache.jena.query.ReadWrite ;
+import org.apache.jena.sparql.core.DatasetGraph ;
+import org.apache.jena.sparql.core.DatasetGraphReadOnly ;
+import org.apache.jena.tdb.store.DatasetGraphTDB ;
+
+/**
+ * A read-only DatasetGraph of a TDB database as it was when the snapshot was opened.
+ * <p>
+ * Unlike a read transaction, an open snapshot does not stop committed transactions
+ * being written to the database; the blocks they overwrite are kept for the snapshot
+ * until it is closed. Snapshots are for long-running read-only work, such as reporting
+ * queries, and must be closed.
+ * <p>
+ * The snapshot does not change so transactions are not needed. Read transactions are
+ * accepted, and do nothing, so that the snapshot can be used by code that uses them.
+ *
+ * @see TransactionManager#openSnapshot
+ */
+public class DatasetGraphSnapshot extends DatasetGraphReadOnly {
+    private final TransactionManager txnMgr ;
+    private final long generation ;
+    private volatile boolean closed = false ;
+
+    /*package*/ DatasetGraphSnapshot(DatasetGraphTDB dsg, TransactionManager txnMgr, long generation) {
+        super(dsg) ;
+        this.txnMgr = txnMgr ;
+        this.generation = generation ;
+    }
+
+    /** Return the view (storage) for this snapshot */
+    public DatasetGraphTDB getView() {
+        checkOpen() ;
+        return (DatasetGraphTDB)getWrapped() ;
+    }
+
+    /** The generation of the base database this is a snapshot of. */
+    /*package*/ long getGeneration() {
+        return generation ;
+    }
+
+    public boolean isClosed() {
+        return closed ;
+    }
+
+    private void checkOpen() {
+        if ( closed )
+            throw new TDBTransactionException("Snapshot has been closed") ;
+    }
+
+    @Override
+    protected DatasetGraph get() {
+        checkOpen() ;
+        return super.get() ;
+    }
+
+    @Override
+    public void begin(ReadWrite mode) {
+        if ( mode == ReadWrite.WRITE )
+            throw new TDBTransactionException("Snapshot: write transactions are not supported") ;
+        checkOpen() ;
+    }
+
+    @Override
+    public void commit() {}
+
+    @Override
+    public void abort() {}
+
+    @Override
+    public void end() {}
+
+    @Override
+    public boolean isInTransaction() {
+        return false ;
+    }
+
+    /** Close the snapshot: the storage is not closed. */
+    @Override
+    public void close() {
+        if ( closed )
+            return ;
+        closed = true ;
+        txnMgr.closeSnapshot(this) ;
+    }
+
+    @Override
+    public String toString() {
+        return "Snapshot:" + generation ;
+    }
+}
@@ -0,0 +1,228 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.jena.tdb.transaction;
+
+import java.util.* ;
+
+import org.apache.jena.atlas.iterator.Iter ;
+import org.apache.jena.graph.Graph ;
+import org.apache.jena.graph.Node ;
+import org.apache.jena.graph.Triple ;
+import org.apache.jena.query.ReadWrite ;
+import org.apache.jena.sparql.core.DatasetGraphQuads ;
+import org.apache.jena.sparql.core.GraphView ;
+import org.apache.jena.sparql.core.Quad ;
+import org.apache.jena.sparql.util.Context ;
+
+/**
+ * A DatasetGraph that is a single write transaction that can run at the same time as
+ * other concurrent write transactions.
+ * <p>
+ * Changes are kept in memory. Reads see the dataset as it was when the
+ * transaction began, together with the changes made by this transaction.
+ * Commit checks for conflicts at the level of graphs: if a write transaction that
+ * committed after this transaction began changed a graph that this transaction
+ * has changed or read, the commit fails with {@link TDBTransactionException} and 
+ * the changes are discarded. Otherwise the changes are applied in a normal
+ * write transaction.
+ * <p>
+ * A normal (not concurrent) write transaction is treated as changing all graphs. 
+ * 
+ * @see TransactionManager#beginConcurrentWrite
+ */
+public class DatasetGraphTxnConcurrent extends DatasetGraphQuads
+{
+    private final TransactionManager txnMgr ;
+    private final DatasetGraphTxn snapshot ;
+    private final long startVersion ;
+    private final String label ;
+    // Changes. Default graph quads use Quad.defaultGraphIRI.
+    private final Set<Quad> added = new LinkedHashSet<>() ;
+    private final Set<Quad> deleted = new LinkedHashSet<>() ;
+    private final Set<Node> graphsWritten = new HashSet<>() ;
+    private final Set<Node> graphsRead = new HashSet<>() ;
+    private boolean readAllGraphs = false ;
+    private boolean active = true ;
+
+    /*package*/ DatasetGraphTxnConcurrent(TransactionManager txnMgr, DatasetGraphTxn snapshot, long startVersion, String label) {
+        this.txnMgr = txnMgr ;
+        this.snapshot = snapshot ;
+        this.startVersion = startVersion ;
+        this.label = label ;
+    }
+
+    /*package*/ long getStartVersion()              { return startVersion ; }
+    /*package*/ String getLabel()                   { return label ; }
+    /*package*/ DatasetGraphTxn getSnapshot()       { return snapshot ; }
+    /*package*/ Set<Quad> getAdded()                { return added ; }
+    /*package*/ Set<Quad> getDeleted()              { return deleted ; }
+    /*package*/ Set<Node> getGraphsWritten()        { return graphsWritten ; }
+    /*package*/ Set<Node> getGraphsRead()           { return graphsRead ; }
+    /*package*/ boolean readAllGraphs()             { return readAllGraphs ; }
+
+    @Override
+    public Iterator<Quad> find(Node g, Node s, Node p, Node o) {
+        return find(false, g, s, p, o) ;
+    }
+
+    @Override
+    public Iterator<Quad> findNG(Node g, Node s, Node p, Node o) {
+        return find(true, g, s, p, o) ;
+    }
+
+    private Iterator<Quad> find(boolean namedGraphsOnly, Node g, Node s, Node p, Node o) {
+        checkActive() ;
+        noteRead(g) ;
+        Iterator<Quad> base = namedGraphsOnly ? snapshot.findNG(g, s, p, o) : snapshot.find(g, s, p, o) ;
+        if ( added.isEmpty() && deleted.isEmpty() )
+            return base ;
+        Iterator<Quad> iter1 = Iter.filter(base, q -> ! deleted.contains(canonical(q))) ;
+        // Added quads already in the dataset are returned from the dataset.
+        Iterator<Quad> iter2 = Iter.filter(new ArrayList<>(added).iterator(),
+                                           q -> matches(namedGraphsOnly, q, g, s, p, o) && ! snapshot.contains(q)) ;
+        return Iter.concat(iter1, iter2) ;
+    }
+
+    @Override
+    public void add(Quad quad) {
+        checkActive() ;
+        quad = canonical(quad) ;
+        graphsWritten.add(quad.getGraph()) ;
+        deleted.remove(quad) ;
+        added.add(quad) ;
+    }
+
+    @Override
+    public void delete(Quad quad) {
+        checkActive() ;
+        quad = canonical(quad) ;
+        graphsWritten.add(quad.getGraph()) ;
+        added.remove(quad) ;
+        deleted.add(quad) ;
+    }
+
+    @Override
+    public Iterator<Node> listGraphNodes() {
+        Iter<Quad> iter = Iter.iter(findNG(Node.ANY, Node.ANY, Node.ANY, Node.ANY)) ;
+        return iter.map(Quad::getGraph).distinct() ;
+    }
+
+    @Override
+    public Graph getDefaultGraph() {
+        return GraphView.createDefaultGraph(this) ;
+    }
+
+    @Override
+    public Graph getGraph(Node graphNode) {
+        return GraphView.createNamedGraph(this, graphNode) ;
+    }
+
+    @Override
+    public void addGraph(Node graphName, Graph graph) {
+        Iterator<Triple> iter = graph.find(Node.ANY, Node.ANY, Node.ANY) ;
+        iter.forEachRemaining(t -> add(Quad.create(graphName, t))) ;
+    }
+
+    @Override
+    public Context getContext() {
+        return snapshot.getContext() ;
+    }
+
+    // ---- Transaction
+
+    @Override
+    public void begin(ReadWrite readWrite) {
+        throw new IllegalStateException() ;
+    }
+
+    @Override
+    public void commit() {
+        checkActive() ;
+        active = false ;
+        txnMgr.commitConcurrent(this) ;
+    }
+
+    @Override
+    public void abort() {
+        checkActive() ;
+        active = false ;
+        txnMgr.abortConcurrent(this) ;
+    }
+
+    @Override
+    public void end() {
+        if ( active )
+            abort() ;
+    }
+
+    @Override
+    public boolean isInTransaction() {
+        return active ;
+    }
+
+    @Override
+    public boolean supportsTransactions() {
+        return true ;
+    }
+
+    @Override
+    public String toString() {
+        return "TxnConcurrent:" + label ;
+    }
+
+    private void checkActive() {
+        if ( ! active )
+            throw new TDBTransactionException("Transaction has already committed or aborted") ;
+    }
+
+    private void noteRead(Node g) {
+        if ( g == null || g == Node.ANY || Quad.isUnionGraph(g) )
+            readAllGraphs = true ;
+        else
+            graphsRead.add(canonicalGraph(g)) ;
+    }
+
+    private static boolean matches(boolean namedGraphsOnly, Quad quad, Node g, Node s, Node p, Node o) {
+        boolean dftGraph = quad.isDefaultGraph() ;
+        if ( g == null || g == Node.ANY || Quad.isUnionGraph(g) ) {
+            if ( dftGraph && ( namedGraphsOnly || Quad.isUnionGraph(g) ) )
+                return false ;
+        } else if ( Quad.isDefaultGraph(g) ) {
+            if ( ! dftGraph )
+                return false ;
+        } else if ( ! g.equals(quad.getGraph()) )
+            return false ;
+        return matches(s, quad.getSubject()) && matches(p, quad.getPredicate()) && matches(o, quad.getObject()) ;
+    }
+
+    private static boolean matches(Node pattern, Node node) {
+        return pattern == null || pattern == Node.ANY || pattern.equals(node) ;
+    }
+
+    private static Quad canonical(Quad quad) {
+        if ( quad.isDefaultGraph() && ! Quad.defaultGraphIRI.equals(quad.getGraph()) )
+            return Quad.create(Quad.defaultGraphIRI, quad.asTriple()) ;
+        return quad ;
+    }
+
+    /*package*/ static Node canonicalGraph(Node g) {
+        return Quad.isDefaultGraph(g) ? Quad.defaultGraphIRI : g ;
+    }
+}
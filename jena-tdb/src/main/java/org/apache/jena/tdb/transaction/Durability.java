@@ -0,0 +1,41 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.jena.tdb.transaction;
+
+/** When the commit of a write transaction is forced to disk.
+ * <p>
+ * The commit point of a write transaction is the commit record in the journal.
+ * With {@link #STRICT}, the journal is forced to disk before {@code commit} returns.
+ * With {@link #GROUP}, writers committing within the group commit window share one
+ * force of the journal and {@code commit} returns once its commit record is on disk.
+ * With {@link #RELAXED}, {@code commit} returns before the journal is forced; it is
+ * forced within the group commit window, so a system crash can lose transactions
+ * committed in that time. The database is always left consistent.
+ * 
+ * @see TransactionManager#setDurability
+ */
+public enum Durability {
+    /** Force the journal at every commit. */
+    STRICT,
+    /** Force the journal once for all the commits in the group commit window. */
+    GROUP,
+    /** Acknowledge the commit before the journal is forced. */
+    RELAXED
+}
@@ -26,6 +26,7 @@ import java.io.File ;
 import java.nio.ByteBuffer ;
 import java.util.Collection ;
 import java.util.Iterator ;
+import java.util.function.BiConsumer ;
 
 import org.apache.jena.atlas.iterator.Iter ;
 import org.apache.jena.atlas.lib.FileOps ;
@@ -39,6 +40,7 @@ import org.apache.jena.tdb.base.file.Location ;
 import org.apache.jena.tdb.base.objectfile.ObjectFile ;
 import org.apache.jena.tdb.base.record.RecordFactory ;
 import org.apache.jena.tdb.index.IndexMap ;
+import org.apache.jena.tdb.lib.NodeLib ;
 import org.apache.jena.tdb.store.DatasetGraphTDB ;
 import org.apache.jena.tdb.store.StorageConfig ;
 import org.apache.jena.tdb.store.nodetable.NodeTable ;
@@ -182,7 +184,7 @@ public class JournalControl
                         log.warn(format("Inconsistent: end at %d; expected %d", e.getEndPosition(), endPosn)) ;
                     return ;
                 }
-                replay(e, sConf) ;
+                replay(e, sConf, null) ;
             }
         } finally { Iter.close(iter) ; }
     }
@@ -205,7 +207,8 @@ public class JournalControl
         {
             syslog.info("Recovering node data: "+fileRef.getFilename()) ;
             ObjectFile dataJrnl = FileFactory.createObjectFileDisk(objFilename) ;
-            NodeTableTrans ntt = new NodeTableTrans(null, objFilename, baseNodeTable, new IndexMap(recordFactory), dataJrnl) ;
+            NodeTableTrans ntt = new NodeTableTrans(null, objFilename, baseNodeTable, new IndexMap(recordFactory), dataJrnl,
+                                                    NodeLib.nodec(dsg.getConfig().params.getNodeEncoding())) ;
             ntt.append() ;
             ntt.close() ;
             dataJrnl.close() ;
@@ -233,6 +236,19 @@ public class JournalControl
     
     /** Replay a journal onto a store configuration (the file resources) */
     private static void replay(Journal journal, StorageConfig sConf)
+    {
+        replay(journal, sConf, null) ;
+    }
+    
+    /** Replay a journal onto a dataset, passing blocks to {@code overwrite}, 
+     *  instead of overwriting the base block manager directly, if it is not null.
+     */
+    /*package*/ static void replay(Journal journal, DatasetGraphTDB dsg, BiConsumer<FileRef, Block> overwrite)
+    {
+        replay(journal, dsg.getConfig(), overwrite) ;
+    }
+    
+    private static void replay(Journal journal, StorageConfig sConf, BiConsumer<FileRef, Block> overwrite)
     {
         if ( journal.size() == 0 )
             return ;
@@ -244,7 +260,7 @@ public class JournalControl
             for (  ; iter.hasNext() ; )
             {
                 JournalEntry e = iter.next() ;
-                replay(e, sConf) ;
+                replay(e, sConf, overwrite) ;
 
                 // There is no point sync here.  
                 // No writes via the DSG have been done. 
@@ -267,7 +283,7 @@ public class JournalControl
     }
 
     /** return true for "go on" */
-    private static boolean replay(JournalEntry e, StorageConfig sConf)
+    private static boolean replay(JournalEntry e, StorageConfig sConf, BiConsumer<FileRef, Block> overwrite)
     {
         switch (e.getType())
         {
@@ -277,7 +293,10 @@ public class JournalControl
                 Block blk = e.getBlock() ;
                 log.debug("Replay: {} {}",e.getFileRef(), blk) ;
                 blk.setModified(true) ;
-                blkMgr.overwrite(blk) ; 
+                if ( overwrite != null )
+                    overwrite.accept(e.getFileRef(), blk) ;
+                else
+                    blkMgr.overwrite(blk) ; 
                 return true ;
             }   
             case Buffer:
@@ -0,0 +1,192 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.jena.tdb.transaction;
+
+import java.util.concurrent.TimeUnit ;
+import java.util.concurrent.atomic.AtomicLong ;
+
+import org.apache.jena.tdb.sys.SystemTDB ;
+
+/** Forcing the journal to disk at the commit point of write transactions,
+ * according to a {@link Durability} policy.
+ * <p>
+ * For {@link Durability#GROUP} and {@link Durability#RELAXED}, a background thread
+ * forces the journal once per group commit window if there are commits waiting.
+ * A committing writer takes a ticket after writing its commit record. Any force of the
+ * journal that starts after that point covers the commit record. The journal is
+ * forced by one thread at a time so forces complete in the order they start.
+ * A commit record written after the background thread has stopped is forced immediately.
+ * <p>
+ * Replaying the journal into the base database also makes committed transactions
+ * durable (the base database is forced to disk before the journal is truncated).  
+ */
+class JournalSyncer
+{
+    private final Journal journal ;
+    private volatile Durability durability ;
+    private volatile long windowMillis ;
+
+    // Guarded by "this".
+    private long syncsStarted = 0 ;
+    private long syncsCompleted = 0 ;
+    private long replays = 0 ;
+    private int  pending = 0 ;
+    private RuntimeException syncFailure = null ;
+    private long syncFailureCount = -1 ;
+    private Thread syncThread = null ;
+    private volatile boolean closed = false ;
+
+    // Statistics
+    /*package*/ final AtomicLong syncCount = new AtomicLong(0) ;
+    /*package*/ final AtomicLong syncedCommitCount = new AtomicLong(0) ;
+
+    /** A point in the sequence of forces of the journal. */
+    static final class Ticket {
+        final long sync ;
+        final long replay ;
+        Ticket(long sync, long replay) { this.sync = sync ; this.replay = replay ; }
+    }
+
+    JournalSyncer(Journal journal, Durability durability, long windowMillis) {
+        this.journal = journal ;
+        setDurability(durability, windowMillis) ;
+    }
+
+    synchronized void setDurability(Durability durability, long windowMillis) {
+        if ( durability == null )
+            throw new IllegalArgumentException("Null for durability") ;
+        if ( windowMillis < 0 )
+            throw new IllegalArgumentException("Negative group commit window: "+windowMillis) ;
+        if ( closed )
+            throw new TDBTransactionException("Transaction manager closed") ;
+        this.durability = durability ;
+        this.windowMillis = windowMillis ;
+        if ( durability != Durability.STRICT && syncThread == null ) {
+            syncThread = new Thread(this::syncLoop, "TDB journal sync") ;
+            syncThread.setDaemon(true) ;
+            syncThread.start() ;
+        }
+    }
+
+    Durability getDurability()  { return durability ; }
+    long getWindowMillis()      { return windowMillis ; }
+
+    /** Called after the commit record has been written to the journal.
+     * For {@link Durability#STRICT}, force the journal and return null.
+     * For {@link Durability#RELAXED}, return null; the journal will be forced later.
+     * For {@link Durability#GROUP}, return the ticket to pass to {@link #await}.
+     * Does not wait for the journal to be forced. 
+     */
+    Ticket commitPoint() {
+        if ( durability == Durability.STRICT || closed ) {
+            journal.sync() ;
+            syncCount.incrementAndGet() ;
+            syncedCommitCount.incrementAndGet() ;
+            return null ;
+        }
+        synchronized(this) {
+            pending++ ;
+            notifyAll() ;
+            if ( durability == Durability.RELAXED )
+                return null ;
+            return new Ticket(syncsStarted, replays) ;
+        }
+    }
+
+    /** Wait until the journal has been forced to disk since the ticket was issued. */
+    void await(Ticket ticket) {
+        synchronized(this) {
+            while ( syncsCompleted <= ticket.sync && replays == ticket.replay ) {
+                if ( syncFailure != null && syncFailureCount > ticket.sync )
+                    throw syncFailure ;
+                try { wait() ; }
+                catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt() ;
+                    throw new TDBTransactionException("Interrupted waiting for the journal to be forced to disk", ex) ;
+                }
+            }
+        }
+    }
+
+    /** The journal has been replayed to the base database, which is now on disk. */
+    synchronized void replayed() {
+        replays++ ;
+        notifyAll() ;
+    }
+
+    /** Force any outstanding commits to disk and stop the background thread. */ 
+    void close() {
+        Thread t ;
+        synchronized(this) {
+            if ( closed )
+                return ;
+            closed = true ;
+            notifyAll() ;
+            t = syncThread ;
+        }
+        if ( t == null )
+            return ;
+        try { t.join() ; }
+        catch (InterruptedException ex) { Thread.currentThread().interrupt() ; }
+    }
+
+    private void syncLoop() {
+        for ( ;; ) {
+            synchronized(this) {
+                while ( pending == 0 && !closed ) {
+                    try { wait() ; }
+                    catch (InterruptedException ex) {}
+                }
+                if ( pending == 0 && closed )
+                    return ;
+            }
+            // Gather other commits arriving in the window.
+            if ( !closed && windowMillis > 0 ) {
+                try { TimeUnit.MILLISECONDS.sleep(windowMillis) ; }
+                catch (InterruptedException ex) {}
+            }
+            int commits ;
+            synchronized(this) {
+                commits = pending ;
+                pending = 0 ;
+                syncsStarted++ ;
+            }
+            RuntimeException failure = null ;
+            try { journal.sync() ; }
+            catch (RuntimeException ex) {
+                SystemTDB.errlog.warn("Exception forcing the journal to disk", ex) ;
+                failure = ex ;
+            }
+            synchronized(this) {
+                if ( failure == null ) {
+                    syncsCompleted = syncsStarted ;
+                    syncCount.incrementAndGet() ;
+                    syncedCommitCount.addAndGet(commits) ;
+                } else {
+                    syncFailure = failure ;
+                    syncFailureCount = syncsStarted ;
+                    // Retry on the next round.
+                    pending += commits ;
+                }
+                notifyAll() ;
+            }
+        }
+    }
+}
@@ -31,11 +31,13 @@ import org.apache.jena.tdb.TDBException ;
 import org.apache.jena.tdb.base.objectfile.ObjectFile ;
 import org.apache.jena.tdb.base.record.Record ;
 import org.apache.jena.tdb.index.Index ;
+import org.apache.jena.tdb.lib.NodeLib ;
 import org.apache.jena.tdb.store.NodeId ;
 import org.apache.jena.tdb.store.nodetable.NodeTable ;
 import org.apache.jena.tdb.store.nodetable.NodeTableCache ;
 import org.apache.jena.tdb.store.nodetable.NodeTableInline ;
 import org.apache.jena.tdb.store.nodetable.NodeTableNative ;
+import org.apache.jena.tdb.store.nodetable.Nodec ;
 import org.slf4j.Logger ;
 import org.slf4j.LoggerFactory ;
 
@@ -57,10 +59,18 @@ public class NodeTableTrans implements NodeTable, TransactionLifecycle
     private long journalObjFileStartOffset ; 
     private final String label ;
     private final Transaction txn ;     // Can be null (during recovery).
+    // Must be the same encoding as the base node table.
+    private final Nodec nodec ;
     
     public NodeTableTrans(Transaction txn, String label, NodeTable sub, Index nodeIndex, ObjectFile objFile)
+    {
+        this(txn, label, sub, nodeIndex, objFile, NodeLib.nodec(null)) ;
+    }
+    
+    public NodeTableTrans(Transaction txn, String label, NodeTable sub, Index nodeIndex, ObjectFile objFile, Nodec nodec)
     {
         this.txn = txn ;
+        this.nodec = nodec ;
         this.base = sub ;
         this.nodeIndex = nodeIndex ;
         this.journalObjFile = objFile ;
@@ -188,7 +198,7 @@ public class NodeTableTrans implements NodeTable, TransactionLifecycle
             warn(log, "%s journalStartOffset not zero: %d/0x%02X",txn.getLabel(), journalObjFileStartOffset, journalObjFileStartOffset) ;
         allocOffset += journalObjFileStartOffset ;
         
-        this.nodeTableJournal = new NodeTableNative(nodeIndex, journalObjFile) ;
+        this.nodeTableJournal = new NodeTableNative(nodeIndex, journalObjFile, nodec) ;
         this.nodeTableJournal = NodeTableCache.create(nodeTableJournal, CacheSize, CacheSize, 100) ;
         // This class knows about non-mappable inline values.   mapToJournal(NodeId)/mapFromJournal. 
         this.nodeTableJournal = NodeTableInline.create(nodeTableJournal) ;
@@ -21,9 +21,12 @@ import java.io.IOException ;
 import java.util.ArrayList ;
 import java.util.Iterator ;
 import java.util.List ;
+import java.util.Set ;
 
 import org.apache.jena.atlas.logging.Log ;
+import org.apache.jena.graph.Node ;
 import org.apache.jena.query.ReadWrite ;
+import org.apache.jena.tdb.solver.stats.StatsRecorder ;
 import org.apache.jena.tdb.store.DatasetGraphTDB ;
 import org.apache.jena.tdb.sys.FileRef ;
 import org.apache.jena.tdb.sys.SystemTDB ;
@@ -42,6 +45,11 @@ public class Transaction
     // The dataset this is a transaction over - may be a commited, pending dataset.
     private final DatasetGraphTDB   basedsg ;
     private final long version ;
+    // Generation of the base database at the bottom of this transaction's view (background replay).
+    private long baseGeneration = 0 ;
+    // Graphs changed by a write transaction; null means any graph may have changed.
+    private Set<Node> writeGraphs = null ;
+    private StatsRecorder statsRecorder = null ;
 
     private final List<Iterator<?>> iterators ;     // Tracking iterators 
     private DatasetGraphTxn         activedsg ;
@@ -95,6 +103,8 @@ public class Transaction
      */
     
     public void commit() {
+        long startCommit = System.nanoTime() ;
+        JournalSyncer.Ticket ticket = null ;
         synchronized (this) {
             // Do prepare, write the COMMIT record.
             // Enacting is left to the TransactionManager.
@@ -128,7 +138,8 @@ public class Transaction
                     
                     try {
                         journal.write(JournalEntryType.Commit, FileRef.Journal, null) ;
-                        journal.sync() ;        // Commit point.
+                        // Commit point: forced to disk now or by the group commit. 
+                        ticket = txnMgr.getJournalSyncer().commitPoint() ;
                     } catch (RuntimeException ex) {
                         // It either did all commit or didn't but we don't know which.
                         // Some low level system error - probably a sign of something
@@ -155,6 +166,19 @@ public class Transaction
                 SystemTDB.errlog.warn("Exception after commit point : transaction commited but internal status not recorded properly", ex) ;
             throw new TDBTransactionException("Exception after commit point - transaction did commit", ex) ;
         }
+        
+        if ( mode == ReadWrite.WRITE ) {
+            // Group commit: wait for the journal to be forced to disk.
+            // The writer lock has been released so other writers can join the same force of the journal.
+            if ( ticket != null ) {
+                try { txnMgr.getJournalSyncer().await(ticket) ; }
+                catch (RuntimeException ex) {
+                    SystemTDB.errlog.warn("Exception during 'commit' : transaction status not known (but not a partial commit): ", ex) ;
+                    throw new TDBTransactionException("Exception at commit point", ex) ;
+                }
+            }
+            txnMgr.noteCommitLatency(System.nanoTime()-startCommit) ;
+        }
     }
     
     private boolean isIOException(Throwable ex) {
@@ -273,6 +297,12 @@ public class Transaction
     
     public DatasetGraphTxn getActiveDataset()       { return activedsg ; }
     public long getVersion()                        { return version ; }
+    /*package*/ long getBaseGeneration()            { return baseGeneration ; }
+    /*package*/ void setBaseGeneration(long g)      { baseGeneration = g ; }
+    /*package*/ Set<Node> getWriteGraphs()          { return writeGraphs ; }
+    /*package*/ void setWriteGraphs(Set<Node> g)    { writeGraphs = g ; }
+    /*package*/ StatsRecorder getStatsRecorder()    { return statsRecorder ; }
+    /*package*/ void setStatsRecorder(StatsRecorder r) { statsRecorder = r ; }
 
     /*package*/ void setActiveDataset(DatasetGraphTxn activedsg) { 
         this.activedsg = activedsg ;
@@ -66,4 +66,43 @@ public class TransactionInfo implements TransactionInfoMBean {
 		return transactionManager.activeReaders.get() ;
 	}
 
+	@Override
+	public String getDurability() {
+		return transactionManager.getDurability().name() ;
+	}
+
+	@Override
+	public long getJournalSyncCount() {
+		return transactionManager.getJournalSyncer().syncCount.get() ;
+	}
+
+	@Override
+	public double getCommitsPerJournalSync() {
+		long syncs = getJournalSyncCount() ;
+		if ( syncs == 0 )
+			return 0 ;
+		return transactionManager.getJournalSyncer().syncedCommitCount.get() / (double)syncs ;
+	}
+
+	@Override
+	public double getCommitLatencyMeanMicros() {
+		long commits = getWriteCommitTransactionCount() ;
+		if ( commits == 0 )
+			return 0 ;
+		return transactionManager.commitLatencyTotal.get() / (commits * 1000.0) ;
+	}
+
+	@Override
+	public long getCommitLatencyMaxMicros() {
+		return transactionManager.commitLatencyMax.get() / 1000 ;
+	}
+
+	@Override
+	public double getCommitThroughput() {
+		long elapsed = System.nanoTime() - transactionManager.startTime ;
+		if ( elapsed <= 0 )
+			return 0 ;
+		return getWriteCommitTransactionCount() * 1e9 / elapsed ;
+	}
+
 }
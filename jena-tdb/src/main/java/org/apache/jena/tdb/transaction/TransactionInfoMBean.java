@@ -44,4 +44,22 @@ public interface TransactionInfoMBean
 
     /** Number of read transactions executing */
     long getCurrentReadTransactionCount() ; 
+
+    /** Durability policy for commits: STRICT, GROUP or RELAXED */
+    String getDurability() ;
+
+    /** Number of times the journal has been forced to disk for commits */
+    long getJournalSyncCount() ;
+
+    /** Average number of write transactions committed per force of the journal */
+    double getCommitsPerJournalSync() ;
+
+    /** Average time for a write transaction to commit, in microseconds */
+    double getCommitLatencyMeanMicros() ;
+
+    /** Longest time for a write transaction to commit, in microseconds */
+    long getCommitLatencyMaxMicros() ;
+
+    /** Write transactions committed per second, since the transaction manager started */
+    double getCommitThroughput() ;
 }
@@ -26,8 +26,11 @@ import static org.apache.jena.tdb.transaction.TransactionManager.TxnPoint.CLOSE
 import java.io.File ;
 import java.util.ArrayList ;
 import java.util.HashSet ;
+import java.util.Iterator ;
 import java.util.List ;
+import java.util.NavigableSet ;
 import java.util.Set ;
+import java.util.TreeSet ;
 import java.util.concurrent.BlockingQueue ;
 import java.util.concurrent.LinkedBlockingDeque ;
 import java.util.concurrent.Semaphore ;
@@ -38,9 +41,21 @@ import java.util.concurrent.locks.ReentrantReadWriteLock ;
 
 import org.apache.jena.atlas.lib.Pair ;
 import org.apache.jena.atlas.logging.Log ;
+import org.apache.jena.graph.Node ;
 import org.apache.jena.query.ReadWrite ;
 import org.apache.jena.shared.Lock ;
+import org.apache.jena.sparql.engine.optimizer.reorder.ReorderTransformation ;
+import org.apache.jena.tdb.base.block.BlockMgr ;
+import org.apache.jena.tdb.base.block.FileMode ;
+import org.apache.jena.tdb.base.file.Location ;
+import org.apache.jena.tdb.solver.stats.ReorderLiveStats ;
+import org.apache.jena.tdb.solver.stats.ReorderTransformationStats ;
+import org.apache.jena.tdb.solver.stats.StatsLive ;
+import org.apache.jena.tdb.solver.stats.StatsRecorder ;
 import org.apache.jena.tdb.store.DatasetGraphTDB ;
+import org.apache.jena.tdb.store.nodetable.NodeTable ;
+import org.apache.jena.tdb.sys.FileRef ;
+import org.apache.jena.tdb.sys.Names ;
 import org.apache.jena.tdb.sys.SystemTDB ;
 import org.slf4j.Logger ;
 import org.slf4j.LoggerFactory ;
@@ -79,6 +94,36 @@ public class TransactionManager
      */
     public static /*final*/ int MaxQueueThreshold = 100 ;
     
+    /** The durability policy for commits of new transaction managers.
+     * @see Durability
+     */
+    public static /*final*/ Durability DefaultDurability = Durability.STRICT ;
+    
+    /** The time, in milliseconds, over which commits are gathered into one force
+     * of the journal for {@link Durability#GROUP} and {@link Durability#RELAXED}.
+     * For {@link Durability#RELAXED}, this is the period of commits that may be lost.
+     */
+    public static /*final*/ long GroupCommitWindow = 5 ;
+    
+    /** Whether new transaction managers replay committed transactions into the base
+     * database with a background thread while there are active readers.
+     * Readers keep their view of the database by reading earlier versions of overwritten blocks
+     * (copy-on-write), so the journal does not grow without limit under continuous read load.
+     * Replay starts when the commit queue reaches {@link #QueueBatchSize} 
+     * or the journal reaches {@link #JournalThresholdSize}.
+     * Writers wait while a background replay is in progress.
+     */
+    public static /*final*/ boolean BackgroundReplay = false ;
+    
+    /** Whether new transaction managers maintain statistics as write transactions commit
+     * and use them to reorder basic graph patterns (unless the database has a "none.opt" file).
+     * The statistics are saved when the database is closed and recalculated, 
+     * by scanning the indexes, if the saved statistics are missing or out of date.
+     * Changes made outside transactions are not recorded.
+     * @see StatsLive
+     */
+    public static /*final*/ boolean LiveStats = false ;
+    
     private static int setQueueBatchSize() {
         if ( SystemTDB.is64bitSystem )
             return 10 ;
@@ -111,6 +156,14 @@ public class TransactionManager
     // Set on each commit.
     private AtomicLong version = new AtomicLong(0) ;
     
+    // Concurrent write transactions: those that are starting and those that are active.
+    // While there are any, write commits are recorded, with the graphs they changed,
+    // for conflict detection.
+    private int concurrentWritersStarting = 0 ;
+    private final List<DatasetGraphTxnConcurrent> concurrentWriters = new ArrayList<>() ;
+    private final List<Pair<Long, Set<Node>>> commitLog = new ArrayList<>() ;
+    /*package*/ AtomicLong concurrentConflicts = new AtomicLong(0) ;
+    
     // Accessed by SysTxnState
     // These must be AtomicLong
     /*package*/ AtomicLong activeReaders = new AtomicLong(0) ; 
@@ -123,6 +176,10 @@ public class TransactionManager
     /*package*/ AtomicLong finishedReaders = new AtomicLong(0) ;
     /*package*/ AtomicLong committedWriters = new AtomicLong(0) ;
     /*package*/ AtomicLong abortedWriters = new AtomicLong(0) ;
+    // Write commit latency, in nanoseconds.
+    /*package*/ AtomicLong commitLatencyTotal = new AtomicLong(0) ;
+    /*package*/ AtomicLong commitLatencyMax = new AtomicLong(0) ;
+    /*package*/ final long startTime = System.nanoTime() ;
     
     // This is the DatasetGraphTDB for the first read-transaction created for
     // a particular view.  The read DatasetGraphTDB can be used by all the readers
@@ -148,6 +205,28 @@ public class TransactionManager
 
     private DatasetGraphTDB baseDataset ;
     private Journal journal ;
+    private final JournalSyncer journalSyncer ;
+    // Null if statistics are not maintained.
+    private volatile StatsLive statsLive ;
+    
+    // Background replay.
+    // The generation of the base database: incremented each time the journal is replayed. 
+    private long baseGeneration = 0 ;
+    // Earlier versions of blocks for views of the base database that a replay has overwritten.
+    private final BlockVersions blockVersions = new BlockVersions() ;
+    private final boolean copyBlocks ;
+    private final boolean backgroundReplay ;
+    // Open read-only snapshots. Guarded by this.
+    private final List<DatasetGraphSnapshot> snapshots = new ArrayList<>() ;
+    private final Object replayLock = new Object() ;
+    private boolean replayRequested = false ;       // Guarded by replayLock 
+    private boolean replayClosing = false ;         // Guarded by replayLock
+    private volatile boolean replayInProgress = false ;
+    // Number of holds on journal replay (e.g. while the base files are copied for a backup).
+    private int replayHolds = 0 ;
+    private Thread replayThread = null ;
+    // Transactions replayed by the background replay that may still be in the view of active transactions.  
+    private List<Pair<Long, Transaction>> replayedAwaitingClearup = new ArrayList<>() ;
     
     /*
      * The order of calls is: 
@@ -288,6 +367,20 @@ public class TransactionManager
     public TransactionManager(DatasetGraphTDB dsg){
         this.baseDataset = dsg ; 
         this.journal = Journal.create(dsg.getLocation()) ;
+        this.journalSyncer = new JournalSyncer(journal, DefaultDurability, GroupCommitWindow) ;
+        // Memory mapped blocks are overwritten in-place; readers are given copies. 
+        this.copyBlocks = ! dsg.getLocation().isMem() && dsg.getConfig().params.getFileMode() == FileMode.mapped ;
+        this.backgroundReplay = BackgroundReplay ;
+        if ( backgroundReplay ) {
+            this.replayThread = new Thread(this::replayLoop, "TDB journal replay") ;
+            replayThread.setDaemon(true) ;
+            replayThread.start() ;
+        }
+        if ( LiveStats ) {
+            this.statsLive = initStatsLive(dsg) ;
+            if ( ! dsg.getLocation().exists(Names.optNone) )
+                dsg.setReorderTransform(new ReorderLiveStats(statsLive)) ;
+        }
         // LATER
 //        Committer c = new Committer() ;
 //        this.committerThread = new Thread(c) ;
@@ -296,8 +389,82 @@ public class TransactionManager
     }
 
     public void closedown() {
+        journalSyncer.close() ;
+        stopBackgroundReplay() ;
+        closeSnapshots() ;
         processDelayedReplayQueue(null) ;
         journal.close() ;
+        // The base dataset may have been closed already when used without transactions.
+        if ( statsLive != null && ! baseDataset.getLocation().isMem() && ! baseDataset.isClosed() )
+            statsLive.write(baseDataset.getLocation().getPath(Names.statsLive)) ;
+    }
+
+    private StatsLive initStatsLive(DatasetGraphTDB dsg) {
+        if ( ! dsg.getLocation().isMem() )
+            // Recover any committed transactions first so the saved statistics can be checked.
+            JournalControl.recoverFromJournal(dsg.getConfig(), journal) ;
+        return loadStatsLive(dsg) ;
+    }
+    
+    // Saved statistics if they are up to date, else calculate them.
+    private static StatsLive loadStatsLive(DatasetGraphTDB dsg) {
+        Location location = dsg.getLocation() ;
+        StatsLive stats = null ;
+        if ( ! location.isMem() ) {
+            NodeTable nodeTable = dsg.getTripleTable().getNodeTupleTable().getNodeTable() ;
+            stats = StatsLive.read(location.getPath(Names.statsLive), nodeTable) ;
+        }
+        if ( stats == null )
+            stats = StatsLive.create(dsg) ;
+        return stats ;
+    }
+
+    /** Start maintaining statistics, if not already doing so, and return them.
+     * Saved statistics are used if they are up to date, otherwise the statistics are 
+     * calculated by scanning the database.
+     * This waits for active transactions to finish.
+     * <p>
+     * The caller must not be inside a transaction associated with this TransactionManager.
+     * @see #LiveStats 
+     */
+    public StatsLive startLiveStats() {
+        if ( statsLive != null )
+            return statsLive ;
+        startExclusiveMode() ;
+        try {
+            synchronized(this) {
+                if ( statsLive == null )
+                    statsLive = loadStatsLive(baseDataset) ;
+                return statsLive ;
+            }
+        } finally { finishExclusiveMode() ; }
+    }
+
+    /** The statistics maintained by this transaction manager, or null.
+     * @see #LiveStats 
+     */
+    public StatsLive getStatsLive() {
+        return statsLive ;
+    }
+
+    /** Set the durability policy for commits and the group commit window, in milliseconds.
+     * @see Durability
+     */
+    public void setDurability(Durability durability, long windowMillis) {
+        journalSyncer.setDurability(durability, windowMillis) ;
+    }
+
+    public Durability getDurability() {
+        return journalSyncer.getDurability() ;
+    }
+
+    /*package*/ JournalSyncer getJournalSyncer() {
+        return journalSyncer ;
+    }
+
+    /*package*/ void noteCommitLatency(long nanos) {
+        commitLatencyTotal.addAndGet(nanos) ;
+        commitLatencyMax.accumulateAndGet(nanos, Math::max) ;
     }
 
     public DatasetGraphTxn begin(ReadWrite mode) {
@@ -408,12 +575,19 @@ public class TransactionManager
         
         DatasetGraphTDB dsg = determineBaseDataset() ;
         Transaction txn = createTransaction(dsg, mode, label) ;
+        txn.setBaseGeneration(determineBaseGeneration()) ;
         
         log("begin$", txn) ;
         
         DatasetGraphTxn dsgTxn = createDSGTxn(dsg, txn, mode) ;
 
         txn.setActiveDataset(dsgTxn) ;
+        if ( statsLive != null && mode == ReadWrite.WRITE ) {
+            StatsRecorder recorder = statsLive.recorder(dsgTxn.getView().getTripleTable().getNodeTupleTable().getNodeTable()) ;
+            txn.setStatsRecorder(recorder) ;
+            dsgTxn.getView().getTripleTable().getNodeTupleTable().getTupleTable().setListener(recorder) ;
+            dsgTxn.getView().getQuadTable().getNodeTupleTable().getTupleTable().setListener(recorder) ;
+        }
 
         // Empty for READ ; only WRITE transactions have components that need notifiying.
         List<TransactionLifecycle> components = dsgTxn.getTransaction().lifecycleComponents() ;
@@ -444,6 +618,13 @@ public class TransactionManager
               dsg = commitedAwaitingFlush.get(commitedAwaitingFlush.size() - 1).getActiveDataset().getView() ;
           return dsg ;
       }
+    // The generation of the base database under the dataset from determineBaseDataset. 
+    private long determineBaseGeneration() {
+        if ( !commitedAwaitingFlush.isEmpty() )
+            return commitedAwaitingFlush.get(commitedAwaitingFlush.size() - 1).getBaseGeneration() ;
+        return baseGeneration ;
+    }
+
     private Transaction createTransaction(DatasetGraphTDB dsg, ReadWrite mode, String label) {
         Transaction txn = new Transaction(dsg, version.get(), mode, transactionId.getAndIncrement(), label, this) ;
         return txn ;
@@ -490,10 +671,16 @@ public class TransactionManager
             switch ( transaction.getMode() ) {
                 case READ: break ;
                 case WRITE:
-                    version.incrementAndGet() ;
+                    long v = version.incrementAndGet() ;
+                    if ( concurrentWritersStarting > 0 || ! concurrentWriters.isEmpty() )
+                        commitLog.add(Pair.create(v, transaction.getWriteGraphs())) ;
                     currentReaderView.set(null) ;       // Clear the READ transaction cache.
+                    if ( transaction.getStatsRecorder() != null ) {
+                        statsLive.apply(transaction.getStatsRecorder()) ;
+                        transaction.setStatsRecorder(null) ;
+                    }
                     // JENA-1224
-                    excessiveQueue = ( MaxQueueThreshold >= 0 && queue.size() > MaxQueueThreshold ) ;
+                    excessiveQueue = ( ! backgroundReplay && MaxQueueThreshold >= 0 && queue.size() > MaxQueueThreshold ) ;
                     releaseWriterLock();
             }
         }
@@ -505,6 +692,122 @@ public class TransactionManager
         }
     }
 
+    /**
+     * Begin a write transaction that can run at the same time as other such
+     * transactions. Changes are buffered until commit; see {@link DatasetGraphTxnConcurrent}.
+     */
+    public DatasetGraphTxnConcurrent beginConcurrentWrite() {
+        return beginConcurrentWrite(null) ;
+    }
+    
+    /** Begin a concurrent write transaction, giving it a label.
+     *  @see #beginConcurrentWrite()
+     */
+    public DatasetGraphTxnConcurrent beginConcurrentWrite(String label) {
+        // Register first so that commits from now on are recorded,
+        // then start the snapshot (which takes the TransactionManager lock).
+        synchronized(this) {
+            concurrentWritersStarting++ ;
+        }
+        DatasetGraphTxnConcurrent dsgc = null ;
+        try {
+            DatasetGraphTxn snapshot = begin(ReadWrite.READ, label) ;
+            dsgc = new DatasetGraphTxnConcurrent(this, snapshot, snapshot.getTransaction().getVersion(), label) ;
+        } finally {
+            synchronized(this) {
+                concurrentWritersStarting-- ;
+                if ( dsgc != null )
+                    concurrentWriters.add(dsgc) ;
+                pruneCommitLog() ;
+            }
+        }
+        return dsgc ;
+    }
+
+    /*package*/ void commitConcurrent(DatasetGraphTxnConcurrent dsgc) {
+        try {
+            dsgc.getSnapshot().end() ;
+            if ( dsgc.getAdded().isEmpty() && dsgc.getDeleted().isEmpty() )
+                return ;
+            // Apply the changes in a write transaction which serializes with all other writers.
+            DatasetGraphTxn dsgw = begin(ReadWrite.WRITE, dsgc.getLabel()) ;
+            try {
+                checkConcurrentConflicts(dsgc) ;
+                dsgc.getDeleted().forEach(dsgw::delete) ;
+                dsgc.getAdded().forEach(dsgw::add) ;
+                dsgw.getTransaction().setWriteGraphs(new HashSet<>(dsgc.getGraphsWritten())) ;
+                dsgw.commit() ;
+            } catch (RuntimeException ex) {
+                dsgw.abort() ;
+                throw ex ;
+            } finally {
+                dsgw.end() ;
+            }
+        } finally {
+            endConcurrent(dsgc) ;
+        }
+    }
+
+    /*package*/ void abortConcurrent(DatasetGraphTxnConcurrent dsgc) {
+        try {
+            dsgc.getSnapshot().end() ;
+        } finally {
+            endConcurrent(dsgc) ;
+        }
+    }
+
+    synchronized
+    private void endConcurrent(DatasetGraphTxnConcurrent dsgc) {
+        concurrentWriters.remove(dsgc) ;
+        pruneCommitLog() ;
+    }
+
+    // Called with the writer lock held so no commits happen during the check.
+    synchronized
+    private void checkConcurrentConflicts(DatasetGraphTxnConcurrent dsgc) {
+        for ( Pair<Long, Set<Node>> entry : commitLog ) {
+            if ( entry.getLeft() <= dsgc.getStartVersion() )
+                continue ;
+            Set<Node> graphs = entry.getRight() ;
+            if ( graphs == null || conflicts(dsgc, graphs) ) {
+                concurrentConflicts.incrementAndGet() ;
+                throw new TDBTransactionException("Conflict with a write transaction that committed after this transaction started: "+dsgc) ;
+            }
+        }
+    }
+
+    private static boolean conflicts(DatasetGraphTxnConcurrent dsgc, Set<Node> graphs) {
+        if ( dsgc.readAllGraphs() )
+            return ! graphs.isEmpty() ;
+        for ( Node g : graphs ) {
+            g = DatasetGraphTxnConcurrent.canonicalGraph(g) ;
+            if ( dsgc.getGraphsWritten().contains(g) || dsgc.getGraphsRead().contains(g) )
+                return true ;
+        }
+        return false ;
+    }
+
+    // Drop the commit records that no concurrent writer can conflict with.
+    private void pruneCommitLog() {
+        if ( concurrentWritersStarting > 0 )
+            return ;
+        if ( concurrentWriters.isEmpty() ) {
+            commitLog.clear() ;
+            return ;
+        }
+        long min = Long.MAX_VALUE ;
+        for ( DatasetGraphTxnConcurrent dsgc : concurrentWriters )
+            min = Math.min(min, dsgc.getStartVersion()) ;
+        Iterator<Pair<Long, Set<Node>>> iter = commitLog.iterator() ;
+        while ( iter.hasNext() ) {
+            if ( iter.next().getLeft() <= min )
+                iter.remove() ;
+        }
+    }
+
+    /** Number of concurrent write transactions rejected at commit because of a conflict. */
+    public long getCountConcurrentConflicts()   { return concurrentConflicts.get() ; }
+
     synchronized
     /*package*/ void notifyAbort(Transaction transaction) {
         // Transaction has done the abort on all the transactional elements.
@@ -512,6 +815,8 @@ public class TransactionManager
             SystemTDB.errlog.warn("Transaction not active: "+transaction.getTxnId()) ;
         
         noteTxnAbort(transaction) ;
+        // Discard any recorded changes to the statistics.
+        transaction.setStatsRecorder(null) ;
         
         switch ( transaction.getMode() )
         {
@@ -625,6 +930,139 @@ public class TransactionManager
         return true ;
     }
 
+    /** Bring the base database up to date with all committed transactions, sync it,
+     * and then stop journal replay until {@link #releaseReplay} is called.
+     * <p>
+     * While replay is held, journal replay does not write to the base database;
+     * transactions continue as normal and their changes to the indexes are written to
+     * the journal only. A commit still appends new nodes to the base node tables
+     * (node data file and node to NodeId index), so to take a consistent copy of
+     * the database files, writers must also be held off with {@link #blockWriters}
+     * while the files are copied.
+     * <p>
+     * The caller must not be inside a transaction associated with this TransactionManager.
+     */
+    public void holdReplay() {
+        startExclusiveMode(true) ;
+        try {
+            synchronized(this) {
+                // If replay is already held, the base files are unchanged since the first hold.
+                if ( replayHolds == 0 ) {
+                    if ( ! queue.isEmpty() )
+                        throw new TDBTransactionException("Failed to flush the commit queue before holding replay") ;
+                    baseDataset.sync() ;
+                }
+                replayHolds++ ;
+            }
+        } finally { finishExclusiveMode() ; }
+    }
+    
+    /** Allow journal replay again. Must be paired with an earlier {@link #holdReplay}. */
+    public void releaseReplay() {
+        synchronized(this) {
+            if ( replayHolds <= 0 )
+                throw new TDBTransactionException("releaseReplay: Replay is not held") ;
+            replayHolds-- ;
+            if ( replayHolds > 0 || queue.isEmpty() )
+                return ;
+            if ( ! backgroundReplay ) {
+                processDelayedReplayQueue(null) ;
+                return ;
+            }
+        }
+        requestBackgroundReplay() ;
+    }
+
+    /** Open a read-only snapshot of the database as it is now.
+     * <p>
+     * A snapshot is a read-only view that, unlike a read transaction, does not hold
+     * back writing committed transactions to the database: the blocks that a journal
+     * replay overwrites are first copied and kept for the snapshot. It is intended for
+     * long-running read-only work, such as analytical queries, and must be closed when
+     * finished with to release the kept blocks.
+     * <p>
+     * Commits waiting to be written to the database are written first. Without
+     * background replay, this waits until there are no active transactions.
+     * <p>
+     * The caller must not be inside a transaction associated with this TransactionManager.
+     */
+    public DatasetGraphSnapshot openSnapshot() {
+        if ( backgroundReplay ) {
+            // As a background replay but the snapshot is made before another writer can commit.
+            exclusivitylock.readLock().lock() ;
+            try {
+                acquireWriterLock(true) ;
+                try {
+                    backgroundReplay$() ;
+                    return createSnapshot() ;
+                } finally { releaseWriterLock() ; }
+            } finally { exclusivitylock.readLock().unlock() ; }
+        }
+        startExclusiveMode(true) ;
+        try { return createSnapshot() ; }
+        finally { finishExclusiveMode() ; }
+    }
+    
+    private synchronized DatasetGraphSnapshot createSnapshot() {
+        if ( ! queue.isEmpty() )
+            throw new TDBTransactionException("openSnapshot: Commits are waiting to be written to the database") ;
+        DatasetGraphTDB view = new DatasetBuilderTxn(this).buildSnapshot(baseDataset, baseGeneration) ;
+        DatasetGraphSnapshot snapshot = new DatasetGraphSnapshot(view, this, baseGeneration) ;
+        snapshots.add(snapshot) ;
+        return snapshot ;
+    }
+    
+    /** Release the block versions kept for a snapshot. Called from {@link DatasetGraphSnapshot#close}. */
+    /*package*/ synchronized void closeSnapshot(DatasetGraphSnapshot snapshot) {
+        if ( snapshots.remove(snapshot) )
+            expireBlockVersions() ;
+    }
+    
+    private synchronized void closeSnapshots() {
+        for ( DatasetGraphSnapshot snapshot : new ArrayList<>(snapshots) )
+            snapshot.close() ;
+    }
+    
+    /** Number of open snapshots. */
+    public synchronized int getSnapshotCount() {
+        return snapshots.size() ;
+    }
+
+    /** The version of the data. This changes each time a write transaction commits. */
+    public long getDataVersion() {
+        return version.get() ;
+    }
+
+    /** Replace the base dataset with one for the same location whose files have been
+     * rewritten, as by {@link org.apache.jena.tdb.TDBCompact}. The reader view and
+     * kept block versions of the old dataset are dropped, and live statistics, which
+     * are in terms of NodeIds, are recalculated.
+     * <p>
+     * Must be called in exclusive mode with no commits waiting to be written to the
+     * base dataset and no open snapshots. For internal use only.
+     */
+    public void replaceBaseDataset(DatasetGraphTDB dsg) {
+        synchronized(this) {
+            if ( activeTransactions() )
+                throw new TDBTransactionException("replaceBaseDataset: There are active transactions") ;
+            if ( ! queue.isEmpty() || ! commitedAwaitingFlush.isEmpty() || replayHolds > 0 )
+                throw new TDBTransactionException("replaceBaseDataset: Commits are waiting to be written to the database") ;
+            if ( ! snapshots.isEmpty() )
+                throw new TDBTransactionException("replaceBaseDataset: There are open snapshots") ;
+            blockVersions.clear() ;
+            currentReaderView.set(null) ;
+            baseGeneration++ ;
+            ReorderTransformation reorder = baseDataset.getReorderTransform() ;
+            baseDataset = dsg ;
+            if ( statsLive != null ) {
+                statsLive = StatsLive.create(dsg) ;
+                // Keep the kind of reordering, over the statistics of the new database.
+                if ( reorder instanceof ReorderTransformationStats )
+                    dsg.setReorderTransform(((ReorderTransformationStats)reorder).withStats(statsLive)) ;
+            }
+        }
+    }
+
     /** Return the exclusivity lock. Testing and internal use only. */
     public ReadWriteLock getExclusivityLock$() { return exclusivitylock ; } 
     
@@ -683,7 +1121,7 @@ public class TransactionManager
     }
     
     private void writerCommitsWorker(Transaction txn) {
-        if ( activeReaders.get() == 0 && checkForJournalFlush() ) {
+        if ( activeReaders.get() == 0 && replayHolds == 0 && checkForJournalFlush() ) {
             // Can commit immediately.
             // Ensure the queue is empty though.
             // Could simply add txn to the commit queue and do it that way.
@@ -696,13 +1134,21 @@ public class TransactionManager
             // we do this sequence.
             processDelayedReplayQueue(txn) ;
             enactTransaction(txn) ;
-            JournalControl.replay(txn) ;
+            if ( snapshots.isEmpty() )
+                JournalControl.replay(txn) ;
+            else
+                replayCopyOnWrite(baseGeneration) ;
+            baseGeneration++ ;
+            journalSyncer.replayed() ;
+            expireBlockVersions() ;
         } else {
             // Can't write back to the base database at the moment.
             commitedAwaitingFlush.add(txn) ;
             maxQueue = Math.max(commitedAwaitingFlush.size(), maxQueue) ;
             if ( log() ) log("Add to pending queue", txn) ;
             queue.add(txn) ;
+            if ( backgroundReplay && checkForJournalFlush() )
+                requestBackgroundReplay() ;
         }
     }
     
@@ -711,6 +1157,8 @@ public class TransactionManager
         // This is handled in notifyCommit.
         
         // Can we do work?
+        if ( replayInProgress || replayHolds > 0 )
+            return ;
         if ( activeReaders.get() != 0 || activeWriters.get() != 0 ) {
             if ( queue.size() > 0 && log() )
                 log(format("Pending transactions: R=%s / W=%s", activeReaders, activeWriters), txn) ;
@@ -723,6 +1171,9 @@ public class TransactionManager
         
         if ( DEBUG ) checkNodesDatJrnl("1", txn) ;
         
+        // Background replays leave transactions for when they are no longer in use.
+        clearupReplayed() ;
+        
         if ( queue.size() == 0 && txn != null )
             // Nothing to do - journal should be empty. 
             return ;
@@ -757,7 +1208,13 @@ public class TransactionManager
         if ( DEBUG ) checkNodesDatJrnl("3", txn) ;
 
         // Whole journal to base database
-        JournalControl.replay(journal, baseDataset) ;
+        if ( snapshots.isEmpty() )
+            JournalControl.replay(journal, baseDataset) ;
+        else
+            replayCopyOnWrite(baseGeneration) ;
+        baseGeneration++ ;
+        journalSyncer.replayed() ;
+        expireBlockVersions() ;
 
         if ( DEBUG ) checkNodesDatJrnl("4", txn) ;
         
@@ -797,6 +1254,7 @@ public class TransactionManager
             case WRITE : writerCommits(transaction) ; break ;
         }
         transactionFinishes(transaction) ;
+        expireBlockVersions() ;
         exclusivitylock.readLock().unlock() ;
     }
     
@@ -807,6 +1265,7 @@ public class TransactionManager
             case WRITE : writerAborts(transaction) ; break ;
         }
         transactionFinishes(transaction) ;
+        expireBlockVersions() ;
         exclusivitylock.readLock().unlock() ;
     }
     
@@ -814,6 +1273,168 @@ public class TransactionManager
         transactionCloses(transaction) ;
     }
     
+    // ---- Background replay
+    
+    /** Whether this transaction manager replays the journal with a background thread.
+     * @see #BackgroundReplay
+     */
+    public boolean isBackgroundReplay() {
+        return backgroundReplay ;
+    }
+    
+    /** Number of earlier versions of blocks kept for active transactions and open snapshots. */
+    public long getBlockVersionCount() {
+        return blockVersions.size() ;
+    }
+    
+    /** Wrap a base block manager so that it continues to present the view of the
+     *  transaction while the background replay updates the base database.
+     */
+    /*package*/ BlockMgr snapshotBlockMgr(FileRef ref, BlockMgr blockMgr, DatasetGraphTDB dsg, Transaction txn) {
+        if ( ! backgroundReplay || dsg != baseDataset )
+            // Not directly over the base database.
+            return blockMgr ;
+        return snapshotBlockMgr(ref, blockMgr, txn.getBaseGeneration()) ;
+    }
+    
+    /** Wrap a base block manager so that it presents the base database as it was at a generation. */
+    /*package*/ BlockMgr snapshotBlockMgr(FileRef ref, BlockMgr blockMgr, long generation) {
+        return new BlockMgrSnapshot(blockMgr, ref, blockVersions, generation, copyBlocks) ;
+    }
+    
+    private void requestBackgroundReplay() {
+        synchronized(replayLock) {
+            replayRequested = true ;
+            replayLock.notifyAll() ;
+        }
+    }
+
+    private void stopBackgroundReplay() {
+        if ( replayThread == null )
+            return ;
+        synchronized(replayLock) {
+            replayClosing = true ;
+            replayLock.notifyAll() ;
+        }
+        try { replayThread.join() ; }
+        catch (InterruptedException ex) { Thread.currentThread().interrupt() ; }
+    }
+    
+    private void replayLoop() {
+        for ( ;; ) {
+            synchronized(replayLock) {
+                while ( !replayRequested && !replayClosing ) {
+                    try { replayLock.wait() ; }
+                    catch (InterruptedException ex) {}
+                }
+                if ( replayClosing )
+                    return ;
+                replayRequested = false ;
+            }
+            try { backgroundReplay() ; }
+            catch (RuntimeException ex) {
+                SystemTDB.errlog.warn("Exception during background journal replay", ex) ;
+            }
+        }
+    }
+
+    // Same lock order as a writer: exclusivity lock, then the writer lock. 
+    private void backgroundReplay() {
+        exclusivitylock.readLock().lock() ;
+        try {
+            acquireWriterLock(true) ;
+            try { backgroundReplay$() ; }
+            finally { releaseWriterLock() ; }
+        } finally { exclusivitylock.readLock().unlock() ; }
+    }
+
+    // There is no active writer. Readers may be active.
+    private void backgroundReplay$() {
+        List<Transaction> replayed ;
+        long generation ;
+        synchronized(this) {
+            clearupReplayed() ;
+            if ( queue.isEmpty() || replayHolds > 0 )
+                return ;
+            replayed = new ArrayList<>(queue) ;
+            generation = baseGeneration ;
+            replayInProgress = true ;
+        }
+        try {
+            if ( log() )
+                log("Start background replay: "+replayed.size()+" transactions", null) ;
+            replayCopyOnWrite(generation) ;
+            synchronized(this) {
+                queue.removeAll(replayed) ;
+                commitedAwaitingFlush.removeAll(replayed) ;
+                for ( Transaction txn : replayed )
+                    replayedAwaitingClearup.add(Pair.create(generation, txn)) ;
+                baseGeneration++ ;
+                // New transactions use the updated base database.
+                currentReaderView.set(null) ;
+                expireBlockVersions() ;
+            }
+            journalSyncer.replayed() ;
+            if ( log() )
+                log("End background replay", null) ;
+        } finally {
+            replayInProgress = false ;
+        }
+    }
+    
+    // Replay the journal to the base database, keeping the overwritten blocks for views
+    // of the base at the generation or earlier.
+    private void replayCopyOnWrite(long generation) {
+        // The base node tables are accessed directly by readers. They are not in the
+        // block journal (new nodes are appended to the base node table at commit prepare)
+        // so replay does not write to them, and NodeTableNative has its own read/write lock.
+        JournalControl.replay(journal, baseDataset, (ref, blk) -> {
+            BlockMgr blkMgr = baseDataset.getConfig().blockMgrs.get(ref) ;
+            blockVersions.overwrite(ref, blkMgr, blk, generation) ;
+        }) ;
+    }
+
+    // Oldest generation in use by an active transaction.
+    private long minActiveGeneration() {
+        long min = Long.MAX_VALUE ;
+        for ( Transaction txn : activeTransactions )
+            min = Math.min(min, txn.getBaseGeneration()) ;
+        return min ;
+    }
+    
+    // Generations of the base database in use by active transactions and open snapshots,
+    // and the current generation, which a replay in progress may be recording versions for.
+    private NavigableSet<Long> viewGenerations() {
+        NavigableSet<Long> generations = new TreeSet<>() ;
+        generations.add(baseGeneration) ;
+        for ( Transaction txn : activeTransactions )
+            generations.add(txn.getBaseGeneration()) ;
+        for ( DatasetGraphSnapshot snapshot : snapshots )
+            generations.add(snapshot.getGeneration()) ;
+        return generations ;
+    }
+    
+    private void expireBlockVersions() {
+        if ( blockVersions.size() > 0 )
+            blockVersions.expire(viewGenerations()) ;
+    }
+    
+    // Finish transactions replayed by the background replay when no active transaction
+    // has a view that includes them. Call with the writer lock or with no active transactions. 
+    private void clearupReplayed() {
+        if ( replayedAwaitingClearup.isEmpty() )
+            return ;
+        long min = minActiveGeneration() ;
+        List<Pair<Long, Transaction>> x = new ArrayList<>() ;
+        for ( Pair<Long, Transaction> p : replayedAwaitingClearup ) {
+            if ( p.getLeft() < min )
+                enactTransaction(p.getRight()) ;
+            else
+                x.add(p) ;
+        }
+        replayedAwaitingClearup = x ;
+    }
+
     // ---- Recording
     
     /** Get recording state */
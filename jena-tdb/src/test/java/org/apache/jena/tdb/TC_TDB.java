@@ -30,6 +30,7 @@ import org.apache.jena.tdb.lib.TS_LibTDB ;
 import org.apache.jena.tdb.setup.TS_TDBSetup ;
 import org.apache.jena.tdb.solver.TS_SolverTDB ;
 import org.apache.jena.tdb.store.TS_Store ;
+import org.apache.jena.tdb.store.bulkloader2.TS_BulkLoader2 ;
 import org.apache.jena.tdb.store.nodetable.TS_NodeTable ;
 import org.apache.jena.tdb.store.tupletable.TS_TupleTable ;
 import org.apache.jena.tdb.sys.SystemTDB ;
@@ -56,6 +57,7 @@ import org.junit.runners.Suite ;
     , TS_TupleTable.class
     , TS_TDBSetup.class
     , TS_Store.class        // The main storage implementation.  Some slow tests.
+    , TS_BulkLoader2.class
     , TS_SolverTDB.class
     , TS_Sys.class
     , TS_Graph.class
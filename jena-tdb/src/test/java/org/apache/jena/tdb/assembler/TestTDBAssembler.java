@@ -31,7 +31,9 @@ import org.apache.jena.sparql.core.assembler.DatasetAssemblerVocab ;
 import org.apache.jena.tdb.ConfigTest ;
 import org.apache.jena.tdb.StoreConnection ;
 import org.apache.jena.tdb.assembler.VocabTDB ;
+import org.apache.jena.tdb.solver.stats.ReorderCharacteristicSets ;
 import org.apache.jena.tdb.store.* ;
+import org.apache.jena.tdb.sys.TDBInternal ;
 import org.apache.jena.tdb.transaction.DatasetGraphTransaction ;
 import org.junit.AfterClass ;
 import org.junit.Before ;
@@ -72,6 +74,14 @@ public class TestTDBAssembler extends BaseTest
         createTest(dirAssem+"/tdb-dataset-embed.ttl", DatasetAssemblerVocab.tDataset) ;
     }
     
+    @Test public void createDatasetReorder()
+    {
+        Dataset ds = (Dataset)AssemblerUtils.build(dirAssem+"/tdb-dataset-reorder.ttl", VocabTDB.tDatasetTDB) ;
+        DatasetGraphTDB dsg = TDBInternal.getBaseDatasetGraphTDB(ds.asDatasetGraph()) ;
+        assertTrue(dsg.getReorderTransform() instanceof ReorderCharacteristicSets) ;
+        ds.close() ;
+    }
+    
     private void createTest(String filename, Resource type)
     {
         Object thing = AssemblerUtils.build(filename, type) ; 
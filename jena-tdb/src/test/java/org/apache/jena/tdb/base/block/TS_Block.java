@@ -27,6 +27,8 @@ import org.junit.runners.Suite;
     , TestBlockMgrDirect.class
     , TestBlockMgrMapped.class
     , TestBlockMgrTracked.class
+    , TestBlockMgrCache.class
+    , TestBlockCache2Q.class
 })
 
 
@@ -0,0 +1,119 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jena.tdb.base.block;
+
+import java.nio.ByteBuffer ;
+import java.util.ArrayList ;
+import java.util.List ;
+import java.util.concurrent.ExecutorService ;
+import java.util.concurrent.Executors ;
+import java.util.concurrent.Future ;
+
+import org.apache.jena.atlas.junit.BaseTest ;
+import org.junit.Test ;
+
+public class TestBlockCache2Q extends BaseTest
+{
+    private static Block block(long id) { return new Block(id, ByteBuffer.allocate(8)) ; }
+
+    @Test public void cache2q_01() {
+        BlockCache2Q cache = new BlockCache2Q(10) ;
+        assertNull(cache.getIfPresent(1)) ;
+        Block b = block(1) ;
+        cache.put(1, b) ;
+        assertSame(b, cache.getIfPresent(1)) ;
+        assertTrue(cache.containsKey(1)) ;
+        assertEquals(1, cache.size()) ;
+        cache.remove(1) ;
+        assertFalse(cache.containsKey(1)) ;
+        assertEquals(0, cache.size()) ;
+    }
+
+    @Test public void cache2q_02() {
+        // Replace.
+        BlockCache2Q cache = new BlockCache2Q(10) ;
+        cache.put(1, block(1)) ;
+        Block b = block(1) ;
+        cache.put(1, b) ;
+        assertSame(b, cache.getIfPresent(1)) ;
+        assertEquals(1, cache.size()) ;
+    }
+
+    @Test public void cache2q_03() {
+        // Size limit and evictions.
+        BlockCache2Q cache = new BlockCache2Q(10) ;
+        for ( int i = 0 ; i < 25 ; i++ )
+            cache.put(i, block(i)) ;
+        assertEquals(10, cache.size()) ;
+        assertEquals(15, cache.getEvictions()) ;
+    }
+
+    @Test public void cache2q_04() {
+        // No caching.
+        BlockCache2Q cache = new BlockCache2Q(0) ;
+        cache.put(1, block(1)) ;
+        assertNull(cache.getIfPresent(1)) ;
+        assertEquals(0, cache.size()) ;
+    }
+
+    @Test public void cache2q_scan() {
+        // Blocks used again after a while survive a scan.
+        BlockCache2Q cache = new BlockCache2Q(100, 1) ;
+        int hot = 20 ;
+        for ( int i = 0 ; i < hot ; i++ )
+            cache.put(i, block(i)) ;
+        // Fill the cache; the first blocks drop out of the first-time queue.
+        for ( int i = 0 ; i < 100 ; i++ )
+            cache.put(1000+i, block(1000+i)) ;
+        // Used again.
+        for ( int i = 0 ; i < hot ; i++ ) {
+            assertNull(cache.getIfPresent(i)) ;
+            cache.put(i, block(i)) ;
+        }
+        // Scan.
+        for ( int i = 0 ; i < 10000 ; i++ )
+            cache.put(10000+i, block(10000+i)) ;
+        for ( int i = 0 ; i < hot ; i++ )
+            assertNotNull("Block "+i, cache.getIfPresent(i)) ;
+        assertEquals(100, cache.size()) ;
+    }
+
+    @Test public void cache2q_concurrent() throws Exception {
+        BlockCache2Q cache = new BlockCache2Q(1000) ;
+        ExecutorService executor = Executors.newFixedThreadPool(4) ;
+        try {
+            List<Future<?>> futures = new ArrayList<>() ;
+            for ( int t = 0 ; t < 4 ; t++ ) {
+                final int start = t ;
+                futures.add(executor.submit(() -> {
+                    for ( int i = 0 ; i < 20000 ; i++ ) {
+                        long id = (start*7919+i)%3000 ;
+                        Block b = cache.getIfPresent(id) ;
+                        if ( b == null )
+                            cache.put(id, block(id)) ;
+                        else
+                            assertEquals(id, b.getId().longValue()) ;
+                    }
+                })) ;
+            }
+            for ( Future<?> f : futures )
+                f.get() ;
+        } finally { executor.shutdownNow() ; }
+        assertTrue(cache.size() <= 1000) ;
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jena.tdb.base.block;
+
+import java.nio.ByteBuffer ;
+
+import static org.apache.jena.atlas.lib.ByteBufferLib.fill ;
+import org.apache.jena.atlas.lib.FileOps ;
+import org.apache.jena.tdb.ConfigTest ;
+import org.apache.jena.tdb.base.file.BlockAccess ;
+import org.apache.jena.tdb.base.file.BlockAccessDirect ;
+import org.junit.AfterClass ;
+import org.junit.BeforeClass ;
+import org.junit.Test ;
+
+public class TestBlockMgrCache extends AbstractTestBlockMgr
+{
+    static final String filename = ConfigTest.getTestingDir()+"/block-mgr-cache" ;
+    
+    @BeforeClass static public void remove1() { FileOps.delete(filename) ; } 
+    @AfterClass  static public void remove2() { FileOps.delete(filename) ; }
+    
+    @Override
+    protected BlockMgr make()
+    { 
+        FileOps.delete(filename) ;
+        BlockAccess file = new BlockAccessDirect(filename, BlkSize) ;
+        BlockMgr mgr = new BlockMgrFileAccess(file, BlkSize) ;
+        return BlockMgrFactory.addCache(mgr, 5, 2) ;
+    }
+
+    @Test public void cacheStats()
+    {
+        BlockMgrCache cache = (BlockMgrCache)blockMgr ;
+        long[] ids = new long[10] ;
+        for ( int i = 0 ; i < ids.length ; i++ ) {
+            Block block = blockMgr.allocate(BlkSize) ;
+            fill(block.getByteBuffer(), (byte)i) ;
+            ids[i] = block.getId() ;
+            blockMgr.write(block) ;
+        }
+        blockMgr.sync() ;
+        long misses0 = cache.getCacheMisses() ;
+        long hits0 = cache.getCacheReadHits() ;
+        for ( int i = 0 ; i < ids.length ; i++ ) {
+            Block block = blockMgr.getRead(ids[i]) ;
+            ByteBuffer bb = block.getByteBuffer() ;
+            contains(bb, (byte)i) ;
+            blockMgr.release(block) ;
+        }
+        assertEquals(ids.length, (cache.getCacheMisses()-misses0)+(cache.getCacheReadHits()-hits0)) ;
+        assertTrue(cache.getCacheEvictions() > 0) ;
+        // Repeat reads of one block are hits.
+        blockMgr.getRead(ids[9]) ;
+        long hits1 = cache.getCacheReadHits() ;
+        blockMgr.getRead(ids[9]) ;
+        assertEquals(hits1+1, cache.getCacheReadHits()) ;
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.jena.tdb.base.file;
+
+import java.nio.ByteBuffer ;
+
+import org.apache.jena.atlas.lib.FileOps ;
+import org.apache.jena.tdb.ConfigTest ;
+import org.apache.jena.tdb.base.block.Block ;
+import org.junit.AfterClass ;
+import org.junit.Test ;
+
+public class TestBlockAccessReadAhead extends AbstractTestBlockAccessFixedSize
+{
+    static String filename = ConfigTest.getTestingDir()+"/test-file-access-readahead" ;
+    static String filename2 = ConfigTest.getTestingDir()+"/test-file-access-readahead-2" ;
+    
+    static final int BlockSize = 50 ;
+    public TestBlockAccessReadAhead()
+    {
+        super(BlockSize) ;
+    }
+
+    @AfterClass public static void cleanup() { FileOps.deleteSilent(filename) ; FileOps.deleteSilent(filename2) ; } 
+    
+    @Override
+    protected BlockAccess make()
+    {
+        FileOps.deleteSilent(filename) ;
+        return new BlockAccessReadAhead(filename, BlockSize) ;
+    }
+    
+    private static BlockAccess makeFile()
+    {
+        FileOps.deleteSilent(filename2) ;
+        return new BlockAccessReadAhead(filename2, BlockSize) ;
+    }
+
+    private static Block block(BlockAccess file, int marker)
+    {
+        Block b = file.allocate(BlockSize) ;
+        ByteBuffer bb = b.getByteBuffer() ;
+        bb.putInt(0, marker) ;
+        return b ;
+    }
+    
+    private static int marker(Block b)
+    {
+        return b.getByteBuffer().getInt(0) ;
+    }
+
+    @Test public void readahead_01()
+    {
+        // Sequential reads, through several windows, with other reads interleaved.
+        BlockAccess file = makeFile() ;
+        try {
+            int N = 1000 ;
+            for ( int i = 0 ; i < N ; i++ )
+                file.write(block(file, i)) ;
+            for ( int i = 0 ; i < N ; i++ )
+            {
+                assertEquals(i, marker(file.read(i))) ;
+                int j = (i*37)%N ;
+                assertEquals(j, marker(file.read(j))) ;
+            }
+        } finally { file.close() ; }
+    }
+
+    @Test public void readahead_02()
+    {
+        // Write to a block that has been read ahead.
+        BlockAccess file = makeFile() ;
+        try {
+            int N = 100 ;
+            for ( int i = 0 ; i < N ; i++ )
+                file.write(block(file, i)) ;
+            for ( int i = 0 ; i < 10 ; i++ )
+                assertEquals(i, marker(file.read(i))) ;
+            Block b = block(file, -1) ;
+            Block b2 = new Block(12, b.getByteBuffer()) ;
+            file.overwrite(b2) ;
+            for ( int i = 10 ; i < N ; i++ )
+                assertEquals(i == 12 ? -1 : i, marker(file.read(i))) ;
+        } finally { file.close() ; }
+    }
+    
+    @Test public void readahead_03()
+    {
+        // Read ahead goes up to the end of the file.
+        BlockAccess file = makeFile() ;
+        try {
+            int N = 5 ;
+            for ( int i = 0 ; i < N ; i++ )
+                file.write(block(file, i)) ;
+            for ( int i = 0 ; i < N ; i++ )
+                assertEquals(i, marker(file.read(i))) ;
+            file.write(block(file, N)) ;
+            assertEquals(N, marker(file.read(N))) ;
+        } finally { file.close() ; }
+    }
+}
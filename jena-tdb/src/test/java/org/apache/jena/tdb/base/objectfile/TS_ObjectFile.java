@@ -25,6 +25,7 @@ import org.junit.runners.Suite ;
 @Suite.SuiteClasses( {
     TestObjectFileMem.class
     , TestObjectFileDisk.class
+    , TestObjectFileMapped.class
     , TestObjectFileBuffering.class
     , TestStringFileMem.class 
     , TestStringFileDisk.class
@@ -0,0 +1,107 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.jena.tdb.base.objectfile;
+
+import static org.apache.jena.tdb.base.BufferTestLib.sameValue ;
+
+import java.nio.ByteBuffer ;
+
+import org.apache.jena.atlas.lib.FileOps ;
+import org.apache.jena.tdb.ConfigTest ;
+import org.apache.jena.tdb.base.file.BufferChannelFile ;
+import org.junit.AfterClass ;
+import org.junit.Test ;
+
+public class TestObjectFileMapped extends AbstractTestObjectFile
+{
+    static String filename = ConfigTest.getTestingDir()+"/test-objectfile-mapped" ;
+
+    @AfterClass public static void cleanup() { FileOps.deleteSilent(filename) ; } 
+    
+    @Override
+    protected ObjectFile make()
+    {
+        FileOps.deleteSilent(filename) ;
+        BufferChannelFile chan = BufferChannelFile.create(filename) ;
+        // Small buffer and small segments so objects cross segment boundaries.
+        return new ObjectFileMapped(chan, 50, 64) ;
+    }
+    
+    @Override
+    protected void release(ObjectFile file)
+    {
+        file.truncate(0) ;
+        file.close() ;
+    }
+    
+    @Test public void objectfile_mapped_01()
+    {
+        int N = 40 ;
+        ByteBuffer bb[] = new ByteBuffer[N] ;
+        long loc[] = new long[N] ;
+        for ( int i = 0 ; i < N ; i++ )
+        {
+            bb[i] = ByteBuffer.allocate(i%25) ;
+            fill(bb[i]) ;
+            loc[i] = file.write(bb[i]) ;
+            // Read as the file grows.
+            if ( i%3 == 0 )
+                assertTrue(sameValue(bb[i/2], file.read(loc[i/2]))) ;
+        }
+        file.sync() ;
+        for ( int i = 0 ; i < N ; i++ )
+            assertTrue(sameValue(bb[i], file.read(loc[i]))) ;
+    }
+
+    @Test public void objectfile_mapped_02()
+    {
+        ByteBuffer bb = ByteBuffer.allocate(10) ;
+        fill(bb) ;
+        long x = file.write(bb) ;
+        file.sync() ;
+        ByteBuffer bb2 = file.read(x) ;
+        assertTrue(bb2.isReadOnly()) ;
+        assertEquals(0, bb2.position()) ;
+        assertEquals(10, bb2.limit()) ;
+    }
+
+    @Test public void objectfile_mapped_03()
+    {
+        ByteBuffer bb1 = ByteBuffer.allocate(10) ;
+        fill(bb1) ;
+        long x1 = file.write(bb1) ;
+        ByteBuffer bb2 = ByteBuffer.allocate(20) ;
+        fill(bb2) ;
+        long x2 = file.write(bb2) ;
+        file.sync() ;
+        assertTrue(sameValue(bb2, file.read(x2))) ;
+        
+        // Discard the second object and replace it.
+        file.reposition(x2) ;
+        ByteBuffer bb3 = ByteBuffer.allocate(30) ;
+        for ( int i = 0 ; i < 30 ; i++ )
+            bb3.put(i, (byte)(30-i)) ;
+        long x3 = file.write(bb3) ;
+        file.sync() ;
+        assertEquals(x2, x3) ;
+        assertTrue(sameValue(bb1, file.read(x1))) ;
+        assertTrue(sameValue(bb3, file.read(x3))) ;
+    }
+}
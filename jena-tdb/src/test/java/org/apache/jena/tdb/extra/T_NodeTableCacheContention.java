@@ -0,0 +1,97 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jena.tdb.extra ;
+
+import java.util.ArrayList ;
+import java.util.List ;
+import java.util.concurrent.* ;
+import java.util.concurrent.atomic.AtomicLong ;
+
+import org.apache.jena.graph.Node ;
+import org.apache.jena.graph.NodeFactory ;
+import org.apache.jena.tdb.base.file.Location ;
+import org.apache.jena.tdb.setup.Build ;
+import org.apache.jena.tdb.setup.StoreParams ;
+import org.apache.jena.tdb.store.NodeId ;
+import org.apache.jena.tdb.store.nodetable.NodeTable ;
+
+/** Contention benchmark for the node table cache: lookups from 1 to 64 threads,
+ *  with a single cache lock and with lock striping.
+ *  The working set is larger than the caches so there is a steady rate of misses.
+ */
+public class T_NodeTableCacheContention
+{
+    static int NumNodes     = 200*1000 ;
+    static int CacheSize    = 50*1000 ;
+    static int OpsPerThread = 200*1000 ;
+    static int[] Threads    = { 1, 2, 4, 8, 16, 32, 64 } ;
+    static int[] Stripes    = { 1, 16, 64 } ;
+
+    public static void main(String... argv) throws Exception {
+        for ( int stripes : Stripes ) {
+            NodeTable nt = nodeTable(stripes) ;
+            NodeId[] ids = new NodeId[NumNodes] ;
+            for ( int i = 0 ; i < NumNodes ; i++ )
+                ids[i] = nt.getAllocateNodeId(node(i)) ;
+            // Warm up.
+            run(nt, ids, 4) ;
+            for ( int threads : Threads ) {
+                long ops = 0 ;
+                long start = System.nanoTime() ;
+                ops = run(nt, ids, threads) ;
+                long time = System.nanoTime()-start ;
+                System.out.printf("stripes=%-3d threads=%-3d %,12.0f ops/s\n", stripes, threads, ops/(time/1e9)) ;
+            }
+            nt.close() ;
+        }
+    }
+
+    private static long run(NodeTable nt, NodeId[] ids, int threads) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads) ;
+        AtomicLong count = new AtomicLong(0) ;
+        List<Future<?>> futures = new ArrayList<>() ;
+        for ( int t = 0 ; t < threads ; t++ ) {
+            futures.add(executor.submit(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current() ;
+                for ( int i = 0 ; i < OpsPerThread ; i++ ) {
+                    int x = random.nextInt(NumNodes) ;
+                    // Mix of both directions.
+                    if ( (i & 1) == 0 )
+                        nt.getNodeIdForNode(node(x)) ;
+                    else
+                        nt.getNodeForNodeId(ids[x]) ;
+                }
+                count.addAndGet(OpsPerThread) ;
+            })) ;
+        }
+        for ( Future<?> f : futures )
+            f.get() ;
+        executor.shutdown() ;
+        return count.get() ;
+    }
+
+    private static NodeTable nodeTable(int stripes) {
+        StoreParams params = StoreParams.builder()
+            .node2NodeIdCacheSize(CacheSize).nodeId2NodeCacheSize(CacheSize)
+            .nodeCacheStripes(stripes)
+            .build() ;
+        return Build.makeNodeTable(Location.mem(), params) ;
+    }
+
+    private static Node node(int i) { return NodeFactory.createURI("http://example/node/"+i) ; }
+}
@@ -20,6 +20,7 @@ package org.apache.jena.tdb.index;
 
 import org.apache.jena.tdb.index.bplustree.TestBPTreeRecords ;
 import org.apache.jena.tdb.index.bplustree.TestBPlusTree ;
+import org.apache.jena.tdb.index.bplustree.TestBPlusTreeCompressed ;
 import org.apache.jena.tdb.index.bplustree.TestBPlusTreeRewriter ;
 import org.apache.jena.tdb.index.ext.TestExtHash ;
 import org.junit.runner.RunWith;
@@ -31,6 +32,7 @@ import org.junit.runners.Suite;
     TestBPlusTree.class,
     TestBPTreeRecords.class,
     TestBPlusTreeRewriter.class,
+    TestBPlusTreeCompressed.class,
     
     TestExtHash.class,
     TestIndexMem.class
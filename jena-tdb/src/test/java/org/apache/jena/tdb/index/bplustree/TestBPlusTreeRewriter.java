@@ -63,12 +63,52 @@ public class TestBPlusTreeRewriter extends BaseTest
     
     @Test public void bpt_rewrite_99()  { runTest(5, 1000) ; }
     
+    // Compressed records blocks.
+    @Test public void bpt_rewrite_compressed_01()  { runOneTest(3, 0, recordFactory, true, false) ; }
+    @Test public void bpt_rewrite_compressed_02()  { runOneTest(3, 1, recordFactory, true, false) ; }
+    @Test public void bpt_rewrite_compressed_03()  { runOneTest(3, 100, recordFactory, true, false) ; }
+    @Test public void bpt_rewrite_compressed_04()  { runOneTest(5, 1000, recordFactory, true, false) ; }
+    
+    // Rewrite an existing B+Tree in-place.
+    @Test public void bpt_rewrite_inplace_01()  { runRewriteTest(3, 0, 100) ; }
+    @Test public void bpt_rewrite_inplace_02()  { runRewriteTest(3, 100, 0) ; }
+    @Test public void bpt_rewrite_inplace_03()  { runRewriteTest(3, 100, 1) ; }
+    @Test public void bpt_rewrite_inplace_04()  { runRewriteTest(3, 100, 1000) ; }
+    @Test public void bpt_rewrite_inplace_05()  { runRewriteTest(5, 1000, 200) ; }
+
+    static void runRewriteTest(int order, int N1, int N2)
+    {
+        BPlusTreeParams bptParams = new BPlusTreeParams(order, recordFactory) ;
+        FileSet destination = FileSet.mem() ;
+        BlockMgr blkMgr1 = BlockMgrFactory.create(destination, Names.bptExtTree, bptParams.getCalcBlockSize(), 10, 10) ;
+        BlockMgr blkMgr2 = BlockMgrFactory.create(destination, Names.bptExtTree, bptParams.getCalcBlockSize(), 10, 10) ;
+        BPlusTree bpt = BPlusTreeRewriter.packIntoBPlusTree(createData(N1, recordFactory).iterator(), bptParams, 
+                                                            recordFactory, blkMgr1, blkMgr2) ;
+        List<Record> data = createData(N2, recordFactory) ;
+        BPlusTreeRewriter.rewriteBPlusTree(data.iterator(), bpt) ;
+        bpt.check() ;
+        scanComparision(data, bpt) ;
+        findComparison(data, bpt) ;
+        assertEquals(N2, bpt.size()) ;
+        assertEquals(N2 == 0, bpt.isEmpty()) ;
+        
+        // Still a working B+Tree.
+        Record r = recordFactory.create() ;
+        Bytes.setInt(N2+1, r.getKey()) ;
+        bpt.add(r) ;
+        bpt.check() ;
+        assertEquals(N2+1, bpt.size()) ;
+    }
+    
     static void runTest(int order, int N)
     { runOneTest(order, N , recordFactory, false) ; }
     
     static void runOneTest(int order, int N, RecordFactory recordFactory, boolean debug)
+    { runOneTest(order, N , recordFactory, false, debug) ; }
+    
+    static void runOneTest(int order, int N, RecordFactory recordFactory, boolean compressed, boolean debug)
     {
-        BPlusTreeParams bptParams = new BPlusTreeParams(order, recordFactory) ;
+        BPlusTreeParams bptParams = new BPlusTreeParams(order, recordFactory, compressed) ;
         BPlusTreeRewriter.debug = debug ;
 
         // ---- Test data
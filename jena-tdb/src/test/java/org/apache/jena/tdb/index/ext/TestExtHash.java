@@ -19,16 +19,28 @@
 package org.apache.jena.tdb.index.ext;
 
 //import static ext.ExtHashTestBase.* ; 
+import org.apache.jena.atlas.iterator.Iter ;
+import org.apache.jena.atlas.lib.Bytes ;
+import org.apache.jena.atlas.lib.FileOps ;
+import org.apache.jena.tdb.ConfigTest ;
 import org.apache.jena.tdb.base.block.BlockMgr ;
 import org.apache.jena.tdb.base.block.BlockMgrFactory ;
+import org.apache.jena.tdb.base.block.FileMode ;
+import org.apache.jena.tdb.base.file.FileSet ;
+import org.apache.jena.tdb.base.file.Location ;
 import org.apache.jena.tdb.base.file.PlainFileMem ;
+import org.apache.jena.tdb.base.record.Record ;
 import org.apache.jena.tdb.base.record.RecordFactory ;
 import org.apache.jena.tdb.index.AbstractTestIndex ;
+import org.apache.jena.tdb.index.BuilderStdIndex ;
 import org.apache.jena.tdb.index.Index ;
+import org.apache.jena.tdb.index.IndexBuilder ;
 import org.apache.jena.tdb.index.ext.ExtHash ;
+import org.apache.jena.tdb.setup.StoreParams ;
 import org.apache.jena.tdb.sys.SystemTDB ;
 import org.junit.AfterClass;
 import org.junit.BeforeClass;
+import org.junit.Test;
 
 public class TestExtHash extends AbstractTestIndex
 {
@@ -60,4 +72,49 @@ public class TestExtHash extends AbstractTestIndex
         ExtHash eHash = new ExtHash(new PlainFileMem(), factory, mgr) ;
         return eHash ;
     }
+
+    // On disk : the dictionary and buckets are found again when reopened.
+    @Test public void exthash_reopen_01()
+    {
+        String dir = ConfigTest.getCleanDir() ;
+        FileSet fileSet = new FileSet(Location.create(dir), "hash") ;
+        IndexBuilder builder = new BuilderStdIndex.IndexBuilderExtHash(new BuilderStdIndex.BlockMgrBuilderStd()) ;
+        StoreParams params = StoreParams.builder().fileMode(FileMode.direct).blockSize(128).build() ;
+        RecordFactory factory = new RecordFactory(4, 4) ;
+        
+        Index index = builder.buildIndex(fileSet, factory, params) ;
+        assertTrue(index.isEmpty()) ;
+        for ( int i = 0 ; i < 1000 ; i++ )
+            index.add(record(factory, i)) ;
+        long size = index.size() ;
+        index.sync() ;
+        index.close() ;
+        
+        index = builder.buildIndex(fileSet, factory, params) ;
+        index.check() ;
+        assertFalse(index.isEmpty()) ;
+        assertEquals(size, index.size()) ;
+        assertEquals(1000, Iter.count(index.iterator())) ;
+        for ( int i = 0 ; i < 1000 ; i++ )
+        {
+            Record r = index.find(record(factory, i)) ;
+            assertNotNull(r) ;
+            assertEquals(i, Bytes.getInt(r.getValue())) ;
+        }
+        assertNull(index.find(record(factory, 1000))) ;
+        // Continue to grow after reopening.
+        for ( int i = 1000 ; i < 2000 ; i++ )
+            index.add(record(factory, i)) ;
+        index.check() ;
+        assertEquals(2000, index.size()) ;
+        index.close() ;
+        FileOps.clearDirectory(dir) ;
+    }
+    
+    private static Record record(RecordFactory factory, int i)
+    {
+        byte[] k = Bytes.packInt(i) ;
+        byte[] v = Bytes.packInt(i) ;
+        return factory.create(k, v) ;
+    }
 }
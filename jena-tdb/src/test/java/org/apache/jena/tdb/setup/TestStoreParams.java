@@ -94,6 +94,57 @@ public class TestStoreParams extends BaseTest {
         assertArrayEquals(expected, params.getTripleIndexes()) ;
     }
 
+    @Test public void store_params_15() {
+        String xs = "{ \"tdb.index_compressed_leaves\" : true } " ; 
+        JsonObject x = JSON.parse(xs) ;
+        StoreParams params = StoreParamsCodec.decode(x) ;
+        assertTrue(params.getCompressedLeaves()) ;
+        StoreParams params2 = roundTrip(params) ;
+        assertEqualsStoreParams(params,params2) ;
+        assertTrue(params2.getCompressedLeaves()) ;
+    }
+
+    @Test public void store_params_16() {
+        String xs = "{ \"tdb.node_encoding\" : \"binary\" } " ; 
+        JsonObject x = JSON.parse(xs) ;
+        StoreParams params = StoreParamsCodec.decode(x) ;
+        assertEquals("binary", params.getNodeEncoding()) ;
+        StoreParams params2 = roundTrip(params) ;
+        assertEqualsStoreParams(params,params2) ;
+        assertEquals("binary", params2.getNodeEncoding()) ;
+    }
+
+    @Test public void store_params_17() {
+        String xs = "{ \"tdb.node_inline_extended\" : true } " ; 
+        JsonObject x = JSON.parse(xs) ;
+        StoreParams params = StoreParamsCodec.decode(x) ;
+        assertTrue(params.getInlineExtended()) ;
+        StoreParams params2 = roundTrip(params) ;
+        assertEqualsStoreParams(params,params2) ;
+        assertTrue(params2.getInlineExtended()) ;
+    }
+
+    @Test public void store_params_18() {
+        String xs = "{ \"tdb.node_index_type\" : \"ExtHash\" } " ; 
+        JsonObject x = JSON.parse(xs) ;
+        StoreParams params = StoreParamsCodec.decode(x) ;
+        assertEquals("ExtHash", params.getNodeIndexType()) ;
+        StoreParams params2 = roundTrip(params) ;
+        assertEqualsStoreParams(params,params2) ;
+        assertEquals("ExtHash", params2.getNodeIndexType()) ;
+    }
+
+    @Test public void store_params_19() {
+        assertEquals(0, StoreParams.getDftStoreParams().getNodeFilterBits().intValue()) ;
+        String xs = "{ \"tdb.node_filter_bits\" : 10 } " ; 
+        JsonObject x = JSON.parse(xs) ;
+        StoreParams params = StoreParamsCodec.decode(x) ;
+        assertEquals(10, params.getNodeFilterBits().intValue()) ;
+        StoreParams params2 = roundTrip(params) ;
+        assertEqualsStoreParams(params,params2) ;
+        assertEquals(10, params2.getNodeFilterBits().intValue()) ;
+    }
+
     // Check that setting gets recorded and propagated.
 
     @Test public void store_params_20() {
@@ -25,14 +25,19 @@ import java.nio.file.Path ;
 import java.nio.file.Paths ;
 
 import org.apache.jena.atlas.json.JSON ;
+import org.apache.jena.atlas.iterator.Iter ;
 import org.apache.jena.atlas.json.JsonObject ;
 import org.apache.jena.atlas.junit.BaseTest ;
 import org.apache.jena.atlas.lib.FileOps ;
+import org.apache.jena.query.ReadWrite ;
 import org.apache.jena.tdb.ConfigTest ;
+import org.apache.jena.sparql.sse.SSE ;
 import org.apache.jena.tdb.StoreConnection ;
 import org.apache.jena.tdb.base.file.Location ;
 import org.apache.jena.tdb.setup.StoreParams ;
 import org.apache.jena.tdb.setup.StoreParamsCodec ;
+import org.apache.jena.tdb.store.DatasetGraphTDB ;
+import org.apache.jena.tdb.transaction.DatasetGraphTxn ;
 import org.junit.After ;
 import org.junit.Before ;
 import org.junit.Test ;
@@ -147,6 +152,100 @@ public class TestStoreParamsCreate extends BaseTest {
         assertEquals(pApp.getBlockSize(), pDB.getBlockSize()) ;
     }
 
+    // Compressed records blocks : recorded at creation, used on reconnect.
+    @Test public void params_reconnect_04() { 
+        StoreParams pCompressed = StoreParams.builder(pApp).compressedLeaves(true).build() ;
+        // Create.
+        DatasetGraphTDB dsg = StoreConnection.make(loc, pCompressed).getBaseDataset() ;
+        for ( int i = 0 ; i < 500 ; i++ )
+            dsg.add(SSE.parseQuad("(_ <http://example/s"+i+"> <http://example/p> "+i+")")) ;
+        dsg.sync() ;
+        // Drop.
+        StoreConnection.expel(loc, true) ;
+        // Reconnect
+        dsg = StoreConnection.make(loc, null).getBaseDataset() ;
+        assertTrue(dsg.getConfig().params.getCompressedLeaves()) ;
+        assertEquals(500, dsg.getDefaultGraph().size()) ;
+        assertTrue(dsg.getDefaultGraph().contains(SSE.parseTriple("(<http://example/s123> <http://example/p> 123)"))) ;
+    }
+    
+    // Binary node encoding : recorded at creation, used on reconnect and for transactions.
+    @Test public void params_reconnect_05() { 
+        StoreParams pBinary = StoreParams.builder(pApp).nodeEncoding("binary").build() ;
+        // Create.
+        DatasetGraphTDB dsg = StoreConnection.make(loc, pBinary).getBaseDataset() ;
+        dsg.add(SSE.parseQuad("(_ <http://example/s> <http://example/p> 'abc'@en)")) ;
+        dsg.add(SSE.parseQuad("(<http://example/g> _:b <http://example/p> '2016-01-01'^^xsd:date)")) ;
+        dsg.sync() ;
+        // Drop.
+        StoreConnection.expel(loc, true) ;
+        // Reconnect
+        StoreConnection sConn = StoreConnection.make(loc, null) ;
+        assertEquals("binary", sConn.getBaseDataset().getConfig().params.getNodeEncoding()) ;
+        DatasetGraphTxn dsgTxn = sConn.begin(ReadWrite.WRITE) ;
+        dsgTxn.add(SSE.parseQuad("(_ <http://example/s> <http://example/p> 'xyz'^^<http://example/dt>)")) ;
+        dsgTxn.commit() ;
+        dsgTxn.end() ;
+        StoreConnection.expel(loc, true) ;
+        dsg = StoreConnection.make(loc, null).getBaseDataset() ;
+        assertTrue(dsg.getDefaultGraph().contains(SSE.parseTriple("(<http://example/s> <http://example/p> 'abc'@en)"))) ;
+        assertTrue(dsg.getDefaultGraph().contains(SSE.parseTriple("(<http://example/s> <http://example/p> 'xyz'^^<http://example/dt>)"))) ;
+        assertEquals(1, dsg.getGraph(SSE.parseNode("<http://example/g>")).size()) ;
+    }
+    
+    // Extended inline node ids : recorded at creation, used on reconnect and for transactions.
+    @Test public void params_reconnect_06() { 
+        StoreParams pInline = StoreParams.builder(pApp).inlineExtended(true).build() ;
+        // Create.
+        DatasetGraphTDB dsg = StoreConnection.make(loc, pInline).getBaseDataset() ;
+        dsg.add(SSE.parseQuad("(_ <http://example/s> rdf:type 'abc')")) ;
+        dsg.add(SSE.parseQuad("(_ <http://example/s> <http://example/p> '2.5'^^xsd:double)")) ;
+        dsg.sync() ;
+        // Only the IRIs that are not inlined are in the node table.
+        assertEquals(2, Iter.count(dsg.getTripleTable().getNodeTupleTable().getNodeTable().all())) ;
+        // Drop.
+        StoreConnection.expel(loc, true) ;
+        // Reconnect
+        StoreConnection sConn = StoreConnection.make(loc, null) ;
+        assertTrue(sConn.getBaseDataset().getConfig().params.getInlineExtended()) ;
+        DatasetGraphTxn dsgTxn = sConn.begin(ReadWrite.WRITE) ;
+        dsgTxn.add(SSE.parseQuad("(_ <http://example/s> <http://example/q> 'PT1H'^^xsd:duration)")) ;
+        dsgTxn.commit() ;
+        dsgTxn.end() ;
+        StoreConnection.expel(loc, true) ;
+        dsg = StoreConnection.make(loc, null).getBaseDataset() ;
+        assertEquals(3, dsg.getDefaultGraph().size()) ;
+        assertTrue(dsg.getDefaultGraph().contains(SSE.parseTriple("(<http://example/s> rdf:type 'abc')"))) ;
+        assertTrue(dsg.getDefaultGraph().contains(SSE.parseTriple("(<http://example/s> <http://example/p> '2.5'^^xsd:double)"))) ;
+        assertTrue(dsg.getDefaultGraph().contains(SSE.parseTriple("(<http://example/s> <http://example/q> 'PT1H'^^xsd:duration)"))) ;
+    }
+    
+    // Hash index for node to NodeId : recorded at creation, used on reconnect and for transactions.
+    @Test public void params_reconnect_07() { 
+        StoreParams pHash = StoreParams.builder(pApp).nodeIndexType("ExtHash").build() ;
+        // Create.
+        DatasetGraphTDB dsg = StoreConnection.make(loc, pHash).getBaseDataset() ;
+        for ( int i = 0 ; i < 2000 ; i++ )
+            dsg.add(SSE.parseQuad("(_ <http://example/s"+i+"> <http://example/p> 'abc"+i+"')")) ;
+        dsg.sync() ;
+        assertTrue(Files.exists(Paths.get(DB_DIR, "node2id.exh"))) ;
+        assertFalse(Files.exists(Paths.get(DB_DIR, "node2id.idn"))) ;
+        // Drop.
+        StoreConnection.expel(loc, true) ;
+        // Reconnect
+        StoreConnection sConn = StoreConnection.make(loc, null) ;
+        assertEquals("ExtHash", sConn.getBaseDataset().getConfig().params.getNodeIndexType()) ;
+        DatasetGraphTxn dsgTxn = sConn.begin(ReadWrite.WRITE) ;
+        dsgTxn.add(SSE.parseQuad("(_ <http://example/s1> <http://example/q> 'xyz')")) ;
+        dsgTxn.commit() ;
+        dsgTxn.end() ;
+        StoreConnection.expel(loc, true) ;
+        dsg = StoreConnection.make(loc, null).getBaseDataset() ;
+        assertEquals(2001, dsg.getDefaultGraph().size()) ;
+        assertTrue(dsg.getDefaultGraph().contains(SSE.parseTriple("(<http://example/s1999> <http://example/p> 'abc1999')"))) ;
+        assertTrue(dsg.getDefaultGraph().contains(SSE.parseTriple("(<http://example/s1> <http://example/q> 'xyz')"))) ;
+        assertEquals(2, dsg.getDefaultGraph().find(SSE.parseNode("<http://example/s1>"), null, null).toList().size()) ;
+    }
     
 //    // Custom then modified.
 //    @Test public void params_reconnect_03() { 
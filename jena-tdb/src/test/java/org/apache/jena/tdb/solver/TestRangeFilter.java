@@ -0,0 +1,227 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb.solver;
+
+import static org.junit.Assert.assertEquals ;
+import static org.junit.Assert.assertFalse ;
+import static org.junit.Assert.assertNotNull ;
+import static org.junit.Assert.assertNull ;
+import static org.junit.Assert.assertTrue ;
+
+import java.util.AbstractList ;
+import java.util.ArrayList ;
+import java.util.Iterator ;
+import java.util.List ;
+import java.util.Map ;
+
+import org.apache.jena.atlas.iterator.Iter ;
+import org.apache.jena.atlas.lib.tuple.Tuple ;
+import org.apache.jena.atlas.lib.tuple.TupleFactory ;
+import org.apache.jena.graph.Node ;
+import org.apache.jena.query.ARQ ;
+import org.apache.jena.query.ResultSet ;
+import org.apache.jena.query.ResultSetFactory ;
+import org.apache.jena.query.ResultSetRewindable ;
+import org.apache.jena.shared.PrefixMapping ;
+import org.apache.jena.shared.impl.PrefixMappingImpl ;
+import org.apache.jena.sparql.algebra.Algebra ;
+import org.apache.jena.sparql.algebra.Op ;
+import org.apache.jena.sparql.algebra.OpVars ;
+import org.apache.jena.sparql.core.Var ;
+import org.apache.jena.sparql.engine.QueryIterator ;
+import org.apache.jena.sparql.expr.ExprList ;
+import org.apache.jena.sparql.expr.NodeValue ;
+import org.apache.jena.sparql.resultset.ResultSetCompare ;
+import org.apache.jena.sparql.sse.SSE ;
+import org.apache.jena.tdb.TDB ;
+import org.apache.jena.tdb.base.file.Location ;
+import org.apache.jena.tdb.setup.DatasetBuilderStd ;
+import org.apache.jena.tdb.store.DatasetGraphTDB ;
+import org.apache.jena.tdb.store.NodeId ;
+import org.apache.jena.tdb.store.nodetupletable.NodeTupleTable ;
+import org.junit.BeforeClass ;
+import org.junit.Test ;
+
+/** Range restrictions from FILTERs and range scans of the indexes */
+public class TestRangeFilter
+{
+    private static PrefixMapping pmap ;
+    private static DatasetGraphTDB dsg ;
+    
+    @BeforeClass public static void beforeClass() {
+        pmap = new PrefixMappingImpl() ;
+        pmap.setNsPrefix("", "http://example/") ;
+        pmap.setNsPrefix("xsd", "http://www.w3.org/2001/XMLSchema#") ;
+        dsg = DatasetBuilderStd.create(Location.mem(), null) ;
+        for ( int i = 0 ; i < 60 ; i++ ) {
+            String s = ":s"+i ;
+            add(s, ":v", Integer.toString(i-30)) ;
+            if ( i%4 == 0 )
+                add(s, ":v", (i-30)+".5") ;
+            if ( i%5 == 0 )
+                add(s, ":v", "\"x"+i+"\"") ;
+            // Times in different timezones, some without a timezone.
+            String tz = ( i%3 == 0 ) ? "Z" : ( i%3 == 1 ) ? "+10:00" : "" ;
+            add(s, ":d", String.format("\"2020-01-%02dT%02d:30:00%s\"^^xsd:dateTime", 1+i%28, i%24, tz)) ;
+            add(s, ":day", String.format("\"2020-02-%02d%s\"^^xsd:date", 1+i%28, ( i%2 == 0 ) ? "-05:00" : "")) ;
+            dsg.add(SSE.parseQuad("(:g "+s+" :v "+(i%10)+")", pmap)) ;
+        }
+        // Not inline : in the node table.
+        add(":big", ":v", "100000000000000000000") ;
+        add(":big", ":v", "-100000000000000000000") ;
+        add(":big", ":d", "\"12020-01-01T00:00:00Z\"^^xsd:dateTime") ;
+        add(":dbl", ":v", "\"1.0e3\"^^xsd:double") ;
+    }
+    
+    private static void add(String s, String p, String o) {
+        dsg.getDefaultGraph().add(SSE.parseTriple("("+s+" "+p+" "+o+")", pmap)) ;
+    }
+    
+    private static Map<Var, RangeFilter> ranges(String... exprs) {
+        ExprList x = new ExprList() ;
+        for ( String expr : exprs )
+            x.add(SSE.parseExpr(expr, pmap)) ;
+        return RangeFilter.create(x) ;
+    }
+    
+    @Test public void range_create_01() {
+        Map<Var, RangeFilter> ranges = ranges("(> ?x 5)", "(<= ?x 10.5)", "(< ?y 3)", "(= ?z \"abc\")") ;
+        assertEquals(2, ranges.size()) ;
+        RangeFilter r = ranges.get(Var.alloc("x")) ;
+        assertEquals(RangeFilter.Kind.NUMERIC, r.getKind()) ;
+        assertEquals(NodeValue.makeInteger(5), r.getLow()) ;
+        assertEquals(NodeValue.makeDecimal("10.5"), r.getHigh()) ;
+        assertEquals(5, r.keyLow()) ;
+        assertEquals(10, r.keyHigh()) ;
+        assertNull(ranges.get(Var.alloc("y")).getLow()) ;
+    }
+    
+    @Test public void range_create_02() {
+        // Constant first; the tighter bound is kept.
+        Map<Var, RangeFilter> ranges = ranges("(< 5 ?x)", "(> ?x 7)", "(>= 20 ?x)") ;
+        RangeFilter r = ranges.get(Var.alloc("x")) ;
+        assertEquals(NodeValue.makeInteger(7), r.getLow()) ;
+        assertEquals(NodeValue.makeInteger(20), r.getHigh()) ;
+    }
+
+    @Test public void range_create_03() {
+        Map<Var, RangeFilter> ranges = ranges("(>= ?d \"2020-01-01T00:00:00Z\"^^xsd:dateTime)", "(= ?e \"2020-01-01\"^^xsd:date)",
+                                              "(|| (> ?x 1) (< ?x 0))", "(> ?x ?y)") ;
+        assertEquals(2, ranges.size()) ;
+        assertEquals(RangeFilter.Kind.DATETIME, ranges.get(Var.alloc("d")).getKind()) ;
+        assertEquals(RangeFilter.Kind.DATE, ranges.get(Var.alloc("e")).getKind()) ;
+    }
+    
+    @Test public void range_ids_01() {
+        for ( String expr : new String[] {"(> ?x -5)", "(< ?x -5)", "(= ?x 0)", "(> ?x \"2020-01-01T00:00:00Z\"^^xsd:dateTime)"} ) {
+            List<long[]> ids = ranges(expr).get(Var.alloc("x")).idRanges() ;
+            long last = -1 ;
+            for ( long[] r : ids ) {
+                assertTrue(expr, r[0] <= r[1]) ;
+                assertTrue(expr, r[0] > last) ;
+                last = r[1] ;
+            }
+        }
+    }
+
+    @Test public void range_scan_01() {
+        // The range scan reads fewer tuples, including all those in the range.
+        NodeTupleTable ntt = dsg.getTripleTable().getNodeTupleTable() ;
+        NodeId v = ntt.getNodeTable().getNodeIdForNode(SSE.parseNode(":v", pmap)) ;
+        Tuple<NodeId> pattern = TupleFactory.tuple(NodeId.NodeIdAny, v, NodeId.NodeIdAny) ;
+        RangeFilter r = ranges("(>= ?x 20)").get(Var.alloc("x")) ;
+        Iterator<Tuple<NodeId>> iter = ntt.findRange(pattern, 2, r.idRanges()) ;
+        assertNotNull(iter) ;
+        List<Tuple<NodeId>> x = Iter.toList(iter) ;
+        long all = Iter.count(ntt.find(pattern)) ;
+        assertTrue(x.size() < all) ;
+        List<Node> objects = new ArrayList<>() ;
+        for ( Tuple<NodeId> t : x )
+            objects.add(ntt.getNodeTable().getNodeForNodeId(t.get(2))) ;
+        for ( int i = 20 ; i < 30 ; i++ )
+            assertTrue(objects.contains(NodeValue.makeInteger(i).asNode())) ;
+        assertFalse(objects.contains(NodeValue.makeInteger(-20).asNode())) ;
+        // No index for the range of the object slot with only the subject bound.
+        assertNull(ntt.findRange(TupleFactory.tuple(v, NodeId.NodeIdAny, NodeId.NodeIdAny), 2, r.idRanges())) ;
+    }
+    
+    @Test public void range_scan_02() {
+        // Ranges are only looked up in the index when needed.
+        NodeTupleTable ntt = dsg.getTripleTable().getNodeTupleTable() ;
+        NodeId v = ntt.getNodeTable().getNodeIdForNode(SSE.parseNode(":v", pmap)) ;
+        Tuple<NodeId> pattern = TupleFactory.tuple(NodeId.NodeIdAny, v, NodeId.NodeIdAny) ;
+        List<long[]> idRanges = ranges("(>= ?x 20)").get(Var.alloc("x")).idRanges() ;
+        long all = Iter.count(ntt.findRange(pattern, 2, idRanges)) ;
+        int[] used = { 0 } ;
+        List<long[]> twice = new AbstractList<long[]>() {
+            @Override public long[] get(int index) { used[0]++ ; return idRanges.get(index % idRanges.size()) ; }
+            @Override public int size() { return 2*idRanges.size() ; }
+        } ;
+        Iterator<Tuple<NodeId>> iter = ntt.findRange(pattern, 2, twice) ;
+        assertEquals(0, used[0]) ;
+        assertTrue(iter.hasNext()) ;
+        assertTrue(used[0] < twice.size()) ;
+        assertEquals(2*all, Iter.count(iter)) ;
+        assertEquals(twice.size(), used[0]) ;
+    }
+    
+    // Queries give the same results with and without range scans.
+    @Test public void range_query_01() { test("(filter (> ?v 5) (bgp (?s :v ?v)))", 32) ; }
+    
+    @Test public void range_query_02() { test("(filter ((>= ?v -5) (< ?v 3)) (bgp (?s :v ?v)))", 10) ; }
+
+    @Test public void range_query_03() { test("(filter (= ?v 7) (bgp (?s :v ?v)))", 1) ; }
+
+    @Test public void range_query_04() { test("(filter (< ?v -25.5) (bgp (?s :v ?v)))", 8) ; }
+    
+    @Test public void range_query_05() { test("(filter (> ?v 100) (bgp (?s :v ?v)))", 2) ; }
+
+    @Test public void range_query_06() { test("(filter (< ?d \"2020-01-10T00:00:00Z\"^^xsd:dateTime) (bgp (?s :d ?d)))", -1) ; }
+
+    @Test public void range_query_07() { test("(filter (> ?d \"2020-01-27T20:00:00+02:00\"^^xsd:dateTime) (bgp (?s :d ?d)))", -1) ; }
+    
+    @Test public void range_query_08() { test("(filter ((>= ?e \"2020-02-03\"^^xsd:date) (<= ?e \"2020-02-05\"^^xsd:date)) (bgp (?s :day ?e)))", -1) ; }
+
+    @Test public void range_query_09() { test("(filter (> ?v 25) (bgp (?s :v ?v) (?s :d ?d)))", 6) ; }
+
+    @Test public void range_query_10() { test("(graph :g (filter (>= ?v 8) (bgp (?s :v ?v))))", 12) ; }
+    
+    @Test public void range_query_11() { test("(filter (>= ?v 8) (quadpattern (quad <urn:x-arq:UnionGraph> ?s :v ?v)))", -1) ; }
+
+    private static void test(String pattern, int expected) {
+        ResultSetRewindable rs1 = ResultSetFactory.makeRewindable(exec(pattern)) ;
+        ResultSetRewindable rs0 ;
+        try {
+            ARQ.getContext().set(TDB.symRangeScan, false) ;
+            rs0 = ResultSetFactory.makeRewindable(exec(pattern)) ;
+        } finally {
+            ARQ.getContext().remove(TDB.symRangeScan) ;
+        }
+        if ( expected >= 0 )
+            assertEquals(expected, rs0.size()) ;
+        assertTrue(rs0.size() > 0) ;
+        assertTrue(ResultSetCompare.equalsByTerm(rs0, rs1)) ;
+    }
+    
+    private static ResultSet exec(String pattern) {
+        Op op = SSE.parseOp(pattern, pmap) ;
+        QueryIterator qIter = Algebra.exec(op, dsg) ;
+        return ResultSetFactory.create(qIter, Var.varNames(new ArrayList<>(OpVars.visibleVars(op)))) ;
+    }
+}
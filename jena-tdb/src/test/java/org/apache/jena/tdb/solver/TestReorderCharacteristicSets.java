@@ -0,0 +1,120 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.jena.tdb.solver;
+
+import static org.junit.Assert.assertArrayEquals ;
+import static org.junit.Assert.assertEquals ;
+
+import org.apache.jena.query.ReadWrite ;
+import org.apache.jena.sparql.core.BasicPattern ;
+import org.apache.jena.sparql.engine.optimizer.reorder.ReorderProc ;
+import org.apache.jena.sparql.engine.optimizer.reorder.ReorderTransformation ;
+import org.apache.jena.sparql.expr.ExprList ;
+import org.apache.jena.sparql.sse.SSE ;
+import org.apache.jena.tdb.StoreConnection ;
+import org.apache.jena.tdb.base.file.Location ;
+import org.apache.jena.tdb.solver.stats.ReorderCharacteristicSets ;
+import org.apache.jena.tdb.solver.stats.StatsLive ;
+import org.apache.jena.tdb.transaction.DatasetGraphTxn ;
+import org.junit.AfterClass ;
+import org.junit.BeforeClass ;
+import org.junit.Test ;
+
+/** Cost-based reordering with characteristic sets */
+public class TestReorderCharacteristicSets
+{
+    private static StoreConnection sConn ;
+    private static ReorderTransformation reorder ;
+    
+    @BeforeClass public static void beforeClass() {
+        StoreConnection.release(Location.mem()) ;
+        sConn = StoreConnection.make(Location.mem()) ;
+        StatsLive stats = sConn.getTransactionManager().startLiveStats() ;
+        DatasetGraphTxn dsg = sConn.begin(ReadWrite.WRITE) ;
+        // :a and :b are common but never on the same subject.
+        for ( int i = 0 ; i < 100 ; i++ ) {
+            dsg.add(SSE.parseQuad("(_ :x"+i+" :a "+i+")")) ;
+            dsg.add(SSE.parseQuad("(_ :y"+i+" :b "+i+")")) ;
+        }
+        // :c and :d are less common and always together.
+        for ( int i = 0 ; i < 20 ; i++ ) {
+            dsg.add(SSE.parseQuad("(_ :z"+i+" :c "+i+")")) ;
+            dsg.add(SSE.parseQuad("(_ :z"+i+" :d :x"+i+")")) ;
+        }
+        // One rare link.
+        dsg.add(SSE.parseQuad("(_ :z0 :e :x0)")) ;
+        dsg.commit() ;
+        dsg.end() ;
+        reorder = new ReorderCharacteristicSets(stats) ;
+    }
+    
+    @AfterClass public static void afterClass() {
+        StoreConnection.release(Location.mem()) ;
+    }
+    
+    private static void test(String bgp, int... expected) {
+        BasicPattern pattern = SSE.parseBGP(bgp) ;
+        ReorderProc proc = reorder.reorderIndexes(pattern) ;
+        BasicPattern pattern2 = proc.reorder(pattern) ;
+        int[] actual = new int[pattern.size()] ;
+        for ( int i = 0 ; i < actual.length ; i++ )
+            actual[i] = pattern.getList().indexOf(pattern2.get(i)) ;
+        assertArrayEquals(bgp+" => "+pattern2, expected, actual) ;
+    }
+
+    @Test public void reorder_cs_01() {
+        test("(bgp (?x :a ?v))", 0) ;
+        test("(bgp (?z :c ?v) (?x :a ?w))", 0, 1) ;
+        test("(bgp (?x :a ?w) (?z :c ?v))", 1, 0) ;
+    }
+
+    @Test public void reorder_cs_02() {
+        // The :a/:b star is empty; weighting the patterns one at a time would start with :c/:d.
+        test("(bgp (?z :c ?v) (?z :d ?w) (?x :a ?v1) (?x :b ?v2))", 2, 3, 0, 1) ;
+    }
+
+    @Test public void reorder_cs_03() {
+        // Connected patterns follow.
+        test("(bgp (?x :a ?v) (?z :d ?x) (?z :e ?x))", 2, 1, 0) ;
+    }
+
+    @Test public void reorder_cs_04() {
+        // Unknown predicate first.
+        test("(bgp (?z :c ?v) (?z :unknown ?w))", 1, 0) ;
+    }
+    
+    @Test public void reorder_cs_05() {
+        // Bound object is selective.
+        test("(bgp (?x :a ?v) (?x :a 5))", 1, 0) ;
+        assertEquals(2, reorder.reorder(SSE.parseBGP("(bgp (?x :a ?v) (?x :a 5))")).size()) ;
+    }
+    
+    @Test public void reorder_cs_06() {
+        // A range restriction on the object makes a pattern selective.
+        BasicPattern pattern = SSE.parseBGP("(bgp (?z :c ?v) (?x :a ?w))") ;
+        ExprList exprs = new ExprList(SSE.parseExpr("(< ?w 3)")) ;
+        ReorderProc proc = ((ReorderCharacteristicSets)reorder).reorderIndexes(pattern, RangeFilter.create(exprs)) ;
+        assertEquals(pattern.get(1), proc.reorder(pattern).get(0)) ;
+        // Not selective.
+        exprs = new ExprList(SSE.parseExpr("(>= ?w 3)")) ;
+        proc = ((ReorderCharacteristicSets)reorder).reorderIndexes(pattern, RangeFilter.create(exprs)) ;
+        assertEquals(pattern.get(0), proc.reorder(pattern).get(0)) ;
+    }
+}
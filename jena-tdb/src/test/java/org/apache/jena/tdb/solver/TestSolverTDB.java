@@ -22,12 +22,15 @@ package org.apache.jena.tdb.solver;
 import java.util.ArrayList ;
 import java.util.Iterator ;
 import java.util.List ;
+import java.util.function.Supplier ;
 
 import org.apache.jena.atlas.junit.BaseTest ;
 import org.apache.jena.atlas.lib.StrUtils ;
 import org.apache.jena.graph.Graph ;
 import org.apache.jena.graph.Node ;
+import org.apache.jena.graph.NodeFactory ;
 import org.apache.jena.graph.Triple ;
+import org.apache.jena.query.ARQ ;
 import org.apache.jena.query.ResultSet ;
 import org.apache.jena.query.ResultSetFactory ;
 import org.apache.jena.query.ResultSetFormatter ;
@@ -39,13 +42,22 @@ import org.apache.jena.shared.impl.PrefixMappingImpl ;
 import org.apache.jena.sparql.algebra.Algebra ;
 import org.apache.jena.sparql.algebra.Op ;
 import org.apache.jena.sparql.algebra.OpVars ;
+import org.apache.jena.sparql.core.DatasetGraph ;
+import org.apache.jena.sparql.core.Quad ;
 import org.apache.jena.sparql.core.Var ;
 import org.apache.jena.sparql.engine.QueryIterator ;
 import org.apache.jena.sparql.engine.binding.Binding ;
 import org.apache.jena.sparql.resultset.ResultSetCompare ;
 import org.apache.jena.sparql.sse.SSE ;
+import org.apache.jena.sparql.util.Context ;
 import org.apache.jena.tdb.ConfigTest ;
+import org.apache.jena.tdb.TDB ;
 import org.apache.jena.tdb.TDBFactory ;
+import org.apache.jena.tdb.base.file.Location ;
+import org.apache.jena.tdb.setup.DatasetBuilderStd ;
+import org.apache.jena.tdb.setup.StoreParams ;
+import org.apache.jena.tdb.store.DatasetGraphTDB ;
+import org.apache.jena.tdb.sys.SystemTDB ;
 import org.apache.jena.util.FileManager ;
 import org.junit.BeforeClass ;
 import org.junit.Test ;
@@ -55,6 +67,8 @@ public class TestSolverTDB extends BaseTest
     static String graphData = null ;
     static Graph graph = null ;
     static PrefixMapping pmap = null ;
+    static DatasetGraphTDB dsgStar = null ;
+    static Graph graphStar = null ;
 
     @BeforeClass static public void beforeClass()
     { 
@@ -66,6 +80,26 @@ public class TestSolverTDB extends BaseTest
         pmap = new PrefixMappingImpl() ;
         pmap.setNsPrefix("", "http://example/") ;
         
+        // Star shaped data, with a PSO index so that ?s :p ?o is available sorted by ?s.
+        StoreParams params = StoreParams.builder().tripleIndexes(new String[]{"SPO", "POS", "OSP", "PSO"}).build() ;
+        dsgStar = DatasetBuilderStd.create(Location.mem(), params) ;
+        graphStar = dsgStar.getDefaultGraph() ;
+        for ( int i = 0 ; i < 30 ; i++ )
+        {
+            String s = ":s"+i ;
+            graphStar.add(SSE.parseTriple("("+s+" :p1 "+(i%7)+")", pmap)) ;
+            if ( i%2 == 0 )
+                graphStar.add(SSE.parseTriple("("+s+" :p2 :o"+(i%3)+")", pmap)) ;
+            if ( i%3 == 0 )
+            {
+                graphStar.add(SSE.parseTriple("("+s+" :p3 :x)", pmap)) ;
+                graphStar.add(SSE.parseTriple("("+s+" :p3 "+(i%7)+")", pmap)) ;
+            }
+            dsgStar.add(SSE.parseQuad("(:g"+(i%2)+" "+s+" :p1 :o"+(i%4)+")", pmap)) ;
+            dsgStar.add(SSE.parseQuad("(:g"+(i%2)+" "+s+" :p2 :o"+(i%5)+")", pmap)) ;
+        }
+        for ( int i = 0 ; i < 3 ; i++ )
+            graphStar.add(SSE.parseTriple("(:o"+i+" :q :z"+i+")", pmap)) ;
     }
             
     static private void addAll(Graph srcGraph, Graph dstGraph)
@@ -122,6 +156,140 @@ public class TestSolverTDB extends BaseTest
         equals(rs1, rs2) ;
     }
 
+    @Test public void solve_07()
+    {
+        // Same variable twice.
+        ResultSet rs1 = exec("(bgp (?x :p ?x))", graph) ;
+        assertFalse(rs1.hasNext()) ;
+    }
+
+    // Batch scans and tuple iterators give the same results.
+    @Test public void solve_scan_01()   { testScanBatchSize("(bgp (?s ?p ?o))") ; }
+
+    @Test public void solve_scan_02()   { testScanBatchSize("(bgp (?s :p ?o) (?o :q ?y))") ; }
+
+    @Test public void solve_scan_03()   { testScanBatchSize("(bgp (:s ?p ?o) (?s1 ?p ?o1))") ; }
+
+    private static void testScanBatchSize(String pattern)
+    {
+        int x = SystemTDB.ScanBatchSize ;
+        try {
+            SystemTDB.ScanBatchSize = 0 ;
+            ResultSetRewindable rs0 = ResultSetFactory.makeRewindable(exec(pattern, graph)) ;
+            for ( int batchSize : new int[] {1, 2, 1000} )
+            {
+                SystemTDB.ScanBatchSize = batchSize ;
+                rs0.reset() ;
+                equals(exec(pattern, graph), rs0) ;
+            }
+        } finally { SystemTDB.ScanBatchSize = x ; }
+    }
+
+    // Vectorized execution of basic graph patterns gives the same results.
+    @Test public void solve_vector_01()   { testVector("(bgp (?s ?p ?o))", graph) ; }
+
+    @Test public void solve_vector_02()   { testVector("(bgp (?s :p ?o) (?o :q ?y))", graph) ; }
+
+    @Test public void solve_vector_03()   { testVector("(bgp (:s ?p ?o) (?s1 ?p ?o1))", graph) ; }
+
+    @Test public void solve_vector_04()   { testVector("(bgp (?x :p ?x))", graph) ; }
+
+    @Test public void solve_vector_05()   { testVector("(bgp (?s ?p ?o) (?s1 :p ?o))", graph) ; }
+
+    @Test public void solve_vector_06()   { testVector("(bgp (:s :p :o) (?s ?p :o))", graph) ; }
+
+    @Test public void solve_vector_07()   { testVector("(bgp (?s ?p ?o) (:zzzz ?p ?o))", graph) ; }
+
+    @Test public void solve_vector_08()
+    {
+        DatasetGraph dsg = TDBFactory.createDatasetGraph() ;
+        addAll(graph, dsg.getGraph(NodeFactory.createURI("http://example/g1"))) ;
+        addAll(graph, dsg.getGraph(NodeFactory.createURI("http://example/g2"))) ;
+        dsg.add(SSE.parseQuad("(:g2 :s1 :p :o1)", pmap)) ;
+        testVector("(graph ?g (bgp (?s :p ?o) (?o ?q ?y)))", dsg) ;
+        testVector("(graph :g2 (bgp (?s :p ?o)))", dsg) ;
+        testVector("(graph <"+Quad.unionGraph.getURI()+"> (bgp (?s :p ?o) (?s ?p ?o1)))", dsg) ;
+    }
+
+    // Merge joins give the same results as nested loops.
+    @Test public void solve_merge_01()   { testMergeJoin("(bgp (?s :p1 ?v) (?s :p2 ?o))", graphStar) ; }
+
+    @Test public void solve_merge_02()   { testMergeJoin("(bgp (?s :p1 ?v) (?s :p2 ?o) (?s :p3 ?z))", graphStar) ; }
+
+    @Test public void solve_merge_03()   { testMergeJoin("(bgp (?s :p2 ?o) (?o :q ?z))", graphStar) ; }
+
+    @Test public void solve_merge_04()   { testMergeJoin("(bgp (?s :p1 ?v) (?t :p1 ?v))", graphStar) ; }
+
+    @Test public void solve_merge_05()   { testMergeJoin("(bgp (?s :p1 ?v) (?s :p3 ?v))", graphStar) ; }
+
+    @Test public void solve_merge_06()   { testMergeJoin("(bgp (?s ?p ?o) (?s :p2 ?o2))", graphStar) ; }
+
+    @Test public void solve_merge_07()   { testMergeJoin("(bgp (?s :p1 ?v) (?s :zzzz ?o))", graphStar) ; }
+
+    @Test public void solve_merge_08()   { testMergeJoin("(bgp (?s :p1 ?v) (?s :p2 ?o) (?o :q ?z))", graphStar) ; }
+
+    @Test public void solve_merge_09()   { testMergeJoin("(bgp (:s3 :p1 ?v) (?s :p1 ?v) (?s :p3 ?z))", graphStar) ; }
+
+    // No index in the right order : nested loops.
+    @Test public void solve_merge_10()   { testMergeJoin("(bgp (?s :p ?o) (?o :q ?y))", graph) ; }
+
+    @Test public void solve_merge_11()
+    {
+        testMergeJoin("(graph :g0 (bgp (?s :p1 ?o) (?s :p2 ?o2)))", dsgStar) ;
+        testMergeJoin("(graph ?g (bgp (?s :p1 ?o) (?s :p2 ?o2)))", dsgStar) ;
+        testMergeJoin("(graph ?g (bgp (?s :p1 ?o) (?t :p2 ?o)))", dsgStar) ;
+    }
+
+    private static void testMergeJoin(String pattern, Graph graph)
+    {
+        testMergeJoin(() -> exec(pattern, graph)) ;
+    }
+
+    private static void testMergeJoin(String pattern, DatasetGraph dsg)
+    {
+        testMergeJoin(() -> exec(pattern, dsg)) ;
+    }
+
+    private static void testMergeJoin(Supplier<ResultSet> query)
+    {
+        Context cxt = ARQ.getContext() ;
+        ResultSet rs0 = query.get() ;
+        try {
+            cxt.set(TDB.symMergeJoin, true) ;
+            equals(query.get(), rs0) ;
+        } finally {
+            cxt.remove(TDB.symMergeJoin) ;
+        }
+    }
+
+    private static void testVector(String pattern, Graph graph)
+    {
+        testVector(() -> exec(pattern, graph)) ;
+    }
+
+    private static void testVector(String pattern, DatasetGraph dsg)
+    {
+        testVector(() -> exec(pattern, dsg)) ;
+    }
+
+    private static void testVector(Supplier<ResultSet> query)
+    {
+        Context cxt = ARQ.getContext() ;
+        ResultSetRewindable rs0 = ResultSetFactory.makeRewindable(query.get()) ;
+        try {
+            cxt.set(TDB.symVectorBGP, true) ;
+            for ( int batchSize : new int[] {1, 2, 1024} )
+            {
+                cxt.set(TDB.symVectorBatchSize, batchSize) ;
+                rs0.reset() ;
+                equals(query.get(), rs0) ;
+            }
+        } finally {
+            cxt.remove(TDB.symVectorBGP) ;
+            cxt.remove(TDB.symVectorBatchSize) ;
+        }
+    }
+
     // ------
     
     private static void equals(ResultSet rs1, ResultSet rs2)
@@ -160,6 +328,15 @@ public class TestSolverTDB extends BaseTest
         QueryIterator qIter = Algebra.exec(op, graph) ;
         return ResultSetFactory.create(qIter, Var.varNames(vars)) ;
     }
+
+    private static ResultSet exec(String pattern, DatasetGraph dsg)
+    {
+        Op op = SSE.parseOp(pattern, pmap) ;
+        List<Var> vars =  new ArrayList<>() ;
+        vars.addAll(OpVars.visibleVars(op)) ;
+        QueryIterator qIter = Algebra.exec(op, dsg) ;
+        return ResultSetFactory.create(qIter, Var.varNames(vars)) ;
+    }
     
     private static List<Binding> toList(QueryIterator qIter)
     {
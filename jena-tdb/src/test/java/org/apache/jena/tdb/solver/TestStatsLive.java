@@ -0,0 +1,248 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.jena.tdb.solver;
+
+import static org.junit.Assert.assertEquals ;
+import static org.junit.Assert.assertNotNull ;
+import static org.junit.Assert.assertTrue ;
+
+import java.util.Arrays ;
+import java.util.Map ;
+
+import org.apache.jena.atlas.lib.FileOps ;
+import org.apache.jena.graph.Node ;
+import org.apache.jena.query.ReadWrite ;
+import org.apache.jena.sparql.core.Quad ;
+import org.apache.jena.sparql.core.Var ;
+import org.apache.jena.sparql.engine.optimizer.reorder.PatternTriple ;
+import org.apache.jena.sparql.expr.ExprList ;
+import org.apache.jena.sparql.sse.SSE ;
+import org.apache.jena.tdb.ConfigTest ;
+import org.apache.jena.tdb.StoreConnection ;
+import org.apache.jena.tdb.base.file.Location ;
+import org.apache.jena.tdb.solver.stats.CharacteristicSet ;
+import org.apache.jena.tdb.solver.stats.ReorderLiveStats ;
+import org.apache.jena.tdb.solver.stats.StatsLive ;
+import org.apache.jena.tdb.store.NodeId ;
+import org.apache.jena.tdb.store.nodetable.NodeTable ;
+import org.apache.jena.tdb.sys.Names ;
+import org.apache.jena.tdb.transaction.DatasetGraphTxn ;
+import org.apache.jena.tdb.transaction.TransactionManager ;
+import org.junit.After ;
+import org.junit.AfterClass ;
+import org.junit.Before ;
+import org.junit.BeforeClass ;
+import org.junit.Test ;
+
+/** Statistics maintained by the transaction manager */
+public class TestStatsLive
+{
+    private static boolean liveStats ;
+    
+    private static Node p1 = SSE.parseNode(":p1") ;
+    private static Node p2 = SSE.parseNode(":p2") ;
+    private static Node s1 = SSE.parseNode(":s1") ;
+    private static Node s2 = SSE.parseNode(":s2") ;
+    private static Node g = SSE.parseNode(":g") ;
+    
+    private Location location ;
+    private StoreConnection sConn ;
+
+    @BeforeClass public static void beforeClass() {
+        liveStats = TransactionManager.LiveStats ;
+        TransactionManager.LiveStats = true ;
+    }
+    
+    @AfterClass public static void afterClass() {
+        TransactionManager.LiveStats = liveStats ;
+    }
+    
+    @Before public void before() {
+        location = Location.create(ConfigTest.getCleanDir()) ;
+        StoreConnection.release(location) ;
+        sConn = StoreConnection.make(location) ;
+    }
+    
+    @After public void after() {
+        StoreConnection.release(location) ;
+        FileOps.clearDirectory(location.getDirectoryPath()) ;
+    }
+    
+    private void update(String... quads) {
+        DatasetGraphTxn dsg = sConn.begin(ReadWrite.WRITE) ;
+        for ( String x : quads ) {
+            if ( x.startsWith("-") )
+                dsg.delete(SSE.parseQuad(x.substring(1))) ;
+            else 
+                dsg.add(SSE.parseQuad(x)) ;
+        }
+        dsg.commit() ;
+        dsg.end() ;
+    }
+    
+    private StatsLive stats() {
+        return sConn.getTransactionManager().getStatsLive() ;
+    }
+
+    private NodeId id(Node n) {
+        NodeTable nt = sConn.getBaseDataset().getTripleTable().getNodeTupleTable().getNodeTable() ;
+        return nt.getNodeIdForNode(n) ;
+    }
+    
+    private CharacteristicSet cs(Node... predicates) {
+        NodeId[] x = new NodeId[predicates.length] ;
+        for ( int i = 0 ; i < predicates.length ; i++ )
+            x[i] = id(predicates[i]) ;
+        return CharacteristicSet.create(Arrays.asList(x)) ;
+    }
+    
+    @Test public void stats_live_01() {
+        assertNotNull(stats()) ;
+        assertEquals(0, stats().getCount()) ;
+        assertTrue(sConn.getBaseDataset().getReorderTransform() instanceof ReorderLiveStats) ;
+    }
+    
+    @Test public void stats_live_02() {
+        update("(_ :s1 :p1 1)", "(_ :s1 :p1 2)", "(_ :s2 :p1 2)", "(_ :s1 :p2 3)") ;
+        StatsLive stats = stats() ;
+        assertEquals(4, stats.getCount()) ;
+        assertEquals(3, stats.getPredicateCount(id(p1))) ;
+        assertEquals(2, stats.getDistinctSubjects(id(p1))) ;
+        assertEquals(2, stats.getDistinctObjects(id(p1))) ;
+        assertEquals(1, stats.getPredicateCount(id(p2))) ;
+        
+        Map<CharacteristicSet, Long> charSets = stats.getCharacteristicSets() ;
+        assertEquals(2, charSets.size()) ;
+        assertEquals(1L, (long)charSets.get(cs(p1, p2))) ;
+        assertEquals(1L, (long)charSets.get(cs(p1))) ;
+        assertEquals(2, stats.getOccurrences(cs(p1, p2), id(p1))) ;
+    }
+    
+    @Test public void stats_live_03() {
+        update("(_ :s1 :p1 1)", "(_ :s1 :p2 2)") ;
+        update("-(_ :s1 :p2 2)", "(_ :s2 :p1 1)") ;
+        StatsLive stats = stats() ;
+        assertEquals(2, stats.getCount()) ;
+        assertEquals(0, stats.getPredicateCount(id(p2))) ;
+        assertEquals(2, stats.getDistinctSubjects(id(p1))) ;
+        assertEquals(1, stats.getDistinctObjects(id(p1))) ;
+        Map<CharacteristicSet, Long> charSets = stats.getCharacteristicSets() ;
+        assertEquals(1, charSets.size()) ;
+        assertEquals(2L, (long)charSets.get(cs(p1))) ;
+    }
+
+    @Test public void stats_live_04() {
+        // Abort
+        update("(_ :s1 :p1 1)") ;
+        DatasetGraphTxn dsg = sConn.begin(ReadWrite.WRITE) ;
+        dsg.add(SSE.parseQuad("(_ :s2 :p2 2)")) ;
+        dsg.abort() ;
+        dsg.end() ;
+        assertEquals(1, stats().getCount()) ;
+        assertEquals(0, stats().getPredicateCount(id(p2))) ;
+    }
+
+    @Test public void stats_live_05() {
+        // Named graphs, types and clear.
+        update("(:g :s1 rdf:type :C)", "(:g :s2 rdf:type :C)", "(:g :s1 :p1 1)", "(_ :s1 :p1 1)") ;
+        StatsLive stats = stats() ;
+        assertEquals(4, stats.getCount()) ;
+        assertEquals(2, stats.getTypeCount(id(SSE.parseNode(":C")))) ;
+        // (g, s1) and s1 are different subjects.
+        assertEquals(2, stats.getDistinctSubjects(id(p1))) ;
+        
+        DatasetGraphTxn dsg = sConn.begin(ReadWrite.WRITE) ;
+        dsg.deleteAny(g, Node.ANY, Node.ANY, Node.ANY) ;
+        dsg.getDefaultGraph().clear() ;
+        dsg.commit() ;
+        dsg.end() ;
+        assertEquals(0, stats.getCount()) ;
+        assertEquals(0, stats.getCharacteristicSets().size()) ;
+    }
+
+    @Test public void stats_live_06() {
+        // Weights
+        update("(_ :s1 :p1 1)", "(_ :s1 :p1 2)", "(_ :s2 :p1 3)", "(_ :s2 :p2 3)") ;
+        StatsLive stats = stats() ;
+        assertEquals(3, weight(stats, "(?x :p1 ?y)"), 0) ;
+        assertEquals(1.5, weight(stats, "(:s1 :p1 ?y)"), 0) ;
+        assertEquals(1, weight(stats, "(?x :p1 3)"), 0) ;
+        assertEquals(0, weight(stats, "(?x :p3 ?y)"), 0) ;
+    }
+
+    private static double weight(StatsLive stats, String pattern) {
+        return stats.getStatsMatcher().match(new PatternTriple(SSE.parseTriple(pattern))) ;
+    }
+    
+    @Test public void stats_live_07() {
+        // Saved and restored.
+        update("(_ :s1 :p1 1)", "(_ :s1 :p2 2)", "(:g :s1 :p1 1)") ;
+        StoreConnection.release(location) ;
+        assertTrue(location.exists(Names.statsLive)) ;
+        sConn = StoreConnection.make(location) ;
+        // Read and removed.
+        assertTrue(!location.exists(Names.statsLive)) ;
+        assertEquals(3, stats().getCount()) ;
+        assertEquals(1L, (long)stats().getCharacteristicSets().get(cs(p1, p2))) ;
+    }
+
+    @Test public void stats_live_08() {
+        // Calculated from the database.
+        update("(_ :s1 :p1 1)", "(_ :s1 :p2 2)", "(:g :s1 :p1 1)", "(:g :s2 :p1 1)") ;
+        StatsLive stats1 = stats() ;
+        sConn.flush() ;
+        StatsLive stats2 = StatsLive.create(sConn.getBaseDataset()) ;
+        assertEquals(stats1.getCount(), stats2.getCount()) ;
+        assertEquals(stats1.getCharacteristicSets(), stats2.getCharacteristicSets()) ;
+        for ( Node p : new Node[] {p1, p2} ) {
+            assertEquals(stats1.getPredicateCount(id(p)), stats2.getPredicateCount(id(p))) ;
+            assertEquals(stats1.getDistinctSubjects(id(p)), stats2.getDistinctSubjects(id(p))) ;
+            assertEquals(stats1.getDistinctObjects(id(p)), stats2.getDistinctObjects(id(p))) ;
+        }
+        assertEquals(2, stats2.getDistinctObjects(id(p1))) ;
+    }
+
+    @Test public void stats_live_09() {
+        // Histograms of inline values.
+        String[] quads = new String[101] ;
+        for ( int i = 0 ; i < 100 ; i++ )
+            quads[i] = "(_ :s"+i+" :p1 "+(i-50)+")" ;
+        quads[100] = "(_ :s1 :p1 \"abc\")" ;
+        update(quads) ;
+        update("-(_ :s0 :p1 -50)") ;
+        assertEquals(100, stats().getPredicateCount(id(p1))) ;
+        double f1 = stats().getRangeFraction(id(p1), range("(>= ?x 0)")) ;
+        assertEquals(0.5, f1, 0.05) ;
+        double f2 = stats().getRangeFraction(id(p1), range("(< ?x -40)")) ;
+        assertEquals(0.09, f2, 0.02) ;
+        assertEquals(0, stats().getRangeFraction(id(p1), range("(> ?x 1000)")), 0.001) ;
+        // Saved and restored.
+        StoreConnection.release(location) ;
+        sConn = StoreConnection.make(location) ;
+        assertEquals(f1, stats().getRangeFraction(id(p1), range("(>= ?x 0)")), 0.0001) ;
+        // Calculated from the database.
+        StatsLive stats2 = StatsLive.create(sConn.getBaseDataset()) ;
+        assertEquals(f2, stats2.getRangeFraction(id(p1), range("(< ?x -40)")), 0.0001) ;
+    }
+    
+    private static RangeFilter range(String expr) {
+        return RangeFilter.create(new ExprList(SSE.parseExpr(expr))).get(Var.alloc("x")) ;
+    }
+}
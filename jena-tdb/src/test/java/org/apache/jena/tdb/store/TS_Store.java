@@ -44,6 +44,7 @@ import org.junit.runners.Suite ;
     , TestDynamicDatasetTDB.class
     , TestStoreConnectionsDirect.class
     , TestStoreConnectionsMapped.class
+    , TestStoreConnectionsReadAhead.class
     , TestLocationLockStoreConnection.class
 } )
 public class TS_Store
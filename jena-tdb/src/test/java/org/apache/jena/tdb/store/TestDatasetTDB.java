@@ -239,6 +239,50 @@ public class TestDatasetTDB extends BaseTest
         assertEquals(2, m.size()) ;
     }
     
+    @Test public void special6()
+    {
+        // The same triples in many graphs.
+        Dataset ds = create() ;
+        Model m = ModelFactory.createDefaultModel() ;
+        Property p1 = m.createProperty(baseNS+"p1") ;
+        for ( int g = 0 ; g < 30 ; g++ )
+        {
+            Model mg = ds.getNamedModel("http://example/graph"+g) ;
+            for ( int i = 0 ; i < 20 ; i++ )
+            {
+                if ( (i+g)%3 == 0 )
+                    continue ;
+                Resource r = mg.createResource(base1+"r"+(i%5)) ;
+                mg.add(r, p1, "x"+i) ;
+                m.add(r, p1, "x"+i) ;
+            }
+        }
+        Model union = ds.getNamedModel(unionGraph) ;
+        assertEquals(m.size(), union.size()) ;
+        assertTrue(m.isIsomorphicWith(union)) ;
+        Resource r1 = m.createResource(base1+"r1") ;
+        assertEquals(m.listStatements(r1, null, (String)null).toList().size(),
+                     union.listStatements(r1, null, (String)null).toList().size()) ;
+        
+        String qs = "CONSTRUCT {?s ?p ?o } WHERE { ?s ?p ?o }" ;
+        for ( boolean skip : new boolean[] { true, false } )
+        {
+            try (QueryExecution qExec = QueryExecutionFactory.create(qs, ds)) {
+                qExec.getContext().set(TDB.symUnionDefaultGraph, true) ;
+                qExec.getContext().set(TDB.symUnionSkipScan, skip) ;
+                Model m2 = qExec.execConstruct() ;
+                assertTrue(m.isIsomorphicWith(m2)) ;
+            }
+        }
+
+        String qs2 = "PREFIX : <"+baseNS+"> SELECT (COUNT(*) AS ?c) WHERE { <"+base1+"r2> :p1 ?o }" ;
+        try (QueryExecution qExec = QueryExecutionFactory.create(qs2, ds)) {
+            qExec.getContext().set(TDB.symUnionDefaultGraph, true) ;
+            long c = qExec.execSelect().next().getLiteral("c").getLong() ;
+            assertEquals(m.listStatements(m.createResource(base1+"r2"), p1, (String)null).toList().size(), c) ;
+        }
+    }
+    
     // Put a model into a general dataset and use it.
     @Test public void generalDataset1()
     {
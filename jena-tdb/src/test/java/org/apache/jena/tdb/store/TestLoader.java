@@ -18,13 +18,20 @@
 
 package org.apache.jena.tdb.store ;
 
+import java.io.ByteArrayInputStream ;
+import java.io.File ;
 import java.io.InputStream ;
+import java.util.HashSet ;
 import java.util.List ;
+import java.util.Set ;
 
 import org.apache.jena.atlas.io.IO ;
 import org.apache.jena.atlas.iterator.Iter ;
 import org.apache.jena.atlas.junit.BaseTest ;
+import org.apache.jena.atlas.lib.StrUtils ;
+import org.apache.jena.atlas.lib.tuple.Tuple ;
 import org.apache.jena.atlas.logging.LogCtl ;
+import org.apache.jena.datatypes.xsd.XSDDatatype ;
 import org.apache.jena.graph.Node ;
 import org.apache.jena.graph.NodeFactory ;
 import org.apache.jena.graph.Triple ;
@@ -33,7 +40,13 @@ import org.apache.jena.sparql.core.Quad ;
 import org.apache.jena.tdb.ConfigTest ;
 import org.apache.jena.tdb.TDB ;
 import org.apache.jena.tdb.TDBLoader ;
+import org.apache.jena.tdb.base.block.FileMode ;
 import org.apache.jena.tdb.base.file.Location ;
+import org.apache.jena.tdb.setup.StoreParams ;
+import org.apache.jena.tdb.store.bulkloader.BulkLoader ;
+import org.apache.jena.tdb.store.tupletable.TupleIndex ;
+import org.apache.jena.tdb.store.tupletable.TupleTable ;
+import org.apache.jena.tdb.sys.Names ;
 import org.apache.jena.tdb.sys.TDBMaker ;
 import org.junit.AfterClass ;
 import org.junit.BeforeClass ;
@@ -162,4 +175,110 @@ public class TestLoader extends BaseTest {
         String uri2 = dsg.getDefaultGraph().getPrefixMapping().getNsPrefixURI("") ;
         assertNull(uri2) ;
     }
+
+    private static InputStream data(String fmt, int start, int n) {
+        StringBuilder sb = new StringBuilder() ;
+        for ( int i = start ; i < start+n ; i++ )
+            sb.append(String.format(fmt, i%7, i%3, i)).append("\n") ;
+        return new ByteArrayInputStream(StrUtils.asUTF8bytes(sb.toString())) ;
+    }
+
+    private static void checkIndexes(TupleTable table) {
+        Set<Tuple<NodeId>> primary = Iter.toSet(table.getIndex(0).all()) ;
+        for ( TupleIndex index : table.getIndexes() ) {
+            assertNotNull(index) ;
+            List<Tuple<NodeId>> x = Iter.toList(index.all()) ;
+            assertEquals(index.getName(), primary.size(), x.size()) ;
+            assertEquals(index.getName(), primary, new HashSet<>(x)) ;
+        }
+    }
+
+    private static void loadSorted(DatasetGraphTDB dsg, InputStream in) {
+        int runSize = BulkLoader.IndexSortRunSize ;
+        BulkLoader.IndexSortRunSize = 10 ;
+        try { TDBLoader.load(dsg, in, false) ; }
+        finally { BulkLoader.IndexSortRunSize = runSize ; }
+    }
+
+    @Test
+    public void load_sorted_01() {
+        // Empty database, several sort runs.
+        DatasetGraphTDB dsg = fresh() ;
+        loadSorted(dsg, data("<s%d> <p%d> \"%d\"^^<http://www.w3.org/2001/XMLSchema#integer> .", 0, 100)) ;
+        assertEquals(100, dsg.getDefaultGraph().size()) ;
+        checkIndexes(dsg.getTripleTable().getNodeTupleTable().getTupleTable()) ;
+        List<Triple> x = Iter.toList(dsg.getDefaultGraph().find(null, NodeFactory.createURI("p1"), null)) ;
+        assertEquals(33, x.size()) ;
+    }
+
+    @Test
+    public void load_sorted_02() {
+        // Non-empty database : merge with the existing indexes, with overlap.
+        DatasetGraphTDB dsg = fresh() ;
+        loadSorted(dsg, data("<s%d> <p%d> \"%d\"^^<http://www.w3.org/2001/XMLSchema#integer> .", 0, 60)) ;
+        loadSorted(dsg, data("<s%d> <p%d> \"%d\"^^<http://www.w3.org/2001/XMLSchema#integer> .", 40, 60)) ;
+        assertEquals(100, dsg.getDefaultGraph().size()) ;
+        checkIndexes(dsg.getTripleTable().getNodeTupleTable().getTupleTable()) ;
+        List<Triple> x = Iter.toList(dsg.getDefaultGraph().find(null, null, NodeFactory.createLiteral("75", XSDDatatype.XSDinteger))) ;
+        assertEquals(1, x.size()) ;
+    }
+
+    @Test
+    public void load_sorted_03() {
+        // Quads, into a non-empty database.
+        DatasetGraphTDB dsg = fresh() ;
+        loadSorted(dsg, data("<s%d> <p%d> \"%d\"^^<http://www.w3.org/2001/XMLSchema#integer> <g> .", 0, 50)) ;
+        dsg.add(g, s, p, o) ;
+        loadSorted(dsg, data("<s%d> <p%d> \"%d\"^^<http://www.w3.org/2001/XMLSchema#integer> <g> .", 50, 50)) ;
+        assertEquals(101, dsg.getGraph(g).size()) ;
+        checkIndexes(dsg.getQuadTable().getNodeTupleTable().getTupleTable()) ;
+        List<Quad> z = Iter.toList(dsg.find(null, s, null, null)) ;
+        assertEquals(1, z.size()) ;
+    }
+
+    @Test
+    public void load_sorted_04() {
+        // Same data again : no change.
+        DatasetGraphTDB dsg = fresh() ;
+        loadSorted(dsg, data("<s%d> <p%d> \"%d\"^^<http://www.w3.org/2001/XMLSchema#integer> .", 0, 30)) ;
+        loadSorted(dsg, data("<s%d> <p%d> \"%d\"^^<http://www.w3.org/2001/XMLSchema#integer> .", 0, 30)) ;
+        assertEquals(30, dsg.getDefaultGraph().size()) ;
+        checkIndexes(dsg.getTripleTable().getNodeTupleTable().getTupleTable()) ;
+    }
+
+    private static long indexSize(Location location, String indexName) {
+        return new File(location.getPath(indexName, Names.bptExtTree)).length()
+               + new File(location.getPath(indexName, Names.bptExtRecords)).length() ;
+    }
+
+    @Test
+    public void load_sorted_05() {
+        // On disk, loading twice : the merged indexes reuse the blocks of the old ones.
+        // Direct mode files are the size of the blocks in use.
+        Location location = Location.create(ConfigTest.getCleanDir()) ;
+        StoreParams params = StoreParams.builder().fileMode(FileMode.direct).build() ;
+        DatasetGraphTDB dsg = TDBMaker.createDatasetGraphTDB(location, params) ;
+        try {
+            String fmt = "<s%d> <p%d> \"%d\"^^<http://www.w3.org/2001/XMLSchema#integer> ." ;
+            loadSorted(dsg, data(fmt, 0, 2000)) ;
+            long pos1 = indexSize(location, "POS") ;
+            long osp1 = indexSize(location, "OSP") ;
+            loadSorted(dsg, data(fmt, 2000, 2000)) ;
+            assertEquals(4000, dsg.getDefaultGraph().size()) ;
+            checkIndexes(dsg.getTripleTable().getNodeTupleTable().getTupleTable()) ;
+            List<Triple> x = Iter.toList(dsg.getDefaultGraph().find(null, null, NodeFactory.createLiteral("2500", XSDDatatype.XSDinteger))) ;
+            assertEquals(1, x.size()) ;
+            // Twice the data, not the old copy as well.
+            long pos2 = indexSize(location, "POS") ;
+            long osp2 = indexSize(location, "OSP") ;
+            assertTrue(pos2 < 2*pos1) ;
+            assertTrue(osp2 < 2*osp1) ;
+            // A few more triples : the indexes grow by a few blocks, not a full copy.
+            loadSorted(dsg, data(fmt, 4000, 100)) ;
+            assertEquals(4100, dsg.getDefaultGraph().size()) ;
+            checkIndexes(dsg.getTripleTable().getNodeTupleTable().getTupleTable()) ;
+            assertTrue(indexSize(location, "POS") < pos2+pos1/2) ;
+            assertTrue(indexSize(location, "OSP") < osp2+osp1/2) ;
+        } finally { dsg.close() ; }
+    }
 }
@@ -225,6 +225,69 @@ public class TestNodeId extends BaseTest
     @Test public void nodeId_boolean_4()
     { test("'0'^^xsd:boolean", NodeFactoryExtra.parseNode("'false'^^xsd:boolean")) ; }
 
+    // Extended inline types.
+    
+    @Test public void nodeId_ext_string_1()     { testExt("''") ; }
+    @Test public void nodeId_ext_string_2()     { testExt("'abc'") ; }
+    @Test public void nodeId_ext_string_3()     { testExt("'abcdefg'") ; }
+    @Test public void nodeId_ext_string_4()     { testExt("'abcdefgh'", false) ; }
+    @Test public void nodeId_ext_string_5()     { testExt("'αβγ'") ; }
+    @Test public void nodeId_ext_string_6()     { testExt("'αβγδ'", false) ; }
+    @Test public void nodeId_ext_string_7()     { testExt("'abc'@en", false) ; }
+
+    @Test public void nodeId_ext_double_1()     { testExt("'1.0'^^xsd:double") ; }
+    @Test public void nodeId_ext_double_2()     { testExt("'-2.5E10'^^xsd:double") ; }
+    @Test public void nodeId_ext_double_3()     { testExt("'INF'^^xsd:double") ; }
+    @Test public void nodeId_ext_double_4()     { testExt("'NaN'^^xsd:double") ; }
+    // Not the same lexical form.
+    @Test public void nodeId_ext_double_5()     { testExt("'1.0e0'^^xsd:double", false) ; }
+    // Needs all 64 bits.
+    @Test public void nodeId_ext_double_6()     { testExt("'0.1'^^xsd:double", false) ; }
+
+    @Test public void nodeId_ext_float_1()      { testExt("'0.1'^^xsd:float") ; }
+    @Test public void nodeId_ext_float_2()      { testExt("'-INF'^^xsd:float") ; }
+    @Test public void nodeId_ext_float_3()      { testExt("'01.0'^^xsd:float", false) ; }
+
+    @Test public void nodeId_ext_time_1()       { testExt("'12:34:56'^^xsd:time") ; }
+    @Test public void nodeId_ext_time_2()       { testExt("'12:34:56.5Z'^^xsd:time") ; }
+    @Test public void nodeId_ext_time_3()       { testExt("'12:34:56-05:00'^^xsd:time") ; }
+    @Test public void nodeId_ext_time_4()       { testExt("'12:34:56.0001'^^xsd:time", false) ; }
+
+    @Test public void nodeId_ext_gYear_1()      { testExt("'2016'^^xsd:gYear") ; }
+    @Test public void nodeId_ext_gYear_2()      { testExt("'2016Z'^^xsd:gYear") ; }
+    @Test public void nodeId_ext_gYear_3()      { testExt("'12016'^^xsd:gYear", false) ; }
+
+    @Test public void nodeId_ext_duration_1()   { testExt("'P1Y2M3DT4H5M6.7S'^^xsd:duration") ; }
+    @Test public void nodeId_ext_duration_2()   { testExt("'-P2D'^^xsd:duration") ; }
+    @Test public void nodeId_ext_duration_3()   { testExt("'PT0S'^^xsd:duration") ; }
+    @Test public void nodeId_ext_duration_4()   { testExt("'PT1.25S'^^xsd:duration") ; }
+    // Not canonical
+    @Test public void nodeId_ext_duration_5()   { testExt("'PT36H'^^xsd:duration", false) ; }
+    @Test public void nodeId_ext_duration_6()   { testExt("'P0D'^^xsd:duration", false) ; }
+
+    @Test public void nodeId_ext_iri_1()        { testExt("rdf:type") ; }
+    @Test public void nodeId_ext_iri_2()        { testExt("rdfs:label") ; }
+    @Test public void nodeId_ext_iri_3()        { testExt("<http://example/>", false) ; }
+    @Test public void nodeId_ext_bnode_1()      { testExt("_:b", false) ; }
+
+    private void testExt(String x) { testExt(x, true) ; }
+    
+    private void testExt(String x, boolean inlined)
+    {
+        Node n = NodeFactoryExtra.parseNode(x) ;
+        assertNull("Inlined when not extended: "+n, NodeId.inline(n)) ;
+        NodeId nodeId = NodeId.inline(n, true) ;
+        if ( ! inlined )
+        {
+            assertNull("Expected no encoding: got: "+nodeId, nodeId) ;
+            return ;
+        }
+        assertNotNull("Expected inlining: "+n, nodeId) ;
+        assertTrue(NodeId.isInline(nodeId)) ;
+        Node n2 = NodeId.extract(nodeId) ;
+        assertEquals("Not same term", n, n2) ;
+    }
+
     private void test(String x) { test(x, x) ; }
     
     private void test(String x, String expected)
@@ -0,0 +1,129 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb.store.bulkloader2;
+
+import java.io.PrintStream ;
+import java.util.Arrays ;
+import java.util.List ;
+
+import org.apache.jena.atlas.io.IO ;
+import org.apache.jena.atlas.iterator.Iter ;
+import org.apache.jena.atlas.junit.BaseTest ;
+import org.apache.jena.atlas.lib.FileOps ;
+import org.apache.jena.atlas.logging.LogCtl ;
+import org.apache.jena.graph.Node ;
+import org.apache.jena.graph.NodeFactory ;
+import org.apache.jena.sparql.core.Quad ;
+import org.apache.jena.tdb.ConfigTest ;
+import org.apache.jena.tdb.TDB ;
+import org.apache.jena.tdb.TDBException ;
+import org.apache.jena.tdb.base.file.Location ;
+import org.apache.jena.tdb.setup.DatasetBuilderStd ;
+import org.apache.jena.tdb.store.DatasetGraphTDB ;
+import org.apache.jena.tdb.sys.Names ;
+import org.junit.AfterClass ;
+import org.junit.BeforeClass ;
+import org.junit.Test ;
+
+public class TestProcBulkLoad extends BaseTest
+{
+    private static String DIR = null ;
+    private static int mergeFanIn ;
+
+    @BeforeClass static public void beforeClass() {
+        DIR = ConfigTest.getTestingDataRoot()+"/Loader/" ;
+        LogCtl.disable(TDB.logLoaderName) ;
+        mergeFanIn = TupleSorter.MergeFanIn ;
+        TupleSorter.MergeFanIn = 4 ;
+    }
+
+    @AfterClass static public void afterClass() {
+        LogCtl.enable(TDB.logLoaderName) ;
+        TupleSorter.MergeFanIn = mergeFanIn ;
+    }
+
+    private static Node uri(String x) { return NodeFactory.createURI("http://example/"+x) ; }
+
+    @Test public void bulkload_01() {
+        String dir = ConfigTest.getCleanDir() ;
+        Location loc = Location.create(dir) ;
+        ProcBulkLoad.exec(loc, Arrays.asList(DIR+"data-1.nq", DIR+"data-3.trig", DIR+"data-4.ttl"), false, 2, 10) ;
+
+        DatasetGraphTDB dsg = DatasetBuilderStd.create(loc) ;
+        try {
+            assertEquals(1, dsg.getDefaultGraph().size()) ;
+            assertEquals(1, dsg.getGraph(NodeFactory.createURI("g")).size()) ;
+            assertEquals(1, dsg.getGraph(uri("g")).size()) ;
+            assertEquals("http://example/", dsg.getDefaultGraph().getPrefixMapping().getNsPrefixURI("")) ;
+            assertFalse(FileOps.exists(loc.getPath("triples", "tmp"))) ;
+            assertFalse(FileOps.exists(loc.getPath(Names.optStats))) ;
+        } finally { dsg.close() ; }
+    }
+
+    @Test public void bulkload_02() {
+        // Enough data, with duplicates, to use several sort runs in several files.
+        String dir = ConfigTest.getCleanDir() ;
+        String data1 = ConfigTest.getTestingDir()+"/bulk-1.nq" ;
+        String data2 = ConfigTest.getTestingDir()+"/bulk-2.nt" ;
+        writeData(data1, 0, 600, true) ;
+        writeData(data2, 300, 600, false) ;
+        Location loc = Location.create(dir) ;
+        try {
+            ProcBulkLoad.exec(loc, Arrays.asList(data1, data2), true, 3, 50) ;
+        } finally {
+            FileOps.delete(data1) ;
+            FileOps.delete(data2) ;
+        }
+
+        DatasetGraphTDB dsg = DatasetBuilderStd.create(loc) ;
+        try {
+            // Default graph : 0-599 (from data1, i odd) and 300-899 (data2), de-duplicated.
+            long expectedDft = 300/2 + 600 ;
+            assertEquals(expectedDft, dsg.getDefaultGraph().size()) ;
+            assertEquals(expectedDft, Iter.count(dsg.getDefaultGraph().find(null, uri("p"), null))) ;
+            assertEquals(1, Iter.count(dsg.getDefaultGraph().find(uri("s305"), null, null))) ;
+            assertEquals(1, Iter.count(dsg.getDefaultGraph().find(null, null, uri("o305")))) ;
+            // Named graphs : i even, 0-599.
+            List<Quad> quads = Iter.toList(dsg.find(Node.ANY, Node.ANY, Node.ANY, Node.ANY)) ;
+            assertEquals(expectedDft+300, quads.size()) ;
+            assertEquals(300, Iter.count(dsg.findNG(null, null, uri("p"), null))) ;
+            assertEquals(60, Iter.count(dsg.find(uri("g4"), null, null, null))) ;
+            assertTrue(FileOps.exists(loc.getPath(Names.optStats))) ;
+        } finally { dsg.close() ; }
+    }
+
+    @Test(expected=TDBException.class)
+    public void bulkload_mem() {
+        ProcBulkLoad.exec(Location.mem(), Arrays.asList(DIR+"data-1.nq"), false) ;
+    }
+
+    private static void writeData(String filename, int start, int n, boolean quads) {
+        PrintStream out = new PrintStream(IO.openOutputFile(filename)) ;
+        for ( int i = start ; i < start+n ; i++ ) {
+            String line = String.format("<http://example/s%d> <http://example/p> <http://example/o%d>", i, i) ;
+            if ( quads && i%2 == 0 )
+                line = line+String.format(" <http://example/g%d>", i%10) ;
+            out.printf("%s .\n", line) ;
+            // Duplicates
+            if ( i%7 == 0 )
+                out.printf("%s .\n", line) ;
+        }
+        out.close() ;
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb.store.bulkloader2;
+
+import java.io.File ;
+import java.util.ArrayList ;
+import java.util.Iterator ;
+import java.util.List ;
+import java.util.Random ;
+import java.util.TreeSet ;
+import java.util.concurrent.ExecutorService ;
+import java.util.concurrent.Executors ;
+
+import org.apache.jena.atlas.junit.BaseTest ;
+import org.apache.jena.atlas.lib.Bytes ;
+import org.apache.jena.tdb.ConfigTest ;
+import org.apache.jena.tdb.base.record.Record ;
+import org.apache.jena.tdb.lib.ColumnMap ;
+import org.junit.AfterClass ;
+import org.junit.BeforeClass ;
+import org.junit.Test ;
+
+public class TestTupleSorter extends BaseTest
+{
+    private static ExecutorService executor ;
+    private static int mergeFanIn ;
+
+    @BeforeClass public static void beforeClass() {
+        executor = Executors.newFixedThreadPool(3) ;
+        mergeFanIn = TupleSorter.MergeFanIn ;
+        // Force intermediate merges.
+        TupleSorter.MergeFanIn = 3 ;
+    }
+
+    @AfterClass public static void afterClass() {
+        executor.shutdownNow() ;
+        TupleSorter.MergeFanIn = mergeFanIn ;
+    }
+
+    @Test public void sort_empty() {
+        List<long[]> x = sort(new ArrayList<>(), null, 10) ;
+        assertTrue(x.isEmpty()) ;
+    }
+
+    @Test public void sort_in_memory() {
+        List<long[]> data = data(50, 3, 10) ;
+        check(data, null, 1000) ;
+    }
+
+    @Test public void sort_runs() {
+        List<long[]> data = data(1000, 3, 1000) ;
+        check(data, null, 20) ;
+    }
+
+    @Test public void sort_duplicates() {
+        // Small range of values => many duplicates.
+        List<long[]> data = data(500, 3, 3) ;
+        check(data, null, 17) ;
+    }
+
+    @Test public void sort_colmap() {
+        List<long[]> data = data(300, 4, 50) ;
+        check(data, new ColumnMap("GSPO", "POSG"), 25) ;
+    }
+
+    @Test public void sort_unsigned() {
+        // NodeIds with the high bit set sort after ones without.
+        List<long[]> data = new ArrayList<>() ;
+        data.add(new long[]{ 0x8000000000000001L, 1, 1}) ;
+        data.add(new long[]{ 1, 2, 3}) ;
+        data.add(new long[]{ 0x7FFFFFFFFFFFFFFFL, 1, 1}) ;
+        List<long[]> x = sort(data, null, 2) ;
+        assertEquals(3, x.size()) ;
+        assertEquals(1L, x.get(0)[0]) ;
+        assertEquals(0x7FFFFFFFFFFFFFFFL, x.get(1)[0]) ;
+        assertEquals(0x8000000000000001L, x.get(2)[0]) ;
+    }
+
+    @Test public void sort_cleanup() {
+        String dir = ConfigTest.getCleanDir() ;
+        List<long[]> data = data(100, 3, 100) ;
+        sort(dir, data, null, 10) ;
+        assertEquals(0, new File(dir).list().length) ;
+    }
+
+    private static List<long[]> data(int n, int len, int range) {
+        Random random = new Random(1234) ;
+        List<long[]> x = new ArrayList<>() ;
+        for ( int i = 0 ; i < n ; i++ ) {
+            long[] row = new long[len] ;
+            for ( int j = 0 ; j < len ; j++ )
+                row[j] = random.nextInt(range) ;
+            x.add(row) ;
+        }
+        return x ;
+    }
+
+    private static void check(List<long[]> data, ColumnMap colMap, int runSize) {
+        TreeSet<long[]> expected = new TreeSet<>((a,b)->TupleSorter.compareRows(a, 0, b, 0, a.length)) ;
+        for ( long[] row : data ) {
+            long[] r = new long[row.length] ;
+            for ( int i = 0 ; i < row.length ; i++ ) {
+                int j = ( colMap == null ) ? i : colMap.mapSlotIdx(i) ;
+                r[j] = row[i] ;
+            }
+            expected.add(r) ;
+        }
+        List<long[]> x = sort(data, colMap, runSize) ;
+        assertEquals(expected.size(), x.size()) ;
+        Iterator<long[]> iter = expected.iterator() ;
+        for ( long[] row : x )
+            assertArrayEquals(iter.next(), row) ;
+    }
+
+    private static List<long[]> sort(List<long[]> data, ColumnMap colMap, int runSize) {
+        return sort(ConfigTest.getCleanDir(), data, colMap, runSize) ;
+    }
+
+    private static List<long[]> sort(String dir, List<long[]> data, ColumnMap colMap, int runSize) {
+        int len = data.isEmpty() ? 3 : data.get(0).length ;
+        TupleSorter sorter = new TupleSorter(len, colMap, runSize, dir, executor, 2) ;
+        for ( long[] row : data )
+            sorter.add(row) ;
+        Iterator<Record> iter = sorter.sorted() ;
+        List<long[]> results = new ArrayList<>() ;
+        while(iter.hasNext()) {
+            Record r = iter.next() ;
+            long[] row = new long[len] ;
+            for ( int i = 0 ; i < len ; i++ )
+                row[i] = Bytes.getLong(r.getKey(), 8*i) ;
+            results.add(row) ;
+        }
+        sorter.close() ;
+        return results ;
+    }
+}
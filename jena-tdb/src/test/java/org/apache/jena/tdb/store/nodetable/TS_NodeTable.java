@@ -26,6 +26,8 @@ import org.junit.runners.Suite ;
     TestCodec.class
     , TestNodeTableStored.class
     , TestNodeTable.class
+    , TestNodeTableCacheStriped.class
+    , TestNodeHashBloomFilter.class
 })
 public class TS_NodeTable
 {
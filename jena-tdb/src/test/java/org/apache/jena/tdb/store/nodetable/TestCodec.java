@@ -49,7 +49,7 @@ public class TestCodec extends BaseTest
     @Parameters public static Collection<Object[]> data()
     { 
         return Arrays.asList(new Object[][]
-                                        { { new NodecSSE() } } 
+                                        { { new NodecSSE() } , { new NodecDirect() } , { new NodecBinary() } } 
                                         ) ;                                        
     }
 
@@ -80,6 +80,13 @@ public class TestCodec extends BaseTest
     @Test public void nodec_lit_20()    { test ("1") ; }
     @Test public void nodec_lit_21()    { test ("12.3") ; }
     @Test public void nodec_lit_22()    { test ("''^^<>") ; }
+    @Test public void nodec_lit_23()    { test ("'abc'^^<http://example/dt>") ; }
+    @Test public void nodec_lit_24()    { test ("'2016-01-01'^^<http://www.w3.org/2001/XMLSchema#date>") ; }
+    @Test public void nodec_lit_25()    { test ("'a\\\"b'") ; }
+    @Test public void nodec_lit_26()    { test ("'a\\\"b'@en") ; }
+    @Test public void nodec_lit_27()    { test ("'"+chineseBase+"'^^<http://example/"+greekBase+">") ; }
+    @Test public void nodec_lit_28()    { test ("'\"'^^<http://example/dt>") ; }
+    @Test public void nodec_lit_29()    { test ("true") ; }
 
     // Bad Unicode.
     static private final String binaryStr1            = "abc\uD800xyz" ;    // A single surrogate, without it's pair. 
@@ -90,9 +97,19 @@ public class TestCodec extends BaseTest
     @Test public void nodec_lit_31()    { test ("'"+binaryStr2+"'") ; }
     @Test public void nodec_lit_32()    { test ("'"+binaryStr3+"'") ; }
 
+    // Long datatypes and language tags (length over one byte of varint)
+    static private final String longStr             = new String(new char[250]).replace('\0', 'a') ;
+    @Test public void nodec_lit_33()    { test ("'abc'^^<http://example/"+longStr+">") ; }
+    @Test public void nodec_lit_34()    { test ("'abc'@en-x-"+longStr.substring(0, 8)) ; }
+    @Test public void nodec_lit_35()    { test ("'"+longStr+"'@fr") ; }
+    @Test public void nodec_lit_36()    { test ("'PT1H'^^<http://www.w3.org/2001/XMLSchema#dayTimeDuration>") ; }
+
     
     @Test public void nodec_uri_01()    { test ("<>") ; }
     @Test public void nodec_uri_02()    { test ("<http://example/>") ; }
+    @Test public void nodec_uri_03()    { test (org.apache.jena.graph.NodeFactory.createURI("http://example/a b")) ; }
+    @Test public void nodec_uri_04()    { test (org.apache.jena.graph.NodeFactory.createURI("http://example/a_b")) ; }
+    @Test public void nodec_uri_05()    { test ("<http://example/"+japaneseBase+">") ; }
     
     // Jena anon ids can have a string form including ":"
     @Test public void nodec_blank_01()  { test (org.apache.jena.graph.NodeFactory.createBlankNode("a")) ; }
@@ -117,5 +134,12 @@ public class TestCodec extends BaseTest
         ByteBuffer bb2 = ByteBufferLib.duplicate(bb) ;
         Node n2 = nodec.decode(bb2, null) ;
         assertEquals(n, n2) ;
+        
+        // Read-only, not array backed, as from a memory mapped file.
+        ByteBuffer bb3 = ByteBuffer.allocateDirect(bbLen) ;
+        bb3.put(ByteBufferLib.duplicate(bb)) ;
+        bb3.flip() ;
+        Node n3 = nodec.decode(bb3.asReadOnlyBuffer(), null) ;
+        assertEquals(n, n3) ;
     }
 }
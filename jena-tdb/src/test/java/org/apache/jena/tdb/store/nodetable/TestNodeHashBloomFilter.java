@@ -0,0 +1,158 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.jena.tdb.store.nodetable;
+
+import java.io.File ;
+
+import org.apache.jena.atlas.junit.BaseTest ;
+import org.apache.jena.graph.Node ;
+import org.apache.jena.graph.NodeFactory ;
+import org.apache.jena.tdb.ConfigTest ;
+import org.apache.jena.tdb.base.file.Location ;
+import org.apache.jena.tdb.lib.NodeLib ;
+import org.apache.jena.tdb.setup.Build ;
+import org.apache.jena.tdb.setup.StoreParams ;
+import org.apache.jena.tdb.store.Hash ;
+import org.apache.jena.tdb.store.NodeId ;
+import org.apache.jena.tdb.sys.Names ;
+import org.apache.jena.tdb.sys.SystemTDB ;
+import org.junit.Test ;
+
+public class TestNodeHashBloomFilter extends BaseTest
+{
+    private static byte[] hash(String uri)
+    {
+        Hash h = new Hash(SystemTDB.LenNodeHash) ;
+        NodeLib.setHash(h, NodeFactory.createURI(uri)) ;
+        return h.getBytes() ;
+    }
+    
+    @Test public void filter_01()
+    {
+        NodeHashBloomFilter filter = NodeHashBloomFilter.create(1000, 10) ;
+        for ( int i = 0 ; i < 1000 ; i++ )
+            filter.add(hash("http://example/a"+i)) ;
+        assertEquals(1000, filter.count()) ;
+        assertEquals(1, filter.segments()) ;
+        for ( int i = 0 ; i < 1000 ; i++ )
+            assertTrue(filter.mightContain(hash("http://example/a"+i))) ;
+        // About 1% false positives.
+        int falsePositives = 0 ;
+        for ( int i = 0 ; i < 10000 ; i++ )
+        {
+            if ( filter.mightContain(hash("http://example/b"+i)) )
+                falsePositives++ ;
+        }
+        assertTrue("False positives: "+falsePositives, falsePositives < 500) ;
+    }
+
+    @Test public void filter_03()
+    {
+        // Grows by adding segments.
+        NodeHashBloomFilter filter = NodeHashBloomFilter.create(1000, 10) ;
+        for ( int i = 0 ; i < 20000 ; i++ )
+            filter.add(hash("http://example/a"+i)) ;
+        assertEquals(20000, filter.count()) ;
+        assertTrue(filter.segments() > 1) ;
+        assertTrue(filter.capacity() >= 20000) ;
+        for ( int i = 0 ; i < 20000 ; i++ )
+            assertTrue(filter.mightContain(hash("http://example/a"+i))) ;
+        int falsePositives = 0 ;
+        for ( int i = 0 ; i < 10000 ; i++ )
+        {
+            if ( filter.mightContain(hash("http://example/b"+i)) )
+                falsePositives++ ;
+        }
+        assertTrue("False positives: "+falsePositives, falsePositives < 500) ;
+    }
+
+    @Test public void filter_02()
+    {
+        String filename = ConfigTest.getTestingDir()+"/filter.bloom" ;
+        NodeHashBloomFilter filter = NodeHashBloomFilter.create(100, 10) ;
+        for ( int i = 0 ; i < 100 ; i++ )
+            filter.add(hash("http://example/a"+i)) ;
+        filter.write(filename, 1234) ;
+        NodeHashBloomFilter filter2 = NodeHashBloomFilter.read(filename, 1234) ;
+        assertNotNull(filter2) ;
+        assertFalse(new File(filename).exists()) ;
+        assertEquals(100, filter2.count()) ;
+        assertEquals(1, filter2.segments()) ;
+        for ( int i = 0 ; i < 100 ; i++ )
+            assertTrue(filter2.mightContain(hash("http://example/a"+i))) ;
+        
+        // Out of date.
+        filter.write(filename, 1234) ;
+        assertEquals(100, NodeHashBloomFilter.readCount(filename)) ;
+        assertNull(NodeHashBloomFilter.read(filename, 5678)) ;
+        assertFalse(new File(filename).exists()) ;
+    }
+    
+    private static StoreParams params = StoreParams.builder().nodeFilterBits(10).build() ;
+
+    @Test public void filter_nodetable_01()
+    {
+        // Grows beyond the initial size.
+        NodeTable nt = Build.makeNodeTable(Location.mem(), params) ;
+        int N = 5000 ;
+        NodeId[] ids = new NodeId[N] ;
+        for ( int i = 0 ; i < N ; i++ )
+            ids[i] = nt.getAllocateNodeId(NodeFactory.createURI("http://example/a"+i)) ;
+        for ( int i = 0 ; i < N ; i++ )
+            assertEquals(ids[i], nt.getNodeIdForNode(NodeFactory.createURI("http://example/a"+i))) ;
+        assertEquals(NodeId.NodeDoesNotExist, nt.getNodeIdForNode(NodeFactory.createURI("http://example/b"))) ;
+    }
+
+    @Test public void filter_nodetable_02()
+    {
+        // Persisted when closed, and used when reopened.
+        Location loc = Location.create(ConfigTest.getCleanDir()) ;
+        String filename = loc.getPath(Names.indexNode2Id, Names.extNodeFilter) ;
+        Node n1 = NodeFactory.createURI("http://example/n1") ;
+        Node n2 = NodeFactory.createURI("http://example/n2") ;
+        NodeTable nt = Build.makeNodeTable(loc, params) ;
+        NodeId id1 = nt.getAllocateNodeId(n1) ;
+        nt.sync() ;
+        nt.close() ;
+        assertTrue(new File(filename).exists()) ;
+
+        nt = Build.makeNodeTable(loc, params) ;
+        assertFalse(new File(filename).exists()) ;
+        assertEquals(id1, nt.getNodeIdForNode(n1)) ;
+        assertEquals(NodeId.NodeDoesNotExist, nt.getNodeIdForNode(n2)) ;
+        NodeId id2 = nt.getAllocateNodeId(n2) ;
+        assertEquals(id2, nt.getNodeIdForNode(n2)) ;
+        nt.close() ;
+        
+        // No filter file : rebuilt from the index.
+        new File(filename).delete() ;
+        nt = Build.makeNodeTable(loc, params) ;
+        assertEquals(id1, nt.getNodeIdForNode(n1)) ;
+        assertEquals(id2, nt.getNodeIdForNode(n2)) ;
+        nt.close() ;
+        
+        // No filter unless asked for.
+        new File(filename).delete() ;
+        nt = Build.makeNodeTable(loc) ;
+        assertEquals(id1, nt.getNodeIdForNode(n1)) ;
+        nt.close() ;
+        assertFalse(new File(filename).exists()) ;
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jena.tdb.store.nodetable;
+
+import java.util.ArrayList ;
+import java.util.List ;
+import java.util.concurrent.* ;
+
+import org.apache.jena.graph.Node ;
+import org.apache.jena.graph.NodeFactory ;
+import org.apache.jena.tdb.base.file.Location ;
+import org.apache.jena.tdb.setup.Build ;
+import org.apache.jena.tdb.setup.StoreParams ;
+import org.apache.jena.tdb.store.NodeId ;
+import org.junit.Test ;
+
+/** Node table with a lock-striped cache */
+public class TestNodeTableCacheStriped extends AbstractTestNodeTable
+{
+    @Override
+    protected NodeTable createEmptyNodeTable()
+    {
+        StoreParams params = StoreParams.builder()
+            .node2NodeIdCacheSize(10).nodeId2NodeCacheSize(10).nodeMissCacheSize(10)
+            .nodeCacheStripes(8)
+            .build() ;
+        return Build.makeNodeTable(Location.mem(), params) ;
+    }
+
+    @Test public void nodetable_concurrent_01() throws Exception
+    {
+        // Threads allocate the same nodes, in different orders, and must agree on the NodeIds.
+        NodeTable nt = createEmptyNodeTable() ;
+        int N = 200 ;
+        int T = 4 ;
+        ExecutorService executor = Executors.newFixedThreadPool(T) ;
+        try {
+            List<Future<NodeId[]>> results = new ArrayList<>() ;
+            for ( int t = 0 ; t < T ; t++ ) {
+                final int start = t*17 ;
+                results.add(executor.submit(() -> {
+                    NodeId[] ids = new NodeId[N] ;
+                    for ( int i = 0 ; i < N ; i++ ) {
+                        int j = (start+i)%N ;
+                        // Misses first, then allocate.
+                        nt.getNodeIdForNode(node(j)) ;
+                        ids[j] = nt.getAllocateNodeId(node(j)) ;
+                    }
+                    return ids ;
+                })) ;
+            }
+            NodeId[] ids = results.get(0).get() ;
+            for ( Future<NodeId[]> f : results )
+                assertArrayEquals(ids, f.get()) ;
+            for ( int i = 0 ; i < N ; i++ ) {
+                assertEquals(ids[i], nt.getNodeIdForNode(node(i))) ;
+                assertEquals(node(i), nt.getNodeForNodeId(ids[i])) ;
+            }
+        } finally { executor.shutdownNow() ; }
+    }
+
+    @Test public void nodetable_concurrent_02() throws Exception
+    {
+        // Lookups miss the small caches and read the base table concurrently,
+        // while another thread allocates new nodes.
+        NodeTable nt = createEmptyNodeTable() ;
+        int N = 500 ;
+        int T = 4 ;
+        NodeId[] ids = new NodeId[N] ;
+        for ( int i = 0 ; i < N ; i++ )
+            ids[i] = nt.getAllocateNodeId(node(i)) ;
+        ExecutorService executor = Executors.newFixedThreadPool(T+1) ;
+        try {
+            List<Future<?>> results = new ArrayList<>() ;
+            results.add(executor.submit(() -> {
+                for ( int i = N ; i < 2*N ; i++ )
+                    nt.getAllocateNodeId(node(i)) ;
+            })) ;
+            for ( int t = 0 ; t < T ; t++ ) {
+                final int start = t*31 ;
+                results.add(executor.submit(() -> {
+                    for ( int x = 0 ; x < 5*N ; x++ ) {
+                        int i = (start+7*x)%N ;
+                        assertEquals(node(i), nt.getNodeForNodeId(ids[i])) ;
+                        assertEquals(ids[i], nt.getNodeIdForNode(node(i))) ;
+                    }
+                })) ;
+            }
+            for ( Future<?> f : results )
+                f.get() ;
+            for ( int i = N ; i < 2*N ; i++ )
+                assertEquals(node(i), nt.getNodeForNodeId(nt.getNodeIdForNode(node(i)))) ;
+        } finally { executor.shutdownNow() ; }
+    }
+
+    private static Node node(int i) { return NodeFactory.createURI("http://example/n"+i) ; }
+}
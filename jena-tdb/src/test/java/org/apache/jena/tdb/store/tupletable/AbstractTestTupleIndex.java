@@ -18,13 +18,16 @@
 
 package org.apache.jena.tdb.store.tupletable;
 
+import java.util.ArrayList ;
 import java.util.Iterator ;
+import java.util.List ;
 import java.util.Set ;
 
 import org.apache.jena.atlas.iterator.Iter ;
 import org.apache.jena.atlas.junit.BaseTest ;
 import org.apache.jena.atlas.lib.tuple.Tuple ;
 import org.apache.jena.atlas.lib.tuple.TupleFactory ;
+import org.apache.jena.tdb.TDBException ;
 import org.apache.jena.tdb.store.NodeId ;
 import org.apache.jena.tdb.store.tupletable.TupleIndex ;
 import org.junit.Test ;
@@ -267,4 +270,144 @@ public abstract class AbstractTestTupleIndex extends BaseTest
    }
 
     
+    // ---- Batch scans : findScan must give the same tuples as find.
+
+    @Test public void TupleIndexScan_1()    { testScan("SPO", n1, n2, n3) ; }
+
+    @Test public void TupleIndexScan_2()    { testScan("SPO", n1, null, null) ; }
+
+    @Test public void TupleIndexScan_3()    { testScan("SPO", n1, n2, null) ; }
+
+    @Test public void TupleIndexScan_4()    { testScan("SPO", n1, null, n3) ; }
+
+    @Test public void TupleIndexScan_5()    { testScan("SPO", null, null, null) ; }
+
+    @Test public void TupleIndexScan_6()    { testScan("SPO", null, n2, null) ; }
+
+    @Test public void TupleIndexScan_7()    { testScan("POS", null, n2, null) ; }
+
+    @Test public void TupleIndexScan_8()    { testScan("POS", null, n2, n3) ; }
+
+    @Test public void TupleIndexScan_9()    { testScan("POS", n1, null, n3) ; }
+
+    @Test public void TupleIndexScan_10()   { testScan("OSP", n4, null, new NodeId(n6.getId()+1)) ; }
+
+    @Test public void TupleIndexScan_11()
+    {
+        TupleIndex index = createIndex("SPO") ;
+        TupleScan scan = index.findScan(TupleFactory.tuple(n1, null, null)) ;
+        long[][] columns = new long[3][10] ;
+        assertEquals(0, scan.next(columns, 10)) ;
+        assertEquals(0, scan.next(columns, 10)) ;
+        scan.close() ;
+    }
+
+    // ---- Distinct : findDistinct must give the first tuple of each group of find.
+
+    @Test public void TupleIndexDistinct_1()    { testDistinct("SPO", null, null, null) ; }
+
+    @Test public void TupleIndexDistinct_2()    { testDistinct("SPO", n2, null, null) ; }
+
+    @Test public void TupleIndexDistinct_3()    { testDistinct("SPO", n4, n5, null) ; }
+
+    @Test public void TupleIndexDistinct_4()    { testDistinct("POS", null, n1, null) ; }
+
+    @Test public void TupleIndexDistinct_5()    { testDistinct("SPO", n1, n2, n3) ; }
+
+    @Test public void TupleIndexDistinct_6()
+    {
+        // Skip from every duplicate.
+        int x = TupleIndexRecord.SkipScanThreshold ;
+        try {
+            TupleIndexRecord.SkipScanThreshold = 1 ;
+            testDistinct("SPO", null, null, null) ;
+            testDistinct("OSP", null, null, n3) ;
+        } finally { TupleIndexRecord.SkipScanThreshold = x ; }
+    }
+
+    @Test public void TupleIndexDistinct_7()
+    {
+        // Skipping carries into the higher bytes of the key.
+        TupleIndex index = createIndex("SPO") ;
+        NodeId[] values = { new NodeId(0xFF), new NodeId(0x100), new NodeId(0xFFFF), new NodeId(-1L) } ;
+        for ( NodeId s : values )
+            for ( NodeId p : values )
+                for ( int i = 0 ; i < 20 ; i++ )
+                    add(index, s, p, new NodeId(i)) ;
+        List<Tuple<NodeId>> x = Iter.toList(index.findDistinct(TupleFactory.tuple((NodeId)null, null, null))) ;
+        assertEquals(values.length*values.length, x.size()) ;
+        for ( Tuple<NodeId> t : x )
+            assertEquals(0, t.get(2).getId()) ;
+    }
+
+    @Test(expected=TDBException.class)
+    public void TupleIndexDistinct_8()
+    {
+        TupleIndex index = createIndex("SPO") ;
+        index.findDistinct(TupleFactory.tuple(null, n2, null)) ;
+    }
+
+    private void testDistinct(String description, NodeId x1, NodeId x2, NodeId x3)
+    {
+        TupleIndex index = createIndex(description) ;
+        NodeId[] values = { n1, n2, n3, n4, n5 } ;
+        for ( NodeId s : values )
+            for ( NodeId p : values )
+                for ( int i = 0 ; i < (s.getId()+p.getId())%7 ; i++ )
+                    add(index, s, p, new NodeId(i%2 == 0 ? n3.getId() + i : n6.getId() + i)) ;
+        Tuple<NodeId> pattern = TupleFactory.tuple(x1, x2, x3) ;
+        // Last slot of the index.
+        int slot = index.getColumnMap().fetchSlotIdx(2) ;
+        List<Tuple<NodeId>> expected = new ArrayList<>() ;
+        Tuple<NodeId> last = null ;
+        for ( Iterator<Tuple<NodeId>> iter = index.find(pattern) ; iter.hasNext() ; )
+        {
+            Tuple<NodeId> t = iter.next() ;
+            if ( last == null || ! sameExcept(t, last, slot) )
+                expected.add(t) ;
+            last = t ;
+        }
+        List<Tuple<NodeId>> actual = Iter.toList(index.findDistinct(pattern)) ;
+        assertEquals(expected, actual) ;
+    }
+
+    private static boolean sameExcept(Tuple<NodeId> t1, Tuple<NodeId> t2, int slot)
+    {
+        for ( int i = 0 ; i < t1.len() ; i++ )
+        {
+            if ( i != slot && ! t1.get(i).equals(t2.get(i)) )
+                return false ;
+        }
+        return true ;
+    }
+
+    // Enough tuples for several blocks.
+    private void testScan(String description, NodeId x1, NodeId x2, NodeId x3)
+    {
+        TupleIndex index = createIndex(description) ;
+        NodeId[] values = { n1, n2, n3, n4, n5 } ;
+        for ( NodeId s : values )
+            for ( NodeId p : values )
+                for ( int i = 0 ; i < 100 ; i++ )
+                    add(index, s, p, new NodeId(i%2 == 0 ? n3.getId() + i : n6.getId() + i)) ;
+        Tuple<NodeId> pattern = TupleFactory.tuple(x1, x2, x3) ;
+        List<Tuple<NodeId>> expected = Iter.toList(index.find(pattern)) ;
+        List<Tuple<NodeId>> actual = new ArrayList<>() ;
+        int batchSize = 7 ;
+        long[][] columns = new long[3][batchSize] ;
+        TupleScan scan = index.findScan(pattern) ;
+        for ( int n ; (n = scan.next(columns, batchSize)) > 0 ; )
+        {
+            assertTrue(n <= batchSize) ;
+            for ( int j = 0 ; j < n ; j++ )
+                actual.add(TupleFactory.tuple(new NodeId(columns[0][j]), new NodeId(columns[1][j]), new NodeId(columns[2][j]))) ;
+        }
+        scan.close() ;
+        if ( expected.size() == 1 && x1 != null && x2 != null && x3 != null )
+            // Existence test.
+            assertEquals(pattern, actual.get(0)) ;
+        else
+            // Same order as the tuple iterator.
+            assertEquals(expected, actual) ;
+    }
 }
@@ -154,4 +154,63 @@ public class TestTupleTable extends BaseTest
         assertEquals(TupleFactory.tuple(n1, n2, n3) , e1) ;
     }
 
+    @Test public void sortedIndex1()
+    {
+        TupleTable table = create() ;
+        // P bound, sorted by O : POS
+        TupleIndex idx = table.sortedIndex(TupleFactory.tuple(null, n2, null), 2) ;
+        assertNotNull(idx) ;
+        assertEquals("POS", idx.getName()) ;
+        // P bound, sorted by S : needs PSO
+        assertNull(table.sortedIndex(TupleFactory.tuple(null, n2, null), 0)) ;
+        // Nothing bound, sorted by O : OSP
+        idx = table.sortedIndex(TupleFactory.tuple((NodeId)null, null, null), 2) ;
+        assertEquals("OSP", idx.getName()) ;
+        // P and O bound, sorted by S : POS
+        idx = table.sortedIndex(TupleFactory.tuple(null, n2, n3), 0) ;
+        assertEquals("POS", idx.getName()) ;
+    }
+    
+    @Test public void findSorted1()
+    { 
+        TupleTable table = create() ;
+        add(table, n1, n2, n6) ;
+        add(table, n3, n2, n4) ;
+        add(table, n2, n2, n5) ;
+        add(table, n1, n3, n1) ;
+
+        Iterator<Tuple<NodeId>> iter = table.findSorted(TupleFactory.tuple(null, n2, null), 2) ;
+        List<Tuple<NodeId>> x = Iter.toList(iter) ;
+        assertEquals(3, x.size()) ;
+        assertEquals(TupleFactory.tuple(n3, n2, n4) , x.get(0)) ;
+        assertEquals(TupleFactory.tuple(n2, n2, n5) , x.get(1)) ;
+        assertEquals(TupleFactory.tuple(n1, n2, n6) , x.get(2)) ;
+        
+        assertNull(table.findSorted(TupleFactory.tuple(null, n2, null), 0)) ;
+    }
+
+    @Test public void findDistinct1()
+    { 
+        TupleTable table = create() ;
+        add(table, n1, n2, n6) ;
+        add(table, n1, n2, n5) ;
+        add(table, n3, n2, n4) ;
+        add(table, n1, n3, n1) ;
+
+        // Distinct subject and predicate : SPO
+        Iterator<Tuple<NodeId>> iter = table.findDistinct(TupleFactory.tuple((NodeId)null, null, null), 2) ;
+        List<Tuple<NodeId>> x = Iter.toList(iter) ;
+        assertEquals(3, x.size()) ;
+        assertEquals(TupleFactory.tuple(n1, n2, n5) , x.get(0)) ;
+        assertEquals(TupleFactory.tuple(n1, n3, n1) , x.get(1)) ;
+        assertEquals(TupleFactory.tuple(n3, n2, n4) , x.get(2)) ;
+
+        // P bound, ignoring the subject : POS
+        iter = table.findDistinct(TupleFactory.tuple(null, n2, null), 0) ;
+        assertEquals(3, Iter.count(iter)) ;
+        
+        // P bound, ignoring the object : needs an index P?O
+        assertNull(table.findDistinct(TupleFactory.tuple(null, n2, null), 2)) ;
+    }
+
 }
@@ -26,6 +26,8 @@ import org.junit.runners.Suite;
 @RunWith(Suite.class)
 @Suite.SuiteClasses( {
     TestSys.class
+    , TestBlockBackup.class
+    , TestCompaction.class
 })
 
 public class TS_Sys
@@ -0,0 +1,210 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.jena.tdb.sys;
+
+import static org.junit.Assert.assertEquals ;
+import static org.junit.Assert.assertFalse ;
+import static org.junit.Assert.assertNull ;
+import static org.junit.Assert.assertTrue ;
+
+import java.io.File ;
+
+import org.apache.jena.atlas.iterator.Iter ;
+import org.apache.jena.atlas.lib.FileOps ;
+import org.apache.jena.graph.Node ;
+import org.apache.jena.graph.NodeFactory ;
+import org.apache.jena.query.ReadWrite ;
+import org.apache.jena.sparql.core.Quad ;
+import org.apache.jena.sparql.sse.SSE ;
+import org.apache.jena.tdb.ConfigTest ;
+import org.apache.jena.tdb.StoreConnection ;
+import org.apache.jena.tdb.TDBBackup ;
+import org.apache.jena.tdb.TDBException ;
+import org.apache.jena.tdb.base.file.Location ;
+import org.apache.jena.tdb.transaction.DatasetGraphTxn ;
+import org.apache.jena.tdb.transaction.TransactionManager ;
+import org.junit.After ;
+import org.junit.Before ;
+import org.junit.Test ;
+
+public class TestBlockBackup
+{
+    private static Node g = SSE.parseNode(":g") ;
+    private static Node s = SSE.parseNode(":s") ;
+    private static Node p = SSE.parseNode(":p") ;
+
+    private Location location ;
+    private String backup1 ;
+    private String backup2 ;
+    private Location restore ;
+    
+    @Before public void before() {
+        location = Location.create(ConfigTest.getCleanDir()) ;
+        StoreConnection.release(location) ;
+        backup1 = dir("Backup-1") ;
+        backup2 = dir("Backup-2") ;
+        restore = Location.create(dir("Restore")) ;
+    }
+    
+    @After public void after() {
+        StoreConnection.release(location) ;
+        StoreConnection.release(restore) ;
+        FileOps.clearDirectory(location.getDirectoryPath()) ;
+        delete(backup1) ;
+        delete(backup2) ;
+        delete(restore.getDirectoryPath()) ;
+    }
+    
+    private static String dir(String name) {
+        String dn = ConfigTest.getTestingDir()+"/"+name ;
+        delete(dn) ;
+        return dn ;
+    }
+    
+    private static void delete(String dn) {
+        if ( FileOps.exists(dn) ) {
+            FileOps.clearAll(dn) ;
+            FileOps.deleteSilent(dn) ;
+        }
+    }
+
+    private static void add(StoreConnection sConn, int start, int finish) {
+        DatasetGraphTxn dsg = sConn.begin(ReadWrite.WRITE) ;
+        for ( int i = start ; i < finish ; i++ )
+            dsg.add(Quad.create(g, s, p, NodeFactory.createLiteral("v"+i))) ;
+        dsg.commit() ;
+        dsg.end() ;
+    }
+    
+    private static long count(StoreConnection sConn) {
+        DatasetGraphTxn dsg = sConn.begin(ReadWrite.READ) ;
+        try { return Iter.count(dsg.find(g, null, null, null)) ; }
+        finally { dsg.end() ; }
+    }
+    
+    @Test public void backup_full_01() {
+        StoreConnection sConn = StoreConnection.make(location) ;
+        add(sConn, 0, 100) ;
+        BlockBackup.Manifest manifest = TDBBackup.backupFiles(location, backup1) ;
+        assertFalse(manifest.isIncremental()) ;
+        assertTrue(manifest.getFiles().contains("GSPO.dat")) ;
+        assertFalse(manifest.getFiles().contains(Names.journalFile)) ;
+        // Changes after the backup are not restored.
+        add(sConn, 100, 110) ;
+        TDBBackup.restoreFiles(restore, backup1) ;
+        assertEquals(100, count(StoreConnection.make(restore))) ;
+    }
+    
+    @Test public void backup_incremental_01() {
+        StoreConnection sConn = StoreConnection.make(location) ;
+        add(sConn, 0, 100) ;
+        BlockBackup.Manifest manifest1 = TDBBackup.backupFiles(location, backup1) ;
+        add(sConn, 100, 150) ;
+        BlockBackup.Manifest manifest2 = TDBBackup.backupFiles(location, backup2, backup1) ;
+        assertEquals(manifest1.id, manifest2.previous) ;
+        // Only changed blocks: the incremental backup is smaller.
+        assertTrue(size(backup2) < size(backup1)) ;
+        assertTrue(new File(backup2, "GSPO.dat."+BlockBackup.extBlocks).exists()) ;
+        assertFalse(new File(backup2, "GSPO.dat").exists()) ;
+        TDBBackup.restoreFiles(restore, backup1, backup2) ;
+        assertEquals(150, count(StoreConnection.make(restore))) ;
+    }
+    
+    @Test(expected=TDBException.class)
+    public void backup_incremental_02() {
+        StoreConnection sConn = StoreConnection.make(location) ;
+        add(sConn, 0, 10) ;
+        TDBBackup.backupFiles(location, backup1) ;
+        add(sConn, 10, 20) ;
+        TDBBackup.backupFiles(location, backup2, backup1) ;
+        // Incremental without the full backup.
+        TDBBackup.restoreFiles(restore, backup2) ;
+    }
+    
+    @Test public void backup_pending_01() {
+        // Commits waiting in the journal are included.
+        int x = TransactionManager.QueueBatchSize ;
+        try {
+            TransactionManager.QueueBatchSize = 100 ;
+            StoreConnection sConn = StoreConnection.make(location) ;
+            add(sConn, 0, 10) ;
+            add(sConn, 10, 20) ;
+            assertTrue(sConn.getTransactionManager().getQueueLength() > 0) ;
+            TDBBackup.backupFiles(location, backup1) ;
+            TDBBackup.restoreFiles(restore, backup1) ;
+            assertEquals(20, count(StoreConnection.make(restore))) ;
+        } finally {
+            TransactionManager.QueueBatchSize = x ;
+        }
+    }
+
+    @Test public void backup_hold_01() {
+        // Writes during a hold go to the journal only.
+        StoreConnection sConn = StoreConnection.make(location) ;
+        add(sConn, 0, 10) ;
+        TransactionManager txnMgr = sConn.getTransactionManager() ;
+        txnMgr.holdReplay() ;
+        try {
+            add(sConn, 10, 20) ;
+            assertEquals(1, txnMgr.getQueueLength()) ;
+            assertEquals(20, count(sConn)) ;
+        } finally { txnMgr.releaseReplay() ; }
+        assertEquals(0, txnMgr.getQueueLength()) ;
+        assertEquals(20, count(sConn)) ;
+    }
+    
+    @Test public void backup_concurrent_01() throws Exception {
+        // Writers run alongside the backup: each write transaction adds new nodes.
+        StoreConnection sConn = StoreConnection.make(location) ;
+        add(sConn, 0, 10) ;
+        Thread writer = new Thread(() -> {
+            for ( int i = 1 ; i < 20 ; i++ )
+                add(sConn, 10*i, 10*(i+1)) ;
+        }) ;
+        writer.start() ;
+        TDBBackup.backupFiles(location, backup1) ;
+        writer.join() ;
+        TDBBackup.restoreFiles(restore, backup1) ;
+        StoreConnection sConn2 = StoreConnection.make(restore) ;
+        long x = count(sConn2) ;
+        assertEquals(0, x%10) ;
+        assertTrue(x >= 10) ;
+        // The node table of the restored database can still allocate.
+        add(sConn2, 1000, 1010) ;
+        assertEquals(x+10, count(sConn2)) ;
+    }
+    
+    @Test public void backup_manifest_01() {
+        StoreConnection sConn = StoreConnection.make(location) ;
+        add(sConn, 0, 10) ;
+        BlockBackup.Manifest manifest = TDBBackup.backupFiles(location, backup1) ;
+        BlockBackup.Manifest manifest2 = BlockBackup.readManifest(backup1) ;
+        assertEquals(manifest.id, manifest2.id) ;
+        assertNull(manifest2.previous) ;
+        assertEquals(manifest.getFiles(), manifest2.getFiles()) ;
+    }
+    
+    private static long size(String dir) {
+        long x = 0 ;
+        for ( File f : new File(dir).listFiles() )
+            x += f.length() ;
+        return x ;
+    }
+}
@@ -0,0 +1,232 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.jena.tdb.sys;
+
+import static org.junit.Assert.assertEquals ;
+import static org.junit.Assert.assertFalse ;
+import static org.junit.Assert.assertNotSame ;
+import static org.junit.Assert.assertTrue ;
+
+import java.io.File ;
+
+import org.apache.jena.atlas.iterator.Iter ;
+import org.apache.jena.atlas.lib.FileOps ;
+import org.apache.jena.graph.Node ;
+import org.apache.jena.graph.NodeFactory ;
+import org.apache.jena.query.ReadWrite ;
+import org.apache.jena.sparql.core.Quad ;
+import org.apache.jena.sparql.engine.optimizer.reorder.ReorderTransformation ;
+import org.apache.jena.sparql.sse.SSE ;
+import org.apache.jena.tdb.ConfigTest ;
+import org.apache.jena.tdb.StoreConnection ;
+import org.apache.jena.tdb.TDBCompact ;
+import org.apache.jena.tdb.TDBException ;
+import org.apache.jena.tdb.base.block.FileMode ;
+import org.apache.jena.tdb.base.file.Location ;
+import org.apache.jena.tdb.setup.StoreParams ;
+import org.apache.jena.tdb.solver.stats.ReorderCharacteristicSets ;
+import org.apache.jena.tdb.transaction.DatasetGraphTxn ;
+import org.junit.After ;
+import org.junit.Before ;
+import org.junit.Test ;
+
+public class TestCompaction
+{
+    private static Node g = SSE.parseNode(":g") ;
+    private static Node s = SSE.parseNode(":s") ;
+    private static Node p = SSE.parseNode(":p") ;
+
+    private Location location ;
+    
+    @Before public void before() {
+        location = Location.create(ConfigTest.getCleanDir()) ;
+        StoreConnection.release(location) ;
+    }
+    
+    @After public void after() {
+        StoreConnection.release(location) ;
+        FileOps.clearAll(location.getDirectoryPath()) ;
+    }
+    
+    private static Quad quad(int i) {
+        // Not inline: in the node table.
+        return Quad.create(i%2 == 0 ? g : Quad.defaultGraphIRI, s, p, NodeFactory.createLiteral("value "+i)) ;
+    }
+    
+    private static void add(StoreConnection sConn, int start, int finish) {
+        DatasetGraphTxn dsg = sConn.begin(ReadWrite.WRITE) ;
+        for ( int i = start ; i < finish ; i++ )
+            dsg.add(quad(i)) ;
+        dsg.commit() ;
+        dsg.end() ;
+    }
+    
+    private static void delete(StoreConnection sConn, int start, int finish) {
+        DatasetGraphTxn dsg = sConn.begin(ReadWrite.WRITE) ;
+        for ( int i = start ; i < finish ; i++ )
+            dsg.delete(quad(i)) ;
+        dsg.commit() ;
+        dsg.end() ;
+    }
+    
+    private static long count(StoreConnection sConn) {
+        DatasetGraphTxn dsg = sConn.begin(ReadWrite.READ) ;
+        try { return Iter.count(dsg.find()) ; }
+        finally { dsg.end() ; }
+    }
+    
+    private static boolean contains(StoreConnection sConn, int i) {
+        DatasetGraphTxn dsg = sConn.begin(ReadWrite.READ) ;
+        try { return dsg.contains(quad(i)) ; }
+        finally { dsg.end() ; }
+    }
+    
+    private long fileSize(String fn) {
+        return new File(location.getPath(fn)).length() ;
+    }
+    
+    // Many deletes, leaving unused nodes and partly empty blocks.
+    private StoreConnection churn() {
+        return churn(null) ;
+    }
+    
+    private StoreConnection churn(StoreParams params) {
+        StoreConnection sConn = StoreConnection.make(location, params) ;
+        add(sConn, 0, 5000) ;
+        delete(sConn, 100, 5000) ;
+        DatasetGraphTxn dsg = sConn.begin(ReadWrite.WRITE) ;
+        dsg.getView().getPrefixes().insertPrefix("", "ex", "http://example/") ;
+        dsg.commit() ;
+        dsg.end() ;
+        return sConn ;
+    }
+    
+    private static void check(StoreConnection sConn) {
+        assertEquals(100, count(sConn)) ;
+        assertTrue(contains(sConn, 0)) ;
+        assertTrue(contains(sConn, 99)) ;
+        assertFalse(contains(sConn, 100)) ;
+        DatasetGraphTxn dsg = sConn.begin(ReadWrite.READ) ;
+        try { assertEquals("http://example/", dsg.getView().getPrefixes().readPrefix("", "ex")) ; }
+        finally { dsg.end() ; }
+    }
+
+    @Test public void compact_01() {
+        StoreConnection sConn = churn() ;
+        sConn.flush() ;
+        long nodesBefore = fileSize("nodes.dat") ;
+        Compaction.Report report = TDBCompact.compact(location) ;
+        assertEquals(50, report.triples) ;
+        assertEquals(50, report.quads) ;
+        assertTrue(report.sizeAfter < report.sizeBefore) ;
+        assertTrue(fileSize("nodes.dat") < nodesBefore) ;
+        assertFalse(location.exists(Compaction.buildDir)) ;
+        assertFalse(location.exists(Compaction.commitDir)) ;
+        // The same StoreConnection continues to work.
+        check(sConn) ;
+        add(sConn, 5000, 5010) ;
+        assertEquals(110, count(sConn)) ;
+        // And after reopening.
+        StoreConnection.release(location) ;
+        sConn = StoreConnection.make(location) ;
+        assertEquals(110, count(sConn)) ;
+        assertTrue(contains(sConn, 5009)) ;
+    }
+    
+    @Test public void compact_02() {
+        // Exclusive mode build. Direct mode files are the size of the blocks in use.
+        int x = TDBCompact.Attempts ;
+        try {
+            TDBCompact.Attempts = 1 ;
+            StoreConnection sConn = churn(StoreParams.builder().fileMode(FileMode.direct).build()) ;
+            sConn.flush() ;
+            long indexBefore = fileSize("SPOG.dat") ;
+            TDBCompact.compact(location) ;
+            assertTrue(fileSize("SPOG.dat") < indexBefore) ;
+            assertEquals(FileMode.direct, sConn.getBaseDataset().getConfig().params.getFileMode()) ;
+            check(sConn) ;
+        } finally { TDBCompact.Attempts = x ; }
+    }
+    
+    @Test public void compact_reorder_01() {
+        // The reorder transform over the live statistics is kept, for the new database.
+        StoreConnection sConn = churn() ;
+        ReorderTransformation reorder = new ReorderCharacteristicSets(sConn.getTransactionManager().startLiveStats()) ;
+        sConn.getBaseDataset().setReorderTransform(reorder) ;
+        TDBCompact.compact(location) ;
+        ReorderTransformation reorder2 = sConn.getBaseDataset().getReorderTransform() ;
+        assertTrue(reorder2 instanceof ReorderCharacteristicSets) ;
+        assertNotSame(reorder, reorder2) ;
+        check(sConn) ;
+    }
+    
+    @Test public void compact_concurrent_01() throws Exception {
+        // Commits during the compaction are not lost.
+        StoreConnection sConn = churn() ;
+        Thread writer = new Thread(()->{
+            for ( int i = 0 ; i < 50 ; i++ )
+                add(sConn, 10000+i, 10000+i+1) ;
+        }) ;
+        writer.start() ;
+        TDBCompact.compact(location) ;
+        writer.join() ;
+        assertEquals(150, count(sConn)) ;
+        StoreConnection.release(location) ;
+        assertEquals(150, count(StoreConnection.make(location))) ;
+    }
+    
+    @Test public void compact_recover_01() {
+        // Interrupted after the commit point : completed when next opened.
+        StoreConnection sConn = churn() ;
+        sConn.getTransactionManager().startExclusiveMode() ;
+        try {
+            Compaction.build(sConn.getBaseDataset(), null) ;
+            Compaction.commit(location) ;
+        } finally { sConn.getTransactionManager().finishExclusiveMode() ; }
+        long nodesBefore = fileSize("nodes.dat") ;
+        StoreConnection.release(location) ;
+        assertTrue(location.exists(Compaction.commitDir)) ;
+        sConn = StoreConnection.make(location) ;
+        assertFalse(location.exists(Compaction.commitDir)) ;
+        assertTrue(fileSize("nodes.dat") < nodesBefore) ;
+        check(sConn) ;
+    }
+    
+    @Test public void compact_recover_02() {
+        // Interrupted before the commit point : discarded when next opened.
+        StoreConnection sConn = churn() ;
+        sConn.getTransactionManager().startExclusiveMode() ;
+        try {
+            Compaction.build(sConn.getBaseDataset(), null) ;
+        } finally { sConn.getTransactionManager().finishExclusiveMode() ; }
+        long nodesBefore = fileSize("nodes.dat") ;
+        StoreConnection.release(location) ;
+        assertTrue(location.exists(Compaction.buildDir)) ;
+        sConn = StoreConnection.make(location) ;
+        assertFalse(location.exists(Compaction.buildDir)) ;
+        assertEquals(nodesBefore, fileSize("nodes.dat")) ;
+        check(sConn) ;
+    }
+
+    @Test(expected=TDBException.class)
+    public void compact_mem_01() {
+        TDBCompact.compact(Location.mem()) ;
+    }
+}
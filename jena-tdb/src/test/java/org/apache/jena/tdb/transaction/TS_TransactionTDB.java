@@ -44,6 +44,10 @@ import org.junit.runners.Suite ;
     , TestTransPromoteTDB.class
     , TestTransControl.class
     , TestTransIsolation.class
+    , TestTransDurability.class
+    , TestTransBackgroundReplay.class
+    , TestTransConcurrentWriters.class
+    , TestTransSnapshot.class
 })
 public class TS_TransactionTDB
 {
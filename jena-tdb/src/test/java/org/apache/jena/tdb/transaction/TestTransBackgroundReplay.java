@@ -0,0 +1,162 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.jena.tdb.transaction ;
+
+import static org.junit.Assert.assertEquals ;
+import static org.junit.Assert.assertTrue ;
+
+import org.apache.jena.atlas.lib.FileOps ;
+import org.apache.jena.graph.Node ;
+import org.apache.jena.graph.NodeFactory ;
+import org.apache.jena.query.ReadWrite ;
+import org.apache.jena.sparql.core.Quad ;
+import org.apache.jena.sparql.sse.SSE ;
+import org.apache.jena.tdb.ConfigTest ;
+import org.apache.jena.tdb.StoreConnection ;
+import org.apache.jena.tdb.base.file.Location ;
+import org.junit.After ;
+import org.junit.AfterClass ;
+import org.junit.Before ;
+import org.junit.BeforeClass ;
+import org.junit.Test ;
+
+/** Tests for replaying the journal in the background while readers are active */ 
+public class TestTransBackgroundReplay {
+    private static Node s = SSE.parseNode(":s") ;
+    private static Node p = SSE.parseNode(":p") ;
+    
+    private static boolean x_BackgroundReplay ;
+    private static int x_QueueBatchSize ;
+    
+    private String path = null ;
+    private Location location = null ;
+    
+    @BeforeClass static public void beforeClass() {
+        x_BackgroundReplay = TransactionManager.BackgroundReplay ;
+        x_QueueBatchSize = TransactionManager.QueueBatchSize ;
+    }
+    
+    @AfterClass static public void afterClass() {
+        TransactionManager.BackgroundReplay = x_BackgroundReplay ;
+        TransactionManager.QueueBatchSize = x_QueueBatchSize ;
+    }
+    
+    @Before public void before() {
+        TransactionManager.BackgroundReplay = true ;
+        TransactionManager.QueueBatchSize = 1 ;
+        path = ConfigTest.getCleanDir() ;
+        location = Location.create(path) ;
+        StoreConnection.release(location) ;
+        FileOps.clearDirectory(path) ;
+    }
+    
+    @After public void after() {
+        StoreConnection.release(location) ;
+        StoreConnection.release(Location.mem()) ;
+        if ( FileOps.exists(path) )
+            FileOps.clearDirectory(path) ;
+    }
+
+    private static Quad quad(int i) {
+        return Quad.create(Quad.defaultGraphIRI, s, p, NodeFactory.createLiteral("v"+i)) ;
+    }
+    
+    private static void write(StoreConnection sc, int start, int finish) {
+        for ( int i = start ; i < finish ; i++ ) {
+            DatasetGraphTxn dsg = sc.begin(ReadWrite.WRITE) ;
+            dsg.add(quad(i)) ;
+            dsg.commit() ;
+            dsg.end() ;
+        }
+    }
+    
+    private static long count(DatasetGraphTxn dsg) {
+        return dsg.getDefaultGraph().size() ;
+    }
+    
+    private static long count(StoreConnection sc) {
+        DatasetGraphTxn dsg = sc.begin(ReadWrite.READ) ;
+        try { return count(dsg) ; }
+        finally { dsg.end() ; }
+    }
+    
+    private static void awaitReplay(TransactionManager tMgr) throws InterruptedException {
+        for ( int i = 0 ; i < 500 && tMgr.getQueueLength() > 0 ; i++ )
+            Thread.sleep(10) ;
+        assertEquals("Background replay did not happen", 0, tMgr.getQueueLength()) ;
+    }
+    
+    @Test public void background_replay_01() throws InterruptedException {
+        StoreConnection sc = StoreConnection.make(location) ;
+        TransactionManager tMgr = sc.getTransactionManager() ;
+        assertTrue(tMgr.isBackgroundReplay()) ;
+        DatasetGraphTxn reader = sc.begin(ReadWrite.READ) ;
+        assertEquals(0, count(reader)) ;
+        write(sc, 0, 5) ;
+        awaitReplay(tMgr) ;
+        // The reader is still active and keeps its view.
+        assertEquals(0, count(reader)) ;
+        assertEquals(5, count(sc)) ;
+        reader.end() ;
+        assertEquals(0, tMgr.getBlockVersionCount()) ;
+    }
+    
+    @Test public void background_replay_02() throws InterruptedException {
+        StoreConnection sc = StoreConnection.make(location) ;
+        TransactionManager tMgr = sc.getTransactionManager() ;
+        write(sc, 0, 3) ;
+        DatasetGraphTxn reader1 = sc.begin(ReadWrite.READ) ;
+        write(sc, 3, 4) ;
+        // Reader over a committed transaction that is not yet in the base database.
+        DatasetGraphTxn reader2 = sc.begin(ReadWrite.READ) ;
+        write(sc, 4, 10) ;
+        awaitReplay(tMgr) ;
+        assertTrue(tMgr.getBlockVersionCount() > 0) ;
+        assertEquals(3, count(reader1)) ;
+        assertEquals(4, count(reader2)) ;
+        assertEquals(10, count(sc)) ;
+        reader1.end() ;
+        assertEquals(4, count(reader2)) ;
+        reader2.end() ;
+        assertEquals(0, tMgr.getBlockVersionCount()) ;
+    }
+
+    @Test public void background_replay_03() throws InterruptedException {
+        StoreConnection sc = StoreConnection.make(location) ;
+        DatasetGraphTxn reader = sc.begin(ReadWrite.READ) ;
+        write(sc, 0, 20) ;
+        awaitReplay(sc.getTransactionManager()) ;
+        reader.end() ;
+        StoreConnection.release(location) ;
+        sc = StoreConnection.make(location) ;
+        assertEquals(20, count(sc)) ;
+    }
+    
+    @Test public void background_replay_04() throws InterruptedException {
+        StoreConnection sc = StoreConnection.make(Location.mem()) ;
+        TransactionManager tMgr = sc.getTransactionManager() ;
+        DatasetGraphTxn reader = sc.begin(ReadWrite.READ) ;
+        write(sc, 0, 6) ;
+        awaitReplay(tMgr) ;
+        assertEquals(0, count(reader)) ;
+        assertEquals(6, count(sc)) ;
+        reader.end() ;
+    }
+}
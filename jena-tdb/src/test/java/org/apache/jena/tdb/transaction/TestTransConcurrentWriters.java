@@ -0,0 +1,205 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.jena.tdb.transaction ;
+
+import static org.junit.Assert.assertEquals ;
+import static org.junit.Assert.assertFalse ;
+import static org.junit.Assert.assertTrue ;
+import static org.junit.Assert.fail ;
+
+import java.util.concurrent.* ;
+
+import org.apache.jena.atlas.iterator.Iter ;
+import org.apache.jena.graph.Node ;
+import org.apache.jena.graph.NodeFactory ;
+import org.apache.jena.query.ReadWrite ;
+import org.apache.jena.sparql.core.Quad ;
+import org.apache.jena.sparql.sse.SSE ;
+import org.apache.jena.tdb.StoreConnection ;
+import org.apache.jena.tdb.base.file.Location ;
+import org.junit.After ;
+import org.junit.Before ;
+import org.junit.Test ;
+
+/** Tests for concurrent write transactions */ 
+public class TestTransConcurrentWriters {
+    private static Node g1 = SSE.parseNode(":g1") ;
+    private static Node g2 = SSE.parseNode(":g2") ;
+    private static Node s = SSE.parseNode(":s") ;
+    private static Node p = SSE.parseNode(":p") ;
+    
+    private StoreConnection sConn ;
+    
+    @Before public void before() {
+        StoreConnection.release(Location.mem()) ;
+        sConn = StoreConnection.make(Location.mem()) ;
+    }
+    
+    @After public void after() {
+        StoreConnection.release(Location.mem()) ;
+    }
+
+    private static Quad quad(Node g, int i) {
+        return Quad.create(g, s, p, NodeFactory.createLiteral("v"+i)) ;
+    }
+    
+    private long count(Node g) {
+        DatasetGraphTxn dsg = sConn.begin(ReadWrite.READ) ;
+        try { return Iter.count(dsg.find(g, null, null, null)) ; }
+        finally { dsg.end() ; }
+    }
+
+    @Test public void concurrent_write_01() {
+        DatasetGraphTxnConcurrent dsg = sConn.beginConcurrentWrite() ;
+        dsg.add(quad(g1, 1)) ;
+        dsg.add(quad(Quad.defaultGraphNodeGenerated, 2)) ;
+        assertTrue(dsg.contains(quad(g1, 1))) ;
+        assertTrue(dsg.contains(quad(Quad.defaultGraphIRI, 2))) ;
+        assertEquals(0, count(g1)) ;
+        dsg.commit() ;
+        dsg.end() ;
+        assertFalse(dsg.isInTransaction()) ;
+        assertEquals(1, count(g1)) ;
+        assertEquals(1, count(Quad.defaultGraphIRI)) ;
+    }
+    
+    @Test public void concurrent_write_02() {
+        // Own deletes and adds over existing data.
+        DatasetGraphTxn w = sConn.begin(ReadWrite.WRITE) ;
+        w.add(quad(g1, 1)) ;
+        w.add(quad(g1, 2)) ;
+        w.commit() ;
+        w.end() ;
+        
+        DatasetGraphTxnConcurrent dsg = sConn.beginConcurrentWrite() ;
+        dsg.delete(quad(g1, 1)) ;
+        dsg.add(quad(g1, 2)) ;
+        dsg.add(quad(g1, 3)) ;
+        assertEquals(2, Iter.count(dsg.find(g1, null, null, null))) ;
+        assertFalse(dsg.contains(quad(g1, 1))) ;
+        dsg.commit() ;
+        assertEquals(2, count(g1)) ;
+    }
+
+    @Test public void concurrent_write_03() {
+        // Disjoint graphs: both commit.
+        DatasetGraphTxnConcurrent dsg1 = sConn.beginConcurrentWrite() ;
+        DatasetGraphTxnConcurrent dsg2 = sConn.beginConcurrentWrite() ;
+        dsg1.add(quad(g1, 1)) ;
+        dsg2.add(quad(g2, 2)) ;
+        dsg1.commit() ;
+        dsg2.commit() ;
+        assertEquals(1, count(g1)) ;
+        assertEquals(1, count(g2)) ;
+    }
+    
+    @Test public void concurrent_write_04() {
+        // Same graph: the second to commit fails.
+        DatasetGraphTxnConcurrent dsg1 = sConn.beginConcurrentWrite() ;
+        DatasetGraphTxnConcurrent dsg2 = sConn.beginConcurrentWrite() ;
+        dsg1.add(quad(g1, 1)) ;
+        dsg2.add(quad(g1, 2)) ;
+        dsg1.commit() ;
+        try {
+            dsg2.commit() ;
+            fail("Expected a conflict") ;
+        } catch (TDBTransactionException ex) {}
+        assertFalse(dsg2.isInTransaction()) ;
+        assertEquals(1, count(g1)) ;
+        assertEquals(1, sConn.getTransactionManager().getCountConcurrentConflicts()) ;
+        // The writer lock has been released.
+        DatasetGraphTxn w = sConn.begin(ReadWrite.WRITE) ;
+        w.abort() ;
+        w.end() ;
+    }
+
+    @Test public void concurrent_write_05() {
+        // Reading a graph changed by another writer is a conflict.
+        DatasetGraphTxnConcurrent dsg1 = sConn.beginConcurrentWrite() ;
+        DatasetGraphTxnConcurrent dsg2 = sConn.beginConcurrentWrite() ;
+        dsg1.add(quad(g1, 1)) ;
+        Iter.count(dsg2.find(g1, null, null, null)) ;
+        dsg2.add(quad(g2, 2)) ;
+        dsg1.commit() ;
+        try {
+            dsg2.commit() ;
+            fail("Expected a conflict") ;
+        } catch (TDBTransactionException ex) {}
+        assertEquals(0, count(g2)) ;
+    }
+    
+    @Test public void concurrent_write_06() {
+        // A normal writer commit conflicts with all concurrent writers.
+        DatasetGraphTxnConcurrent dsg = sConn.beginConcurrentWrite() ;
+        dsg.add(quad(g1, 1)) ;
+        DatasetGraphTxn w = sConn.begin(ReadWrite.WRITE) ;
+        w.add(quad(g2, 2)) ;
+        w.commit() ;
+        w.end() ;
+        try {
+            dsg.commit() ;
+            fail("Expected a conflict") ;
+        } catch (TDBTransactionException ex) {}
+        assertEquals(0, count(g1)) ;
+    }
+    
+    @Test public void concurrent_write_07() {
+        // Abort discards changes.
+        DatasetGraphTxnConcurrent dsg = sConn.beginConcurrentWrite() ;
+        dsg.add(quad(g1, 1)) ;
+        dsg.abort() ;
+        dsg.end() ;
+        assertEquals(0, count(g1)) ;
+        // A later transaction does not see the old commits as conflicts.
+        DatasetGraphTxnConcurrent dsg2 = sConn.beginConcurrentWrite() ;
+        dsg2.add(quad(g1, 2)) ;
+        dsg2.commit() ;
+        assertEquals(1, count(g1)) ;
+    }
+
+    @Test public void concurrent_write_08() throws Exception {
+        // Writers on their own graphs from several threads.
+        int N = 4 ;
+        int M = 20 ;
+        ExecutorService executor = Executors.newFixedThreadPool(N) ;
+        try {
+            CountDownLatch started = new CountDownLatch(N) ;
+            Future<?>[] results = new Future<?>[N] ;
+            for ( int i = 0 ; i < N ; i++ ) {
+                Node g = NodeFactory.createURI("http://example/graph"+i) ;
+                results[i] = executor.submit(() -> {
+                    DatasetGraphTxnConcurrent dsg = sConn.beginConcurrentWrite() ;
+                    started.countDown() ;
+                    try { started.await() ; } catch (InterruptedException ex) {}
+                    for ( int j = 0 ; j < M ; j++ )
+                        dsg.add(quad(g, j)) ;
+                    dsg.commit() ;
+                    return null ;
+                }) ;
+            }
+            for ( Future<?> f : results )
+                f.get(30, TimeUnit.SECONDS) ;
+        } finally {
+            executor.shutdownNow() ;
+        }
+        for ( int i = 0 ; i < N ; i++ )
+            assertEquals(M, count(NodeFactory.createURI("http://example/graph"+i))) ;
+    }
+}
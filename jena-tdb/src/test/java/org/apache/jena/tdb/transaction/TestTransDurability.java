@@ -0,0 +1,160 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.jena.tdb.transaction ;
+
+import static org.junit.Assert.assertEquals ;
+import static org.junit.Assert.assertTrue ;
+
+import java.util.ArrayList ;
+import java.util.List ;
+
+import org.apache.jena.atlas.lib.FileOps ;
+import org.apache.jena.graph.Node ;
+import org.apache.jena.graph.NodeFactory ;
+import org.apache.jena.query.ReadWrite ;
+import org.apache.jena.sparql.core.Quad ;
+import org.apache.jena.sparql.sse.SSE ;
+import org.apache.jena.tdb.ConfigTest ;
+import org.apache.jena.tdb.StoreConnection ;
+import org.apache.jena.tdb.base.file.Location ;
+import org.junit.After ;
+import org.junit.Before ;
+import org.junit.Test ;
+
+/** Tests for the durability policy of commits: strict, group commit and relaxed */ 
+public class TestTransDurability {
+    private static Node s = SSE.parseNode(":s") ;
+    private static Node p = SSE.parseNode(":p") ;
+    
+    private String path = null ;
+    private Location location = null ;
+    
+    @Before public void before() {
+        path = ConfigTest.getCleanDir() ;
+        location = Location.create(path) ;
+        StoreConnection.release(location) ;
+        FileOps.clearDirectory(path) ;
+    }
+    
+    @After public void after() {
+        StoreConnection.release(location) ;
+        if ( FileOps.exists(path) )
+            FileOps.clearDirectory(path) ;
+    }
+
+    private static Quad quad(int i) {
+        return Quad.create(Quad.defaultGraphIRI, s, p, NodeFactory.createLiteral("v"+i)) ;
+    }
+    
+    private static void write(StoreConnection sc, int i) {
+        DatasetGraphTxn dsg = sc.begin(ReadWrite.WRITE) ;
+        dsg.add(quad(i)) ;
+        dsg.commit() ;
+        dsg.end() ;
+    }
+    
+    private static long count(StoreConnection sc) {
+        DatasetGraphTxn dsg = sc.begin(ReadWrite.READ) ;
+        try { return dsg.getDefaultGraph().size() ; }
+        finally { dsg.end() ; }
+    }
+    
+    private static void writeConcurrently(StoreConnection sc, int threads, int perThread) throws InterruptedException {
+        List<Thread> x = new ArrayList<>() ;
+        for ( int t = 0 ; t < threads ; t++ ) {
+            int base = t*perThread ;
+            x.add(new Thread(()-> { for ( int i = 0 ; i < perThread ; i++ ) write(sc, base+i) ; })) ;
+        }
+        x.forEach(Thread::start) ;
+        for ( Thread t : x )
+            t.join() ;
+    }
+    
+    @Test public void durability_strict_01() {
+        StoreConnection sc = StoreConnection.make(location) ;
+        TransactionManager tMgr = sc.getTransactionManager() ;
+        TransactionInfo info = new TransactionInfo(tMgr) ;
+        assertEquals(Durability.STRICT, tMgr.getDurability()) ;
+        for ( int i = 0 ; i < 5 ; i++ )
+            write(sc, i) ;
+        assertEquals(5, count(sc)) ;
+        assertEquals(5, info.getWriteCommitTransactionCount()) ;
+        assertEquals(5, info.getJournalSyncCount()) ;
+        assertEquals(1.0, info.getCommitsPerJournalSync(), 0.0) ;
+        assertTrue(info.getCommitLatencyMaxMicros() >= info.getCommitLatencyMeanMicros()) ;
+        assertTrue(info.getCommitThroughput() > 0) ;
+    }
+
+    @Test public void durability_group_01() throws InterruptedException {
+        StoreConnection sc = StoreConnection.make(location) ;
+        TransactionManager tMgr = sc.getTransactionManager() ;
+        tMgr.setDurability(Durability.GROUP, 20) ;
+        TransactionInfo info = new TransactionInfo(tMgr) ;
+        assertEquals("GROUP", info.getDurability()) ;
+        writeConcurrently(sc, 4, 10) ;
+        assertEquals(40, count(sc)) ;
+        assertEquals(40, info.getWriteCommitTransactionCount()) ;
+        // Every commit has been forced to disk by the journal sync or by replay.
+        assertTrue(info.getJournalSyncCount() <= 40) ;
+    }
+    
+    @Test public void durability_group_02() {
+        // Group commit, with the journal kept (a reader is active) so commits wait for the sync.
+        StoreConnection sc = StoreConnection.make(location) ;
+        TransactionManager tMgr = sc.getTransactionManager() ;
+        tMgr.setDurability(Durability.GROUP, 1) ;
+        TransactionInfo info = new TransactionInfo(tMgr) ;
+        DatasetGraphTxn reader = sc.begin(ReadWrite.READ) ;
+        for ( int i = 0 ; i < 3 ; i++ )
+            write(sc, i) ;
+        assertEquals(3, info.getJournalSyncCount()) ;
+        assertEquals(3, tMgr.getQueueLength()) ;
+        reader.end() ;
+        assertEquals(3, count(sc)) ;
+    }
+
+    @Test public void durability_relaxed_01() {
+        StoreConnection sc = StoreConnection.make(location) ;
+        sc.getTransactionManager().setDurability(Durability.RELAXED, 1) ;
+        for ( int i = 0 ; i < 10 ; i++ )
+            write(sc, i) ;
+        assertEquals(10, count(sc)) ;
+        StoreConnection.release(location) ;
+        
+        sc = StoreConnection.make(location) ;
+        assertEquals(Durability.STRICT, sc.getTransactionManager().getDurability()) ;
+        assertEquals(10, count(sc)) ;
+    }
+    
+    @Test public void durability_relaxed_02() throws InterruptedException {
+        StoreConnection sc = StoreConnection.make(location) ;
+        TransactionManager tMgr = sc.getTransactionManager() ;
+        tMgr.setDurability(Durability.RELAXED, 1) ;
+        TransactionInfo info = new TransactionInfo(tMgr) ;
+        DatasetGraphTxn reader = sc.begin(ReadWrite.READ) ;
+        write(sc, 1) ;
+        // The background sync covers the commit within the window.
+        for ( int i = 0 ; i < 500 && info.getJournalSyncCount() == 0 ; i++ )
+            Thread.sleep(10) ;
+        assertEquals(1, info.getJournalSyncCount()) ;
+        reader.end() ;
+        assertEquals(1, count(sc)) ;
+    }
+}
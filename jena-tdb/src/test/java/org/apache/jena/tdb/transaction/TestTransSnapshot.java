@@ -0,0 +1,209 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb.transaction ;
+
+import static org.junit.Assert.assertEquals ;
+import static org.junit.Assert.assertFalse ;
+import static org.junit.Assert.assertTrue ;
+
+import org.apache.jena.atlas.lib.FileOps ;
+import org.apache.jena.graph.Node ;
+import org.apache.jena.graph.NodeFactory ;
+import org.apache.jena.query.* ;
+import org.apache.jena.sparql.core.Quad ;
+import org.apache.jena.sparql.sse.SSE ;
+import org.apache.jena.tdb.ConfigTest ;
+import org.apache.jena.tdb.StoreConnection ;
+import org.apache.jena.tdb.base.file.Location ;
+import org.junit.After ;
+import org.junit.AfterClass ;
+import org.junit.Before ;
+import org.junit.BeforeClass ;
+import org.junit.Test ;
+
+/** Tests for read-only snapshots, which do not hold back writing to the base database */
+public class TestTransSnapshot {
+    private static Node s = SSE.parseNode(":s") ;
+    private static Node p = SSE.parseNode(":p") ;
+
+    private static boolean x_BackgroundReplay ;
+    private static int x_QueueBatchSize ;
+
+    private String path = null ;
+    private Location location = null ;
+
+    @BeforeClass static public void beforeClass() {
+        x_BackgroundReplay = TransactionManager.BackgroundReplay ;
+        x_QueueBatchSize = TransactionManager.QueueBatchSize ;
+    }
+
+    @AfterClass static public void afterClass() {
+        TransactionManager.BackgroundReplay = x_BackgroundReplay ;
+        TransactionManager.QueueBatchSize = x_QueueBatchSize ;
+    }
+
+    @Before public void before() {
+        TransactionManager.BackgroundReplay = false ;
+        TransactionManager.QueueBatchSize = 1 ;
+        path = ConfigTest.getCleanDir() ;
+        location = Location.create(path) ;
+        StoreConnection.release(location) ;
+        FileOps.clearDirectory(path) ;
+    }
+
+    @After public void after() {
+        StoreConnection.release(location) ;
+        StoreConnection.release(Location.mem()) ;
+        if ( FileOps.exists(path) )
+            FileOps.clearDirectory(path) ;
+    }
+
+    private static Quad quad(int i) {
+        return Quad.create(Quad.defaultGraphIRI, s, p, NodeFactory.createLiteral("v"+i)) ;
+    }
+
+    private static void write(StoreConnection sc, int start, int finish) {
+        for ( int i = start ; i < finish ; i++ ) {
+            DatasetGraphTxn dsg = sc.begin(ReadWrite.WRITE) ;
+            dsg.add(quad(i)) ;
+            dsg.commit() ;
+            dsg.end() ;
+        }
+    }
+
+    private static long count(StoreConnection sc) {
+        DatasetGraphTxn dsg = sc.begin(ReadWrite.READ) ;
+        try { return dsg.getDefaultGraph().size() ; }
+        finally { dsg.end() ; }
+    }
+
+    private static void awaitReplay(TransactionManager tMgr) throws InterruptedException {
+        for ( int i = 0 ; i < 500 && tMgr.getQueueLength() > 0 ; i++ )
+            Thread.sleep(10) ;
+        assertEquals("Replay did not happen", 0, tMgr.getQueueLength()) ;
+    }
+
+    private void snapshot(Location loc) throws InterruptedException {
+        StoreConnection sc = StoreConnection.make(loc) ;
+        TransactionManager tMgr = sc.getTransactionManager() ;
+        write(sc, 0, 3) ;
+        DatasetGraphSnapshot snapshot = sc.openSnapshot() ;
+        assertEquals(1, tMgr.getSnapshotCount()) ;
+        assertEquals(3, snapshot.getDefaultGraph().size()) ;
+        write(sc, 3, 10) ;
+        // The open snapshot does not stop the journal being written to the database.
+        if ( ! tMgr.isBackgroundReplay() )
+            sc.flush() ;
+        awaitReplay(tMgr) ;
+        assertTrue(tMgr.getBlockVersionCount() > 0) ;
+        assertEquals(3, snapshot.getDefaultGraph().size()) ;
+        assertFalse(snapshot.contains(quad(5))) ;
+        assertEquals(10, count(sc)) ;
+        snapshot.close() ;
+        assertEquals(0, tMgr.getSnapshotCount()) ;
+        assertEquals(0, tMgr.getBlockVersionCount()) ;
+        assertEquals(10, count(sc)) ;
+    }
+
+    @Test public void snapshot_01() throws InterruptedException {
+        snapshot(location) ;
+    }
+
+    @Test public void snapshot_02() throws InterruptedException {
+        snapshot(Location.mem()) ;
+    }
+
+    @Test public void snapshot_03() throws InterruptedException {
+        TransactionManager.BackgroundReplay = true ;
+        snapshot(location) ;
+    }
+
+    @Test public void snapshot_04() {
+        // Several snapshots and transactions at different generations.
+        StoreConnection sc = StoreConnection.make(location) ;
+        TransactionManager tMgr = sc.getTransactionManager() ;
+        write(sc, 0, 2) ;
+        DatasetGraphSnapshot snapshot1 = sc.openSnapshot() ;
+        write(sc, 2, 4) ;
+        DatasetGraphTxn reader = sc.begin(ReadWrite.READ) ;
+        write(sc, 4, 5) ;
+        assertEquals(4, reader.getDefaultGraph().size()) ;
+        // Without background replay, opening a snapshot waits for active transactions.
+        reader.end() ;
+        DatasetGraphSnapshot snapshot2 = sc.openSnapshot() ;
+        write(sc, 5, 8) ;
+        assertEquals(2, snapshot1.getDefaultGraph().size()) ;
+        assertEquals(5, snapshot2.getDefaultGraph().size()) ;
+        snapshot1.close() ;
+        assertEquals(5, snapshot2.getDefaultGraph().size()) ;
+        assertEquals(8, count(sc)) ;
+        snapshot2.close() ;
+        assertEquals(0, tMgr.getBlockVersionCount()) ;
+    }
+
+    @Test public void snapshot_query_01() {
+        StoreConnection sc = StoreConnection.make(location) ;
+        write(sc, 0, 4) ;
+        DatasetGraphSnapshot snapshot = sc.openSnapshot() ;
+        write(sc, 4, 6) ;
+        Dataset ds = DatasetFactory.wrap(snapshot) ;
+        try ( QueryExecution qExec = QueryExecutionFactory.create("SELECT (count(*) AS ?C) { ?s ?p ?o }", ds) ) {
+            long x = qExec.execSelect().next().getLiteral("C").getLong() ;
+            assertEquals(4, x) ;
+        }
+        snapshot.close() ;
+    }
+
+    @Test(expected=UnsupportedOperationException.class)
+    public void snapshot_readonly_01() {
+        StoreConnection sc = StoreConnection.make(location) ;
+        DatasetGraphSnapshot snapshot = sc.openSnapshot() ;
+        try { snapshot.add(quad(1)) ; }
+        finally { snapshot.close() ; }
+    }
+
+    @Test(expected=TDBTransactionException.class)
+    public void snapshot_readonly_02() {
+        StoreConnection sc = StoreConnection.make(location) ;
+        DatasetGraphSnapshot snapshot = sc.openSnapshot() ;
+        try { snapshot.begin(ReadWrite.WRITE) ; }
+        finally { snapshot.close() ; }
+    }
+
+    @Test public void snapshot_txn_01() {
+        // Read transactions are accepted.
+        StoreConnection sc = StoreConnection.make(location) ;
+        write(sc, 0, 1) ;
+        DatasetGraphSnapshot snapshot = sc.openSnapshot() ;
+        snapshot.begin(ReadWrite.READ) ;
+        assertEquals(1, snapshot.getDefaultGraph().size()) ;
+        snapshot.end() ;
+        snapshot.close() ;
+    }
+
+    @Test(expected=TDBTransactionException.class)
+    public void snapshot_close_01() {
+        StoreConnection sc = StoreConnection.make(location) ;
+        DatasetGraphSnapshot snapshot = sc.openSnapshot() ;
+        snapshot.close() ;
+        snapshot.close() ;
+        assertTrue(snapshot.isClosed()) ;
+        snapshot.find() ;
+    }
+}